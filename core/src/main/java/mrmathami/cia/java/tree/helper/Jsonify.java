@@ -20,9 +20,21 @@ package mrmathami.cia.java.tree.helper;
 
 import mrmathami.annotations.Nonnull;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface Jsonify {
 
 	@Nonnull
 	String toJson();
 
+	/**
+	 * Write the JSON representation directly to the writer, without building it in memory first.
+	 * The writer should be buffered, and will not be flushed nor closed.
+	 *
+	 * @param writer output writer
+	 * @throws IOException if the writer throws
+	 */
+	void toJson(@Nonnull Writer writer) throws IOException;
+
 }
@@ -28,8 +28,10 @@ import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 public interface JavaNode extends JavaIdentifiedEntity {
 
@@ -45,7 +47,7 @@ public interface JavaNode extends JavaIdentifiedEntity {
 	}
 
 	/**
-	 * Return node id. Guarantee to be continuous, start from 0.
+	 * Return node id. Guarantee to be continuous, start from 0, and in pre-order.
 	 * Guarantee to satisfy <code>this == this.getRoot().getAllNodes().get(this.getId())</code>
 	 *
 	 * @return node id
@@ -102,34 +104,118 @@ public interface JavaNode extends JavaIdentifiedEntity {
 
 	//region Visit Iterator
 
+	/**
+	 * Nodes are numbered in pre-order, so the subtree of a node is the id range from its own id up to, but not
+	 * including, its subtree end.
+	 *
+	 * @return the id right after the last node in the subtree of this node
+	 */
+	default int getSubtreeEnd() {
+		JavaNode lastNode = this;
+		List<? extends JavaNode> children = lastNode.getChildren();
+		while (!children.isEmpty()) {
+			lastNode = children.get(children.size() - 1);
+			children = lastNode.getChildren();
+		}
+		return lastNode.getId() + 1;
+	}
+
+	/**
+	 * @param node a node
+	 * @return true if the node is a strict descendant of this node
+	 */
+	default boolean isAncestorOf(@Nonnull JavaNode node) {
+		final int nodeId = node.getId();
+		return nodeId > getId() && nodeId < getSubtreeEnd() && node.getRoot() == getRoot();
+	}
+
+	/**
+	 * @return iterator over every descendant of this node, in pre-order
+	 */
 	@Nonnull
 	default Iterator<? extends JavaNode> getVisitIterator() {
-		return new VisitIterator(this);
+		return new VisitIterator(getRoot().getAllNodes(), getId() + 1, getSubtreeEnd());
 	}
 
-	final class VisitIterator implements Iterator<JavaNode> {
-		@Nonnull private final Stack<Iterator<? extends JavaNode>> stack = new Stack<>();
-		@Nullable private JavaNode current;
+	/**
+	 * @return sized and splittable spliterator over this node and every descendant of it, in pre-order
+	 */
+	@Nonnull
+	default Spliterator<JavaNode> getSubtreeSpliterator() {
+		return new SubtreeSpliterator(getRoot().getAllNodes(), getId(), getSubtreeEnd());
+	}
 
-		private VisitIterator(@Nullable JavaNode current) {
-			this.current = current;
+	/**
+	 * Cursor over a pre-order id range.
+	 */
+	final class VisitIterator implements Iterator<JavaNode> {
+		@Nonnull private final List<? extends JavaNode> allNodes;
+		private final int end;
+		private int next;
+
+		private VisitIterator(@Nonnull List<? extends JavaNode> allNodes, int start, int end) {
+			this.allNodes = allNodes;
+			this.next = start;
+			this.end = end;
 		}
 
 		@Override
 		public boolean hasNext() {
-			if (current != null) stack.push(current.getChildren().iterator());
-			this.current = null;
-			do {
-				if (stack.peek().hasNext()) return true;
-				stack.pop();
-			} while (!stack.isEmpty());
-			return false;
+			return next < end;
 		}
 
 		@Override
 		public JavaNode next() {
-			if (current != null) stack.push(current.getChildren().iterator());
-			return this.current = stack.peek().next();
+			if (next >= end) throw new NoSuchElementException();
+			return allNodes.get(next++);
+		}
+	}
+
+	/**
+	 * Spliterator over a pre-order id range, split in halves.
+	 */
+	final class SubtreeSpliterator implements Spliterator<JavaNode> {
+		@Nonnull private final List<? extends JavaNode> allNodes;
+		private final int end;
+		private int next;
+
+		private SubtreeSpliterator(@Nonnull List<? extends JavaNode> allNodes, int start, int end) {
+			this.allNodes = allNodes;
+			this.next = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(@Nonnull Consumer<? super JavaNode> action) {
+			if (next >= end) return false;
+			action.accept(allNodes.get(next++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(@Nonnull Consumer<? super JavaNode> action) {
+			final int end = this.end;
+			for (int index = next; index < end; index++) action.accept(allNodes.get(index));
+			this.next = end;
+		}
+
+		@Nullable
+		@Override
+		public Spliterator<JavaNode> trySplit() {
+			final int start = next, middle = (start + end) >>> 1;
+			if (middle <= start) return null;
+			this.next = middle;
+			return new SubtreeSpliterator(allNodes, start, middle);
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - next;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
 		}
 	}
 
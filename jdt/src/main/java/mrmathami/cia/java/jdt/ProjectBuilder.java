@@ -25,11 +25,15 @@ import mrmathami.cia.java.jdt.project.builder.parameter.BuildInputSources;
 import mrmathami.cia.java.jdt.project.differ.JavaSnapshotComparator;
 import mrmathami.cia.java.jdt.project.builder.SnapshotBuilder;
 import mrmathami.cia.java.jdt.project.builder.parameter.SnapshotBuildParameter;
+import mrmathami.cia.java.jdt.project.mapped.MappedSnapshot;
+import mrmathami.cia.java.jdt.project.store.StoredProject;
 import mrmathami.cia.java.project.JavaProject;
 import mrmathami.cia.java.project.JavaProjectSnapshot;
 import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Set;
 
 public final class ProjectBuilder {
@@ -42,6 +46,23 @@ public final class ProjectBuilder {
 		return new Project(name);
 	}
 
+	@Nonnull
+	public static JavaProject createStoredProject(@Nonnull String name, @Nonnull Path directory, int cacheSize)
+			throws JavaCiaException {
+		return StoredProject.create(name, directory, cacheSize);
+	}
+
+	@Nonnull
+	public static JavaProject createStoredProject(@Nonnull String name, @Nonnull Path directory, int cacheSize,
+			int keyframeInterval) throws JavaCiaException {
+		return StoredProject.create(name, directory, cacheSize, keyframeInterval);
+	}
+
+	@Nonnull
+	public static JavaProject openStoredProject(@Nonnull Path directory, int cacheSize) throws JavaCiaException {
+		return StoredProject.open(directory, cacheSize);
+	}
+
 	@Nonnull
 	public static JavaProjectSnapshot createProjectSnapshot(@Nonnull String snapshotName,
 			@Nonnull JavaDependencyWeightTable dependencyWeightTable, @Nonnull BuildInputSources inputSources,
@@ -49,6 +70,16 @@ public final class ProjectBuilder {
 		return SnapshotBuilder.build(snapshotName, dependencyWeightTable, inputSources, parameters);
 	}
 
+	public static void writeMappedProjectSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot, @Nonnull Path path)
+			throws JavaCiaException {
+		MappedSnapshot.write(projectSnapshot, path);
+	}
+
+	@Nonnull
+	public static JavaProjectSnapshot openMappedProjectSnapshot(@Nonnull Path path) throws JavaCiaException {
+		return MappedSnapshot.open(path);
+	}
+
 	@Nonnull
 	public static JavaProjectSnapshotComparison createProjectSnapshotComparison(@Nonnull String comparisonName,
 			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
@@ -56,4 +87,20 @@ public final class ProjectBuilder {
 		return JavaSnapshotComparator.compare(comparisonName, previousSnapshot, currentSnapshot, impactWeightTable);
 	}
 
+	@Nonnull
+	public static JavaProjectSnapshotComparison createProjectSnapshotComparison(@Nonnull String comparisonName,
+			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
+			@Nonnull JavaDependencyWeightTable impactWeightTable, boolean detectMoves) throws JavaCiaException {
+		return JavaSnapshotComparator.compare(comparisonName, previousSnapshot, currentSnapshot, impactWeightTable,
+				detectMoves);
+	}
+
+	@Nonnull
+	public static List<JavaProjectSnapshotComparison> createProjectSnapshotComparisons(
+			@Nonnull List<String> comparisonNames, @Nonnull List<? extends JavaProjectSnapshot> snapshots,
+			@Nonnull JavaDependencyWeightTable impactWeightTable, boolean detectMoves) throws JavaCiaException {
+		return List.copyOf(JavaSnapshotComparator.compareChain(comparisonNames, snapshots, impactWeightTable,
+				detectMoves));
+	}
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.util.List;
+
+/**
+ * The number of dependencies of each type from the dependents of every node of a tree, in one flat array. The weight
+ * of a node is the sum of these counts weighted by the dependency weights, so the node weights for any dependency
+ * weights are calculated in one pass over this array, without walking the tree again.
+ */
+public final class DependencyCountMatrix {
+
+	private static final int TYPE_COUNT = JavaDependency.VALUE_LIST.size();
+
+	@Nonnull private final JavaRootNode rootNode;
+	// the count of the dependency type t of the node with id i is at position i * TYPE_COUNT + t
+	@Nonnull private final int[] counts;
+
+
+	public DependencyCountMatrix(@Nonnull JavaRootNode rootNode) {
+		final List<? extends JavaNode> allNodes = rootNode.getAllNodes();
+		this.rootNode = rootNode;
+		this.counts = new int[allNodes.size() * TYPE_COUNT];
+		for (final JavaNode node : allNodes) {
+			final int base = node.getId() * TYPE_COUNT;
+			for (final JavaDependencyCountTable nodeDependency : node.getDependencyFrom().values()) {
+				for (final JavaDependency dependency : JavaDependency.VALUE_LIST) {
+					counts[base + dependency.ordinal()] += nodeDependency.getCount(dependency);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @param dependencyWeights weight of each dependency type, indexed by ordinal
+	 * @return weight of every node, indexed by id
+	 */
+	@Nonnull
+	public double[] calculateWeights(@Nonnull double[] dependencyWeights) {
+		if (dependencyWeights.length != TYPE_COUNT) {
+			throw new IllegalArgumentException("Invalid dependency weight count!");
+		}
+		final double[] nodeWeights = new double[counts.length / TYPE_COUNT];
+		for (int id = 0, base = 0; id < nodeWeights.length; id++, base += TYPE_COUNT) {
+			double nodeWeight = 0.0;
+			for (int type = 0; type < TYPE_COUNT; type++) nodeWeight += dependencyWeights[type] * counts[base + type];
+			nodeWeights[id] = nodeWeight;
+		}
+		return nodeWeights;
+	}
+
+	//region Getter
+
+	@Nonnull
+	public JavaRootNode getRootNode() {
+		return rootNode;
+	}
+
+	//endregion Getter
+
+}
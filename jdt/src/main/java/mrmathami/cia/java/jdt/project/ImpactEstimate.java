@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+
+import java.io.Serializable;
+
+/**
+ * Impacts estimated from a number of random independent cascade samples, with a confidence interval that holds for
+ * each node. The interval comes from the Hoeffding bound, so it has the same width for every node and does not depend
+ * on the shape of the graph. The impact of a node here is the chance that the cascade reaches it, which is not the
+ * impact of a full calculation.
+ */
+public final class ImpactEstimate implements JavaNodeWeightTable, Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	@Nonnull private final SparseNodeWeightTable estimates;
+	private final int sampleCount;
+	private final double confidence;
+	private final double errorBound;
+
+
+	/**
+	 * @param estimates the fraction of the samples in which each node is impacted
+	 * @param sampleCount the number of samples
+	 * @param confidence the chance that the interval of a node holds its impact, from 0 to 1 exclusive
+	 */
+	public ImpactEstimate(@Nonnull SparseNodeWeightTable estimates, int sampleCount, double confidence) {
+		if (sampleCount <= 0) throw new IllegalArgumentException("Sample count must be positive!");
+		if (!(confidence > 0.0 && confidence < 1.0)) throw new IllegalArgumentException("Invalid confidence!");
+
+		this.estimates = estimates;
+		this.sampleCount = sampleCount;
+		this.confidence = confidence;
+		this.errorBound = errorBound(sampleCount, confidence);
+	}
+
+
+	/**
+	 * @return the largest difference between an estimate and its impact at the confidence
+	 */
+	public static double errorBound(int sampleCount, double confidence) {
+		return Math.sqrt(Math.log(2.0 / (1.0 - confidence)) / (2.0 * sampleCount));
+	}
+
+	/**
+	 * @return the number of samples needed for every estimate to be within the error bound at the confidence
+	 */
+	public static int sampleCount(double errorBound, double confidence) {
+		if (!(errorBound > 0.0 && errorBound < 1.0)) throw new IllegalArgumentException("Invalid error bound!");
+		if (!(confidence > 0.0 && confidence < 1.0)) throw new IllegalArgumentException("Invalid confidence!");
+		final double sampleCount = Math.ceil(Math.log(2.0 / (1.0 - confidence)) / (2.0 * errorBound * errorBound));
+		if (sampleCount > Integer.MAX_VALUE) throw new IllegalArgumentException("Error bound is too small!");
+		return (int) sampleCount;
+	}
+
+	//region Getter
+
+	@Override
+	public double getWeight(@Nonnull JavaNode javaNode) {
+		return estimates.getWeight(javaNode);
+	}
+
+	/**
+	 * @return the lower end of the confidence interval of the impact of the node
+	 */
+	public double getLowerBound(@Nonnull JavaNode javaNode) {
+		return Math.max(estimates.getWeight(javaNode) - errorBound, 0.0);
+	}
+
+	/**
+	 * @return the upper end of the confidence interval of the impact of the node
+	 */
+	public double getUpperBound(@Nonnull JavaNode javaNode) {
+		return Math.min(estimates.getWeight(javaNode) + errorBound, 1.0);
+	}
+
+	/**
+	 * @return the estimates of the nodes that are impacted in at least one sample
+	 */
+	@Nonnull
+	public SparseNodeWeightTable getEstimateTable() {
+		return estimates;
+	}
+
+	public int getSampleCount() {
+		return sampleCount;
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	public double getErrorBound() {
+		return errorBound;
+	}
+
+	//endregion Getter
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+
+/**
+ * Impacts of a change that is calculated progressively. Each impact only counts the changed nodes themselves and the
+ * paths that are followed so far, so it is a lower bound of the impact that only grows with every later progress, and
+ * it is the impact itself when every changed node is done.
+ */
+public final class ImpactProgress implements JavaNodeWeightTable {
+
+	@Nonnull private final SparseNodeWeightTable impacts;
+	private final int doneNodeCount;
+	private final int changedNodeCount;
+
+
+	/**
+	 * @param impacts impact of the paths that are followed so far
+	 * @param doneNodeCount the number of changed nodes whose paths are all followed
+	 * @param changedNodeCount the number of changed nodes
+	 */
+	public ImpactProgress(@Nonnull SparseNodeWeightTable impacts, int doneNodeCount, int changedNodeCount) {
+		if (doneNodeCount < 0 || doneNodeCount > changedNodeCount) {
+			throw new IllegalArgumentException("Invalid done node count!");
+		}
+		this.impacts = impacts;
+		this.doneNodeCount = doneNodeCount;
+		this.changedNodeCount = changedNodeCount;
+	}
+
+	//region Getter
+
+	@Override
+	public double getWeight(@Nonnull JavaNode javaNode) {
+		return impacts.getWeight(javaNode);
+	}
+
+	/**
+	 * @return impact of the paths that are followed so far on the nodes they reach
+	 */
+	@Nonnull
+	public SparseNodeWeightTable getImpactTable() {
+		return impacts;
+	}
+
+	public int getDoneNodeCount() {
+		return doneNodeCount;
+	}
+
+	public int getChangedNodeCount() {
+		return changedNodeCount;
+	}
+
+	/**
+	 * @return true if every path is followed, so the impacts are the same as a full calculation
+	 */
+	public boolean isComplete() {
+		return doneNodeCount == changedNodeCount;
+	}
+
+	//endregion Getter
+
+}
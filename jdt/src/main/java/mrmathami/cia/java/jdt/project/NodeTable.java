@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.project.JavaModule;
+import mrmathami.cia.java.tree.node.JavaAnnotationNode;
+import mrmathami.cia.java.tree.node.JavaClassNode;
+import mrmathami.cia.java.tree.node.JavaEnumNode;
+import mrmathami.cia.java.tree.node.JavaFieldNode;
+import mrmathami.cia.java.tree.node.JavaInitializerNode;
+import mrmathami.cia.java.tree.node.JavaInterfaceNode;
+import mrmathami.cia.java.tree.node.JavaMethodNode;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaPackageNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+import mrmathami.cia.java.tree.node.attribute.JavaModifiedNode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar view of the nodes of a snapshot: every attribute is kept in its own array indexed by node id, so a scan
+ * over one attribute of every node reads one contiguous array instead of following a pointer to each node.
+ */
+public final class NodeTable {
+
+	public enum Kind {
+		ROOT, PACKAGE, CLASS, ENUM, INTERFACE, ANNOTATION, FIELD, METHOD, INITIALIZER;
+
+		@Nonnull public static final List<Kind> VALUE_LIST = List.of(values());
+	}
+
+	@Nonnull private final byte[] kinds;
+	@Nonnull private final int[] parentIds;
+	@Nonnull private final int[] subtreeEnds;
+	@Nonnull private final int[] moduleIds;
+	@Nonnull private final int[] modifiers;
+	@Nonnull private final int[] dependencyFromCounts;
+	@Nonnull private final int[] dependencyToCounts;
+	@Nonnull private final double[] weights;
+	@Nonnull private final List<JavaModule> modules;
+
+
+	/**
+	 * @param rootNode frozen root node
+	 * @param weights weight of each node, indexed by node id, is not copied
+	 */
+	public NodeTable(@Nonnull JavaRootNode rootNode, @Nonnull double[] weights) {
+		final List<? extends JavaNode> allNodes = rootNode.getAllNodes();
+		final int size = allNodes.size();
+		assert weights.length == size;
+
+		this.kinds = new byte[size];
+		this.parentIds = new int[size];
+		this.subtreeEnds = new int[size];
+		this.moduleIds = new int[size];
+		this.modifiers = new int[size];
+		this.dependencyFromCounts = new int[size];
+		this.dependencyToCounts = new int[size];
+		this.weights = weights;
+
+		final List<JavaModule> modules = new ArrayList<>();
+		final Map<JavaModule, Integer> moduleIndexes = new IdentityHashMap<>();
+		for (int id = 0; id < size; id++) {
+			final JavaNode node = allNodes.get(id);
+			kinds[id] = (byte) kindOf(node).ordinal();
+			parentIds[id] = node.isRoot() ? -1 : node.getParent().getId();
+			subtreeEnds[id] = node.getSubtreeEnd();
+			final JavaModule module = node.getModule();
+			moduleIds[id] = module != null ? moduleIndexes.computeIfAbsent(module, any -> {
+				modules.add(module);
+				return modules.size() - 1;
+			}) : -1;
+			modifiers[id] = node instanceof JavaModifiedNode ? ((JavaModifiedNode) node).getModifiers() : 0;
+			dependencyFromCounts[id] = node.getDependencyFrom().size();
+			dependencyToCounts[id] = node.getDependencyTo().size();
+		}
+		this.modules = List.copyOf(modules);
+	}
+
+
+	@Nonnull
+	private static Kind kindOf(@Nonnull JavaNode node) {
+		if (node instanceof JavaRootNode) return Kind.ROOT;
+		if (node instanceof JavaPackageNode) return Kind.PACKAGE;
+		if (node instanceof JavaClassNode) return Kind.CLASS;
+		if (node instanceof JavaEnumNode) return Kind.ENUM;
+		if (node instanceof JavaInterfaceNode) return Kind.INTERFACE;
+		if (node instanceof JavaAnnotationNode) return Kind.ANNOTATION;
+		if (node instanceof JavaFieldNode) return Kind.FIELD;
+		if (node instanceof JavaMethodNode) return Kind.METHOD;
+		if (node instanceof JavaInitializerNode) return Kind.INITIALIZER;
+		throw new IllegalArgumentException("Unknown node type!");
+	}
+
+
+	//region Getter
+
+	/**
+	 * @return number of nodes, node ids are from 0 up to but not including this
+	 */
+	public int getSize() {
+		return kinds.length;
+	}
+
+	@Nonnull
+	public Kind getKind(int id) {
+		return Kind.VALUE_LIST.get(kinds[id]);
+	}
+
+	/**
+	 * @return parent node id, or -1 for the root node
+	 */
+	public int getParentId(int id) {
+		return parentIds[id];
+	}
+
+	public int getSubtreeEnd(int id) {
+		return subtreeEnds[id];
+	}
+
+	/**
+	 * @return module index in {@link #getModules()}, or -1 if the node does not belong to a module
+	 */
+	public int getModuleId(int id) {
+		return moduleIds[id];
+	}
+
+	@Nonnull
+	public List<JavaModule> getModules() {
+		return modules;
+	}
+
+	@Nullable
+	public JavaModule getModule(int id) {
+		final int moduleId = moduleIds[id];
+		return moduleId >= 0 ? modules.get(moduleId) : null;
+	}
+
+	/**
+	 * @return modifier bits, as in {@link JavaModifiedNode#getModifiers()}, or 0 for a node without modifiers
+	 */
+	public int getModifiers(int id) {
+		return modifiers[id];
+	}
+
+	/**
+	 * @return number of nodes that depend on this node
+	 */
+	public int getDependencyFromCount(int id) {
+		return dependencyFromCounts[id];
+	}
+
+	/**
+	 * @return number of nodes this node depends on
+	 */
+	public int getDependencyToCount(int id) {
+		return dependencyToCounts[id];
+	}
+
+	public double getWeight(int id) {
+		return weights[id];
+	}
+
+	//endregion Getter
+
+}
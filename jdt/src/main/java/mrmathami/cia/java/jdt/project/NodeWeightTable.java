@@ -19,6 +19,7 @@
 package mrmathami.cia.java.jdt.project;
 
 import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.project.JavaNodeWeightTable;
 import mrmathami.cia.java.tree.node.JavaNode;
 import mrmathami.cia.java.tree.node.JavaRootNode;
@@ -32,6 +33,9 @@ public final class NodeWeightTable implements JavaNodeWeightTable, Serializable
 	@Nonnull private final double[] weights;
 	@Nonnull private final JavaRootNode rootNode;
 
+	// prefix sums of the weights in id order, prefixSums[i] is the sum of the weights of the first i nodes
+	@Nullable private transient double[] prefixSums;
+
 	public NodeWeightTable(@Nonnull double[] weights, @Nonnull JavaRootNode rootNode) {
 		assert weights.length == rootNode.getAllNodes().size();
 
@@ -45,4 +49,36 @@ public final class NodeWeightTable implements JavaNodeWeightTable, Serializable
 		throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
 	}
 
+	/**
+	 * @param javaNode a node
+	 * @return the sum of the weights of the node and all of its descendants
+	 */
+	public double getSubtreeWeight(@Nonnull JavaNode javaNode) {
+		if (javaNode.getRoot() != rootNode) {
+			throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
+		}
+		return getWeightSum(javaNode.getId(), javaNode.getSubtreeEnd());
+	}
+
+	/**
+	 * @param fromId first node id, inclusive
+	 * @param toId last node id, exclusive
+	 * @return the sum of the weights of the nodes in the id range
+	 */
+	public double getWeightSum(int fromId, int toId) {
+		if (fromId < 0 || toId > weights.length || fromId > toId) {
+			throw new IndexOutOfBoundsException("Invalid node id range!");
+		}
+		final double[] prefixSums = getPrefixSums();
+		return prefixSums[toId] - prefixSums[fromId];
+	}
+
+	@Nonnull
+	private double[] getPrefixSums() {
+		if (prefixSums != null) return prefixSums;
+		final double[] sums = new double[weights.length + 1];
+		for (int i = 0; i < weights.length; i++) sums[i + 1] = sums[i] + weights[i];
+		return this.prefixSums = sums;
+	}
+
 }
@@ -22,17 +22,27 @@ import mrmathami.annotations.Nonnull;
 import mrmathami.cia.java.JavaCiaException;
 import mrmathami.cia.java.jdt.project.differ.JavaSnapshotComparator;
 import mrmathami.cia.java.jdt.project.builder.SnapshotBuilder;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
 import mrmathami.cia.java.project.JavaProject;
 import mrmathami.cia.java.project.JavaProjectSnapshot;
 import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.node.JavaRootNode;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * In memory project. The bodies of every snapshot added to it are moved into one shared table, so that a body
+ * which stays the same across snapshots is only held once. The shared table itself is not serialized: every snapshot
+ * is written with its own bodies, which are moved into a new shared table when the project is read back.
+ */
 public final class Project implements JavaProject, Serializable {
 
 	private static final long serialVersionUID = -1L;
@@ -40,6 +50,7 @@ public final class Project implements JavaProject, Serializable {
 	@Nonnull private final String name;
 	@Nonnull private final List<ProjectSnapshot> snapshots = new LinkedList<>();
 	@Nonnull private final List<ProjectSnapshotComparison> snapshotComparisons = new LinkedList<>();
+	@Nonnull private transient BodyTable bodyTable = new BodyTable();
 
 
 	public Project(@Nonnull String name) {
@@ -52,6 +63,16 @@ public final class Project implements JavaProject, Serializable {
 		throw new IllegalArgumentException("Input project snapshot is not JDT based.");
 	}
 
+	private void internalAddSnapshot(@Nonnull ProjectSnapshot projectSnapshot) {
+		storeBodies(projectSnapshot);
+		snapshots.add(projectSnapshot);
+	}
+
+	private void storeBodies(@Nonnull ProjectSnapshot projectSnapshot) {
+		final JavaRootNode rootNode = projectSnapshot.getRootNode();
+		if (rootNode instanceof RootNode) ((RootNode) rootNode).storeBodies(bodyTable);
+	}
+
 	private static void checkComparison(@Nonnull JavaProjectSnapshotComparison snapshotComparison) {
 		if (snapshotComparison instanceof ProjectSnapshotComparison) return;
 		throw new IllegalArgumentException("Input project snapshot comparison is not JDT based.");
@@ -64,6 +85,14 @@ public final class Project implements JavaProject, Serializable {
 		return name;
 	}
 
+	/**
+	 * @return the body table shared by every snapshot of this project
+	 */
+	@Nonnull
+	public BodyTable getBodyTable() {
+		return bodyTable;
+	}
+
 	@Nonnull
 	@Override
 	public List<ProjectSnapshot> getSnapshots() {
@@ -92,7 +121,7 @@ public final class Project implements JavaProject, Serializable {
 	@Override
 	public boolean addSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
 		if (containsSnapshot(projectSnapshot)) return false;
-		snapshots.add((ProjectSnapshot) projectSnapshot);
+		internalAddSnapshot((ProjectSnapshot) projectSnapshot);
 		return true;
 	}
 
@@ -103,8 +132,8 @@ public final class Project implements JavaProject, Serializable {
 		final JavaProjectSnapshot currentSnapshot = snapshotComparison.getCurrentSnapshot();
 		final boolean containsPreviousSnapshot = containsSnapshot(previousSnapshot);
 		final boolean containsCurrentSnapshot = containsSnapshot(currentSnapshot);
-		if (!containsPreviousSnapshot) snapshots.add((ProjectSnapshot) previousSnapshot);
-		if (!containsCurrentSnapshot) snapshots.add((ProjectSnapshot) currentSnapshot);
+		if (!containsPreviousSnapshot) internalAddSnapshot((ProjectSnapshot) previousSnapshot);
+		if (!containsCurrentSnapshot) internalAddSnapshot((ProjectSnapshot) currentSnapshot);
 		snapshotComparisons.add((ProjectSnapshotComparison) snapshotComparison);
 		return false;
 	}
@@ -129,4 +158,17 @@ public final class Project implements JavaProject, Serializable {
 		return snapshotComparisons.remove(snapshotComparison);
 	}
 
+	//region Serialization Helper
+
+	private void readObject(@Nonnull ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+		inputStream.defaultReadObject();
+		this.bodyTable = new BodyTable();
+		// the trees attach their own bodies with priority 0, so they are only moved after that
+		inputStream.registerValidation(() -> {
+			for (final ProjectSnapshot snapshot : snapshots) storeBodies(snapshot);
+		}, -1);
+	}
+
+	//endregion Serialization Helper
+
 }
@@ -20,31 +20,79 @@ package mrmathami.cia.java.jdt.project;
 
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.builder.SnapshotBuilder;
+import mrmathami.cia.java.jdt.project.builder.parameter.NodeWeightParameter;
+import mrmathami.cia.java.jdt.project.differ.ImpactGraph;
+import mrmathami.cia.java.jdt.project.differ.JavaSnapshotComparator;
 import mrmathami.cia.java.jdt.tree.dependency.DependencyWeightTable;
 import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
 import mrmathami.cia.java.tree.node.JavaRootNode;
 
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public final class ProjectSnapshot implements JavaProjectSnapshot, Serializable {
 
 	private static final long serialVersionUID = -1L;
+	private static final long DEFAULT_RANDOM_SEED = 0x5DEECE66DL;
+	private static final int MAX_IMPACT_GRAPHS = 4;
 
 	@Nonnull private final String name;
 	@Nonnull private final JavaRootNode rootNode;
 	@Nonnull private final double[] dependencyWeights;
 	@Nonnull private final double[] nodeWeights;
+	// the node weight strategy that calculated the node weights, null for the weighted dependency counts
+	@Nullable private final NodeWeightParameter nodeWeightParameter;
 
 	@Nullable private transient DependencyWeightTable dependencyWeightTable;
 	@Nullable private transient NodeWeightTable nodeWeightTable;
+	@Nullable private transient NodeTable nodeTable;
+	// impact graphs of the most recently used dependency impacts first, shared with the snapshots of the same tree
+	@Nullable private transient volatile List<ImpactGraph> impactGraphs;
+	@Nullable private transient DependencyCountMatrix dependencyCountMatrix;
 
 
 	public ProjectSnapshot(@Nonnull String name, @Nonnull JavaRootNode rootNode,
 			@Nonnull double[] dependencyWeights, @Nonnull double[] nodeWeights) {
+		this(name, rootNode, dependencyWeights, nodeWeights, null);
+	}
+
+	/**
+	 * @param nodeWeightParameter the node weight strategy that calculated the node weights, which calculates them
+	 * again when the snapshot is weighted again, or null if they are the weighted dependency counts
+	 */
+	public ProjectSnapshot(@Nonnull String name, @Nonnull JavaRootNode rootNode,
+			@Nonnull double[] dependencyWeights, @Nonnull double[] nodeWeights,
+			@Nullable NodeWeightParameter nodeWeightParameter) {
 		this.name = name;
 		this.rootNode = rootNode;
 		this.dependencyWeights = dependencyWeights;
 		this.nodeWeights = nodeWeights;
+		this.nodeWeightParameter = nodeWeightParameter != null
+				&& nodeWeightParameter.getStrategy() != NodeWeightParameter.Strategy.DEPENDENCY_COUNT
+				? nodeWeightParameter : null;
+	}
+
+	/**
+	 * @param dependencyCountMatrix the dependency counts of the tree, which the node weights are calculated from
+	 */
+	public ProjectSnapshot(@Nonnull String name, @Nonnull JavaRootNode rootNode,
+			@Nonnull double[] dependencyWeights, @Nonnull DependencyCountMatrix dependencyCountMatrix) {
+		this(name, rootNode, dependencyWeights, dependencyCountMatrix.calculateWeights(dependencyWeights));
+		if (dependencyCountMatrix.getRootNode() != rootNode) {
+			throw new IllegalArgumentException("Input DependencyCountMatrix doesn't belong to this tree!");
+		}
+		this.dependencyCountMatrix = dependencyCountMatrix;
 	}
 
 
@@ -76,6 +124,237 @@ public final class ProjectSnapshot implements JavaProjectSnapshot, Serializable
 				: (this.nodeWeightTable = new NodeWeightTable(nodeWeights, rootNode));
 	}
 
+	/**
+	 * @return columnar view of the nodes and their weights, created on first use
+	 */
+	@Nonnull
+	public NodeTable getNodeTable() {
+		return nodeTable != null ? nodeTable : (this.nodeTable = new NodeTable(rootNode, nodeWeights));
+	}
+
+	@Nonnull
+	private List<ImpactGraph> getImpactGraphs() {
+		final List<ImpactGraph> impactGraphs = this.impactGraphs;
+		if (impactGraphs != null) return impactGraphs;
+		synchronized (this) {
+			if (this.impactGraphs == null) this.impactGraphs = new ArrayList<>(MAX_IMPACT_GRAPHS);
+			return this.impactGraphs;
+		}
+	}
+
+	/**
+	 * Keeps the graph as the most recently used one, and drops the least recently used ones over the limit.
+	 */
+	private static void keepImpactGraph(@Nonnull List<ImpactGraph> impactGraphs, @Nonnull ImpactGraph impactGraph) {
+		impactGraphs.add(0, impactGraph);
+		while (impactGraphs.size() > MAX_IMPACT_GRAPHS) impactGraphs.remove(impactGraphs.size() - 1);
+	}
+
+	/**
+	 * @param impactWeightTable the dependency impacts
+	 * @return the impact graph of this snapshot, which is kept with the graphs of a few other recently used dependency
+	 * impacts
+	 */
+	@Nonnull
+	public ImpactGraph getImpactGraph(@Nonnull JavaDependencyWeightTable impactWeightTable) {
+		final List<ImpactGraph> impactGraphs = getImpactGraphs();
+		synchronized (impactGraphs) {
+			for (int index = 0; index < impactGraphs.size(); index++) {
+				final ImpactGraph impactGraph = impactGraphs.get(index);
+				if (impactGraph.isFor(rootNode, impactWeightTable)) {
+					if (index > 0) keepImpactGraph(impactGraphs, impactGraphs.remove(index));
+					return impactGraph;
+				}
+			}
+			// built under the lock, so that the same graph is not built twice at the same time
+			final ImpactGraph impactGraph = new ImpactGraph(rootNode, impactWeightTable);
+			keepImpactGraph(impactGraphs, impactGraph);
+			return impactGraph;
+		}
+	}
+
+	/**
+	 * Keeps a graph built with other options, such as a bound on the components whose paths are enumerated, so that
+	 * the impact calculations on this snapshot with the same dependency impacts use it instead of the graph kept
+	 * before.
+	 *
+	 * @param impactGraph an impact graph of this snapshot
+	 * @throws IllegalArgumentException if the graph is not of this snapshot
+	 */
+	public void setImpactGraph(@Nonnull ImpactGraph impactGraph) {
+		if (impactGraph.getRootNode() != rootNode) {
+			throw new IllegalArgumentException("Input ImpactGraph doesn't belong to this snapshot!");
+		}
+		final List<ImpactGraph> impactGraphs = getImpactGraphs();
+		synchronized (impactGraphs) {
+			impactGraphs.removeIf(impactGraph::hasSameImpacts);
+			keepImpactGraph(impactGraphs, impactGraph);
+		}
+	}
+
+	/**
+	 * @return the node weight strategy that calculated the node weights, or null if they are the weighted dependency
+	 * counts
+	 */
+	@Nullable
+	public NodeWeightParameter getNodeWeightParameter() {
+		return nodeWeightParameter;
+	}
+
+	/**
+	 * @return the dependency counts of the tree of this snapshot, created on first use
+	 */
+	@Nonnull
+	public DependencyCountMatrix getDependencyCountMatrix() {
+		return dependencyCountMatrix != null ? dependencyCountMatrix
+				: (this.dependencyCountMatrix = new DependencyCountMatrix(rootNode));
+	}
+
 	//endregion Getter
 
+	//region Reweight
+
+	/**
+	 * Creates a snapshot of the same tree with other dependency weights, without parsing the sources again. The node
+	 * weights are calculated again with the node weight strategy of this snapshot, and the new snapshot shares the
+	 * tree, the dependency counts and the impact graphs with this snapshot.
+	 *
+	 * @param dependencyWeightTable the new dependency weights
+	 * @return a snapshot with the same name and tree, weighted by the new dependency weights
+	 * @throws JavaCiaException if the node weights cannot be calculated
+	 */
+	@Nonnull
+	public ProjectSnapshot withDependencyWeights(@Nonnull JavaDependencyWeightTable dependencyWeightTable)
+			throws JavaCiaException {
+		return SnapshotBuilder.reweight(this, dependencyWeightTable,
+				nodeWeightParameter != null ? Set.of(nodeWeightParameter) : Set.of());
+	}
+
+	/**
+	 * Creates a snapshot of the same tree with node weights that are calculated elsewhere, such as by another node
+	 * weight strategy. The new snapshot shares the tree, the dependency counts and the impact graphs with this
+	 * snapshot.
+	 *
+	 * @param dependencyWeights weight of each dependency type, indexed by ordinal
+	 * @param nodeWeights weight of every node of the tree, indexed by id
+	 * @param nodeWeightParameter the node weight strategy that calculated the node weights, or null if they are the
+	 * weighted dependency counts
+	 * @return a snapshot with the same name and tree, with the new weights
+	 * @throws IllegalArgumentException if there is not a weight for every dependency type and every node
+	 */
+	@Nonnull
+	public ProjectSnapshot withNodeWeights(@Nonnull double[] dependencyWeights, @Nonnull double[] nodeWeights,
+			@Nullable NodeWeightParameter nodeWeightParameter) {
+		if (dependencyWeights.length != JavaDependency.VALUE_LIST.size()) {
+			throw new IllegalArgumentException("Invalid dependency weight count!");
+		}
+		if (nodeWeights.length != this.nodeWeights.length) {
+			throw new IllegalArgumentException("Invalid node weight count!");
+		}
+		final ProjectSnapshot snapshot
+				= new ProjectSnapshot(name, rootNode, dependencyWeights, nodeWeights, nodeWeightParameter);
+		snapshot.dependencyCountMatrix = dependencyCountMatrix;
+		snapshot.impactGraphs = getImpactGraphs();
+		return snapshot;
+	}
+
+	//endregion Reweight
+
+	//region Impact
+
+	/**
+	 * Calculates the impacts of the nodes as if they were changed in the next snapshot, without building or comparing
+	 * with that snapshot. The result is the same as the impacts of a comparison which changes or adds these nodes.
+	 *
+	 * @param changedNodes the nodes to change, which must belong to this snapshot
+	 * @param impactWeightTable the dependency impacts
+	 * @return impact of the change on every node of this snapshot
+	 * @throws IllegalArgumentException if a node doesn't belong to this snapshot
+	 */
+	@Nonnull
+	public SparseNodeWeightTable calculateImpacts(@Nonnull Collection<? extends JavaNode> changedNodes,
+			@Nonnull JavaDependencyWeightTable impactWeightTable) throws JavaCiaException {
+		return JavaSnapshotComparator.calculateImpacts(getImpactGraph(impactWeightTable),
+				changedNodeIds(changedNodes));
+	}
+
+	/**
+	 * Calculates the impacts of the nodes as if they were changed in the next snapshot, progressively from the cheap
+	 * nodes and the paths with the most impact, and stops at the deadline with the paths that are followed so far.
+	 *
+	 * @param changedNodes the nodes to change, which must belong to this snapshot
+	 * @param impactWeightTable the dependency impacts
+	 * @param deadline the time to stop at
+	 * @param progressListener called with every progress, each of which is a lower bound of the next one
+	 * @return the last progress, which is the same as {@link #calculateImpacts(Collection, JavaDependencyWeightTable)}
+	 * if it is complete
+	 * @throws IllegalArgumentException if a node doesn't belong to this snapshot
+	 */
+	@Nonnull
+	public ImpactProgress calculateImpacts(@Nonnull Collection<? extends JavaNode> changedNodes,
+			@Nonnull JavaDependencyWeightTable impactWeightTable, @Nonnull Instant deadline,
+			@Nonnull Consumer<ImpactProgress> progressListener) throws JavaCiaException {
+		return JavaSnapshotComparator.calculateImpacts(getImpactGraph(impactWeightTable),
+				changedNodeIds(changedNodes), deadline, progressListener);
+	}
+
+	/**
+	 * Estimates the impacts of the nodes as if they were changed in the next snapshot, with the given number of
+	 * independent cascade samples, which takes about the same time whatever the shape of the graph.
+	 * <p>
+	 * The estimate is of a different model than {@link #calculateImpacts}: a sample keeps every dependency link with
+	 * the chance of its impact, and the impact on a node is the chance that a kept link path reaches it from a changed
+	 * node. The paths of a node share links, so this is usually lower than the impact that {@link #calculateImpacts}
+	 * gives by treating every path as independent, and far lower on a densely connected graph. The confidence
+	 * interval holds for the cascade model only, not for the calculated impacts.
+	 *
+	 * @param changedNodes the nodes to change, which must belong to this snapshot
+	 * @param impactWeightTable the dependency impacts
+	 * @param sampleCount the number of samples
+	 * @param confidence the chance that the interval of a node holds its impact, from 0 to 1 exclusive
+	 * @return estimated impact of the change on every node of this snapshot, with its confidence interval
+	 * @throws IllegalArgumentException if a node doesn't belong to this snapshot
+	 */
+	@Nonnull
+	public ImpactEstimate estimateImpactsWithSamples(@Nonnull Collection<? extends JavaNode> changedNodes,
+			@Nonnull JavaDependencyWeightTable impactWeightTable, int sampleCount, double confidence)
+			throws JavaCiaException {
+		return JavaSnapshotComparator.estimateImpacts(getImpactGraph(impactWeightTable),
+				changedNodeIds(changedNodes), sampleCount, confidence, DEFAULT_RANDOM_SEED);
+	}
+
+	/**
+	 * Estimates the impacts of the nodes with as many samples as needed for every estimate to be within the error
+	 * bound of its impact at the confidence, in the independent cascade model of
+	 * {@link #estimateImpactsWithSamples}.
+	 *
+	 * @param changedNodes the nodes to change, which must belong to this snapshot
+	 * @param impactWeightTable the dependency impacts
+	 * @param errorBound the largest difference between an estimate and its impact, from 0 to 1 exclusive
+	 * @param confidence the chance that the interval of a node holds its impact, from 0 to 1 exclusive
+	 * @return estimated impact of the change on every node of this snapshot, with its confidence interval
+	 * @throws IllegalArgumentException if a node doesn't belong to this snapshot
+	 */
+	@Nonnull
+	public ImpactEstimate estimateImpactsWithin(@Nonnull Collection<? extends JavaNode> changedNodes,
+			@Nonnull JavaDependencyWeightTable impactWeightTable, double errorBound, double confidence)
+			throws JavaCiaException {
+		return estimateImpactsWithSamples(changedNodes, impactWeightTable,
+				ImpactEstimate.sampleCount(errorBound, confidence), confidence);
+	}
+
+	@Nonnull
+	private int[] changedNodeIds(@Nonnull Collection<? extends JavaNode> changedNodes) {
+		final BitSet changedNodeIds = new BitSet();
+		for (final JavaNode changedNode : changedNodes) {
+			if (changedNode.getRoot() != rootNode) {
+				throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
+			}
+			changedNodeIds.set(changedNode.getId());
+		}
+		return changedNodeIds.stream().toArray();
+	}
+
+	//endregion Impact
+
 }
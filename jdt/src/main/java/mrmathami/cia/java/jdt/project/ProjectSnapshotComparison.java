@@ -20,32 +20,50 @@ package mrmathami.cia.java.jdt.project;
 
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.AbstractEntity;
 import mrmathami.cia.java.jdt.tree.dependency.DependencyWeightTable;
 import mrmathami.cia.java.project.JavaProjectSnapshot;
 import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
+import mrmathami.cia.java.tree.helper.Jsonify;
 import mrmathami.cia.java.tree.node.JavaNode;
 import mrmathami.collections.ImmutableOrderedSet;
 import mrmathami.utils.Pair;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
 
-public final class ProjectSnapshotComparison implements JavaProjectSnapshotComparison, Serializable {
+/**
+ * Comparison result in a compact form: an id mapping from previous nodes to current nodes and one bitset for each
+ * node status, instead of one object for each node pair. The node sets are only created when asked for.
+ */
+public final class ProjectSnapshotComparison implements JavaProjectSnapshotComparison, Jsonify, Serializable {
 
 	private static final long serialVersionUID = -1L;
 
 	@Nonnull private final String name;
 	@Nonnull private final JavaProjectSnapshot previousSnapshot;
 	@Nonnull private final JavaProjectSnapshot currentSnapshot;
-	@Nonnull private final Set<JavaNode> removedNodes;
-	@Nonnull private final Set<JavaNode> addedNodes;
-	@Nonnull private final Set<Pair<JavaNode, JavaNode>> changedNodes;
-	@Nonnull private final Set<Pair<JavaNode, JavaNode>> unchangedNodes;
+	@Nonnull private final int[] nodeMapping;
+	@Nonnull private final BitSet removedNodeIds;
+	@Nonnull private final BitSet addedNodeIds;
+	@Nonnull private final BitSet changedNodeIds;
 	@Nonnull private final double[] dependencyImpacts;
-	@Nonnull private final double[] nodeImpacts;
+	@Nonnull private final SparseNodeWeightTable nodeImpactTable;
 
 	@Nullable private DependencyWeightTable dependencyImpactMap;
-	@Nullable private NodeWeightTable nodeImpactTable;
+
+	@Nullable private transient Set<JavaNode> removedNodes;
+	@Nullable private transient Set<JavaNode> addedNodes;
+	@Nullable private transient Set<Pair<JavaNode, JavaNode>> changedNodes;
+	@Nullable private transient Set<Pair<JavaNode, JavaNode>> unchangedNodes;
 
 
 	public ProjectSnapshotComparison(@Nonnull String name,
@@ -54,15 +72,100 @@ public final class ProjectSnapshotComparison implements JavaProjectSnapshotCompa
 			@Nonnull Set<Pair<JavaNode, JavaNode>> changedNodes,
 			@Nonnull Set<Pair<JavaNode, JavaNode>> unchangedNodes,
 			@Nonnull double[] dependencyImpacts, @Nonnull double[] nodeImpacts) {
+		this(name, previousSnapshot, currentSnapshot,
+				createNodeMapping(previousSnapshot, changedNodes, unchangedNodes),
+				createNodeIds(removedNodes), createNodeIds(addedNodes), createPreviousNodeIds(changedNodes),
+				dependencyImpacts, nodeImpacts);
+	}
+
+	/**
+	 * @param name comparison name
+	 * @param previousSnapshot previous snapshot
+	 * @param currentSnapshot current snapshot
+	 * @param nodeMapping for each previous node id, the id of the matched current node, or -1 if not matched
+	 * @param removedNodeIds ids of the previous nodes that are removed
+	 * @param addedNodeIds ids of the current nodes that are added
+	 * @param changedNodeIds ids of the matched previous nodes that are changed, the others are unchanged
+	 * @param dependencyImpacts dependency impact weights
+	 * @param nodeImpacts impact of each current node
+	 */
+	public ProjectSnapshotComparison(@Nonnull String name,
+			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
+			@Nonnull int[] nodeMapping, @Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BitSet changedNodeIds, @Nonnull double[] dependencyImpacts, @Nonnull double[] nodeImpacts) {
+		this(name, previousSnapshot, currentSnapshot, nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds,
+				dependencyImpacts, SparseNodeWeightTable.fromWeights(nodeImpacts, currentSnapshot.getRootNode()));
+	}
+
+	/**
+	 * @param nodeImpactTable impact of the current nodes that are impacted
+	 */
+	public ProjectSnapshotComparison(@Nonnull String name,
+			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
+			@Nonnull int[] nodeMapping, @Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BitSet changedNodeIds, @Nonnull double[] dependencyImpacts,
+			@Nonnull SparseNodeWeightTable nodeImpactTable) {
+		assert nodeMapping.length == previousSnapshot.getRootNode().getAllNodes().size();
+
 		this.name = name;
 		this.previousSnapshot = previousSnapshot;
 		this.currentSnapshot = currentSnapshot;
-		this.removedNodes = ImmutableOrderedSet.copyOf(removedNodes);
-		this.addedNodes = ImmutableOrderedSet.copyOf(addedNodes);
-		this.changedNodes = ImmutableOrderedSet.copyOf(changedNodes);
-		this.unchangedNodes = ImmutableOrderedSet.copyOf(unchangedNodes);
+		this.nodeMapping = nodeMapping;
+		this.removedNodeIds = removedNodeIds;
+		this.addedNodeIds = addedNodeIds;
+		this.changedNodeIds = changedNodeIds;
 		this.dependencyImpacts = dependencyImpacts;
-		this.nodeImpacts = nodeImpacts;
+		this.nodeImpactTable = nodeImpactTable;
+	}
+
+
+	@Nonnull
+	private static int[] createNodeMapping(@Nonnull JavaProjectSnapshot previousSnapshot,
+			@Nonnull Set<Pair<JavaNode, JavaNode>> changedNodes,
+			@Nonnull Set<Pair<JavaNode, JavaNode>> unchangedNodes) {
+		final int[] nodeMapping = new int[previousSnapshot.getRootNode().getAllNodes().size()];
+		Arrays.fill(nodeMapping, -1);
+		for (final Pair<JavaNode, JavaNode> pair : changedNodes) {
+			nodeMapping[pair.getA().getId()] = pair.getB().getId();
+		}
+		for (final Pair<JavaNode, JavaNode> pair : unchangedNodes) {
+			nodeMapping[pair.getA().getId()] = pair.getB().getId();
+		}
+		return nodeMapping;
+	}
+
+	@Nonnull
+	private static BitSet createNodeIds(@Nonnull Set<JavaNode> nodes) {
+		final BitSet nodeIds = new BitSet();
+		for (final JavaNode node : nodes) nodeIds.set(node.getId());
+		return nodeIds;
+	}
+
+	@Nonnull
+	private static BitSet createPreviousNodeIds(@Nonnull Set<Pair<JavaNode, JavaNode>> nodePairs) {
+		final BitSet nodeIds = new BitSet();
+		for (final Pair<JavaNode, JavaNode> pair : nodePairs) nodeIds.set(pair.getA().getId());
+		return nodeIds;
+	}
+
+	@Nonnull
+	private static Set<JavaNode> createNodes(@Nonnull List<? extends JavaNode> allNodes, @Nonnull BitSet nodeIds) {
+		final List<JavaNode> nodes = new ArrayList<>(nodeIds.cardinality());
+		for (int id = nodeIds.nextSetBit(0); id >= 0; id = nodeIds.nextSetBit(id + 1)) nodes.add(allNodes.get(id));
+		return ImmutableOrderedSet.copyOf(nodes);
+	}
+
+	@Nonnull
+	private Set<Pair<JavaNode, JavaNode>> createNodePairs(boolean changed) {
+		final List<? extends JavaNode> previousNodes = previousSnapshot.getRootNode().getAllNodes();
+		final List<? extends JavaNode> currentNodes = currentSnapshot.getRootNode().getAllNodes();
+		final List<Pair<JavaNode, JavaNode>> nodePairs = new ArrayList<>();
+		for (int id = 0; id < nodeMapping.length; id++) {
+			if (nodeMapping[id] >= 0 && changedNodeIds.get(id) == changed) {
+				nodePairs.add(Pair.immutableOf(previousNodes.get(id), currentNodes.get(nodeMapping[id])));
+			}
+		}
+		return ImmutableOrderedSet.copyOf(nodePairs);
 	}
 
 
@@ -89,25 +192,35 @@ public final class ProjectSnapshotComparison implements JavaProjectSnapshotCompa
 	@Nonnull
 	@Override
 	public Set<JavaNode> getRemovedNodes() {
-		return removedNodes;
+		return removedNodes != null ? removedNodes : (this.removedNodes
+				= createNodes(previousSnapshot.getRootNode().getAllNodes(), removedNodeIds));
 	}
 
 	@Nonnull
 	@Override
 	public Set<JavaNode> getAddedNodes() {
-		return addedNodes;
+		return addedNodes != null ? addedNodes : (this.addedNodes
+				= createNodes(currentSnapshot.getRootNode().getAllNodes(), addedNodeIds));
 	}
 
 	@Nonnull
 	@Override
 	public Set<Pair<JavaNode, JavaNode>> getChangedNodes() {
-		return changedNodes;
+		return changedNodes != null ? changedNodes : (this.changedNodes = createNodePairs(true));
 	}
 
 	@Nonnull
 	@Override
 	public Set<Pair<JavaNode, JavaNode>> getUnchangedNodes() {
-		return unchangedNodes;
+		return unchangedNodes != null ? unchangedNodes : (this.unchangedNodes = createNodePairs(false));
+	}
+
+	/**
+	 * @param previousNodeId id of a previous node
+	 * @return id of the current node it is matched with, or -1 if it is removed
+	 */
+	public int getMatchedNodeId(int previousNodeId) {
+		return nodeMapping[previousNodeId];
 	}
 
 	@Nonnull
@@ -119,11 +232,111 @@ public final class ProjectSnapshotComparison implements JavaProjectSnapshotCompa
 
 	@Nonnull
 	@Override
-	public NodeWeightTable getNodeImpactTable() {
-		return nodeImpactTable != null ? nodeImpactTable
-				: (this.nodeImpactTable = new NodeWeightTable(nodeImpacts, currentSnapshot.getRootNode()));
+	public SparseNodeWeightTable getNodeImpactTable() {
+		return nodeImpactTable;
 	}
 
 	//endregion Getter
 
+	//region Jsonify
+
+	@Nonnull
+	@Override
+	public String toJson() {
+		final StringWriter writer = new StringWriter();
+		try {
+			toJson(writer);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return writer.toString();
+	}
+
+	@Override
+	public void toJson(@Nonnull Writer writer) throws IOException {
+		writer.append("{ \"name\": \"");
+		AbstractEntity.internalEscapeString(writer, name);
+		writer.append("\", \"previousSnapshot\": \"");
+		AbstractEntity.internalEscapeString(writer, previousSnapshot.getName());
+		writer.append("\", \"currentSnapshot\": \"");
+		AbstractEntity.internalEscapeString(writer, currentSnapshot.getName());
+		writer.append('"');
+		// written straight from the compact form, so the node sets are not created just for this
+		final List<? extends JavaNode> previousNodes = previousSnapshot.getRootNode().getAllNodes();
+		final List<? extends JavaNode> currentNodes = currentSnapshot.getRootNode().getAllNodes();
+		if (!removedNodeIds.isEmpty()) {
+			writer.append(", \"removedNodes\": [");
+			internalNodesToJson(writer, previousNodes, removedNodeIds);
+			writer.append("\n]");
+		}
+		if (!addedNodeIds.isEmpty()) {
+			writer.append(", \"addedNodes\": [");
+			internalNodesToJson(writer, currentNodes, addedNodeIds);
+			writer.append("\n]");
+		}
+		if (!changedNodeIds.isEmpty()) {
+			writer.append(", \"changedNodes\": [");
+			internalNodePairsToJson(writer, previousNodes, currentNodes, true);
+			writer.append("\n]");
+		}
+		if (internalHasUnchangedNodes()) {
+			writer.append(", \"unchangedNodes\": [");
+			internalNodePairsToJson(writer, previousNodes, currentNodes, false);
+			writer.append("\n]");
+		}
+		writer.append(", \"dependencyImpacts\": ");
+		getDependencyImpactTable().toJson(writer);
+		writer.append(", \"nodeImpacts\": [");
+		for (int index = 0; index < nodeImpactTable.size(); index++) {
+			writer.append(index > 0 ? ",\n\t[ { " : "\n\t[ { ");
+			internalNodeToReferenceJson(writer, currentNodes.get(nodeImpactTable.getNodeId(index)));
+			writer.append(" }, ").append(String.valueOf(nodeImpactTable.getWeightAt(index))).append(" ]");
+		}
+		writer.append("\n] }");
+	}
+
+	private boolean internalHasUnchangedNodes() {
+		for (int id = 0; id < nodeMapping.length; id++) {
+			if (nodeMapping[id] >= 0 && !changedNodeIds.get(id)) return true;
+		}
+		return false;
+	}
+
+	private static void internalNodeToReferenceJson(@Nonnull Writer writer, @Nonnull JavaNode node)
+			throws IOException {
+		writer.append("\"entityClass\": \"").append(node.getEntityClass())
+				.append("\", \"idClass\": \"").append(node.getIdClass())
+				.append("\", \"id\": ").append(String.valueOf(node.getId()))
+				.append(", \"uniqueName\": \"");
+		AbstractEntity.internalEscapeString(writer, node.getUniqueName());
+		writer.append('"');
+	}
+
+	private static void internalNodesToJson(@Nonnull Writer writer, @Nonnull List<? extends JavaNode> allNodes,
+			@Nonnull BitSet nodeIds) throws IOException {
+		boolean next = false;
+		for (int id = nodeIds.nextSetBit(0); id >= 0; id = nodeIds.nextSetBit(id + 1)) {
+			writer.append(next ? ",\n\t{ " : "\n\t{ ");
+			internalNodeToReferenceJson(writer, allNodes.get(id));
+			writer.append(" }");
+			next = true;
+		}
+	}
+
+	private void internalNodePairsToJson(@Nonnull Writer writer, @Nonnull List<? extends JavaNode> previousNodes,
+			@Nonnull List<? extends JavaNode> currentNodes, boolean changed) throws IOException {
+		boolean next = false;
+		for (int id = 0; id < nodeMapping.length; id++) {
+			if (nodeMapping[id] < 0 || changedNodeIds.get(id) != changed) continue;
+			writer.append(next ? ",\n\t[ { " : "\n\t[ { ");
+			internalNodeToReferenceJson(writer, previousNodes.get(id));
+			writer.append(" }, { ");
+			internalNodeToReferenceJson(writer, currentNodes.get(nodeMapping[id]));
+			writer.append(" } ]");
+			next = true;
+		}
+	}
+
+	//endregion Jsonify
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Node weight table that only keeps the nodes with a weight other than zero, such as the impacts of a change, which
+ * usually reach a small part of a tree. The weights are kept in id order, so a range of ids is still summed with
+ * two binary searches.
+ */
+public final class SparseNodeWeightTable implements JavaNodeWeightTable, Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	@Nonnull private final int[] nodeIds;
+	@Nonnull private final double[] weights;
+	@Nonnull private final JavaRootNode rootNode;
+
+	// prefix sums of the weights in id order, prefixSums[i] is the sum of the first i weights
+	@Nullable private transient double[] prefixSums;
+
+	/**
+	 * @param nodeIds ids of the nodes with a weight, in increasing order
+	 * @param weights weight of each of these nodes
+	 * @param rootNode the tree of the nodes
+	 */
+	public SparseNodeWeightTable(@Nonnull int[] nodeIds, @Nonnull double[] weights, @Nonnull JavaRootNode rootNode) {
+		assert nodeIds.length == weights.length;
+
+		this.nodeIds = nodeIds;
+		this.weights = weights;
+		this.rootNode = rootNode;
+	}
+
+	/**
+	 * @param weights weight of every node of the tree, indexed by id
+	 * @param rootNode the tree of the nodes
+	 */
+	@Nonnull
+	public static SparseNodeWeightTable fromWeights(@Nonnull double[] weights, @Nonnull JavaRootNode rootNode) {
+		assert weights.length == rootNode.getAllNodes().size();
+
+		int size = 0;
+		for (final double weight : weights) if (weight != 0.0) size += 1;
+
+		final int[] tableNodeIds = new int[size];
+		final double[] tableWeights = new double[size];
+		int index = 0;
+		for (int id = 0; id < weights.length; id++) {
+			if (weights[id] != 0.0) {
+				tableNodeIds[index] = id;
+				tableWeights[index] = weights[id];
+				index += 1;
+			}
+		}
+		return new SparseNodeWeightTable(tableNodeIds, tableWeights, rootNode);
+	}
+
+	@Override
+	public double getWeight(@Nonnull JavaNode javaNode) {
+		if (javaNode.getRoot() != rootNode) {
+			throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
+		}
+		final int index = Arrays.binarySearch(nodeIds, javaNode.getId());
+		return index >= 0 ? weights[index] : 0.0;
+	}
+
+	/**
+	 * @return the number of nodes with a weight other than zero
+	 */
+	public int size() {
+		return nodeIds.length;
+	}
+
+	/**
+	 * @param index index from 0 to size exclusive, in id order
+	 * @return id of the node at the index
+	 */
+	public int getNodeId(int index) {
+		return nodeIds[index];
+	}
+
+	/**
+	 * @param index index from 0 to size exclusive, in id order
+	 * @return weight of the node at the index
+	 */
+	public double getWeightAt(int index) {
+		return weights[index];
+	}
+
+	/**
+	 * @param javaNode a node
+	 * @return the sum of the weights of the node and all of its descendants
+	 */
+	public double getSubtreeWeight(@Nonnull JavaNode javaNode) {
+		if (javaNode.getRoot() != rootNode) {
+			throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
+		}
+		return getWeightSum(javaNode.getId(), javaNode.getSubtreeEnd());
+	}
+
+	/**
+	 * @param fromId first node id, inclusive
+	 * @param toId last node id, exclusive
+	 * @return the sum of the weights of the nodes in the id range
+	 */
+	public double getWeightSum(int fromId, int toId) {
+		if (fromId < 0 || toId > rootNode.getAllNodes().size() || fromId > toId) {
+			throw new IndexOutOfBoundsException("Invalid node id range!");
+		}
+		final double[] prefixSums = getPrefixSums();
+		return prefixSums[lowerBound(toId)] - prefixSums[lowerBound(fromId)];
+	}
+
+	private int lowerBound(int id) {
+		final int index = Arrays.binarySearch(nodeIds, id);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	@Nonnull
+	private double[] getPrefixSums() {
+		if (prefixSums != null) return prefixSums;
+		final double[] sums = new double[weights.length + 1];
+		for (int i = 0; i < weights.length; i++) sums[i + 1] = sums[i] + weights[i];
+		return this.prefixSums = sums;
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.builder;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.builder.parameter.NodeWeightParameter;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates node weights that depend on the whole dependency graph, by iterating a sparse matrix-vector product.
+ * Each node pulls the weights of its dependents, so the rows are split into blocks that are calculated in parallel
+ * without sharing any writes, and the result does not depend on the number of threads.
+ */
+final class NodeWeightSolver {
+
+	private static final int BLOCK_SIZE = 1 << 12;
+
+	private final int nodeCount;
+	// the dependents of the node with id i are at positions offsets[i] to offsets[i + 1] exclusive
+	@Nonnull private final int[] offsets;
+	@Nonnull private final int[] dependentIds;
+	// the weight of a dependency divided by the weight of every dependency of its dependent
+	@Nonnull private final double[] coefficients;
+	// the weighted count of the dependencies to each node
+	@Nonnull private final double[] directWeights;
+	// ids of the nodes without weighted dependencies, which have nothing to pass their weight to
+	@Nonnull private final int[] danglingIds;
+
+
+	NodeWeightSolver(@Nonnull JavaRootNode rootNode, @Nonnull double[] dependencyWeights) {
+		final List<? extends JavaNode> allNodes = rootNode.getAllNodes();
+		final int nodeCount = allNodes.size();
+		this.nodeCount = nodeCount;
+		this.offsets = new int[nodeCount + 1];
+		for (final JavaNode node : allNodes) offsets[node.getId() + 1] = node.getDependencyFrom().size();
+		for (int id = 0; id < nodeCount; id++) offsets[id + 1] += offsets[id];
+
+		this.dependentIds = new int[offsets[nodeCount]];
+		this.coefficients = new double[offsets[nodeCount]];
+		this.directWeights = new double[nodeCount];
+		final double[] dependencySums = new double[nodeCount];
+		for (final JavaNode node : allNodes) {
+			int position = offsets[node.getId()];
+			double directWeight = 0.0;
+			for (final Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable> entry
+					: node.getDependencyFrom().entrySet()) {
+				final int dependentId = entry.getKey().getId();
+				double linkWeight = 0.0;
+				for (final JavaDependency dependency : JavaDependency.VALUE_LIST) {
+					linkWeight += dependencyWeights[dependency.ordinal()] * entry.getValue().getCount(dependency);
+				}
+				dependentIds[position] = dependentId;
+				coefficients[position] = linkWeight;
+				dependencySums[dependentId] += linkWeight;
+				directWeight += linkWeight;
+				position += 1;
+			}
+			directWeights[node.getId()] = directWeight;
+		}
+		for (int position = 0; position < coefficients.length; position++) {
+			final double dependencySum = dependencySums[dependentIds[position]];
+			if (dependencySum > 0.0) coefficients[position] /= dependencySum;
+		}
+
+		int danglingCount = 0;
+		for (final double dependencySum : dependencySums) if (dependencySum <= 0.0) danglingCount += 1;
+		this.danglingIds = new int[danglingCount];
+		for (int id = 0, index = 0; id < nodeCount; id++) if (dependencySums[id] <= 0.0) danglingIds[index++] = id;
+	}
+
+
+	/**
+	 * @return weight of every node, indexed by id
+	 */
+	@Nonnull
+	double[] solve(@Nonnull NodeWeightParameter parameter) throws JavaCiaException {
+		final double dampingFactor = parameter.getDampingFactor();
+		switch (parameter.getStrategy()) {
+			case PAGE_RANK: {
+				// the weights sum to the node count, so the average weight is one
+				final double[] baseWeights = new double[nodeCount];
+				final double[] initialWeights = new double[nodeCount];
+				Arrays.fill(baseWeights, 1.0 - dampingFactor);
+				Arrays.fill(initialWeights, 1.0);
+				return iterate(baseWeights, initialWeights, dampingFactor, true, parameter);
+			}
+			case TRANSITIVE_FAN_IN:
+				return iterate(directWeights, directWeights.clone(), dampingFactor, false, parameter);
+			default:
+				return directWeights.clone();
+		}
+	}
+
+	/**
+	 * Iterates the weights w = base + factor * (M * w + d), where M passes the weight of every dependent to the nodes
+	 * it depends on, and d spreads the weight of the dangling nodes over every node if asked to. The iteration stops
+	 * when the weights change less than the tolerance relative to their sum, or after the maximum iterations.
+	 */
+	@Nonnull
+	private double[] iterate(@Nonnull double[] baseWeights, @Nonnull double[] initialWeights, double factor,
+			boolean spreadDangling, @Nonnull NodeWeightParameter parameter) throws JavaCiaException {
+		final int blockCount = (nodeCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		final ExecutorService executorService = blockCount > 1 ? Executors.newWorkStealingPool() : null;
+		double[] currentWeights = initialWeights;
+		double[] nextWeights = new double[nodeCount];
+		try {
+			for (int iteration = 0; iteration < parameter.getMaxIterations(); iteration++) {
+				double danglingWeight = 0.0;
+				if (spreadDangling) {
+					for (final int danglingId : danglingIds) danglingWeight += currentWeights[danglingId];
+					danglingWeight /= nodeCount;
+				}
+
+				final double[] sourceWeights = currentWeights;
+				final double[] targetWeights = nextWeights;
+				final double shift = factor * danglingWeight;
+				double change = 0.0, sum = 0.0;
+				if (executorService == null) {
+					final double[] result = multiplyBlock(baseWeights, sourceWeights, targetWeights, factor, shift,
+							0, nodeCount);
+					change = result[0];
+					sum = result[1];
+				} else {
+					final List<Callable<double[]>> tasks = new ArrayList<>(blockCount);
+					for (int block = 0; block < blockCount; block++) {
+						final int from = block * BLOCK_SIZE;
+						final int to = Math.min(from + BLOCK_SIZE, nodeCount);
+						tasks.add(() -> multiplyBlock(baseWeights, sourceWeights, targetWeights, factor, shift,
+								from, to));
+					}
+					// the blocks are summed in order, so the result is the same on every run
+					for (final Future<double[]> future : executorService.invokeAll(tasks)) {
+						final double[] result = future.get();
+						change += result[0];
+						sum += result[1];
+					}
+				}
+
+				nextWeights = currentWeights;
+				currentWeights = targetWeights;
+				if (change <= parameter.getTolerance() * sum) break;
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new JavaCiaException("Cannot calculate node weights!", e);
+		} finally {
+			if (executorService != null) executorService.shutdown();
+		}
+		return currentWeights;
+	}
+
+	/**
+	 * @return the sum of the absolute changes of the weights of the block, and the sum of their absolute values
+	 */
+	@Nonnull
+	private double[] multiplyBlock(@Nonnull double[] baseWeights, @Nonnull double[] sourceWeights,
+			@Nonnull double[] targetWeights, double factor, double shift, int from, int to) {
+		double change = 0.0, sum = 0.0;
+		for (int id = from; id < to; id++) {
+			double pulledWeight = 0.0;
+			for (int position = offsets[id]; position < offsets[id + 1]; position++) {
+				pulledWeight += coefficients[position] * sourceWeights[dependentIds[position]];
+			}
+			final double weight = baseWeights[id] + factor * pulledWeight + shift;
+			change += Math.abs(weight - sourceWeights[id]);
+			sum += Math.abs(weight);
+			targetWeights[id] = weight;
+		}
+		return new double[]{change, sum};
+	}
+
+}
@@ -21,17 +21,17 @@ package mrmathami.cia.java.jdt.project.builder;
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.DependencyCountMatrix;
 import mrmathami.cia.java.jdt.project.Module;
 import mrmathami.cia.java.jdt.project.ProjectSnapshot;
 import mrmathami.cia.java.jdt.project.SourceFile;
 import mrmathami.cia.java.jdt.project.builder.parameter.BuildInputSources;
 import mrmathami.cia.java.jdt.project.builder.parameter.JavaBuildParameter;
+import mrmathami.cia.java.jdt.project.builder.parameter.NodeWeightParameter;
 import mrmathami.cia.java.jdt.project.builder.parameter.SnapshotBuildParameter;
 import mrmathami.cia.java.project.JavaSourceFileType;
 import mrmathami.cia.java.tree.dependency.JavaDependency;
-import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
-import mrmathami.cia.java.tree.node.JavaNode;
 import mrmathami.cia.java.tree.node.JavaRootNode;
 import mrmathami.cia.java.utils.RelativePath;
 
@@ -51,23 +51,6 @@ public final class SnapshotBuilder {
 	}
 
 
-	@Nonnull
-	private static double[] calculateWeights(@Nonnull double[] dependencyWeights,
-			@Nonnull List<? extends JavaNode> allNodes) {
-		final double[] nodeWeights = new double[allNodes.size()];
-		for (final JavaNode node : allNodes) {
-			double nodeWeight = 0.0;
-			for (final JavaDependencyCountTable nodeDependency : node.getDependencyFrom().values()) {
-				for (final JavaDependency dependency : JavaDependency.VALUE_LIST) {
-					nodeWeight += dependencyWeights[dependency.ordinal()]
-							* nodeDependency.getCount(dependency);
-				}
-			}
-			nodeWeights[node.getId()] = nodeWeight;
-		}
-		return nodeWeights;
-	}
-
 	@Nonnull
 	private static Map<String, SourceFile> createJavaSourceFileMap(@Nonnull BuildInputSources inputSources) {
 		final Map<String, SourceFile> sourceFileMap = new TreeMap<>();
@@ -110,13 +93,44 @@ public final class SnapshotBuilder {
 		final JavaRootNode rootNode = JavaParser.parse(sourcePathArray, sourceEncodingArray, classPathArray,
 				sourceFileMap, recoveryEnabled);
 
+		final double[] dependencyWeights = dependencyWeights(dependencyWeightTable);
+		final NodeWeightParameter weightParameter = getParameter(parameters, NodeWeightParameter.class);
+		if (weightParameter == null || weightParameter.getStrategy() == NodeWeightParameter.Strategy.DEPENDENCY_COUNT) {
+			return new ProjectSnapshot(snapshotName, rootNode, dependencyWeights, new DependencyCountMatrix(rootNode));
+		}
+		return new ProjectSnapshot(snapshotName, rootNode, dependencyWeights,
+				new NodeWeightSolver(rootNode, dependencyWeights).solve(weightParameter), weightParameter);
+	}
+
+	/**
+	 * Weights a built snapshot again with other dependency weights or another node weight strategy, without parsing
+	 * the sources again. Only the {@link NodeWeightParameter} of the parameters is used.
+	 *
+	 * @param snapshot the built snapshot, which shares its tree with the result
+	 * @return a snapshot with the same name and tree, weighted by the new dependency weights and strategy
+	 */
+	@Nonnull
+	public static ProjectSnapshot reweight(@Nonnull ProjectSnapshot snapshot,
+			@Nonnull JavaDependencyWeightTable dependencyWeightTable, @Nonnull Set<SnapshotBuildParameter> parameters)
+			throws JavaCiaException {
+		final double[] dependencyWeights = dependencyWeights(dependencyWeightTable);
+		final NodeWeightParameter weightParameter = getParameter(parameters, NodeWeightParameter.class);
+		if (weightParameter == null || weightParameter.getStrategy() == NodeWeightParameter.Strategy.DEPENDENCY_COUNT) {
+			return snapshot.withNodeWeights(dependencyWeights,
+					snapshot.getDependencyCountMatrix().calculateWeights(dependencyWeights), null);
+		}
+		final double[] nodeWeights
+				= new NodeWeightSolver(snapshot.getRootNode(), dependencyWeights).solve(weightParameter);
+		return snapshot.withNodeWeights(dependencyWeights, nodeWeights, weightParameter);
+	}
+
+	@Nonnull
+	private static double[] dependencyWeights(@Nonnull JavaDependencyWeightTable dependencyWeightTable) {
 		final double[] dependencyWeights = new double[JavaDependency.VALUE_LIST.size()];
 		for (final JavaDependency type : JavaDependency.VALUE_LIST) {
 			dependencyWeights[type.ordinal()] = dependencyWeightTable.getWeight(type);
 		}
-
-		return new ProjectSnapshot(snapshotName, rootNode, dependencyWeights,
-				calculateWeights(dependencyWeights, rootNode.getAllNodes()));
+		return dependencyWeights;
 	}
 
 	@Nullable
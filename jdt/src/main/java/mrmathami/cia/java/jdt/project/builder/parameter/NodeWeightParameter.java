@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.builder.parameter;
+
+import mrmathami.annotations.Nonnull;
+
+/**
+ * Selects how the weight of a node is calculated from the dependencies of the snapshot. Without this parameter, the
+ * weight of a node is the weighted count of the dependencies to it.
+ */
+public final class NodeWeightParameter extends SnapshotBuildParameter {
+
+	private static final long serialVersionUID = -1L;
+
+	public static final double DEFAULT_DAMPING_FACTOR = 0.85;
+	public static final double DEFAULT_TOLERANCE = 1.0e-9;
+	public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	@Nonnull private final Strategy strategy;
+	private final double dampingFactor;
+	private final double tolerance;
+	private final int maxIterations;
+
+
+	public NodeWeightParameter(@Nonnull Strategy strategy) {
+		this(strategy, DEFAULT_DAMPING_FACTOR, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+	}
+
+	/**
+	 * @param dampingFactor the part of the weight of a node that is passed on to the nodes it depends on, from 0 to
+	 * 1 exclusive
+	 * @param tolerance the relative change of the weights under which the iteration stops
+	 * @param maxIterations the number of iterations after which the iteration stops anyway
+	 */
+	public NodeWeightParameter(@Nonnull Strategy strategy, double dampingFactor, double tolerance,
+			int maxIterations) {
+		if (!(dampingFactor > 0.0 && dampingFactor < 1.0)) {
+			throw new IllegalArgumentException("Invalid damping factor!");
+		}
+		if (!(tolerance > 0.0)) throw new IllegalArgumentException("Tolerance must be positive!");
+		if (maxIterations <= 0) throw new IllegalArgumentException("Iteration count must be positive!");
+		this.strategy = strategy;
+		this.dampingFactor = dampingFactor;
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+	}
+
+
+	@Nonnull
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public double getDampingFactor() {
+		return dampingFactor;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+
+	public enum Strategy {
+		/**
+		 * The weighted count of the dependencies to the node, which is the default.
+		 */
+		DEPENDENCY_COUNT,
+		/**
+		 * The stationary weight of a random walk that follows the dependencies by their weights and jumps to any node
+		 * with the chance of one minus the damping factor, scaled so that the average weight is one.
+		 */
+		PAGE_RANK,
+		/**
+		 * The weighted count of the dependencies to the node, plus the damping factor times the weight of every
+		 * dependent, split over the nodes that dependent depends on by their weights. A node used by nodes that are
+		 * used a lot is weighted more, even through a long chain of dependents.
+		 */
+		TRANSITIVE_FAN_IN
+	}
+
+}
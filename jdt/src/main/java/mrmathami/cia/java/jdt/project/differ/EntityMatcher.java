@@ -21,45 +21,116 @@ package mrmathami.cia.java.jdt.project.differ;
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.tree.JavaIdentifiedEntity;
+import mrmathami.cia.java.tree.annotate.JavaAnnotate;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+import mrmathami.cia.java.tree.type.JavaType;
 import mrmathami.utils.Pair;
 
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 final class EntityMatcher {
 
+	// an entity is located by 2 bits of id class, 1 bit of tree side and 29 bits of id
+	private static final int MAX_ID = (1 << 29) - 1;
+
+	private static final int NOT_COMPARED = 0b1111;
+
+	@Nonnull private final MatchCodeTable[] codeTables;
+	@Nonnull private final EntityWrapper[][][] identicalWrappers = new EntityWrapper[2][3][];
+	@Nonnull private final EntityWrapper[][][] similarWrappers = new EntityWrapper[2][3][];
+	@Nonnull private final MatchStateTable matchStates = new MatchStateTable();
+
+	// entities that are in neither tree are kept by their identity
 	@Nonnull private final Map<JavaIdentifiedEntity, EntityWrapper> identicalCodeMap = new IdentityHashMap<>();
 	@Nonnull private final Map<JavaIdentifiedEntity, EntityWrapper> similarCodeMap = new IdentityHashMap<>();
 	@Nonnull private final Map<Pair<JavaIdentifiedEntity, JavaIdentifiedEntity>, int[]> matchMap = new HashMap<>();
 
 
-//	int matchCode(@Nullable JavaIdentifiedEntity entity, boolean identicalMatch) {
-//		return entity != null ? wrap(entity, identicalMatch).hashCode() : 0;
-//	}
+	EntityMatcher(@Nonnull JavaRootNode previousRootNode, @Nonnull JavaRootNode currentRootNode) {
+		this(new MatchCodeTable(previousRootNode), new MatchCodeTable(currentRootNode));
+	}
 
-	boolean match(@Nullable JavaIdentifiedEntity entityA, @Nullable JavaIdentifiedEntity entityB, boolean identicalMatch) {
-		if (entityA == null || entityB == null) return entityA == entityB;
+	EntityMatcher(@Nonnull MatchCodeTable previousCodeTable, @Nonnull MatchCodeTable currentCodeTable) {
+		this.codeTables = new MatchCodeTable[]{previousCodeTable, currentCodeTable};
+	}
 
-		final Pair<JavaIdentifiedEntity, JavaIdentifiedEntity> keyPair = Pair.immutableOf(entityA, entityB);
+	private static int entityClass(@Nonnull JavaIdentifiedEntity entity) {
+		if (entity instanceof JavaNode) return MatchCodeTable.NODE_CLASS;
+		if (entity instanceof JavaType) return MatchCodeTable.TYPE_CLASS;
+		if (entity instanceof JavaAnnotate) return MatchCodeTable.ANNOTATE_CLASS;
+		return -1;
+	}
 
-		final int[] stateWrapper = matchMap.computeIfAbsent(keyPair, any -> new int[]{0b1111});
-		// state is the result of comparison
+	/**
+	 * @return the packed location of the entity, or -1 if the entity is in neither tree
+	 */
+	private long locate(@Nonnull JavaIdentifiedEntity entity) {
+		final int entityClass = entityClass(entity);
+		final int id = entity.getId();
+		if (entityClass < 0 || id < 0 || id > MAX_ID) return -1;
+		for (int side = 0; side < 2; side++) {
+			final List<?> entityList = codeTables[side].getEntityList(entityClass);
+			if (id >= entityList.size()) continue;
+			if (entityClass == MatchCodeTable.NODE_CLASS
+					? ((JavaNode) entity).getRoot() == codeTables[side].getRootNode()
+					: entityList.get(id) == entity) {
+				return (long) entityClass << 30 | (long) side << 29 | id;
+			}
+		}
+		return -1;
+	}
+
+	private static int nextState(int state, boolean identicalMatch, boolean matchResult) {
+		// state is the result of comparison, 2 bits for identical match and 2 bits for similar match
 		// 0 : comparing
 		// 1 : true
 		// 2 : false
 		// 3 : not compared
-		final int state = stateWrapper[0] >> (identicalMatch ? 0 : 2) & 0b11;
+		final int shift = identicalMatch ? 0 : 2;
+		state = state & ~(0b11 << shift) | (matchResult ? 1 : 2) << shift;
+		// identical implies similar, and not similar implies not identical
+		final int otherShift = 2 - shift;
+		if (identicalMatch == matchResult && (state >> otherShift & 0b11) == 3) {
+			state = state & ~(0b11 << otherShift) | (matchResult ? 1 : 2) << otherShift;
+		}
+		return state;
+	}
+
+	boolean match(@Nullable JavaIdentifiedEntity entityA, @Nullable JavaIdentifiedEntity entityB, boolean identicalMatch) {
+		if (entityA == null || entityB == null) return entityA == entityB;
+
+		final long locationA = locate(entityA);
+		final long locationB = locate(entityB);
+		if (locationA < 0 || locationB < 0) return foreignMatch(entityA, entityB, identicalMatch);
+
+		final long key = locationA << 32 | locationB;
+		final int shift = identicalMatch ? 0 : 2;
+		final int state = matchStates.get(key, NOT_COMPARED);
+		if ((state >> shift & 0b11) <= 2) return (state >> shift & 0b11) < 2;
+		matchStates.put(key, state & ~(0b11 << shift));
+		final boolean matchResult = EntityPartialMatcher.internalMatch(entityA, entityB, this, identicalMatch);
+		// the other state might have been changed while comparing
+		matchStates.put(key, nextState(matchStates.get(key, NOT_COMPARED), identicalMatch, matchResult));
+		return matchResult;
+	}
+
+	private boolean foreignMatch(@Nonnull JavaIdentifiedEntity entityA, @Nonnull JavaIdentifiedEntity entityB,
+			boolean identicalMatch) {
+		final Pair<JavaIdentifiedEntity, JavaIdentifiedEntity> keyPair = Pair.immutableOf(entityA, entityB);
+
+		final int[] stateWrapper = matchMap.computeIfAbsent(keyPair, any -> new int[]{NOT_COMPARED});
+		final int shift = identicalMatch ? 0 : 2;
+		final int state = stateWrapper[0] >> shift & 0b11;
 		if (state <= 2) return state < 2;
-		stateWrapper[0] &= 3 << (identicalMatch ? 2 : 0);
+		stateWrapper[0] &= ~(0b11 << shift);
 		final boolean matchResult = EntityPartialMatcher.internalMatch(entityA, entityB, this, identicalMatch);
-		if (identicalMatch != matchResult || stateWrapper[0] >> (identicalMatch ? 2 : 0) != 0b11) {
-			stateWrapper[0] |= matchResult ? 0b0100 : 0b0001;
-		} else {
-			stateWrapper[0] = matchResult ? 0b0101 : 0b1010;
-		}
+		stateWrapper[0] = nextState(stateWrapper[0], identicalMatch, matchResult);
 		return matchResult;
 	}
 
@@ -93,9 +164,22 @@ final class EntityMatcher {
 
 	@Nonnull
 	EntityWrapper wrap(@Nonnull JavaIdentifiedEntity entity, boolean identicalMatch) {
-		return identicalMatch
-				? identicalCodeMap.computeIfAbsent(entity, this::identicalWrapper)
-				: similarCodeMap.computeIfAbsent(entity, this::similarWrapper);
+		final long location = locate(entity);
+		if (location < 0) {
+			return identicalMatch
+					? identicalCodeMap.computeIfAbsent(entity, this::identicalWrapper)
+					: similarCodeMap.computeIfAbsent(entity, this::similarWrapper);
+		}
+		final int entityClass = (int) (location >>> 30);
+		final int side = (int) (location >>> 29) & 1;
+		final int id = (int) location & MAX_ID;
+		final EntityWrapper[][] wrappers = identicalMatch ? identicalWrappers[side] : similarWrappers[side];
+		final EntityWrapper[] classWrappers = wrappers[entityClass] != null
+				? wrappers[entityClass]
+				: (wrappers[entityClass] = new EntityWrapper[codeTables[side].getEntityList(entityClass).size()]);
+		final EntityWrapper wrapper = classWrappers[id];
+		return wrapper != null ? wrapper : (classWrappers[id] = new EntityWrapper(this, entity,
+				codeTables[side].getMatchCode(entityClass, id, entity, identicalMatch), identicalMatch));
 	}
 
 	@Nonnull
@@ -20,6 +20,9 @@ package mrmathami.cia.java.jdt.project.differ;
 
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.BlockInitializerImpl;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.FieldInitializerImpl;
+import mrmathami.cia.java.jdt.tree.node.MethodNode;
 import mrmathami.cia.java.tree.JavaIdentifiedEntity;
 import mrmathami.cia.java.tree.annotate.JavaAnnotate;
 import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
@@ -259,15 +262,15 @@ enum EntityPartialMatcher {
 				final JavaInitializerNode.Initializer initializerB = iteratorB.next();
 				if (initializerA instanceof JavaInitializerNode.BlockInitializer) {
 					return initializerB instanceof JavaInitializerNode.BlockInitializer
-							&& ((JavaInitializerNode.BlockInitializer) initializerA).getBodyBlock()
-							.equals(((JavaInitializerNode.BlockInitializer) initializerB).getBodyBlock());
+							&& internalMatchBody((JavaInitializerNode.BlockInitializer) initializerA,
+							(JavaInitializerNode.BlockInitializer) initializerB);
 				} else if (initializerA instanceof JavaInitializerNode.FieldInitializer) {
 					if (!(initializerB instanceof JavaInitializerNode.FieldInitializer)) return false;
 					final JavaInitializerNode.FieldInitializer
 							fieldInitA = (JavaInitializerNode.FieldInitializer) initializerA,
 							fieldInitB = (JavaInitializerNode.FieldInitializer) initializerB;
 					return matcher.match(fieldInitA.getFieldNode(), fieldInitB.getFieldNode(), true)
-							&& Objects.equals(fieldInitA.getInitialExpression(), fieldInitB.getInitialExpression());
+							&& internalMatchBody(fieldInitA, fieldInitB);
 				}
 			}
 			return false;
@@ -299,7 +302,7 @@ enum EntityPartialMatcher {
 			int matchCode = identicalMatch ? node.getReturnType() != null ? 1 : 0 : -1;
 			matchCode = matchCode * 31 + node.getParameters().size();
 			matchCode = matchCode * 31 + (identicalMatch ? node.getExceptions().size() : -1);
-			return matchCode * 31 + (identicalMatch ? node.getBodyBlock() != null ? 1 : 0 : -1);
+			return matchCode * 31 + (identicalMatch ? internalHasBody(node) ? 1 : 0 : -1);
 		}
 
 		@Override
@@ -310,7 +313,7 @@ enum EntityPartialMatcher {
 			return matcher.matchOrdered(nodeA.getParameters(), nodeB.getParameters(), identicalMatch)
 					&& (!identicalMatch || (matcher.match(nodeA.getReturnType(), nodeB.getReturnType(), true)
 					&& matcher.matchNonOrdered(nodeA.getExceptions(), nodeB.getExceptions(), true)
-					&& Objects.equals(nodeA.getBodyBlock(), nodeB.getBodyBlock())));
+					&& internalMatchBody(nodeA, nodeB)));
 		}
 	},
 
@@ -511,6 +514,38 @@ enum EntityPartialMatcher {
 	}
 
 
+	//region Body Matcher
+
+	// bodies of jdt nodes are compared by their content hash, so the body text is never loaded from the body table
+
+	private static boolean internalHasBody(@Nonnull JavaMethodNode node) {
+		return node instanceof MethodNode ? ((MethodNode) node).getBodyHash() != null : node.getBodyBlock() != null;
+	}
+
+	private static boolean internalMatchBody(@Nonnull JavaMethodNode nodeA, @Nonnull JavaMethodNode nodeB) {
+		return nodeA instanceof MethodNode && nodeB instanceof MethodNode
+				? Objects.equals(((MethodNode) nodeA).getBodyHash(), ((MethodNode) nodeB).getBodyHash())
+				: Objects.equals(nodeA.getBodyBlock(), nodeB.getBodyBlock());
+	}
+
+	private static boolean internalMatchBody(@Nonnull JavaInitializerNode.BlockInitializer initializerA,
+			@Nonnull JavaInitializerNode.BlockInitializer initializerB) {
+		return initializerA instanceof BlockInitializerImpl && initializerB instanceof BlockInitializerImpl
+				? ((BlockInitializerImpl) initializerA).getBodyHash()
+						.equals(((BlockInitializerImpl) initializerB).getBodyHash())
+				: initializerA.getBodyBlock().equals(initializerB.getBodyBlock());
+	}
+
+	private static boolean internalMatchBody(@Nonnull JavaInitializerNode.FieldInitializer initializerA,
+			@Nonnull JavaInitializerNode.FieldInitializer initializerB) {
+		return initializerA instanceof FieldInitializerImpl && initializerB instanceof FieldInitializerImpl
+				? ((FieldInitializerImpl) initializerA).getBodyHash()
+						.equals(((FieldInitializerImpl) initializerB).getBodyHash())
+				: initializerA.getInitialExpression().equals(initializerB.getInitialExpression());
+	}
+
+	//endregion Body Matcher
+
 	static int internalMatchCode(@Nonnull JavaIdentifiedEntity entity, boolean identicalMatch) {
 		int matchCode = 0;
 		for (final EntityPartialMatcher partialMatcher : PARTIAL_MATCHERS) {
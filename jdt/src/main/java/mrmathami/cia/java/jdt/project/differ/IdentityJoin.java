@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.node.AbstractNode;
+import mrmathami.cia.java.jdt.tree.node.IdentityIndex;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pairs the nodes of two trees that have the same entity class and unique name, in one pass over the sorted identity
+ * indexes of both trees. An identity that more than one node of a tree has, or that two different names happen to
+ * hash to, pairs nothing and marks its nodes as colliding, so that they are left to the entity matcher.
+ */
+final class IdentityJoin {
+
+	static final int NO_PARTNER = -1;
+	static final int COLLISION = -2;
+
+	@Nonnull private final int[] previousPartners;
+	@Nonnull private final int[] currentPartners;
+
+
+	private IdentityJoin(@Nonnull int[] previousPartners, @Nonnull int[] currentPartners) {
+		this.previousPartners = previousPartners;
+		this.currentPartners = currentPartners;
+	}
+
+
+	/**
+	 * @return the join of both trees, or null if one of them is not a tree built by this library
+	 */
+	@Nullable
+	static IdentityJoin join(@Nonnull JavaRootNode previousRootNode, @Nonnull JavaRootNode currentRootNode) {
+		if (!(previousRootNode instanceof RootNode) || !(currentRootNode instanceof RootNode)) return null;
+		final List<AbstractNode> previousNodes = ((RootNode) previousRootNode).getAllNodes();
+		final List<AbstractNode> currentNodes = ((RootNode) currentRootNode).getAllNodes();
+		final IdentityIndex previousIndex = ((RootNode) previousRootNode).getIdentityIndex();
+		final IdentityIndex currentIndex = ((RootNode) currentRootNode).getIdentityIndex();
+
+		final int[] previousPartners = new int[previousNodes.size()];
+		final int[] currentPartners = new int[currentNodes.size()];
+		Arrays.fill(previousPartners, NO_PARTNER);
+		Arrays.fill(currentPartners, NO_PARTNER);
+
+		final int previousSize = previousIndex.size();
+		final int currentSize = currentIndex.size();
+		int previousStart = 0, currentStart = 0;
+		while (previousStart < previousSize || currentStart < currentSize) {
+			// the next identity is the smaller of the identities at the start of both indexes
+			final long identity = previousStart >= previousSize ? currentIndex.getIdentityHash(currentStart)
+					: currentStart >= currentSize ? previousIndex.getIdentityHash(previousStart)
+					: Math.min(previousIndex.getIdentityHash(previousStart),
+					currentIndex.getIdentityHash(currentStart));
+			final int previousEnd = runEnd(previousIndex, previousStart, identity);
+			final int currentEnd = runEnd(currentIndex, currentStart, identity);
+
+			if (previousEnd - previousStart == 1 && currentEnd - currentStart == 1) {
+				final int previousId = previousIndex.getNodeId(previousStart);
+				final int currentId = currentIndex.getNodeId(currentStart);
+				if (isSameIdentity(previousNodes.get(previousId), currentNodes.get(currentId))) {
+					previousPartners[previousId] = currentId;
+					currentPartners[currentId] = previousId;
+				} else {
+					previousPartners[previousId] = COLLISION;
+					currentPartners[currentId] = COLLISION;
+				}
+			} else if (previousEnd - previousStart > 1 || currentEnd - currentStart > 1) {
+				for (int i = previousStart; i < previousEnd; i++) {
+					previousPartners[previousIndex.getNodeId(i)] = COLLISION;
+				}
+				for (int i = currentStart; i < currentEnd; i++) {
+					currentPartners[currentIndex.getNodeId(i)] = COLLISION;
+				}
+			}
+			previousStart = previousEnd;
+			currentStart = currentEnd;
+		}
+		return new IdentityJoin(previousPartners, currentPartners);
+	}
+
+	private static int runEnd(@Nonnull IdentityIndex index, int start, long identity) {
+		int end = start;
+		while (end < index.size() && index.getIdentityHash(end) == identity) end += 1;
+		return end;
+	}
+
+	private static boolean isSameIdentity(@Nonnull AbstractNode previousNode, @Nonnull AbstractNode currentNode) {
+		return previousNode.getEntityClass().equals(currentNode.getEntityClass())
+				&& previousNode.getUniqueName().equals(currentNode.getUniqueName());
+	}
+
+	//region Getter
+
+	/**
+	 * @return id of the current node with the same identity, or {@link #NO_PARTNER}, or {@link #COLLISION}
+	 */
+	int getCurrentPartner(int previousId) {
+		return previousPartners[previousId];
+	}
+
+	/**
+	 * @return id of the previous node with the same identity, or {@link #NO_PARTNER}, or {@link #COLLISION}
+	 */
+	int getPreviousPartner(int currentId) {
+		return currentPartners[currentId];
+	}
+
+	//endregion Getter
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Impact vectors of single changed nodes of one impact graph, so that a node which changes again in another
+ * comparison against the same snapshot is not calculated again. The cache holds at most a number of bytes, and drops
+ * the least recently used vectors first when it is full.
+ */
+final class ImpactCache {
+
+	private final long capacity;
+	@Nonnull private final LinkedHashMap<Integer, ImpactVector> vectors = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+
+
+	/**
+	 * @param capacity the number of bytes the cache can hold, or zero to keep nothing
+	 */
+	ImpactCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+
+	@Nullable
+	synchronized ImpactVector get(int nodeId) {
+		return vectors.get(nodeId);
+	}
+
+	synchronized void put(int nodeId, @Nonnull ImpactVector vector) {
+		final long memorySize = vector.getMemorySize();
+		if (memorySize > capacity) return;
+
+		final ImpactVector oldVector = vectors.put(nodeId, vector);
+		if (oldVector != null) size -= oldVector.getMemorySize();
+		size += memorySize;
+
+		final Iterator<Map.Entry<Integer, ImpactVector>> iterator = vectors.entrySet().iterator();
+		while (size > capacity) {
+			size -= iterator.next().getValue().getMemorySize();
+			iterator.remove();
+		}
+	}
+
+}
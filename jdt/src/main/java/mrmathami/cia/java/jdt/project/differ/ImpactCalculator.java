@@ -19,72 +19,269 @@
 package mrmathami.cia.java.jdt.project.differ;
 
 import mrmathami.annotations.Nonnull;
-import mrmathami.cia.java.tree.dependency.JavaDependency;
-import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
-import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.function.BooleanSupplier;
 
-final class ImpactCalculator implements Callable<double[]> {
+final class ImpactCalculator implements Callable<ImpactVector> {
 
 	private static final double THRESHOLD = 1.0e-5;
+	private static final int MAX_COMPONENT_STEPS = 1 << 20;
+	private static final int CHECK_STEPS = 1 << 12;
+	// the paths of a class have a weight of up to a fourth of the one of the class before
+	private static final int CLASS_COUNT = 9;
+	// the number of paths of the class, then the sum of each power of their weights
+	private static final int CLASS_LENGTH = 9;
+	private static final int PATH_SUMS_LENGTH = CLASS_COUNT * CLASS_LENGTH;
 
+	@Nonnull private final ImpactScratch scratch;
 	@Nonnull private final BitSet pathSet;
+	@Nonnull private final BitSet reachedSet;
 	@Nonnull private final double[] calculatingWeights;
-	@Nonnull private final double[] dependencyImpacts;
-	@Nonnull private final JavaNode changedNode;
+	@Nonnull private final int[] offsets;
+	@Nonnull private final int[] dependentIds;
+	@Nonnull private final double[] linkImpacts;
+	@Nonnull private final ImpactGraph impactGraph;
+	private final int changedId;
+	@Nullable private final BooleanSupplier progressCheck;
+	private int remainingSteps;
+	private int stepsToCheck = CHECK_STEPS;
+	private boolean stopped;
 
 
-	ImpactCalculator(int nodeCount, @Nonnull double[] dependencyImpacts, @Nonnull JavaNode changedNode) {
-		this.pathSet = new BitSet(nodeCount);
-		this.calculatingWeights = new double[nodeCount];
-		this.dependencyImpacts = dependencyImpacts;
-		this.changedNode = changedNode;
+	ImpactCalculator(@Nonnull ImpactGraph impactGraph, int changedId) {
+		this(impactGraph, changedId, null);
+	}
+
+	/**
+	 * A calculator borrows its working memory from the graph until it is called, so it is created right before it is
+	 * called, and it is only called once.
+	 *
+	 * @param progressCheck called every few thousand steps, returns false to stop the calculation, after which the
+	 * result only holds the paths that were followed before. The paths are always followed in the same order, so a
+	 * calculation stopped at a later check holds every path of a calculation stopped at an earlier one.
+	 */
+	ImpactCalculator(@Nonnull ImpactGraph impactGraph, int changedId, @Nullable BooleanSupplier progressCheck) {
+		this.scratch = impactGraph.acquireScratch();
+		this.pathSet = scratch.getPathSet();
+		this.reachedSet = scratch.getReachedSet();
+		this.calculatingWeights = scratch.getFactors();
+		this.offsets = impactGraph.getOffsets();
+		this.dependentIds = impactGraph.getDependentIds();
+		this.linkImpacts = impactGraph.getLinkImpacts();
+		this.impactGraph = impactGraph;
+		this.changedId = changedId;
+		this.progressCheck = progressCheck;
+	}
+
+
+	private boolean shouldStop() {
+		if (progressCheck == null || --stepsToCheck > 0) return stopped;
+		this.stepsToCheck = CHECK_STEPS;
+		if (!progressCheck.getAsBoolean()) this.stopped = true;
+		return stopped;
 	}
 
 
-	private void recursiveCalculate(@Nonnull JavaNode currentNode, double currentWeight) {
-		for (final Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable> entry
-				: currentNode.getDependencyFrom().entrySet()) {
-			final JavaNode nextNode = entry.getKey();
-			final int nextId = nextNode.getId();
+	private void recursiveCalculate(int currentId, double currentWeight) {
+		final int end = offsets[currentId + 1];
+		for (int position = offsets[currentId]; position < end && !shouldStop(); position++) {
+			final int nextId = dependentIds[position];
 			if (pathSet.get(nextId)) continue;
 			pathSet.set(nextId);
 
-			double linkWeight = 1.0;
-			final JavaDependencyCountTable nodeDependency = entry.getValue();
-			for (final JavaDependency dependency : JavaDependency.VALUE_LIST) {
-				final int count = nodeDependency.getCount(dependency);
-				if (count > 0) {
-					linkWeight *= Math.pow(1.0 - dependencyImpacts[dependency.ordinal()], count);
+			final double nextWeight = currentWeight * linkImpacts[position];
+			if (nextWeight >= THRESHOLD) {
+				scratch.multiplyFactor(nextId, 1.0 - nextWeight);
+				recursiveCalculate(nextId, nextWeight);
+			}
+
+			pathSet.clear(nextId);
+		}
+	}
+
+	/**
+	 * Propagates the change over the components in topological order. Every reached node keeps the paths that reach
+	 * it in classes of about the same weight, each with the number of paths and the power sums of their weights. The
+	 * classes are carried over the links between components as the paths are, so the paths through a component are
+	 * not enumerated again for every path that reaches it, and a class whose mean weight goes under the threshold is
+	 * dropped as the paths in it would be. The factor of a node is the product of one minus the weight of each path,
+	 * which is the exponential of the negated sum of each power sum divided by its power, and only the first powers
+	 * of that series are summed.
+	 */
+	private void condensedCalculate() {
+		final int[] componentIds = impactGraph.getComponentIds();
+		final int[] componentOffsets = impactGraph.getComponentOffsets();
+		final int[] componentNodeIds = impactGraph.getComponentNodeIds();
+
+		// the changed node is reached by the empty path, whose weight is one
+		Arrays.fill(scratch.getPathSums(changedId, PATH_SUMS_LENGTH), 0, CLASS_LENGTH, 1.0);
+
+		// every edge goes to the same or a later component, so a component is done when it is its turn
+		final BitSet pendingComponents = new BitSet();
+		pendingComponents.set(componentIds[changedId]);
+		for (int component = pendingComponents.nextSetBit(0); component >= 0 && !shouldStop();
+				component = pendingComponents.nextSetBit(component + 1)) {
+			final int start = componentOffsets[component];
+			final int end = componentOffsets[component + 1];
+			if (end - start > 1) {
+				calculateComponent(component, componentIds, componentNodeIds, start, end);
+				// the component is not done, so its nodes cannot impact the later components yet
+				if (stopped) break;
+			}
+
+			for (int index = start; index < end; index++) {
+				final int currentId = componentNodeIds[index];
+				final double[] currentPathSums = scratch.findPathSums(currentId);
+				if (currentPathSums == null) continue;
+				final double maxWeight = maxMeanWeight(currentPathSums);
+				for (int position = offsets[currentId]; position < offsets[currentId + 1]; position++) {
+					final int nextId = dependentIds[position];
+					if (componentIds[nextId] == component || maxWeight * linkImpacts[position] < THRESHOLD) continue;
+					addPathSums(scratch.getPathSums(nextId, PATH_SUMS_LENGTH), currentPathSums, linkImpacts[position]);
+					pendingComponents.set(componentIds[nextId]);
 				}
 			}
+		}
 
-			final double nextWeight = currentWeight * (1.0 - linkWeight);
-			if (nextWeight >= THRESHOLD) {
-				calculatingWeights[nextId] *= 1.0 - nextWeight;
-				recursiveCalculate(nextNode, nextWeight);
+		// a stopped calculation still gives the paths that were added up before
+		for (int index = 0; index < scratch.getPathSumsNodeCount(); index++) {
+			final int nodeId = scratch.getPathSumsNodeId(index);
+			final double[] pathSums = scratch.findPathSums(nodeId);
+			assert pathSums != null;
+			double logFactor = 0.0;
+			for (int offset = 0; offset < PATH_SUMS_LENGTH; offset += CLASS_LENGTH) {
+				for (int power = 1; power < CLASS_LENGTH; power++) logFactor -= pathSums[offset + power] / power;
+			}
+			scratch.multiplyFactor(nodeId, Math.exp(logFactor));
+		}
+	}
+
+	/**
+	 * @return the class of the paths of about the weight, from the heaviest to the lightest
+	 */
+	private static int weightClass(double weight) {
+		return Math.min(-Math.getExponent(weight) / 2, CLASS_COUNT - 1);
+	}
+
+	/**
+	 * @return mean weight of the paths of the heaviest class that has any
+	 */
+	private static double maxMeanWeight(@Nonnull double[] pathSums) {
+		for (int offset = 0; offset < PATH_SUMS_LENGTH; offset += CLASS_LENGTH) {
+			if (pathSums[offset] > 0.0) return pathSums[offset + 1] / pathSums[offset];
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Adds the paths that go on with one more step of the weight, each class to the class of its new mean weight,
+	 * unless that mean weight is under the threshold.
+	 */
+	private static void addPathSums(@Nonnull double[] pathSums, @Nonnull double[] previousPathSums,
+			double stepWeight) {
+		for (int offset = 0; offset < PATH_SUMS_LENGTH; offset += CLASS_LENGTH) {
+			final double pathCount = previousPathSums[offset];
+			if (pathCount <= 0.0) continue;
+			final double meanWeight = previousPathSums[offset + 1] / pathCount * stepWeight;
+			if (meanWeight < THRESHOLD) break;
+
+			final int nextOffset = weightClass(meanWeight) * CLASS_LENGTH;
+			pathSums[nextOffset] += pathCount;
+			double stepPower = 1.0;
+			for (int power = 1; power < CLASS_LENGTH; power++) {
+				stepPower *= stepWeight;
+				pathSums[nextOffset + power] += previousPathSums[offset + power] * stepPower;
+			}
+		}
+	}
+
+	/**
+	 * Enumerates the paths inside the component from every node that is reached from outside of it, each going on
+	 * from the paths that reach that node. The number of steps is bounded, after which the paths that are left are
+	 * not followed, so the nodes that are reached by the heaviest paths are done first.
+	 */
+	private void calculateComponent(int component, @Nonnull int[] componentIds, @Nonnull int[] componentNodeIds,
+			int start, int end) {
+		final int[] entryIds = new int[end - start];
+		final double[][] entryPathSums = new double[end - start][];
+		final double[] entryWeights = new double[end - start];
+		int entryCount = 0;
+		for (int index = start; index < end; index++) {
+			final int nodeId = componentNodeIds[index];
+			final double[] pathSums = scratch.findPathSums(nodeId);
+			if (pathSums == null) continue;
+			final double maxWeight = maxMeanWeight(pathSums);
+			int position = entryCount++;
+			while (position > 0 && entryWeights[position - 1] < maxWeight) {
+				entryIds[position] = entryIds[position - 1];
+				entryPathSums[position] = entryPathSums[position - 1];
+				entryWeights[position] = entryWeights[position - 1];
+				position -= 1;
+			}
+			// the paths from the other entries also reach this one, so only the paths from outside are kept
+			entryIds[position] = nodeId;
+			entryPathSums[position] = pathSums.clone();
+			entryWeights[position] = maxWeight;
+		}
+
+		this.remainingSteps = MAX_COMPONENT_STEPS;
+		for (int index = 0; index < entryCount && remainingSteps > 0; index++) {
+			final int entryId = entryIds[index];
+			pathSet.set(entryId);
+			componentCalculate(component, componentIds, entryPathSums[index], entryWeights[index], entryId, 1.0);
+			pathSet.clear(entryId);
+		}
+	}
+
+	private void componentCalculate(int component, @Nonnull int[] componentIds, @Nonnull double[] entryPathSums,
+			double entryWeight, int currentId, double currentWeight) {
+		final int end = offsets[currentId + 1];
+		for (int position = offsets[currentId]; position < end && remainingSteps > 0 && !shouldStop(); position++) {
+			final int nextId = dependentIds[position];
+			if (componentIds[nextId] != component || pathSet.get(nextId)) continue;
+			pathSet.set(nextId);
+			remainingSteps -= 1;
+
+			final double nextWeight = currentWeight * linkImpacts[position];
+			if (entryWeight * nextWeight >= THRESHOLD) {
+				addPathSums(scratch.getPathSums(nextId, PATH_SUMS_LENGTH), entryPathSums, nextWeight);
+				componentCalculate(component, componentIds, entryPathSums, entryWeight, nextId, nextWeight);
 			}
 
 			pathSet.clear(nextId);
 		}
 	}
 
-	@Override
-	public double[] call() {
-		Arrays.fill(calculatingWeights, 1.0);
+	/**
+	 * @return true if the progress check stopped the calculation
+	 */
+	boolean isStopped() {
+		return stopped;
+	}
 
-		final int changedId = changedNode.getId();
-		calculatingWeights[changedId] = 0.0;
-		pathSet.set(changedId);
+	@Nonnull
+	@Override
+	public ImpactVector call() {
+		try {
+			// only the reached nodes are written, every other node keeps the factor of one
+			scratch.multiplyFactor(changedId, 0.0);
+			pathSet.set(changedId);
 
-		recursiveCalculate(changedNode, 1.0);
+			if (impactGraph.isExact(changedId)) {
+				recursiveCalculate(changedId, 1.0);
+			} else {
+				condensedCalculate();
+			}
 
-		//for (int i = 0; i < nodeCount; i++) weights[i] = 1.0f - weights[i]; // NOTE: change me both!!
-		return calculatingWeights;
+			pathSet.clear(changedId);
+			return scratch.toVector();
+		} finally {
+			impactGraph.releaseScratch(scratch);
+		}
 	}
 
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a block of independent cascade samples. In each sample, every dependency is live with the chance that the
+ * change of a node impacts that dependent, and a node is impacted when a live path reaches it from a changed node.
+ */
+final class ImpactSampler implements Callable<int[]> {
+
+	@Nonnull private final int[] offsets;
+	@Nonnull private final int[] dependentIds;
+	@Nonnull private final double[] linkImpacts;
+	@Nonnull private final int[] changedNodeIds;
+	@Nonnull private final SplittableRandom random;
+	private final int nodeCount;
+	private final int sampleCount;
+
+
+	ImpactSampler(@Nonnull ImpactGraph impactGraph, @Nonnull int[] changedNodeIds, int sampleCount,
+			@Nonnull SplittableRandom random) {
+		this.offsets = impactGraph.getOffsets();
+		this.dependentIds = impactGraph.getDependentIds();
+		this.linkImpacts = impactGraph.getLinkImpacts();
+		this.changedNodeIds = changedNodeIds;
+		this.random = random;
+		this.nodeCount = impactGraph.getNodeCount();
+		this.sampleCount = sampleCount;
+	}
+
+
+	/**
+	 * @return the number of samples in which each node is impacted, indexed by id
+	 */
+	@Nonnull
+	@Override
+	public int[] call() {
+		final int[] counts = new int[nodeCount];
+		// a node is visited in a sample when its stamp is the number of that sample, so nothing is cleared
+		final int[] stamps = new int[nodeCount];
+		final int[] queue = new int[nodeCount];
+
+		for (int sample = 1; sample <= sampleCount; sample++) {
+			int size = 0;
+			for (final int changedId : changedNodeIds) {
+				if (stamps[changedId] != sample) {
+					stamps[changedId] = sample;
+					queue[size++] = changedId;
+				}
+			}
+			for (int head = 0; head < size; head++) {
+				final int currentId = queue[head];
+				counts[currentId] += 1;
+				for (int position = offsets[currentId]; position < offsets[currentId + 1]; position++) {
+					final int nextId = dependentIds[position];
+					if (stamps[nextId] != sample && random.nextDouble() < linkImpacts[position]) {
+						stamps[nextId] = sample;
+						queue[size++] = nextId;
+					}
+				}
+			}
+		}
+		return counts;
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Working memory of one impact calculation on a graph: the factor of every node, indexed by id, and the nodes on the
+ * current path. The reached nodes are listed as they are reached, so clearing the memory only takes as long as the
+ * calculation did, and the graph lends it to the next calculation instead of allocating it again.
+ */
+final class ImpactScratch {
+
+	@Nonnull private final double[] factors;
+	@Nonnull private final BitSet reachedSet;
+	@Nonnull private final BitSet pathSet;
+	@Nonnull private int[] reachedIds = new int[64];
+	private int reachedCount;
+	// sums of the paths that reach each node, only used by a condensed calculation
+	@Nullable private double[][] pathSums;
+	@Nonnull private int[] pathSumsIds = new int[0];
+	private int pathSumsCount;
+
+
+	ImpactScratch(int nodeCount) {
+		this.factors = new double[nodeCount];
+		this.reachedSet = new BitSet(nodeCount);
+		this.pathSet = new BitSet(nodeCount);
+	}
+
+
+	//region Getter
+
+	/**
+	 * @return factor of the reached nodes, indexed by id
+	 */
+	@Nonnull
+	double[] getFactors() {
+		return factors;
+	}
+
+	@Nonnull
+	BitSet getReachedSet() {
+		return reachedSet;
+	}
+
+	@Nonnull
+	BitSet getPathSet() {
+		return pathSet;
+	}
+
+	//endregion Getter
+
+	/**
+	 * A node that is not reached yet has a factor of one, which is not read from the array.
+	 */
+	void multiplyFactor(int nodeId, double factor) {
+		if (reachedSet.get(nodeId)) {
+			factors[nodeId] *= factor;
+		} else {
+			factors[nodeId] = factor;
+			reachedSet.set(nodeId);
+			if (reachedCount == reachedIds.length) this.reachedIds = Arrays.copyOf(reachedIds, reachedCount * 2);
+			reachedIds[reachedCount++] = nodeId;
+		}
+	}
+
+	/**
+	 * @return the path sums of the node, which are zero until they are added to
+	 */
+	@Nonnull
+	double[] getPathSums(int nodeId, int length) {
+		if (pathSums == null) this.pathSums = new double[factors.length][];
+		final double[] nodePathSums = pathSums[nodeId];
+		if (nodePathSums != null) return nodePathSums;
+		if (pathSumsCount == pathSumsIds.length) {
+			this.pathSumsIds = Arrays.copyOf(pathSumsIds, Math.max(pathSumsCount * 2, 64));
+		}
+		pathSumsIds[pathSumsCount++] = nodeId;
+		return pathSums[nodeId] = new double[length];
+	}
+
+	/**
+	 * @return the path sums of the node, or null if the node has none
+	 */
+	@Nullable
+	double[] findPathSums(int nodeId) {
+		return pathSums != null ? pathSums[nodeId] : null;
+	}
+
+	int getPathSumsNodeCount() {
+		return pathSumsCount;
+	}
+
+	int getPathSumsNodeId(int index) {
+		return pathSumsIds[index];
+	}
+
+	@Nonnull
+	ImpactVector toVector() {
+		final int[] nodeIds = Arrays.copyOf(reachedIds, reachedCount);
+		Arrays.sort(nodeIds);
+		return ImpactVector.fromFactors(factors, nodeIds);
+	}
+
+	void clear() {
+		// a calculation leaves every path it follows, unless it failed
+		pathSet.clear();
+		for (int index = 0; index < reachedCount; index++) reachedSet.clear(reachedIds[index]);
+		this.reachedCount = 0;
+		if (pathSums != null) {
+			for (int index = 0; index < pathSumsCount; index++) pathSums[pathSumsIds[index]] = null;
+		}
+		this.pathSumsCount = 0;
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+
+import java.util.BitSet;
+
+/**
+ * Impact of a change of one node, as the factors of the nodes it reaches. The impact on a node is one minus the
+ * product of its factors over every changed node, and a node that is not reached has a factor of one, so it is not
+ * kept here.
+ */
+final class ImpactVector {
+
+	@Nonnull private final int[] nodeIds;
+	@Nonnull private final double[] factors;
+
+
+	private ImpactVector(@Nonnull int[] nodeIds, @Nonnull double[] factors) {
+		this.nodeIds = nodeIds;
+		this.factors = factors;
+	}
+
+
+	/**
+	 * @return impact of a changed node on itself, before any of its paths are followed
+	 */
+	@Nonnull
+	static ImpactVector ofChangedNode(int nodeId) {
+		return new ImpactVector(new int[]{nodeId}, new double[]{0.0});
+	}
+
+	/**
+	 * @param factors factor of the reached nodes, indexed by id
+	 * @param reachedNodeIds ids of the reached nodes in increasing order, kept by the vector
+	 */
+	@Nonnull
+	static ImpactVector fromFactors(@Nonnull double[] factors, @Nonnull int[] reachedNodeIds) {
+		final double[] vectorFactors = new double[reachedNodeIds.length];
+		for (int index = 0; index < reachedNodeIds.length; index++) {
+			vectorFactors[index] = factors[reachedNodeIds[index]];
+		}
+		return new ImpactVector(reachedNodeIds, vectorFactors);
+	}
+
+	/**
+	 * Multiplies the factors of this vector into the factors of the reached nodes. A node that is not reached yet
+	 * has a factor of one, which is not read from the array.
+	 *
+	 * @param factors factor of the reached nodes, indexed by id
+	 * @param reachedNodeIds ids of the reached nodes, which the nodes of this vector are added to
+	 */
+	void multiplyInto(@Nonnull double[] factors, @Nonnull BitSet reachedNodeIds) {
+		for (int index = 0; index < nodeIds.length; index++) {
+			final int nodeId = nodeIds[index];
+			if (reachedNodeIds.get(nodeId)) {
+				factors[nodeId] *= this.factors[index];
+			} else {
+				factors[nodeId] = this.factors[index];
+				reachedNodeIds.set(nodeId);
+			}
+		}
+	}
+
+	int size() {
+		return nodeIds.length;
+	}
+
+	int getNodeId(int index) {
+		return nodeIds[index];
+	}
+
+	double getFactor(int index) {
+		return factors[index];
+	}
+
+	/**
+	 * @return approximate number of bytes this vector holds
+	 */
+	long getMemorySize() {
+		return 64L + 12L * nodeIds.length;
+	}
+
+}
@@ -19,29 +19,42 @@
 package mrmathami.cia.java.jdt.project.differ;
 
 import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.ImpactEstimate;
+import mrmathami.cia.java.jdt.project.ImpactProgress;
+import mrmathami.cia.java.jdt.project.ProjectSnapshot;
 import mrmathami.cia.java.jdt.project.ProjectSnapshotComparison;
+import mrmathami.cia.java.jdt.project.SparseNodeWeightTable;
+import mrmathami.cia.java.jdt.tree.node.AbstractNode;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
 import mrmathami.cia.java.project.JavaProjectSnapshot;
-import mrmathami.cia.java.tree.dependency.JavaDependency;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
 import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaPackageNode;
 import mrmathami.cia.java.tree.node.JavaRootNode;
-import mrmathami.utils.Pair;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public final class JavaSnapshotComparator {
 
+	private static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE);
+
 	private JavaSnapshotComparator() {
 	}
 
@@ -50,98 +63,552 @@ public final class JavaSnapshotComparator {
 	public static ProjectSnapshotComparison compare(@Nonnull String comparisonName,
 			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
 			@Nonnull JavaDependencyWeightTable impactWeightMap) throws JavaCiaException {
-		final JavaRootNode previousRootNode = previousSnapshot.getRootNode();
-		final JavaRootNode currentRootNode = currentSnapshot.getRootNode();
+		return compare(comparisonName, previousSnapshot, currentSnapshot, impactWeightMap, false);
+	}
+
+	/**
+	 * @param detectMoves whether removed and added nodes that are the same node after a move or a rename are paired,
+	 * in which case they are reported as changed
+	 */
+	@Nonnull
+	public static ProjectSnapshotComparison compare(@Nonnull String comparisonName,
+			@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
+			@Nonnull JavaDependencyWeightTable impactWeightMap, boolean detectMoves) throws JavaCiaException {
+		final NodeComparison nodeComparison = compareSnapshots(matchCodeTable(previousSnapshot),
+				matchCodeTable(currentSnapshot), detectMoves);
+
+		return nodeComparison.createComparison(comparisonName, previousSnapshot, currentSnapshot,
+				ImpactGraph.dependencyImpacts(impactWeightMap), calculateImpacts(
+						impactGraph(currentSnapshot, impactWeightMap), nodeComparison.changedCurrentNodeIds()));
+	}
 
-		final Set<JavaNode> addedNodes = new LinkedHashSet<>();
-		final Set<JavaNode> removedNodes = new LinkedHashSet<>();
-		final Set<Pair<JavaNode, JavaNode>> changedNodes = new LinkedHashSet<>();
-		final Set<Pair<JavaNode, JavaNode>> unchangedNodes = new LinkedHashSet<>();
+	/**
+	 * Compares every snapshot with the next one. The match codes of a snapshot are computed once for both of the
+	 * comparisons it is in, and the impacts of a comparison are calculated while the next comparison is matched.
+	 *
+	 * @param comparisonNames one name for each comparison, which is one less than the number of snapshots
+	 * @param detectMoves whether removed and added nodes that are the same node after a move or a rename are paired,
+	 * in which case they are reported as changed
+	 */
+	@Nonnull
+	public static List<ProjectSnapshotComparison> compareChain(@Nonnull List<String> comparisonNames,
+			@Nonnull List<? extends JavaProjectSnapshot> snapshots, @Nonnull JavaDependencyWeightTable impactWeightMap,
+			boolean detectMoves) throws JavaCiaException {
+		if (comparisonNames.size() != Math.max(snapshots.size() - 1, 0)) {
+			throw new IllegalArgumentException("Need one comparison name for each pair of adjacent snapshots!");
+		}
+		if (snapshots.size() < 2) return List.of();
+		for (final JavaProjectSnapshot snapshot : snapshots) checkComparable(snapshot);
 
-		compareRootNodes(previousRootNode, currentRootNode, addedNodes, removedNodes, changedNodes, unchangedNodes);
+		final double[] dependencyImpacts = ImpactGraph.dependencyImpacts(impactWeightMap);
+		final List<NodeComparison> nodeComparisons = new ArrayList<>(comparisonNames.size());
+		final List<Future<SparseNodeWeightTable>> taskFutures = new ArrayList<>(comparisonNames.size());
 
-		final double[] dependencyImpacts = new double[JavaDependency.VALUE_LIST.size()];
-		for (final JavaDependency type : JavaDependency.VALUE_LIST) {
-			dependencyImpacts[type.ordinal()] = impactWeightMap.getWeight(type);
+		// one thread calculates the impacts of each comparison in turn, while this thread matches the next one
+		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			MatchCodeTable previousCodeTable = matchCodeTable(snapshots.get(0));
+			for (int index = 1; index < snapshots.size(); index++) {
+				final JavaProjectSnapshot currentSnapshot = snapshots.get(index);
+				final MatchCodeTable currentCodeTable = matchCodeTable(currentSnapshot);
+				final NodeComparison nodeComparison
+						= compareSnapshots(previousCodeTable, currentCodeTable, detectMoves);
+				nodeComparisons.add(nodeComparison);
+				taskFutures.add(executorService.submit(() -> calculateImpacts(
+						impactGraph(currentSnapshot, impactWeightMap), nodeComparison.changedCurrentNodeIds())));
+				previousCodeTable = currentCodeTable;
+			}
+		} finally {
+			executorService.shutdown();
 		}
 
-		return new ProjectSnapshotComparison(comparisonName, previousSnapshot, currentSnapshot,
-				addedNodes, removedNodes, changedNodes, unchangedNodes, dependencyImpacts,
-				calculateNodeImpacts(dependencyImpacts, currentRootNode, addedNodes, changedNodes));
+		final List<ProjectSnapshotComparison> comparisons = new ArrayList<>(nodeComparisons.size());
+		try {
+			for (int index = 0; index < nodeComparisons.size(); index++) {
+				comparisons.add(nodeComparisons.get(index).createComparison(comparisonNames.get(index),
+						snapshots.get(index), snapshots.get(index + 1), dependencyImpacts,
+						taskFutures.get(index).get()));
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new JavaCiaException("Cannot calculate impact weights!", e);
+		}
+		return comparisons;
+	}
+
+
+	/**
+	 * Only a tree built by this library keeps the kinds, modifiers, types and bodies of its nodes that a comparison
+	 * matches on. A tree that does not, such as the tree of a mapped snapshot, would have no node matched at all.
+	 */
+	private static void checkComparable(@Nonnull JavaProjectSnapshot snapshot) throws JavaCiaException {
+		if (!(snapshot.getRootNode() instanceof RootNode)) {
+			throw new JavaCiaException("Cannot compare snapshot " + snapshot.getName()
+					+ ", its tree does not keep the nodes in full!");
+		}
+	}
+
+	@Nonnull
+	private static MatchCodeTable matchCodeTable(@Nonnull JavaProjectSnapshot snapshot) throws JavaCiaException {
+		checkComparable(snapshot);
+		return new MatchCodeTable(snapshot.getRootNode());
 	}
 
+	/**
+	 * @return the impact graph kept by the snapshot, or a new one if the snapshot does not keep one
+	 */
+	@Nonnull
+	private static ImpactGraph impactGraph(@Nonnull JavaProjectSnapshot snapshot,
+			@Nonnull JavaDependencyWeightTable impactWeightMap) {
+		return snapshot instanceof ProjectSnapshot
+				? ((ProjectSnapshot) snapshot).getImpactGraph(impactWeightMap)
+				: new ImpactGraph(snapshot.getRootNode(), impactWeightMap);
+	}
+
+	@Nonnull
+	private static NodeComparison compareSnapshots(@Nonnull MatchCodeTable previousCodeTable,
+			@Nonnull MatchCodeTable currentCodeTable, boolean detectMoves) throws JavaCiaException {
+		final JavaRootNode previousRootNode = previousCodeTable.getRootNode();
+		final JavaRootNode currentRootNode = currentCodeTable.getRootNode();
+		final NodeComparison nodeComparison = new NodeComparison(previousRootNode.getAllNodes().size());
+
+		compareRootNodes(previousCodeTable, currentCodeTable, nodeComparison.nodeMapping,
+				nodeComparison.removedNodeIds, nodeComparison.addedNodeIds, nodeComparison.changedNodeIds);
+		if (detectMoves) {
+			MoveDetector.detect(previousRootNode, currentRootNode, nodeComparison.nodeMapping,
+					nodeComparison.removedNodeIds, nodeComparison.addedNodeIds, nodeComparison.changedNodeIds);
+		}
+		return nodeComparison;
+	}
+
+	private static void compareRootNodes(@Nonnull MatchCodeTable previousCodeTable,
+			@Nonnull MatchCodeTable currentCodeTable, @Nonnull int[] nodeMapping, @Nonnull BitSet removedNodeIds,
+			@Nonnull BitSet addedNodeIds, @Nonnull BitSet changedNodeIds) throws JavaCiaException {
+		final JavaRootNode previousRootNode = previousCodeTable.getRootNode();
+		final JavaRootNode currentRootNode = currentCodeTable.getRootNode();
+		final EntityMatcher matcher = new EntityMatcher(previousCodeTable, currentCodeTable);
+		if (!matcher.match(previousRootNode, currentRootNode, false)) {
+			removedNodeIds.set(0, previousRootNode.getAllNodes().size());
+			addedNodeIds.set(0, currentRootNode.getAllNodes().size());
+			return;
+		}
+
+		final IdentityJoin identityJoin = IdentityJoin.join(previousRootNode, currentRootNode);
+		final List<Partition> partitions = new ArrayList<>();
+		comparePackageNodes(matcher, identityJoin, previousCodeTable, currentCodeTable, previousRootNode,
+				currentRootNode, nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds, partitions);
+
+		final List<Future<Partition>> taskFutures = new ArrayList<>(partitions.size());
+		final ExecutorService executorService = Executors.newWorkStealingPool();
+		for (final Partition partition : partitions) taskFutures.add(executorService.submit(partition));
+		executorService.shutdown();
+
+		try {
+			for (final Future<Partition> future : taskFutures) {
+				final Partition partition = future.get();
+				removedNodeIds.or(partition.removedNodeIds);
+				addedNodeIds.or(partition.addedNodeIds);
+				changedNodeIds.or(partition.changedNodeIds);
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new JavaCiaException("Cannot compare snapshots!", e);
+		}
+	}
+
+	/**
+	 * Compares two similar package nodes, or two root nodes, on this thread. Similar sub-packages are compared the
+	 * same way, while every other pair of similar children is left to the partition of these packages.
+	 */
+	private static void comparePackageNodes(@Nonnull EntityMatcher matcher, @Nullable IdentityJoin identityJoin,
+			@Nonnull MatchCodeTable previousCodeTable, @Nonnull MatchCodeTable currentCodeTable,
+			@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode, @Nonnull int[] nodeMapping,
+			@Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds, @Nonnull BitSet changedNodeIds,
+			@Nonnull List<Partition> partitions) {
+		if (compareNodes(matcher, previousNode, currentNode, nodeMapping, changedNodeIds)) return;
+
+		final Partition partition = new Partition(identityJoin, previousCodeTable, currentCodeTable, nodeMapping);
+		matchChildren(matcher, identityJoin, previousNode, currentNode, removedNodeIds, addedNodeIds,
+				(previousChild, currentChild) -> {
+					if (previousChild instanceof JavaPackageNode && currentChild instanceof JavaPackageNode) {
+						comparePackageNodes(matcher, identityJoin, previousCodeTable, currentCodeTable,
+								previousChild, currentChild, nodeMapping, removedNodeIds, addedNodeIds,
+								changedNodeIds, partitions);
+					} else {
+						partition.previousNodes.add(previousChild);
+						partition.currentNodes.add(currentChild);
+					}
+				});
+		if (!partition.previousNodes.isEmpty()) partitions.add(partition);
+	}
+
+	/**
+	 * Compares two paired nodes, then pairs their children and compares those pairs. A node is only
+	 * similar to another when their parents are similar, so this finds the same pairs as matching every node of both
+	 * trees at once, but a subtree whose hash is the same in both trees is mapped as unchanged without being visited.
+	 */
+	private static void compareMatchedNodes(@Nonnull EntityMatcher matcher, @Nullable IdentityJoin identityJoin,
+			@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode, @Nonnull int[] nodeMapping,
+			@Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds, @Nonnull BitSet changedNodeIds) {
+		if (compareNodes(matcher, previousNode, currentNode, nodeMapping, changedNodeIds)) return;
+
+		matchChildren(matcher, identityJoin, previousNode, currentNode, removedNodeIds, addedNodeIds,
+				(previousChild, currentChild) -> compareMatchedNodes(matcher, identityJoin, previousChild,
+						currentChild, nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds));
+	}
+
+	/**
+	 * @return true if the subtrees of both nodes are the same, which are then mapped as unchanged
+	 */
+	private static boolean compareNodes(@Nonnull EntityMatcher matcher,
+			@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode, @Nonnull int[] nodeMapping,
+			@Nonnull BitSet changedNodeIds) {
+		final int previousId = previousNode.getId();
+		final int currentId = currentNode.getId();
+		if (previousNode instanceof AbstractNode && currentNode instanceof AbstractNode) {
+			final AbstractNode previousAbstractNode = (AbstractNode) previousNode;
+			final AbstractNode currentAbstractNode = (AbstractNode) currentNode;
+			if (previousAbstractNode.getSubtreeHash() == currentAbstractNode.getSubtreeHash()) {
+				// same subtree hash means same shape, so the nodes are paired by their pre-order position
+				final int previousEnd = previousAbstractNode.getSubtreeEnd();
+				for (int id = previousId; id < previousEnd; id++) nodeMapping[id] = currentId + id - previousId;
+				return true;
+			}
+			nodeMapping[previousId] = currentId;
+			if (previousAbstractNode.getNodeHash() != currentAbstractNode.getNodeHash()
+					&& !matcher.match(previousNode, currentNode, true)) {
+				changedNodeIds.set(previousId);
+			}
+		} else {
+			nodeMapping[previousId] = currentId;
+			if (!matcher.match(previousNode, currentNode, true)) changedNodeIds.set(previousId);
+		}
+		return false;
+	}
+
+	/**
+	 * Pairs the children of two paired nodes. The subtrees of children without a pair are marked as removed or added,
+	 * and every pair is given to the consumer. With an identity join, children with the same entity class and unique
+	 * name are paired directly, and only the colliding ones are paired by similar match.
+	 */
+	private static void matchChildren(@Nonnull EntityMatcher matcher, @Nullable IdentityJoin identityJoin,
+			@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode,
+			@Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BiConsumer<JavaNode, JavaNode> matchedChildConsumer) {
+		if (identityJoin == null) {
+			matchChildrenBySimilarity(matcher, previousNode.getChildren(), currentNode.getChildren(),
+					removedNodeIds, addedNodeIds, matchedChildConsumer);
+			return;
+		}
+
+		final List<? extends JavaNode> previousAllNodes = previousNode.getRoot().getAllNodes();
+		final List<? extends JavaNode> currentAllNodes = currentNode.getRoot().getAllNodes();
+		final List<JavaNode> previousCollisions = new ArrayList<>();
+		final List<JavaNode> currentCollisions = new ArrayList<>();
+
+		for (final JavaNode previousChild : previousNode.getChildren()) {
+			final int partnerId = identityJoin.getCurrentPartner(previousChild.getId());
+			if (partnerId == IdentityJoin.COLLISION) {
+				previousCollisions.add(previousChild);
+			} else if (partnerId >= 0 && currentAllNodes.get(partnerId).getParent() == currentNode) {
+				matchedChildConsumer.accept(previousChild, currentAllNodes.get(partnerId));
+			} else {
+				removedNodeIds.set(previousChild.getId(), previousChild.getSubtreeEnd());
+			}
+		}
+		for (final JavaNode currentChild : currentNode.getChildren()) {
+			final int partnerId = identityJoin.getPreviousPartner(currentChild.getId());
+			if (partnerId == IdentityJoin.COLLISION) {
+				currentCollisions.add(currentChild);
+			} else if (partnerId < 0 || previousAllNodes.get(partnerId).getParent() != previousNode) {
+				addedNodeIds.set(currentChild.getId(), currentChild.getSubtreeEnd());
+			}
+		}
 
-	private static void compareRootNodes(@Nonnull JavaRootNode previousRootNode, @Nonnull JavaRootNode currentRootNode,
-			@Nonnull Set<JavaNode> addedNodes, @Nonnull Set<JavaNode> removedNodes,
-			@Nonnull Set<Pair<JavaNode, JavaNode>> changedNodes,
-			@Nonnull Set<Pair<JavaNode, JavaNode>> unchangedNodes) {
-		final EntityMatcher matcher = new EntityMatcher();
+		if (!previousCollisions.isEmpty() || !currentCollisions.isEmpty()) {
+			matchChildrenBySimilarity(matcher, previousCollisions, currentCollisions,
+					removedNodeIds, addedNodeIds, matchedChildConsumer);
+		}
+	}
 
+	private static void matchChildrenBySimilarity(@Nonnull EntityMatcher matcher,
+			@Nonnull List<? extends JavaNode> previousChildren, @Nonnull List<? extends JavaNode> currentChildren,
+			@Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BiConsumer<JavaNode, JavaNode> matchedChildConsumer) {
 		final Map<EntityWrapper, JavaNode> previousNodeMap = new HashMap<>();
 		final Map<EntityWrapper, JavaNode> currentNodeMap = new HashMap<>();
 
-		for (final JavaNode node : previousRootNode.getAllNodes()) {
+		for (final JavaNode node : previousChildren) {
 			previousNodeMap.put(matcher.wrap(node, false), node);
 		}
-		for (final JavaNode node : currentRootNode.getAllNodes()) {
+		for (final JavaNode node : currentChildren) {
 			currentNodeMap.put(matcher.wrap(node, false), node);
 		}
 
 		for (final Map.Entry<EntityWrapper, JavaNode> previousEntry : previousNodeMap.entrySet()) {
 			final EntityWrapper previousWrapper = previousEntry.getKey();
-			final JavaNode previousNode = previousEntry.getValue();
-			final JavaNode currentNode = currentNodeMap.get(previousWrapper);
-			if (currentNode != null) {
-				if (matcher.match(previousNode, currentNode, true)) {
-					unchangedNodes.add(Pair.immutableOf(previousNode, currentNode));
-				} else {
-					changedNodes.add(Pair.immutableOf(previousNode, currentNode));
-				}
+			final JavaNode previousChild = previousEntry.getValue();
+			final JavaNode currentChild = currentNodeMap.get(previousWrapper);
+			if (currentChild != null) {
+				matchedChildConsumer.accept(previousChild, currentChild);
 			} else {
-				removedNodes.add(previousNode);
+				removedNodeIds.set(previousChild.getId(), previousChild.getSubtreeEnd());
 			}
 		}
 		for (final Map.Entry<EntityWrapper, JavaNode> currentEntry : currentNodeMap.entrySet()) {
 			final EntityWrapper currentWrapper = currentEntry.getKey();
-			final JavaNode currentNode = currentEntry.getValue();
-			final JavaNode previousNode = previousNodeMap.get(currentWrapper);
-			if (previousNode == null) addedNodes.add(currentNode);
+			final JavaNode currentChild = currentEntry.getValue();
+			final JavaNode previousChild = previousNodeMap.get(currentWrapper);
+			if (previousChild == null) addedNodeIds.set(currentChild.getId(), currentChild.getSubtreeEnd());
+		}
+	}
+
+	/**
+	 * @return ids of the current nodes that are added, followed by ids of the current nodes that are changed
+	 */
+	@Nonnull
+	private static int[] changedCurrentNodeIds(@Nonnull int[] nodeMapping, @Nonnull BitSet addedNodeIds,
+			@Nonnull BitSet changedNodeIds) {
+		final int[] nodeIds = new int[addedNodeIds.cardinality() + changedNodeIds.cardinality()];
+		int index = 0;
+		for (int id = addedNodeIds.nextSetBit(0); id >= 0; id = addedNodeIds.nextSetBit(id + 1)) {
+			nodeIds[index++] = id;
+		}
+		for (int id = changedNodeIds.nextSetBit(0); id >= 0; id = changedNodeIds.nextSetBit(id + 1)) {
+			nodeIds[index++] = nodeMapping[id];
 		}
+		return nodeIds;
 	}
 
+	/**
+	 * Calculates the impacts of a change of the nodes of the graph, as if they were changed or added in a comparison.
+	 * The impact of each node is taken from the cache of the graph when it is there, and the missing ones are
+	 * calculated and cached. A single missing node is calculated on this thread, so that a small query does not wait
+	 * for a thread pool.
+	 *
+	 * @param changedNodeIds ids of the changed nodes, each at most once
+	 * @return impact of the change on the nodes of the graph that it reaches
+	 */
 	@Nonnull
-	private static double[] calculateNodeImpacts(@Nonnull double[] dependencyImpacts,
-			@Nonnull JavaRootNode rootNode, @Nonnull Set<JavaNode> addedNodes,
-			@Nonnull Set<Pair<JavaNode, JavaNode>> changedNodes) throws JavaCiaException {
+	public static SparseNodeWeightTable calculateImpacts(@Nonnull ImpactGraph impactGraph,
+			@Nonnull int[] changedNodeIds) throws JavaCiaException {
+		final ImpactCache impactCache = impactGraph.getImpactCache();
+		final ImpactVector[] vectors = new ImpactVector[changedNodeIds.length];
+		int missingIndex = -1, missingCount = 0;
+		for (int index = 0; index < changedNodeIds.length; index++) {
+			vectors[index] = impactCache.get(changedNodeIds[index]);
+			if (vectors[index] == null) {
+				missingIndex = index;
+				missingCount += 1;
+			}
+		}
 
-		final int nodeCount = rootNode.getAllNodes().size();
-		final List<Future<double[]>> taskFutures = new ArrayList<>(addedNodes.size() + changedNodes.size());
+		if (missingCount == 1) {
+			vectors[missingIndex] = new ImpactCalculator(impactGraph, changedNodeIds[missingIndex]).call();
+			impactCache.put(changedNodeIds[missingIndex], vectors[missingIndex]);
+		} else if (missingCount > 1) {
+			final List<Future<ImpactVector>> taskFutures = new ArrayList<>(changedNodeIds.length);
+			final ExecutorService executorService = Executors.newWorkStealingPool();
+			for (int index = 0; index < changedNodeIds.length; index++) {
+				// a calculator is only created when it runs, so that it does not hold its working memory meanwhile
+				final int changedNodeId = changedNodeIds[index];
+				taskFutures.add(vectors[index] != null ? null
+						: executorService.submit(() -> new ImpactCalculator(impactGraph, changedNodeId).call()));
+			}
+			executorService.shutdown();
 
-		final ExecutorService executorService = Executors.newWorkStealingPool();
-		for (final JavaNode node : addedNodes) {
-			taskFutures.add(executorService.submit(new ImpactCalculator(nodeCount, dependencyImpacts, node)));
+			try {
+				for (int index = 0; index < changedNodeIds.length; index++) {
+					final Future<ImpactVector> future = taskFutures.get(index);
+					if (future == null) continue;
+					vectors[index] = future.get();
+					impactCache.put(changedNodeIds[index], vectors[index]);
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new JavaCiaException("Cannot calculate impact weights!", e);
+			}
 		}
-		for (final Pair<JavaNode, JavaNode> pair : changedNodes) {
-			taskFutures.add(executorService.submit(new ImpactCalculator(nodeCount, dependencyImpacts, pair.getB())));
+
+		return reduceImpacts(impactGraph, vectors);
+	}
+
+	/**
+	 * @param vectors impacts of the changed nodes, in the order of the changed nodes, null for a node not done yet
+	 * @return impact of the vectors on the nodes of the graph that they reach
+	 */
+	@Nonnull
+	static SparseNodeWeightTable reduceImpacts(@Nonnull ImpactGraph impactGraph,
+			@Nonnull ImpactVector[] vectors) {
+		// the reduction only visits the nodes in the vectors, the others are not impacted
+		final double[] weights = new double[impactGraph.getNodeCount()];
+		final BitSet reachedNodeIds = new BitSet();
+		for (final ImpactVector vector : vectors) {
+			if (vector != null) vector.multiplyInto(weights, reachedNodeIds);
 		}
-		executorService.shutdown();
+		return impactTable(impactGraph, weights, reachedNodeIds);
+	}
 
-		final double[] weights = new double[nodeCount];
-		Arrays.fill(weights, 1.0f);
+	/**
+	 * @param factors product of the factors of the reached nodes, indexed by id
+	 * @param reachedNodeIds ids of the reached nodes
+	 * @return impact on the reached nodes, which is one minus their factor
+	 */
+	@Nonnull
+	static SparseNodeWeightTable impactTable(@Nonnull ImpactGraph impactGraph, @Nonnull double[] factors,
+			@Nonnull BitSet reachedNodeIds) {
+		int size = 0;
+		final int[] nodeIds = new int[reachedNodeIds.cardinality()];
+		final double[] impacts = new double[nodeIds.length];
+		for (int id = reachedNodeIds.nextSetBit(0); id >= 0; id = reachedNodeIds.nextSetBit(id + 1)) {
+			final double impact = 1.0f - factors[id];
+			if (impact != 0.0) {
+				nodeIds[size] = id;
+				impacts[size] = impact;
+				size += 1;
+			}
+		}
+		return new SparseNodeWeightTable(Arrays.copyOf(nodeIds, size), Arrays.copyOf(impacts, size),
+				impactGraph.getRootNode());
+	}
 
-		try {
-			for (final Future<double[]> future : taskFutures) {
-				final double[] singleWeights = future.get();
+	/**
+	 * Calculates the impacts of a change of the nodes of the graph progressively until a deadline. Every changed node
+	 * is impacted from the first progress on. The changed nodes are calculated in rounds with a budget of steps that
+	 * doubles every round, so the cheap ones are done first, and the dependents of every node are followed from the one
+	 * with the most impact, so an early progress already holds the paths with the most impact. Every progress is a
+	 * lower bound of the next one, and when every node is done before the deadline, the last progress is the same as
+	 * {@link #calculateImpacts(ImpactGraph, int[])}.
+	 *
+	 * @param changedNodeIds ids of the changed nodes, each at most once
+	 * @param deadline the time to stop at, with the paths that are followed so far
+	 * @param progressListener called on this thread with every progress, first with the changed nodes alone, then at
+	 * intervals, and last when every node is done or the time is up
+	 * @return the last progress
+	 */
+	@Nonnull
+	public static ImpactProgress calculateImpacts(@Nonnull ImpactGraph impactGraph, @Nonnull int[] changedNodeIds,
+			@Nonnull Instant deadline, @Nonnull Consumer<ImpactProgress> progressListener) throws JavaCiaException {
+		final Duration timeout = Duration.between(Instant.now(), deadline);
+		final long timeoutNanos = timeout.isNegative() ? 0L
+				: timeout.compareTo(MAX_TIMEOUT) < 0 ? timeout.toNanos() : Long.MAX_VALUE;
+		return new ProgressiveImpactCalculator(impactGraph, changedNodeIds, timeoutNanos, progressListener).call();
+	}
+
+	/**
+	 * Estimates the impacts of a change of the nodes of the graph with independent cascade samples, which are split
+	 * into blocks and run in parallel. Each block has its own random generator split from the seed, so the same seed
+	 * always gives the same estimate. The estimate is the chance that a node is reached in the cascade, which is not
+	 * the impact that {@link #calculateImpacts} gives.
+	 *
+	 * @param changedNodeIds ids of the changed nodes
+	 * @param sampleCount the number of samples
+	 * @param confidence the chance that the interval of a node holds its impact, from 0 to 1 exclusive
+	 * @param randomSeed the seed of the random generators
+	 * @return the fraction of the samples in which each node is impacted, with its confidence interval
+	 */
+	@Nonnull
+	public static ImpactEstimate estimateImpacts(@Nonnull ImpactGraph impactGraph, @Nonnull int[] changedNodeIds,
+			int sampleCount, double confidence, long randomSeed) throws JavaCiaException {
+		if (sampleCount <= 0) throw new IllegalArgumentException("Sample count must be positive!");
+		if (!(confidence > 0.0 && confidence < 1.0)) throw new IllegalArgumentException("Invalid confidence!");
 
-				//for (int i = 0; i < nodeCount; i++) weights[i] *= 1.0f - singleWeights[i]; // NOTE: change me both!!
-				for (int i = 0; i < nodeCount; i++) weights[i] *= singleWeights[i];
+		final int blockCount = Math.min(sampleCount, Runtime.getRuntime().availableProcessors() * 4);
+		final SplittableRandom random = new SplittableRandom(randomSeed);
+		final List<Future<int[]>> taskFutures = new ArrayList<>(blockCount);
+		final ExecutorService executorService = Executors.newWorkStealingPool();
+		for (int block = 0; block < blockCount; block++) {
+			final int blockSampleCount = sampleCount / blockCount + (block < sampleCount % blockCount ? 1 : 0);
+			taskFutures.add(executorService.submit(
+					new ImpactSampler(impactGraph, changedNodeIds, blockSampleCount, random.split())));
+		}
+		executorService.shutdown();
+
+		final int nodeCount = impactGraph.getNodeCount();
+		final int[] counts = new int[nodeCount];
+		try {
+			for (final Future<int[]> future : taskFutures) {
+				final int[] blockCounts = future.get();
+				for (int id = 0; id < nodeCount; id++) counts[id] += blockCounts[id];
 			}
 		} catch (InterruptedException | ExecutionException e) {
-			throw new JavaCiaException("Cannot calculate impact weights!", e);
+			throw new JavaCiaException("Cannot estimate impact weights!", e);
+		}
+
+		final double[] estimates = new double[nodeCount];
+		for (int id = 0; id < nodeCount; id++) estimates[id] = (double) counts[id] / sampleCount;
+		return new ImpactEstimate(SparseNodeWeightTable.fromWeights(estimates, impactGraph.getRootNode()),
+				sampleCount, confidence);
+	}
+
+
+	/**
+	 * The node mapping and the status bitsets of one comparison, before its impacts are calculated.
+	 */
+	private static final class NodeComparison {
+
+		@Nonnull private final int[] nodeMapping;
+		@Nonnull private final BitSet removedNodeIds = new BitSet();
+		@Nonnull private final BitSet addedNodeIds = new BitSet();
+		@Nonnull private final BitSet changedNodeIds = new BitSet();
+
+
+		NodeComparison(int previousNodeCount) {
+			this.nodeMapping = new int[previousNodeCount];
+			Arrays.fill(nodeMapping, -1);
+		}
+
+
+		@Nonnull
+		int[] changedCurrentNodeIds() {
+			return JavaSnapshotComparator.changedCurrentNodeIds(nodeMapping, addedNodeIds, changedNodeIds);
+		}
+
+		@Nonnull
+		ProjectSnapshotComparison createComparison(@Nonnull String comparisonName,
+				@Nonnull JavaProjectSnapshot previousSnapshot, @Nonnull JavaProjectSnapshot currentSnapshot,
+				@Nonnull double[] dependencyImpacts, @Nonnull SparseNodeWeightTable nodeImpactTable) {
+			return new ProjectSnapshotComparison(comparisonName, previousSnapshot, currentSnapshot,
+					nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds, dependencyImpacts, nodeImpactTable);
+		}
+
+	}
+
+	/**
+	 * Pairs of similar nodes under the same packages, compared on a worker with its own matcher. Each node id is only
+	 * in one partition, so every partition writes to a different part of the shared node mapping, while the status
+	 * bitsets are merged after the partitions are done.
+	 */
+	private static final class Partition implements Callable<Partition> {
+
+		@Nullable private final IdentityJoin identityJoin;
+		@Nonnull private final MatchCodeTable previousCodeTable;
+		@Nonnull private final MatchCodeTable currentCodeTable;
+		@Nonnull private final int[] nodeMapping;
+		@Nonnull private final List<JavaNode> previousNodes = new ArrayList<>();
+		@Nonnull private final List<JavaNode> currentNodes = new ArrayList<>();
+		@Nonnull private final BitSet removedNodeIds = new BitSet();
+		@Nonnull private final BitSet addedNodeIds = new BitSet();
+		@Nonnull private final BitSet changedNodeIds = new BitSet();
+
+
+		Partition(@Nullable IdentityJoin identityJoin, @Nonnull MatchCodeTable previousCodeTable,
+				@Nonnull MatchCodeTable currentCodeTable, @Nonnull int[] nodeMapping) {
+			this.identityJoin = identityJoin;
+			this.previousCodeTable = previousCodeTable;
+			this.currentCodeTable = currentCodeTable;
+			this.nodeMapping = nodeMapping;
+		}
+
+
+		@Nonnull
+		@Override
+		public Partition call() {
+			final EntityMatcher matcher = new EntityMatcher(previousCodeTable, currentCodeTable);
+			for (int index = 0; index < previousNodes.size(); index++) {
+				compareMatchedNodes(matcher, identityJoin, previousNodes.get(index), currentNodes.get(index),
+						nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds);
+			}
+			return this;
 		}
 
-		for (int i = 0; i < nodeCount; i++) weights[i] = 1.0f - weights[i];
-		return weights;
 	}
 
 }
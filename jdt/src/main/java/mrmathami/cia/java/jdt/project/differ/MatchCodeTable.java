@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
+import mrmathami.cia.java.tree.JavaIdentifiedEntity;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Match codes of the entities of one snapshot, computed on first use. A match code only depends on its entity, so
+ * the table of a snapshot can be shared by every matcher comparing that snapshot, including the matchers of the
+ * partitions running at the same time and the matchers of the next comparison in a chain.
+ */
+final class MatchCodeTable {
+
+	static final int NODE_CLASS = 0;
+	static final int TYPE_CLASS = 1;
+	static final int ANNOTATE_CLASS = 2;
+
+	private static final long COMPUTED = 1L << 32;
+
+	@Nonnull private final JavaRootNode rootNode;
+	@Nonnull private final List<?>[] entityLists;
+	@Nonnull private final AtomicLongArray[] identicalCodes;
+	@Nonnull private final AtomicLongArray[] similarCodes;
+
+
+	MatchCodeTable(@Nonnull JavaRootNode rootNode) {
+		this.rootNode = rootNode;
+		// other trees do not have to keep their types and annotates
+		this.entityLists = rootNode instanceof RootNode
+				? new List<?>[]{rootNode.getAllNodes(), rootNode.getAllTypes(), rootNode.getAllAnnotates()}
+				: new List<?>[]{rootNode.getAllNodes(), List.of(), List.of()};
+		this.identicalCodes = new AtomicLongArray[entityLists.length];
+		this.similarCodes = new AtomicLongArray[entityLists.length];
+		for (int entityClass = 0; entityClass < entityLists.length; entityClass++) {
+			identicalCodes[entityClass] = new AtomicLongArray(entityLists[entityClass].size());
+			similarCodes[entityClass] = new AtomicLongArray(entityLists[entityClass].size());
+		}
+	}
+
+
+	//region Getter
+
+	@Nonnull
+	JavaRootNode getRootNode() {
+		return rootNode;
+	}
+
+	@Nonnull
+	List<?> getEntityList(int entityClass) {
+		return entityLists[entityClass];
+	}
+
+	//endregion Getter
+
+	/**
+	 * @param entity the entity at the id in the entity list of the class
+	 */
+	int getMatchCode(int entityClass, int id, @Nonnull JavaIdentifiedEntity entity, boolean identicalMatch) {
+		final AtomicLongArray codes = identicalMatch ? identicalCodes[entityClass] : similarCodes[entityClass];
+		final long value = codes.get(id);
+		if ((value & COMPUTED) != 0) return (int) value;
+		// computing the same code twice at the same time is harmless, both get the same value
+		final int matchCode = EntityPartialMatcher.internalMatchCode(entity, identicalMatch);
+		codes.set(id, COMPUTED | matchCode & 0xFFFFFFFFL);
+		return matchCode;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+
+/**
+ * Open addressing hash table from a packed entity pair key to the match state of that pair. Keys and states are held
+ * in primitive arrays, so a probe allocates nothing.
+ */
+final class MatchStateTable {
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	// a slot with state 0 is empty, so every stored state is marked
+	private static final int OCCUPIED = 0b10000;
+
+	@Nonnull private long[] keys = new long[INITIAL_CAPACITY];
+	@Nonnull private byte[] states = new byte[INITIAL_CAPACITY];
+	private int size;
+
+
+	private static int hash(long key) {
+		return (int) (key * 0x9E3779B97F4A7C15L >>> 32);
+	}
+
+
+	/**
+	 * @return the state of the key, or the default state if the key is not in this table
+	 */
+	int get(long key, int defaultState) {
+		final int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; ; slot = slot + 1 & mask) {
+			final int state = states[slot];
+			if (state == 0) return defaultState;
+			if (keys[slot] == key) return state & ~OCCUPIED;
+		}
+	}
+
+	void put(long key, int state) {
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (states[slot] != 0) {
+			if (keys[slot] == key) {
+				states[slot] = (byte) (state | OCCUPIED);
+				return;
+			}
+			slot = slot + 1 & mask;
+		}
+		keys[slot] = key;
+		states[slot] = (byte) (state | OCCUPIED);
+		if (++size * 2 > keys.length) grow();
+	}
+
+	private void grow() {
+		final long[] oldKeys = keys;
+		final byte[] oldStates = states;
+		final int mask = oldKeys.length * 2 - 1;
+		this.keys = new long[oldKeys.length * 2];
+		this.states = new byte[oldStates.length * 2];
+		for (int index = 0; index < oldKeys.length; index++) {
+			if (oldStates[index] == 0) continue;
+			int slot = hash(oldKeys[index]) & mask;
+			while (states[slot] != 0) slot = slot + 1 & mask;
+			keys[slot] = oldKeys[index];
+			states[slot] = oldStates[index];
+		}
+	}
+
+}
@@ -0,0 +1,651 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.BlockInitializerImpl;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.FieldInitializerImpl;
+import mrmathami.cia.java.jdt.tree.node.MethodNode;
+import mrmathami.cia.java.tree.annotate.JavaAnnotate;
+import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
+import mrmathami.cia.java.tree.node.JavaFieldNode;
+import mrmathami.cia.java.tree.node.JavaInitializerNode;
+import mrmathami.cia.java.tree.node.JavaMethodNode;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaPackageNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+import mrmathami.cia.java.tree.node.attribute.JavaAnnotatedNode;
+import mrmathami.cia.java.tree.node.attribute.JavaModifiedNode;
+import mrmathami.cia.java.tree.node.attribute.JavaTypeNode;
+import mrmathami.cia.java.tree.type.JavaReferenceType;
+import mrmathami.cia.java.tree.type.JavaSimpleType;
+import mrmathami.cia.java.tree.type.JavaType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Finds removed and added nodes that are the same node after a move or a rename. Every removed or added subtree top
+ * gets a MinHash signature over the tokens of its bodies and the signatures of its members, and only the nodes that
+ * share a band of their signatures are compared, so the work does not grow with the product of both sides.
+ */
+final class MoveDetector {
+
+	private static final int BAND_COUNT = 16;
+	private static final int BAND_ROWS = 4;
+	private static final int HASH_COUNT = BAND_COUNT * BAND_ROWS;
+	private static final int SHINGLE_SIZE = 3;
+	// nodes with fewer features than this look like too many other nodes to be paired
+	private static final int MIN_FEATURE_COUNT = 8;
+	private static final double MIN_SIMILARITY = 0.7;
+
+	@Nonnull private final JavaRootNode previousRootNode;
+	@Nonnull private final JavaRootNode currentRootNode;
+	@Nonnull private final int[] nodeMapping;
+	@Nonnull private final BitSet removedNodeIds;
+	@Nonnull private final BitSet addedNodeIds;
+	@Nonnull private final BitSet changedNodeIds;
+	// every mapped node in the order they are mapped, whose unmapped members are paired once every pair is mapped
+	@Nonnull private final List<JavaNode> mappedNodes = new ArrayList<>();
+	// members of the pairs, whose content and links are compared once every pair is mapped
+	@Nonnull private final BitSet memberIds = new BitSet();
+
+
+	private MoveDetector(@Nonnull JavaRootNode previousRootNode, @Nonnull JavaRootNode currentRootNode,
+			@Nonnull int[] nodeMapping, @Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BitSet changedNodeIds) {
+		this.previousRootNode = previousRootNode;
+		this.currentRootNode = currentRootNode;
+		this.nodeMapping = nodeMapping;
+		this.removedNodeIds = removedNodeIds;
+		this.addedNodeIds = addedNodeIds;
+		this.changedNodeIds = changedNodeIds;
+	}
+
+
+	/**
+	 * Pairs moved or renamed nodes, then maps each pair and the members they have in common. The pair itself is
+	 * marked as changed, while a member is only marked as changed if its content is not the same, or if its annotates
+	 * or the nodes it depends on are not the same through the mapping. Types are compared through the mapping too, so
+	 * a member whose parameter types moved with it is still paired.
+	 */
+	static void detect(@Nonnull JavaRootNode previousRootNode, @Nonnull JavaRootNode currentRootNode,
+			@Nonnull int[] nodeMapping, @Nonnull BitSet removedNodeIds, @Nonnull BitSet addedNodeIds,
+			@Nonnull BitSet changedNodeIds) {
+		new MoveDetector(previousRootNode, currentRootNode, nodeMapping, removedNodeIds, addedNodeIds, changedNodeIds)
+				.detect();
+	}
+
+	private void detect() {
+		final List<JavaNode> previousNodes = subtreeTops(previousRootNode, removedNodeIds);
+		final List<JavaNode> currentNodes = subtreeTops(currentRootNode, addedNodeIds);
+		if (previousNodes.isEmpty() || currentNodes.isEmpty()) return;
+
+		final int[][] previousSignatures = signatures(previousNodes);
+		final int[][] currentSignatures = signatures(currentNodes);
+
+		// nodes sharing a band of their signatures land in the same bucket
+		final Map<Long, List<Integer>> buckets = new HashMap<>();
+		for (int index = 0; index < previousNodes.size(); index++) {
+			final int[] signature = previousSignatures[index];
+			if (signature == null) continue;
+			for (int band = 0; band < BAND_COUNT; band++) {
+				buckets.computeIfAbsent(bandKey(signature, band), MoveDetector::newIndexList).add(index);
+			}
+		}
+
+		final List<Candidate> candidates = new ArrayList<>();
+		final Set<Long> candidatePairs = new HashSet<>();
+		for (int currentIndex = 0; currentIndex < currentNodes.size(); currentIndex++) {
+			final int[] currentSignature = currentSignatures[currentIndex];
+			if (currentSignature == null) continue;
+			final JavaNode currentNode = currentNodes.get(currentIndex);
+			for (int band = 0; band < BAND_COUNT; band++) {
+				final List<Integer> bucket = buckets.get(bandKey(currentSignature, band));
+				if (bucket == null) continue;
+				for (final int previousIndex : bucket) {
+					if (!candidatePairs.add((long) previousIndex << 32 | currentIndex)) continue;
+					final JavaNode previousNode = previousNodes.get(previousIndex);
+					if (!isPossibleMove(previousNode, currentNode)) continue;
+					final double similarity = similarity(previousSignatures[previousIndex], currentSignature);
+					if (similarity >= MIN_SIMILARITY) {
+						candidates.add(new Candidate(previousNode, currentNode, similarity));
+					}
+				}
+			}
+		}
+
+		// the most similar pairs are confirmed first, and each node is in at most one pair
+		candidates.sort(Candidate::compareTo);
+		final BitSet pairedPreviousIds = new BitSet();
+		final BitSet pairedCurrentIds = new BitSet();
+		for (final Candidate candidate : candidates) {
+			final int previousId = candidate.previousNode.getId();
+			final int currentId = candidate.currentNode.getId();
+			if (pairedPreviousIds.get(previousId) || pairedCurrentIds.get(currentId)) continue;
+			pairedPreviousIds.set(previousId);
+			pairedCurrentIds.set(currentId);
+			mapNodes(candidate.previousNode, candidate.currentNode, true);
+		}
+
+		// a member key names the types as they were, so a member with a type of another pair only matches now
+		final List<? extends JavaNode> currentAllNodes = currentRootNode.getAllNodes();
+		for (int index = 0; index < mappedNodes.size(); index++) {
+			final JavaNode previousNode = mappedNodes.get(index);
+			mapMovedMembers(previousNode, currentAllNodes.get(nodeMapping[previousNode.getId()]));
+		}
+
+		// a type or a link can go to a node of another pair, so they are only compared after every pair is mapped
+		final List<? extends JavaNode> previousAllNodes = previousRootNode.getAllNodes();
+		for (int id = memberIds.nextSetBit(0); id >= 0; id = memberIds.nextSetBit(id + 1)) {
+			final JavaNode previousNode = previousAllNodes.get(id);
+			final JavaNode currentNode = currentAllNodes.get(nodeMapping[id]);
+			if (!isSameContent(previousNode, currentNode) || !isSameLinks(previousNode, currentNode)) {
+				changedNodeIds.set(id);
+			}
+		}
+	}
+
+	//region Candidate
+
+	@Nonnull
+	private static List<Integer> newIndexList(@Nonnull Long any) {
+		return new ArrayList<>();
+	}
+
+	/**
+	 * @return removed or added nodes whose parent is not, or whose parent is a package, which are the nodes that can
+	 * be moved or renamed. A type moved into a new package, or every type of a renamed package, is one of them.
+	 */
+	@Nonnull
+	private static List<JavaNode> subtreeTops(@Nonnull JavaRootNode rootNode, @Nonnull BitSet nodeIds) {
+		final List<? extends JavaNode> allNodes = rootNode.getAllNodes();
+		final List<JavaNode> nodes = new ArrayList<>();
+		for (int id = nodeIds.nextSetBit(0); id >= 0; id = nodeIds.nextSetBit(id + 1)) {
+			final JavaNode node = allNodes.get(id);
+			if (node instanceof JavaPackageNode || node.isRoot()) continue;
+			final JavaNode parent = node.getParent();
+			if (!nodeIds.get(parent.getId()) || parent instanceof JavaPackageNode) nodes.add(node);
+		}
+		return nodes;
+	}
+
+	private boolean isPossibleMove(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode) {
+		if (!previousNode.getEntityClass().equals(currentNode.getEntityClass())) return false;
+		// types can move anywhere, members can only be renamed in the same type
+		return previousNode instanceof JavaTypeNode
+				|| nodeMapping[previousNode.getParent().getId()] == currentNode.getParent().getId();
+	}
+
+	private static final class Candidate implements Comparable<Candidate> {
+
+		@Nonnull private final JavaNode previousNode;
+		@Nonnull private final JavaNode currentNode;
+		private final double similarity;
+
+
+		Candidate(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode, double similarity) {
+			this.previousNode = previousNode;
+			this.currentNode = currentNode;
+			this.similarity = similarity;
+		}
+
+
+		@Override
+		public int compareTo(@Nonnull Candidate candidate) {
+			final int compare = Double.compare(candidate.similarity, similarity);
+			if (compare != 0) return compare;
+			final int previousCompare = Integer.compare(previousNode.getId(), candidate.previousNode.getId());
+			return previousCompare != 0
+					? previousCompare
+					: Integer.compare(currentNode.getId(), candidate.currentNode.getId());
+		}
+
+	}
+
+	//endregion Candidate
+
+	//region Signature
+
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB93E53FD5CC5L;
+		return hash ^ (hash >>> 33);
+	}
+
+	private static long stringHash(@Nonnull CharSequence string, int start, int end) {
+		long hash = 0xCBF29CE484222325L;
+		for (int index = start; index < end; index++) hash = (hash ^ string.charAt(index)) * 0x100000001B3L;
+		return mix(hash);
+	}
+
+	private static long stringHash(@Nonnull String string) {
+		return stringHash(string, 0, string.length());
+	}
+
+	private static long bandKey(@Nonnull int[] signature, int band) {
+		long hash = band;
+		for (int row = band * BAND_ROWS; row < (band + 1) * BAND_ROWS; row++) hash = mix(hash * 31 + signature[row]);
+		return hash;
+	}
+
+	private static double similarity(@Nonnull int[] signatureA, @Nonnull int[] signatureB) {
+		int equalCount = 0;
+		for (int index = 0; index < HASH_COUNT; index++) {
+			if (signatureA[index] == signatureB[index]) equalCount += 1;
+		}
+		return (double) equalCount / HASH_COUNT;
+	}
+
+	@Nonnull
+	private static int[][] signatures(@Nonnull List<JavaNode> nodes) {
+		final int[][] signatures = new int[nodes.size()][];
+		for (int index = 0; index < nodes.size(); index++) signatures[index] = signature(nodes.get(index));
+		return signatures;
+	}
+
+	/**
+	 * @return the MinHash signature of the features of the node, or null if the node has too few features
+	 */
+	@Nullable
+	private static int[] signature(@Nonnull JavaNode node) {
+		final Set<Long> features = new HashSet<>();
+		// the name of the node itself is what a move or a rename changes, so only the names of its members count
+		addFeatures(features, node);
+		final Iterator<? extends JavaNode> iterator = node.getVisitIterator();
+		while (iterator.hasNext()) {
+			final JavaNode member = iterator.next();
+			features.add(stringHash(simpleDescription(memberKey(member))));
+			addFeatures(features, member);
+		}
+		if (features.size() < MIN_FEATURE_COUNT) return null;
+
+		final int[] signature = new int[HASH_COUNT];
+		for (int index = 0; index < HASH_COUNT; index++) {
+			final long seed = mix(index + 1);
+			int minimum = Integer.MAX_VALUE;
+			for (final long feature : features) {
+				final int value = (int) (mix(feature ^ seed) >>> 33);
+				if (value < minimum) minimum = value;
+			}
+			signature[index] = minimum;
+		}
+		return signature;
+	}
+
+	private static void addFeatures(@Nonnull Set<Long> features, @Nonnull JavaNode node) {
+		if (node instanceof JavaMethodNode) {
+			final JavaMethodNode methodNode = (JavaMethodNode) node;
+			final JavaType returnType = methodNode.getReturnType();
+			if (returnType != null) features.add(stringHash(simpleDescription(returnType.getDescription())));
+			for (final JavaType parameter : methodNode.getParameters()) {
+				features.add(stringHash(simpleDescription(parameter.getDescription())));
+			}
+			final String bodyBlock = methodNode.getBodyBlock();
+			if (bodyBlock != null) addShingles(features, bodyBlock);
+		} else if (node instanceof JavaFieldNode) {
+			final JavaType type = ((JavaFieldNode) node).getType();
+			if (type != null) features.add(stringHash(simpleDescription(type.getDescription())));
+		} else if (node instanceof JavaInitializerNode) {
+			for (final JavaInitializerNode.Initializer initializer : ((JavaInitializerNode) node).getInitializers()) {
+				if (initializer instanceof JavaInitializerNode.BlockInitializer) {
+					addShingles(features, ((JavaInitializerNode.BlockInitializer) initializer).getBodyBlock());
+				} else if (initializer instanceof JavaInitializerNode.FieldInitializer) {
+					addShingles(features, ((JavaInitializerNode.FieldInitializer) initializer).getInitialExpression());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the description without the qualifiers of its names, which change when a type moves to another package
+	 */
+	@Nonnull
+	private static String simpleDescription(@Nonnull String description) {
+		final StringBuilder builder = new StringBuilder(description.length());
+		int nameStart = 0;
+		for (int index = 0; index < description.length(); index++) {
+			final char character = description.charAt(index);
+			if (character == '.' && index + 1 < description.length()
+					&& Character.isJavaIdentifierStart(description.charAt(index + 1))) {
+				builder.setLength(nameStart);
+			} else {
+				if (!Character.isJavaIdentifierPart(character)) nameStart = builder.length() + 1;
+				builder.append(character);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Adds the hashes of every run of tokens in the text. A token is a run of identifier characters or any other
+	 * single character that is not a space.
+	 */
+	private static void addShingles(@Nonnull Set<Long> features, @Nonnull String text) {
+		final long[] window = new long[SHINGLE_SIZE];
+		int tokenCount = 0;
+		int index = 0;
+		final int length = text.length();
+		while (index < length) {
+			final char character = text.charAt(index);
+			if (Character.isWhitespace(character)) {
+				index += 1;
+				continue;
+			}
+			final int start = index;
+			if (Character.isJavaIdentifierPart(character)) {
+				do index += 1; while (index < length && Character.isJavaIdentifierPart(text.charAt(index)));
+			} else {
+				index += 1;
+			}
+			window[tokenCount % SHINGLE_SIZE] = stringHash(text, start, index);
+			tokenCount += 1;
+			if (tokenCount >= SHINGLE_SIZE) {
+				long shingle = 0;
+				for (int offset = SHINGLE_SIZE; offset > 0; offset--) {
+					shingle = mix(shingle * 31 + window[(tokenCount - offset) % SHINGLE_SIZE]);
+				}
+				features.add(shingle);
+			}
+		}
+	}
+
+	//endregion Signature
+
+	//region Mapping
+
+	/**
+	 * @return the key of a node among its siblings, which does not change when its parent moves
+	 */
+	@Nonnull
+	private static String memberKey(@Nonnull JavaNode node) {
+		final StringBuilder builder = new StringBuilder()
+				.append(node.getEntityClass()).append(':').append(node.getSimpleName());
+		if (node instanceof JavaMethodNode) {
+			builder.append('(');
+			for (final JavaType parameter : ((JavaMethodNode) node).getParameters()) {
+				builder.append(parameter.getDescription()).append(',');
+			}
+			builder.append(')');
+		}
+		return builder.toString();
+	}
+
+	private void mapNodes(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode, boolean isTop) {
+		final int previousId = previousNode.getId();
+		final int currentId = currentNode.getId();
+		nodeMapping[previousId] = currentId;
+		removedNodeIds.clear(previousId);
+		addedNodeIds.clear(currentId);
+		mappedNodes.add(previousNode);
+		if (isTop) {
+			changedNodeIds.set(previousId);
+		} else {
+			memberIds.set(previousId);
+		}
+
+		final Map<String, JavaNode> currentChildren = new HashMap<>();
+		for (final JavaNode child : currentNode.getChildren()) currentChildren.put(memberKey(child), child);
+		for (final JavaNode previousChild : previousNode.getChildren()) {
+			final JavaNode currentChild = currentChildren.remove(memberKey(previousChild));
+			if (currentChild != null) mapNodes(previousChild, currentChild, false);
+		}
+	}
+
+	/**
+	 * Pairs the members that are still removed and added with a member of the same kind and name, whose parameter
+	 * types are the same through the mapping.
+	 */
+	private void mapMovedMembers(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode) {
+		final List<JavaNode> currentChildren = new ArrayList<>();
+		for (final JavaNode child : currentNode.getChildren()) {
+			if (addedNodeIds.get(child.getId())) currentChildren.add(child);
+		}
+		if (currentChildren.isEmpty()) return;
+		for (final JavaNode previousChild : previousNode.getChildren()) {
+			if (!removedNodeIds.get(previousChild.getId())) continue;
+			for (final Iterator<JavaNode> iterator = currentChildren.iterator(); iterator.hasNext(); ) {
+				final JavaNode currentChild = iterator.next();
+				if (isSameMember(previousChild, currentChild)) {
+					iterator.remove();
+					mapNodes(previousChild, currentChild, false);
+					break;
+				}
+			}
+		}
+	}
+
+	private boolean isSameMember(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode) {
+		if (!previousNode.getEntityClass().equals(currentNode.getEntityClass())
+				|| !previousNode.getSimpleName().equals(currentNode.getSimpleName())) {
+			return false;
+		}
+		return !(previousNode instanceof JavaMethodNode && currentNode instanceof JavaMethodNode)
+				|| isSameTypes(((JavaMethodNode) previousNode).getParameters(),
+				((JavaMethodNode) currentNode).getParameters());
+	}
+
+	private boolean isSameContent(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode) {
+		if (previousNode instanceof JavaModifiedNode && currentNode instanceof JavaModifiedNode
+				&& ((JavaModifiedNode) previousNode).getModifiers()
+				!= ((JavaModifiedNode) currentNode).getModifiers()) {
+			return false;
+		}
+		if (previousNode instanceof JavaMethodNode && currentNode instanceof JavaMethodNode) {
+			final JavaMethodNode previousMethod = (JavaMethodNode) previousNode;
+			final JavaMethodNode currentMethod = (JavaMethodNode) currentNode;
+			return isSameType(previousMethod.getReturnType(), currentMethod.getReturnType())
+					&& (previousNode instanceof MethodNode && currentNode instanceof MethodNode
+					? Objects.equals(((MethodNode) previousNode).getBodyHash(),
+					((MethodNode) currentNode).getBodyHash())
+					: Objects.equals(previousMethod.getBodyBlock(), currentMethod.getBodyBlock()));
+		} else if (previousNode instanceof JavaFieldNode && currentNode instanceof JavaFieldNode) {
+			return isSameType(((JavaFieldNode) previousNode).getType(), ((JavaFieldNode) currentNode).getType());
+		} else if (previousNode instanceof JavaInitializerNode && currentNode instanceof JavaInitializerNode) {
+			final List<? extends JavaInitializerNode.Initializer> previousInitializers
+					= ((JavaInitializerNode) previousNode).getInitializers();
+			final List<? extends JavaInitializerNode.Initializer> currentInitializers
+					= ((JavaInitializerNode) currentNode).getInitializers();
+			if (previousInitializers.size() != currentInitializers.size()) return false;
+			for (int index = 0; index < previousInitializers.size(); index++) {
+				if (!isSameInitializer(previousInitializers.get(index), currentInitializers.get(index))) return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSameLinks(@Nonnull JavaNode previousNode, @Nonnull JavaNode currentNode) {
+		if (previousNode instanceof JavaAnnotatedNode && currentNode instanceof JavaAnnotatedNode
+				&& !isSameAnnotates(((JavaAnnotatedNode) previousNode).getAnnotates(),
+				((JavaAnnotatedNode) currentNode).getAnnotates())) {
+			return false;
+		}
+
+		final Map<? extends JavaNode, ? extends JavaDependencyCountTable> previousDependencies
+				= previousNode.getDependencyTo();
+		final Map<? extends JavaNode, ? extends JavaDependencyCountTable> currentDependencies
+				= currentNode.getDependencyTo();
+		if (previousDependencies.size() != currentDependencies.size()) return false;
+		final List<? extends JavaNode> currentAllNodes = currentRootNode.getAllNodes();
+		for (final Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable> entry
+				: previousDependencies.entrySet()) {
+			final int mappedId = nodeMapping[entry.getKey().getId()];
+			if (mappedId < 0 || !entry.getValue().equals(currentDependencies.get(currentAllNodes.get(mappedId)))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSameNode(@Nullable JavaNode previousNode, @Nullable JavaNode currentNode) {
+		return previousNode == null || currentNode == null
+				? previousNode == currentNode
+				: nodeMapping[previousNode.getId()] == currentNode.getId();
+	}
+
+	private boolean isSameAnnotates(@Nonnull List<? extends JavaAnnotate> previousAnnotates,
+			@Nonnull List<? extends JavaAnnotate> currentAnnotates) {
+		if (previousAnnotates.size() != currentAnnotates.size()) return false;
+		for (int index = 0; index < previousAnnotates.size(); index++) {
+			if (!isSameAnnotate(previousAnnotates.get(index), currentAnnotates.get(index))) return false;
+		}
+		return true;
+	}
+
+	private boolean isSameAnnotate(@Nullable JavaAnnotate previousAnnotate, @Nullable JavaAnnotate currentAnnotate) {
+		if (previousAnnotate == null || currentAnnotate == null) return previousAnnotate == currentAnnotate;
+		final JavaNode previousNode = previousAnnotate.getNode();
+		final JavaNode currentNode = currentAnnotate.getNode();
+		// an annotation that is not resolved is named as if it were in the package of the node, which can move
+		if (previousNode != null || currentNode != null
+				? !isSameNode(previousNode, currentNode)
+				: !simpleName(previousAnnotate.getName()).equals(simpleName(currentAnnotate.getName()))) {
+			return false;
+		}
+		final List<? extends JavaAnnotate.Parameter> previousParameters = previousAnnotate.getParameters();
+		final List<? extends JavaAnnotate.Parameter> currentParameters = currentAnnotate.getParameters();
+		if (previousParameters.size() != currentParameters.size()) return false;
+		for (int index = 0; index < previousParameters.size(); index++) {
+			final JavaAnnotate.Parameter previousParameter = previousParameters.get(index);
+			final JavaAnnotate.Parameter currentParameter = currentParameters.get(index);
+			if (!previousParameter.getName().equals(currentParameter.getName())
+					|| !isSameNode(previousParameter.getNode(), currentParameter.getNode())
+					|| !isSameValue(previousParameter.getValue(), currentParameter.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Nonnull
+	private static String simpleName(@Nonnull String name) {
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	private boolean isSameValue(@Nullable JavaAnnotate.Value previousValue,
+			@Nullable JavaAnnotate.Value currentValue) {
+		if (previousValue == null || currentValue == null) return previousValue == currentValue;
+		if (previousValue instanceof JavaAnnotate.ArrayValue && currentValue instanceof JavaAnnotate.ArrayValue) {
+			final List<? extends JavaAnnotate.NonArrayValue> previousValues
+					= ((JavaAnnotate.ArrayValue) previousValue).getValues();
+			final List<? extends JavaAnnotate.NonArrayValue> currentValues
+					= ((JavaAnnotate.ArrayValue) currentValue).getValues();
+			if (previousValues.size() != currentValues.size()) return false;
+			for (int index = 0; index < previousValues.size(); index++) {
+				if (!isSameValue(previousValues.get(index), currentValues.get(index))) return false;
+			}
+			return true;
+		} else if (previousValue instanceof JavaAnnotate.SimpleValue
+				&& currentValue instanceof JavaAnnotate.SimpleValue) {
+			final JavaAnnotate.SimpleValue previousSimpleValue = (JavaAnnotate.SimpleValue) previousValue;
+			final JavaAnnotate.SimpleValue currentSimpleValue = (JavaAnnotate.SimpleValue) currentValue;
+			return previousSimpleValue.getValueType().equals(currentSimpleValue.getValueType())
+					&& previousSimpleValue.getValue().equals(currentSimpleValue.getValue());
+		} else if (previousValue instanceof JavaAnnotate.NodeValue && currentValue instanceof JavaAnnotate.NodeValue) {
+			final JavaAnnotate.NodeValue previousNodeValue = (JavaAnnotate.NodeValue) previousValue;
+			final JavaAnnotate.NodeValue currentNodeValue = (JavaAnnotate.NodeValue) currentValue;
+			return previousNodeValue.getDescribe().equals(currentNodeValue.getDescribe())
+					&& isSameNode(previousNodeValue.getNode(), currentNodeValue.getNode());
+		} else if (previousValue instanceof JavaAnnotate.AnnotateValue
+				&& currentValue instanceof JavaAnnotate.AnnotateValue) {
+			return isSameAnnotate(((JavaAnnotate.AnnotateValue) previousValue).getAnnotate(),
+					((JavaAnnotate.AnnotateValue) currentValue).getAnnotate());
+		}
+		return false;
+	}
+
+	/**
+	 * A type of a node of the project is the same if its node is mapped, since its name changes when the node moves.
+	 * Any other type is the same if its description is.
+	 */
+	private boolean isSameType(@Nullable JavaType previousType, @Nullable JavaType currentType) {
+		if (previousType == null || currentType == null) return previousType == currentType;
+		if (previousType instanceof JavaReferenceType && currentType instanceof JavaReferenceType) {
+			final JavaReferenceType previousReference = (JavaReferenceType) previousType;
+			final JavaReferenceType currentReference = (JavaReferenceType) currentType;
+			if (previousReference.getNode() != null && currentReference.getNode() != null) {
+				return isSameNode(previousReference.getNode(), currentReference.getNode())
+						&& isSameTypes(previousReference.getArguments(), currentReference.getArguments());
+			}
+		} else if (previousType instanceof JavaSimpleType && currentType instanceof JavaSimpleType) {
+			// an array type, whose element type can be a node of the project
+			final JavaType previousInnerType = ((JavaSimpleType) previousType).getInnerType();
+			final JavaType currentInnerType = ((JavaSimpleType) currentType).getInnerType();
+			if (previousInnerType != null && currentInnerType != null) {
+				return isSameType(previousInnerType, currentInnerType)
+						&& dimensions(previousType, previousInnerType) == dimensions(currentType, currentInnerType);
+			}
+		}
+		return previousType.getDescription().equals(currentType.getDescription());
+	}
+
+	private boolean isSameTypes(@Nonnull List<? extends JavaType> previousTypes,
+			@Nonnull List<? extends JavaType> currentTypes) {
+		if (previousTypes.size() != currentTypes.size()) return false;
+		for (int index = 0; index < previousTypes.size(); index++) {
+			if (!isSameType(previousTypes.get(index), currentTypes.get(index))) return false;
+		}
+		return true;
+	}
+
+	private static int dimensions(@Nonnull JavaType arrayType, @Nonnull JavaType innerType) {
+		return bracketCount(arrayType.getDescription()) - bracketCount(innerType.getDescription());
+	}
+
+	private static int bracketCount(@Nonnull String description) {
+		int count = 0;
+		for (int index = 0; index < description.length(); index++) {
+			if (description.charAt(index) == '[') count += 1;
+		}
+		return count;
+	}
+
+	private static boolean isSameInitializer(@Nonnull JavaInitializerNode.Initializer previousInitializer,
+			@Nonnull JavaInitializerNode.Initializer currentInitializer) {
+		if (previousInitializer instanceof BlockInitializerImpl && currentInitializer instanceof BlockInitializerImpl) {
+			return ((BlockInitializerImpl) previousInitializer).getBodyHash()
+					.equals(((BlockInitializerImpl) currentInitializer).getBodyHash());
+		} else if (previousInitializer instanceof FieldInitializerImpl
+				&& currentInitializer instanceof FieldInitializerImpl) {
+			return ((FieldInitializerImpl) previousInitializer).getBodyHash()
+					.equals(((FieldInitializerImpl) currentInitializer).getBodyHash());
+		} else if (previousInitializer instanceof JavaInitializerNode.BlockInitializer
+				&& currentInitializer instanceof JavaInitializerNode.BlockInitializer) {
+			return ((JavaInitializerNode.BlockInitializer) previousInitializer).getBodyBlock()
+					.equals(((JavaInitializerNode.BlockInitializer) currentInitializer).getBodyBlock());
+		} else if (previousInitializer instanceof JavaInitializerNode.FieldInitializer
+				&& currentInitializer instanceof JavaInitializerNode.FieldInitializer) {
+			return ((JavaInitializerNode.FieldInitializer) previousInitializer).getInitialExpression()
+					.equals(((JavaInitializerNode.FieldInitializer) currentInitializer).getInitialExpression());
+		}
+		return false;
+	}
+
+	//endregion Mapping
+
+}
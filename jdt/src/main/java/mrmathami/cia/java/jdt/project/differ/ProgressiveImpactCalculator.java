@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.differ;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.ImpactProgress;
+import mrmathami.cia.java.jdt.project.SparseNodeWeightTable;
+
+import java.util.BitSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Calculates the impacts of a change in rounds, and gives the progress to a listener until every changed node is
+ * done or the time is up. In every round, each changed node that is not done yet is calculated in parallel with a
+ * budget of steps that doubles from round to round, so the cheap nodes are done first and an expensive node cannot
+ * hold back the others. A calculation that runs out of its budget is started again in the next round, which at most
+ * doubles the steps of that node, and the paths it followed are kept for the progress meanwhile.
+ * <p>
+ * Every node is finally calculated by the same calculator as a full calculation, and every progress multiplies the
+ * vectors of the changed nodes in the same order as a full calculation. A later progress only has smaller factors in
+ * that same order, so it never has a lower impact, and the last progress is the same as a full calculation when
+ * every node is done.
+ */
+final class ProgressiveImpactCalculator implements Callable<ImpactProgress> {
+
+	private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+	private static final int MAX_CHECK_BUDGET = 1 << 30;
+
+	@Nonnull private final ImpactGraph impactGraph;
+	@Nonnull private final int[] changedNodeIds;
+	@Nonnull private final Consumer<ImpactProgress> progressListener;
+	private final long startNanos;
+	private final long timeoutNanos;
+
+	// vectors of the done nodes, and the paths followed so far of the other nodes
+	@Nonnull private final ImpactVector[] vectors;
+	@Nonnull private final ImpactVector[] partialVectors;
+	// product of the vectors of the first changed nodes that are all done, each multiplied in once
+	@Nonnull private final double[] prefixFactors;
+	@Nonnull private final BitSet prefixReachedIds = new BitSet();
+	private int prefixEnd;
+	@Nonnull private final double[] partialFactors;
+	@Nonnull private final BitSet partialReachedIds = new BitSet();
+	private int doneNodeCount;
+
+	private long lastProgressNanos;
+	private volatile boolean timeUp;
+
+
+	/**
+	 * @param timeoutNanos the number of nanoseconds from now to stop at
+	 */
+	ProgressiveImpactCalculator(@Nonnull ImpactGraph impactGraph, @Nonnull int[] changedNodeIds, long timeoutNanos,
+			@Nonnull Consumer<ImpactProgress> progressListener) {
+		final int nodeCount = impactGraph.getNodeCount();
+		this.impactGraph = impactGraph;
+		this.changedNodeIds = changedNodeIds;
+		this.progressListener = progressListener;
+		this.startNanos = System.nanoTime();
+		this.timeoutNanos = timeoutNanos;
+		this.vectors = new ImpactVector[changedNodeIds.length];
+		this.partialVectors = new ImpactVector[changedNodeIds.length];
+		this.prefixFactors = new double[nodeCount];
+		this.partialFactors = new double[nodeCount];
+	}
+
+
+	private boolean isTimeUp() {
+		return System.nanoTime() - startNanos >= timeoutNanos;
+	}
+
+	/**
+	 * @return the number of nanoseconds left until the time is up, and marks the time as up if there is none
+	 */
+	private long remainingNanos() {
+		final long remainingNanos = timeoutNanos - (System.nanoTime() - startNanos);
+		if (remainingNanos <= 0) this.timeUp = true;
+		return remainingNanos;
+	}
+
+	private boolean isProgressDue() {
+		return System.nanoTime() - lastProgressNanos >= PROGRESS_INTERVAL_NANOS;
+	}
+
+	private void setDone(int index, @Nonnull ImpactVector vector) {
+		vectors[index] = vector;
+		partialVectors[index] = null;
+		this.doneNodeCount += 1;
+		while (prefixEnd < vectors.length && vectors[prefixEnd] != null) {
+			vectors[prefixEnd].multiplyInto(prefixFactors, prefixReachedIds);
+			this.prefixEnd += 1;
+		}
+	}
+
+	@Nonnull
+	private ImpactProgress publish() {
+		final SparseNodeWeightTable impacts = prefixEnd == vectors.length
+				? JavaSnapshotComparator.impactTable(impactGraph, prefixFactors, prefixReachedIds)
+				: partialImpacts();
+		final ImpactProgress progress = new ImpactProgress(impacts, doneNodeCount, changedNodeIds.length);
+		this.lastProgressNanos = System.nanoTime();
+		progressListener.accept(progress);
+		return progress;
+	}
+
+	/**
+	 * Only the vectors after the done prefix are multiplied again, in order, on top of the product of the prefix, and
+	 * only the nodes they reach are written.
+	 */
+	@Nonnull
+	private SparseNodeWeightTable partialImpacts() {
+		partialReachedIds.clear();
+		for (int vectorIndex = prefixEnd; vectorIndex < vectors.length; vectorIndex++) {
+			final ImpactVector vector = vectors[vectorIndex] != null
+					? vectors[vectorIndex]
+					: partialVectors[vectorIndex];
+			for (int index = 0; index < vector.size(); index++) {
+				final int nodeId = vector.getNodeId(index);
+				if (!partialReachedIds.get(nodeId)) {
+					partialFactors[nodeId] = prefixReachedIds.get(nodeId) ? prefixFactors[nodeId] : 1.0;
+					partialReachedIds.set(nodeId);
+				}
+				partialFactors[nodeId] *= vector.getFactor(index);
+			}
+		}
+
+		// the nodes that are only reached by the prefix keep their prefix factor
+		final BitSet reachedIds = (BitSet) prefixReachedIds.clone();
+		for (int id = reachedIds.nextSetBit(0); id >= 0; id = reachedIds.nextSetBit(id + 1)) {
+			if (!partialReachedIds.get(id)) partialFactors[id] = prefixFactors[id];
+		}
+		reachedIds.or(partialReachedIds);
+		return JavaSnapshotComparator.impactTable(impactGraph, partialFactors, reachedIds);
+	}
+
+	@Nonnull
+	@Override
+	public ImpactProgress call() throws JavaCiaException {
+		final ImpactCache impactCache = impactGraph.getImpactCache();
+		int[] pendingIndexes = new int[changedNodeIds.length];
+		int pendingCount = 0;
+		for (int index = 0; index < changedNodeIds.length; index++) {
+			final ImpactVector vector = impactCache.get(changedNodeIds[index]);
+			if (vector != null) {
+				setDone(index, vector);
+			} else {
+				// a changed node is impacted by itself before any of its paths are followed
+				partialVectors[index] = ImpactVector.ofChangedNode(changedNodeIds[index]);
+				pendingIndexes[pendingCount++] = index;
+			}
+		}
+		ImpactProgress progress = publish();
+		if (pendingCount == 0) return progress;
+
+		final ExecutorService executorService = Executors.newWorkStealingPool();
+		try {
+			for (int budget = 1; pendingCount > 0 && !timeUp; budget = Math.min(budget * 2, MAX_CHECK_BUDGET)) {
+				final CompletionService<Attempt> completionService = new ExecutorCompletionService<>(executorService);
+				for (int pending = 0; pending < pendingCount; pending++) {
+					completionService.submit(new Attempt(pendingIndexes[pending], budget));
+				}
+
+				// the attempts are taken as they finish, and the progress is given on this thread meanwhile. When the
+				// time is up, the attempts not taken yet are not waited for, and their nodes keep their last paths.
+				final int[] keptIndexes = new int[pendingCount];
+				int keptCount = 0;
+				for (int received = 0; received < pendingCount; ) {
+					final long remainingNanos = remainingNanos();
+					if (timeUp) break;
+					final Future<Attempt> future = completionService.poll(
+							Math.min(remainingNanos, PROGRESS_INTERVAL_NANOS), TimeUnit.NANOSECONDS);
+					if (future != null) {
+						received += 1;
+						final Attempt attempt = future.get();
+						if (!attempt.stopped) {
+							setDone(attempt.index, attempt.vector);
+							impactCache.put(changedNodeIds[attempt.index], attempt.vector);
+						} else {
+							// an attempt stopped by the time may have followed fewer paths than the one kept before
+							if (!attempt.timedOut) partialVectors[attempt.index] = attempt.vector;
+							keptIndexes[keptCount++] = attempt.index;
+						}
+					}
+					if (isProgressDue()) progress = publish();
+				}
+				pendingIndexes = keptIndexes;
+				pendingCount = keptCount;
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			this.timeUp = true;
+			throw new JavaCiaException("Cannot calculate impact weights!", e);
+		} finally {
+			// the attempts still queued see that the time is up, and return without calculating
+			executorService.shutdown();
+		}
+		return progress.isComplete() ? progress : publish();
+	}
+
+	/**
+	 * Calculation of one changed node with a budget of checks, after which it stops with the paths it followed.
+	 */
+	private final class Attempt implements Callable<Attempt> {
+
+		private final int index;
+		private final int checkBudget;
+		private int checkCount;
+		private boolean timedOut;
+		private boolean stopped;
+		@Nullable private ImpactVector vector;
+
+
+		private Attempt(int index, int checkBudget) {
+			this.index = index;
+			this.checkBudget = checkBudget;
+		}
+
+
+		private boolean checkProgress() {
+			if (timeUp || isTimeUp()) {
+				ProgressiveImpactCalculator.this.timeUp = true;
+				this.timedOut = true;
+				return false;
+			}
+			return ++checkCount < checkBudget;
+		}
+
+		@Nonnull
+		@Override
+		public Attempt call() {
+			if (timeUp || isTimeUp()) {
+				ProgressiveImpactCalculator.this.timeUp = true;
+				this.timedOut = true;
+				this.stopped = true;
+				return this;
+			}
+			final ImpactCalculator calculator
+					= new ImpactCalculator(impactGraph, changedNodeIds[index], this::checkProgress);
+			this.vector = calculator.call();
+			this.stopped = calculator.isStopped();
+			return this;
+		}
+
+	}
+
+}
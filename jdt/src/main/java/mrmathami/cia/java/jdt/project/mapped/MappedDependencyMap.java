@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.mapped;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyCountTable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only view over a range of edge records of a {@link MappedSnapshot}. Edges of a node are written sorted by
+ * the id of the other node, so lookup is a binary search and iteration follows node id order.
+ */
+final class MappedDependencyMap extends AbstractMap<MappedNode, DependencyCountTable> {
+
+	@Nonnull private final MappedSnapshot snapshot;
+	private final int start;
+	private final int size;
+
+	@Nullable private transient Set<Map.Entry<MappedNode, DependencyCountTable>> entrySet;
+
+
+	MappedDependencyMap(@Nonnull MappedSnapshot snapshot, int start, int size) {
+		this.snapshot = snapshot;
+		this.start = start;
+		this.size = size;
+	}
+
+
+	private int indexOf(@Nullable Object key) {
+		if (!(key instanceof MappedNode) || ((MappedNode) key).snapshot != snapshot) return -1;
+		final int nodeId = ((MappedNode) key).id;
+		int low = start, high = start + size - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int middleId = snapshot.getEdgeNodeId(middle);
+			if (middleId < nodeId) {
+				low = middle + 1;
+			} else if (middleId > nodeId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(@Nullable Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Nullable
+	@Override
+	public DependencyCountTable get(@Nullable Object key) {
+		final int index = indexOf(key);
+		return index >= 0 ? snapshot.getEdgeCounts(index) : null;
+	}
+
+	@Nonnull
+	@Override
+	public Set<Map.Entry<MappedNode, DependencyCountTable>> entrySet() {
+		return entrySet != null ? entrySet : (this.entrySet = new EntrySet());
+	}
+
+
+	private final class EntrySet extends AbstractSet<Map.Entry<MappedNode, DependencyCountTable>> {
+
+		@Nonnull
+		@Override
+		public Iterator<Map.Entry<MappedNode, DependencyCountTable>> iterator() {
+			return new Iterator<>() {
+				private int index = start;
+
+				@Override
+				public boolean hasNext() {
+					return index < start + size;
+				}
+
+				@Override
+				public Map.Entry<MappedNode, DependencyCountTable> next() {
+					if (index >= start + size) throw new NoSuchElementException();
+					final int edgeIndex = index++;
+					return new SimpleImmutableEntry<>(snapshot.getNode(snapshot.getEdgeNodeId(edgeIndex)),
+							snapshot.getEdgeCounts(edgeIndex));
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.mapped;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.project.SourceFile;
+import mrmathami.cia.java.jdt.tree.AbstractEntity;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyCountTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Flyweight over a node record of a {@link MappedSnapshot}. Holds nothing but the snapshot and the node id.
+ */
+class MappedNode implements JavaNode {
+
+	@Nonnull final MappedSnapshot snapshot;
+	final int id;
+
+
+	MappedNode(@Nonnull MappedSnapshot snapshot, int id) {
+		this.snapshot = snapshot;
+		this.id = id;
+	}
+
+
+	//region Basic Getter
+
+	@Nonnull
+	@Override
+	public final String getEntityClass() {
+		return snapshot.readString(snapshot.getNodeInt(id, MappedSnapshot.NODE_ENTITY_CLASS));
+	}
+
+	@Override
+	public final int getId() {
+		return id;
+	}
+
+	@Override
+	public final boolean isRoot() {
+		return id == 0;
+	}
+
+	@Nonnull
+	@Override
+	public final MappedRootNode getRoot() {
+		return snapshot.getRootNode();
+	}
+
+	@Nonnull
+	@Override
+	public final MappedNode getParent() {
+		final int parentId = snapshot.getNodeInt(id, MappedSnapshot.NODE_PARENT);
+		if (parentId < 0) throw new NoSuchElementException("JavaRootNode does not have a parent.");
+		return snapshot.getNode(parentId);
+	}
+
+	@Nonnull
+	@Override
+	public final List<MappedNode> getChildren() {
+		return new ChildList(snapshot.getNodeInt(id, MappedSnapshot.NODE_CHILDREN_START),
+				snapshot.getNodeInt(id, MappedSnapshot.NODE_CHILDREN_COUNT));
+	}
+
+	@Nonnull
+	@Override
+	public final String getSimpleName() {
+		return snapshot.readString(snapshot.getNodeInt(id, MappedSnapshot.NODE_SIMPLE_NAME));
+	}
+
+	@Nonnull
+	@Override
+	public final String getQualifiedName() {
+		return snapshot.readString(snapshot.getNodeInt(id, MappedSnapshot.NODE_QUALIFIED_NAME));
+	}
+
+	@Nonnull
+	@Override
+	public final String getUniqueName() {
+		return snapshot.readString(snapshot.getNodeInt(id, MappedSnapshot.NODE_UNIQUE_NAME));
+	}
+
+	@Nullable
+	@Override
+	public final SourceFile getSourceFile() {
+		return snapshot.getSourceFile(snapshot.getNodeInt(id, MappedSnapshot.NODE_SOURCE_FILE));
+	}
+
+	//endregion Basic Getter
+
+	//region Dependency
+
+	@Nonnull
+	@Override
+	public final Map<MappedNode, DependencyCountTable> getDependencyFrom() {
+		return new MappedDependencyMap(snapshot,
+				snapshot.getNodeInt(id, MappedSnapshot.NODE_DEPENDENCY_FROM_START),
+				snapshot.getNodeInt(id, MappedSnapshot.NODE_DEPENDENCY_FROM_COUNT));
+	}
+
+	@Nonnull
+	@Override
+	public final Map<MappedNode, DependencyCountTable> getDependencyTo() {
+		return new MappedDependencyMap(snapshot,
+				snapshot.getNodeInt(id, MappedSnapshot.NODE_DEPENDENCY_TO_START),
+				snapshot.getNodeInt(id, MappedSnapshot.NODE_DEPENDENCY_TO_COUNT));
+	}
+
+	@Nonnull
+	@Override
+	public final Set<MappedNode> getDependencyFromNodes() {
+		return getDependencyFrom().keySet();
+	}
+
+	@Nonnull
+	@Override
+	public final Set<MappedNode> getDependencyToNodes() {
+		return getDependencyTo().keySet();
+	}
+
+	//endregion Dependency
+
+	//region Jsonify
+
+	@Nonnull
+	@Override
+	public final String toJson() {
+		final StringWriter writer = new StringWriter();
+		try {
+			toJson(writer);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return writer.toString();
+	}
+
+	@Override
+	public final void toJson(@Nonnull Writer writer) throws IOException {
+		writer.write("{ ");
+		internalToJson(writer, "");
+		writer.write(" }");
+	}
+
+	private void internalToReferenceJson(@Nonnull Writer writer) throws IOException {
+		writer.append("\"entityClass\": \"").append(getEntityClass())
+				.append("\", \"idClass\": \"").append(getIdClass())
+				.append("\", \"id\": ").append(String.valueOf(id));
+		if (id != 0) {
+			writer.append(", \"simpleName\": \"");
+			AbstractEntity.internalEscapeString(writer, getSimpleName());
+			writer.append("\", \"qualifiedName\": \"");
+			AbstractEntity.internalEscapeString(writer, getQualifiedName());
+			writer.append("\", \"uniqueName\": \"");
+			AbstractEntity.internalEscapeString(writer, getUniqueName());
+			writer.append('"');
+		}
+	}
+
+	private static void internalDependencyMapToJson(@Nonnull Writer writer, @Nonnull String indentation,
+			@Nonnull Map<MappedNode, DependencyCountTable> dependencyMap) throws IOException {
+		boolean next = false;
+		for (final Map.Entry<MappedNode, DependencyCountTable> entry : dependencyMap.entrySet()) {
+			writer.append(next ? ",\n\t" : "\n\t").append(indentation).append("[ { ");
+			entry.getKey().internalToReferenceJson(writer);
+			writer.append(" }, ");
+			entry.getValue().toJson(writer);
+			writer.append(" ]");
+			next = true;
+		}
+	}
+
+	private void internalToJson(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		internalToReferenceJson(writer);
+		final Map<MappedNode, DependencyCountTable> dependencyTo = getDependencyTo();
+		if (!dependencyTo.isEmpty()) {
+			writer.append(", \"dependencyTo\": [");
+			internalDependencyMapToJson(writer, indentation, dependencyTo);
+			writer.append('\n').append(indentation).append(']');
+		}
+		final Map<MappedNode, DependencyCountTable> dependencyFrom = getDependencyFrom();
+		if (!dependencyFrom.isEmpty()) {
+			writer.append(", \"dependencyFrom\": [");
+			internalDependencyMapToJson(writer, indentation, dependencyFrom);
+			writer.append('\n').append(indentation).append(']');
+		}
+		final List<MappedNode> children = getChildren();
+		if (!children.isEmpty()) {
+			writer.append(", \"children\": [");
+			final String childIndentation = indentation + '\t';
+			boolean next = false;
+			for (final MappedNode child : children) {
+				writer.append(next ? ",\n\t" : "\n\t").append(indentation).append("{ ");
+				child.internalToJson(writer, childIndentation);
+				writer.append(" }");
+				next = true;
+			}
+			writer.append('\n').append(indentation).append(']');
+		}
+	}
+
+	//endregion Jsonify
+
+	@Override
+	public final boolean equals(@Nullable Object object) {
+		if (this == object) return true;
+		if (!(object instanceof MappedNode)) return false;
+		final MappedNode node = (MappedNode) object;
+		return id == node.id && snapshot == node.snapshot;
+	}
+
+	@Override
+	public final int hashCode() {
+		return id;
+	}
+
+	@Nonnull
+	@Override
+	public final String toString() {
+		return getUniqueName();
+	}
+
+
+	private final class ChildList extends AbstractList<MappedNode> implements RandomAccess {
+
+		private final int start;
+		private final int size;
+
+
+		private ChildList(int start, int size) {
+			this.start = start;
+			this.size = size;
+		}
+
+
+		@Override
+		public MappedNode get(int index) {
+			if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+			return snapshot.getNode(snapshot.getChildId(start + index));
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.mapped;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.tree.annotate.JavaAnnotate;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+import mrmathami.cia.java.tree.type.JavaType;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Root flyweight of a {@link MappedSnapshot}. The only node flyweight that is unique per snapshot.
+ */
+final class MappedRootNode extends MappedNode implements JavaRootNode {
+
+	@Nonnull private final List<MappedNode> allNodes = new AllNodeList();
+
+
+	MappedRootNode(@Nonnull MappedSnapshot snapshot) {
+		super(snapshot, 0);
+	}
+
+
+	//region Getter & Setter
+
+	@Nonnull
+	@Override
+	public List<MappedNode> getAllNodes() {
+		return allNodes;
+	}
+
+	/**
+	 * @return an empty list, the mapped format does not keep types
+	 */
+	@Nonnull
+	@Override
+	public List<? extends JavaType> getAllTypes() {
+		return List.of();
+	}
+
+	/**
+	 * @return an empty list, the mapped format does not keep annotates
+	 */
+	@Nonnull
+	@Override
+	public List<? extends JavaAnnotate> getAllAnnotates() {
+		return List.of();
+	}
+
+	//endregion Getter & Setter
+
+	private final class AllNodeList extends AbstractList<MappedNode> implements RandomAccess {
+
+		@Override
+		public MappedNode get(int index) {
+			return snapshot.getNode(index);
+		}
+
+		@Override
+		public int size() {
+			return snapshot.getNodeCount();
+		}
+
+	}
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.mapped;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.Module;
+import mrmathami.cia.java.jdt.project.SourceFile;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyCountTable;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyWeightTable;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.project.JavaSourceFileType;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.utils.RelativePath;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only snapshot served directly from a memory-mapped file written by {@link #write}. Nothing but the file
+ * header is read on open: every {@link JavaNode} is a flyweight over its fixed-size record, and names, children,
+ * dependency edges and node weights are read in place on each call. Two flyweights of the same node are equal but
+ * not necessarily identical.
+ * <p>
+ * The mapped format only keeps the node structure. Nodes only implement {@link JavaNode}, not their kind specific
+ * interfaces, and types, annotates, modifiers and bodies are not available, so a mapped snapshot cannot be compared
+ * with another snapshot.
+ */
+public final class MappedSnapshot implements JavaProjectSnapshot {
+
+	static final int MAGIC = 0x4A434D53; // JCMS
+	static final int VERSION = 1;
+
+	static final int DEPENDENCY_COUNT = JavaDependency.VALUE_LIST.size();
+
+	// section order in the header
+	static final int SECTION_NODES = 0;
+	static final int SECTION_CHILDREN = 1;
+	static final int SECTION_EDGES = 2;
+	static final int SECTION_SOURCE_FILES = 3;
+	static final int SECTION_MODULES = 4;
+	static final int SECTION_STRINGS = 5;
+	static final int SECTION_COUNT = 6;
+
+	// magic, version, dependency count, node count, name, dependency weights, section offsets and sizes
+	static final int HEADER_SIZE = 5 * Integer.BYTES + DEPENDENCY_COUNT * Double.BYTES + SECTION_COUNT * 2 * Long.BYTES;
+
+	// node record: entity class, parent, first child, child count, simple name, qualified name, unique name,
+	// source file, first dependency to edge, dependency to count, first dependency from edge,
+	// dependency from count, weight
+	static final int NODE_ENTITY_CLASS = 0;
+	static final int NODE_PARENT = 4;
+	static final int NODE_CHILDREN_START = 8;
+	static final int NODE_CHILDREN_COUNT = 12;
+	static final int NODE_SIMPLE_NAME = 16;
+	static final int NODE_QUALIFIED_NAME = 20;
+	static final int NODE_UNIQUE_NAME = 24;
+	static final int NODE_SOURCE_FILE = 28;
+	static final int NODE_DEPENDENCY_TO_START = 32;
+	static final int NODE_DEPENDENCY_TO_COUNT = 36;
+	static final int NODE_DEPENDENCY_FROM_START = 40;
+	static final int NODE_DEPENDENCY_FROM_COUNT = 44;
+	static final int NODE_WEIGHT = 48;
+	static final int NODE_SIZE = 56;
+
+	// edge record: the other node, then the count of every dependency type
+	static final int EDGE_SIZE = Integer.BYTES + DEPENDENCY_COUNT * Integer.BYTES;
+
+	// source file record: module, type, relative path
+	static final int SOURCE_FILE_SIZE = 3 * Integer.BYTES;
+
+	// module record: name, relative path
+	static final int MODULE_SIZE = 2 * Integer.BYTES;
+
+	@Nonnull private final String name;
+	@Nonnull private final DependencyWeightTable dependencyWeightTable;
+	private final int nodeCount;
+
+	@Nonnull private final ByteBuffer nodes;
+	@Nonnull private final ByteBuffer children;
+	@Nonnull private final ByteBuffer edges;
+	@Nonnull private final ByteBuffer sourceFiles;
+	@Nonnull private final ByteBuffer modules;
+	@Nonnull private final ByteBuffer strings;
+
+	@Nonnull private final MappedRootNode rootNode = new MappedRootNode(this);
+	@Nonnull private final MappedNodeWeightTable nodeWeightTable = new MappedNodeWeightTable();
+
+	// source files are few and shared by many nodes, so they are created once on first use
+	@Nonnull private final SourceFile[] sourceFileCache;
+	@Nonnull private final Module[] moduleCache;
+
+
+	private MappedSnapshot(@Nonnull ByteBuffer header, @Nonnull ByteBuffer[] sections) throws JavaCiaException {
+		this.nodes = sections[SECTION_NODES];
+		this.children = sections[SECTION_CHILDREN];
+		this.edges = sections[SECTION_EDGES];
+		this.sourceFiles = sections[SECTION_SOURCE_FILES];
+		this.modules = sections[SECTION_MODULES];
+		this.strings = sections[SECTION_STRINGS];
+
+		this.nodeCount = header.getInt(3 * Integer.BYTES);
+		if (nodeCount <= 0 || nodes.capacity() != (long) nodeCount * NODE_SIZE
+				|| edges.capacity() % EDGE_SIZE != 0
+				|| sourceFiles.capacity() % SOURCE_FILE_SIZE != 0
+				|| modules.capacity() % MODULE_SIZE != 0) {
+			throw new JavaCiaException("Invalid mapped snapshot!");
+		}
+		this.name = readString(header.getInt(4 * Integer.BYTES));
+
+		final double[] dependencyWeights = new double[DEPENDENCY_COUNT];
+		for (int i = 0; i < DEPENDENCY_COUNT; i++) {
+			dependencyWeights[i] = header.getDouble(5 * Integer.BYTES + i * Double.BYTES);
+		}
+		this.dependencyWeightTable = new DependencyWeightTable(dependencyWeights);
+
+		this.sourceFileCache = new SourceFile[sourceFiles.capacity() / SOURCE_FILE_SIZE];
+		this.moduleCache = new Module[modules.capacity() / MODULE_SIZE];
+	}
+
+
+	/**
+	 * Map a snapshot file. Only the header is read, the rest of the file is paged in on access.
+	 *
+	 * @param path snapshot file
+	 * @return the mapped snapshot
+	 * @throws JavaCiaException if the file cannot be mapped or is not a valid mapped snapshot
+	 */
+	@Nonnull
+	public static MappedSnapshot open(@Nonnull Path path) throws JavaCiaException {
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE) throw new JavaCiaException("Invalid mapped snapshot!");
+
+			final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION
+					|| header.getInt(2 * Integer.BYTES) != DEPENDENCY_COUNT) {
+				throw new JavaCiaException("Invalid mapped snapshot!");
+			}
+
+			// every section is mapped on its own, the mapping stays valid after the channel is closed
+			final int sectionStart = 5 * Integer.BYTES + DEPENDENCY_COUNT * Double.BYTES;
+			final ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+			for (int i = 0; i < SECTION_COUNT; i++) {
+				final long offset = header.getLong(sectionStart + i * 2 * Long.BYTES);
+				final long size = header.getLong(sectionStart + i * 2 * Long.BYTES + Long.BYTES);
+				if (offset < HEADER_SIZE || size < 0 || size > Integer.MAX_VALUE || offset + size > fileSize) {
+					throw new JavaCiaException("Invalid mapped snapshot!");
+				}
+				sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+			}
+			return new MappedSnapshot(header, sections);
+		} catch (IOException exception) {
+			throw new JavaCiaException("Cannot map snapshot file!", exception);
+		}
+	}
+
+	/**
+	 * Write a snapshot in the mapped format.
+	 *
+	 * @param snapshot snapshot to write
+	 * @param path output file
+	 * @throws JavaCiaException if the file cannot be written, or a section exceeds 2 GiB
+	 */
+	public static void write(@Nonnull JavaProjectSnapshot snapshot, @Nonnull Path path) throws JavaCiaException {
+		MappedSnapshotWriter.write(snapshot, path);
+	}
+
+
+	//region Record Reader
+
+	int getNodeCount() {
+		return nodeCount;
+	}
+
+	@Nonnull
+	MappedNode getNode(int nodeId) {
+		if (nodeId == 0) return rootNode;
+		if (nodeId < 0 || nodeId >= nodeCount) throw new IndexOutOfBoundsException();
+		return new MappedNode(this, nodeId);
+	}
+
+	int getNodeInt(int nodeId, int field) {
+		return nodes.getInt(nodeId * NODE_SIZE + field);
+	}
+
+	double getNodeWeight(int nodeId) {
+		return nodes.getDouble(nodeId * NODE_SIZE + NODE_WEIGHT);
+	}
+
+	int getChildId(int childIndex) {
+		return children.getInt(childIndex * Integer.BYTES);
+	}
+
+	int getEdgeNodeId(int edgeIndex) {
+		return edges.getInt(edgeIndex * EDGE_SIZE);
+	}
+
+	@Nonnull
+	DependencyCountTable getEdgeCounts(int edgeIndex) {
+		final int start = edgeIndex * EDGE_SIZE + Integer.BYTES;
+		final int[] counts = new int[DEPENDENCY_COUNT];
+		for (int i = 0; i < DEPENDENCY_COUNT; i++) counts[i] = edges.getInt(start + i * Integer.BYTES);
+		return new DependencyCountTable(counts);
+	}
+
+	@Nonnull
+	String readString(int offset) {
+		final int length = strings.getInt(offset);
+		final byte[] bytes = new byte[length];
+		// absolute bulk get is not available in Java 11, a duplicate keeps this safe for concurrent readers
+		strings.duplicate().position(offset + Integer.BYTES).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Nullable
+	SourceFile getSourceFile(int sourceFileIndex) {
+		if (sourceFileIndex < 0) return null;
+		synchronized (sourceFileCache) {
+			final SourceFile cached = sourceFileCache[sourceFileIndex];
+			if (cached != null) return cached;
+			final int start = sourceFileIndex * SOURCE_FILE_SIZE;
+			final SourceFile sourceFile = new SourceFile(getModule(sourceFiles.getInt(start)),
+					JavaSourceFileType.VALUE_LIST.get(sourceFiles.getInt(start + Integer.BYTES)),
+					readRelativePath(sourceFiles.getInt(start + 2 * Integer.BYTES)));
+			return sourceFileCache[sourceFileIndex] = sourceFile;
+		}
+	}
+
+	@Nonnull
+	private Module getModule(int moduleIndex) {
+		final Module cached = moduleCache[moduleIndex];
+		if (cached != null) return cached;
+		final int start = moduleIndex * MODULE_SIZE;
+		final Module module = new Module(readString(modules.getInt(start)),
+				readRelativePath(modules.getInt(start + Integer.BYTES)));
+		return moduleCache[moduleIndex] = module;
+	}
+
+	@Nonnull
+	private RelativePath readRelativePath(int offset) {
+		final String path = readString(offset);
+		return new RelativePath(path.isEmpty() ? new String[0] : path.split("/", -1));
+	}
+
+	//endregion Record Reader
+
+	//region Getter
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Nonnull
+	@Override
+	public MappedRootNode getRootNode() {
+		return rootNode;
+	}
+
+	@Nonnull
+	@Override
+	public DependencyWeightTable getDependencyWeightTable() {
+		return dependencyWeightTable;
+	}
+
+	@Nonnull
+	@Override
+	public JavaNodeWeightTable getNodeWeightTable() {
+		return nodeWeightTable;
+	}
+
+	//endregion Getter
+
+	private final class MappedNodeWeightTable implements JavaNodeWeightTable {
+
+		@Override
+		public double getWeight(@Nonnull JavaNode javaNode) {
+			if (javaNode.getRoot() == rootNode) return getNodeWeight(javaNode.getId());
+			throw new IllegalArgumentException("Input JavaNode doesn't exist in this tree!");
+		}
+
+	}
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.mapped;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.project.JavaModule;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.project.JavaSourceFile;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
+import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the {@link MappedSnapshot} file format. Strings, source files and modules are collected in a first pass
+ * so that every record can be written with its final offsets in a single sequential second pass.
+ */
+final class MappedSnapshotWriter {
+
+	@Nonnull private static final Comparator<Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable>>
+			EDGE_COMPARATOR = Comparator.comparingInt(entry -> entry.getKey().getId());
+
+	@Nonnull private final JavaProjectSnapshot snapshot;
+	@Nonnull private final List<? extends JavaNode> nodes;
+
+	@Nonnull private final ByteArrayOutputStream stringPool = new ByteArrayOutputStream();
+	@Nonnull private final DataOutputStream stringPoolOutput = new DataOutputStream(stringPool);
+	@Nonnull private final Map<String, Integer> stringOffsets = new HashMap<>();
+	@Nonnull private final Map<JavaSourceFile, Integer> sourceFileIndexes = new HashMap<>();
+	@Nonnull private final List<JavaSourceFile> sourceFiles = new ArrayList<>();
+	@Nonnull private final Map<JavaModule, Integer> moduleIndexes = new HashMap<>();
+	@Nonnull private final List<JavaModule> modules = new ArrayList<>();
+
+	private long childCount;
+	private long edgeCount;
+
+
+	private MappedSnapshotWriter(@Nonnull JavaProjectSnapshot snapshot) {
+		this.snapshot = snapshot;
+		this.nodes = snapshot.getRootNode().getAllNodes();
+	}
+
+
+	static void write(@Nonnull JavaProjectSnapshot snapshot, @Nonnull Path path) throws JavaCiaException {
+		final MappedSnapshotWriter writer = new MappedSnapshotWriter(snapshot);
+		try {
+			writer.collect();
+			try (final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+					Files.newOutputStream(path)))) {
+				writer.write(outputStream);
+			}
+		} catch (IOException exception) {
+			throw new JavaCiaException("Cannot write mapped snapshot!", exception);
+		}
+	}
+
+
+	//region First Pass
+
+	private int internString(@Nonnull String string) throws IOException, JavaCiaException {
+		final Integer offset = stringOffsets.get(string);
+		if (offset != null) return offset;
+		final int newOffset = stringPool.size();
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		if ((long) newOffset + Integer.BYTES + bytes.length > Integer.MAX_VALUE) {
+			throw new JavaCiaException("Snapshot is too large for the mapped format!");
+		}
+		stringPoolOutput.writeInt(bytes.length);
+		stringPoolOutput.write(bytes);
+		stringOffsets.put(string, newOffset);
+		return newOffset;
+	}
+
+	private int internModule(@Nonnull JavaModule module) throws IOException, JavaCiaException {
+		final Integer index = moduleIndexes.get(module);
+		if (index != null) return index;
+		internString(module.getName());
+		internString(module.getRelativePath().toString());
+		moduleIndexes.put(module, modules.size());
+		modules.add(module);
+		return modules.size() - 1;
+	}
+
+	private int internSourceFile(@Nonnull JavaSourceFile sourceFile) throws IOException, JavaCiaException {
+		final Integer index = sourceFileIndexes.get(sourceFile);
+		if (index != null) return index;
+		internModule(sourceFile.getModule());
+		internString(sourceFile.getRelativePath().toString());
+		sourceFileIndexes.put(sourceFile, sourceFiles.size());
+		sourceFiles.add(sourceFile);
+		return sourceFiles.size() - 1;
+	}
+
+	private void collect() throws IOException, JavaCiaException {
+		internString(snapshot.getName());
+		for (int id = 0; id < nodes.size(); id++) {
+			final JavaNode node = nodes.get(id);
+			if (node.getId() != id) throw new JavaCiaException("Node id is not continuous!");
+			internString(node.getEntityClass());
+			internString(node.getSimpleName());
+			internString(node.getQualifiedName());
+			internString(node.getUniqueName());
+			final JavaSourceFile sourceFile = node.getSourceFile();
+			if (sourceFile != null) internSourceFile(sourceFile);
+			childCount += node.getChildren().size();
+			edgeCount += node.getDependencyTo().size() + node.getDependencyFrom().size();
+		}
+	}
+
+	//endregion First Pass
+
+	//region Second Pass
+
+	@Nonnull
+	private static List<Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable>> sortedEdges(
+			@Nonnull Map<? extends JavaNode, ? extends JavaDependencyCountTable> dependencyMap) {
+		final List<Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable>> edges
+				= new ArrayList<>(dependencyMap.entrySet());
+		edges.sort(EDGE_COMPARATOR);
+		return edges;
+	}
+
+	private static void writeEdges(@Nonnull DataOutputStream outputStream,
+			@Nonnull Map<? extends JavaNode, ? extends JavaDependencyCountTable> dependencyMap) throws IOException {
+		for (final Map.Entry<? extends JavaNode, ? extends JavaDependencyCountTable> entry
+				: sortedEdges(dependencyMap)) {
+			outputStream.writeInt(entry.getKey().getId());
+			final JavaDependencyCountTable countTable = entry.getValue();
+			for (final JavaDependency type : JavaDependency.VALUE_LIST) {
+				outputStream.writeInt(countTable.getCount(type));
+			}
+		}
+	}
+
+	private static long checkSectionSize(long size) throws JavaCiaException {
+		if (size > Integer.MAX_VALUE) throw new JavaCiaException("Snapshot is too large for the mapped format!");
+		return size;
+	}
+
+	private void write(@Nonnull DataOutputStream outputStream) throws IOException, JavaCiaException {
+		final long[] sectionSizes = new long[MappedSnapshot.SECTION_COUNT];
+		sectionSizes[MappedSnapshot.SECTION_NODES] = checkSectionSize((long) nodes.size() * MappedSnapshot.NODE_SIZE);
+		sectionSizes[MappedSnapshot.SECTION_CHILDREN] = checkSectionSize(childCount * Integer.BYTES);
+		sectionSizes[MappedSnapshot.SECTION_EDGES] = checkSectionSize(edgeCount * MappedSnapshot.EDGE_SIZE);
+		sectionSizes[MappedSnapshot.SECTION_SOURCE_FILES]
+				= (long) sourceFiles.size() * MappedSnapshot.SOURCE_FILE_SIZE;
+		sectionSizes[MappedSnapshot.SECTION_MODULES] = (long) modules.size() * MappedSnapshot.MODULE_SIZE;
+		sectionSizes[MappedSnapshot.SECTION_STRINGS] = stringPool.size();
+
+		// header
+		final JavaDependencyWeightTable dependencyWeightTable = snapshot.getDependencyWeightTable();
+		outputStream.writeInt(MappedSnapshot.MAGIC);
+		outputStream.writeInt(MappedSnapshot.VERSION);
+		outputStream.writeInt(MappedSnapshot.DEPENDENCY_COUNT);
+		outputStream.writeInt(nodes.size());
+		outputStream.writeInt(stringOffsets.get(snapshot.getName()));
+		for (final JavaDependency type : JavaDependency.VALUE_LIST) {
+			outputStream.writeDouble(dependencyWeightTable.getWeight(type));
+		}
+		long sectionOffset = MappedSnapshot.HEADER_SIZE;
+		for (final long sectionSize : sectionSizes) {
+			outputStream.writeLong(sectionOffset);
+			outputStream.writeLong(sectionSize);
+			sectionOffset += sectionSize;
+		}
+
+		// nodes
+		final JavaNodeWeightTable nodeWeightTable = snapshot.getNodeWeightTable();
+		int childStart = 0, edgeStart = 0;
+		for (final JavaNode node : nodes) {
+			final int nodeChildCount = node.getChildren().size();
+			final int dependencyToCount = node.getDependencyTo().size();
+			final int dependencyFromCount = node.getDependencyFrom().size();
+			final JavaSourceFile sourceFile = node.getSourceFile();
+			outputStream.writeInt(stringOffsets.get(node.getEntityClass()));
+			outputStream.writeInt(node.isRoot() ? -1 : node.getParent().getId());
+			outputStream.writeInt(childStart);
+			outputStream.writeInt(nodeChildCount);
+			outputStream.writeInt(stringOffsets.get(node.getSimpleName()));
+			outputStream.writeInt(stringOffsets.get(node.getQualifiedName()));
+			outputStream.writeInt(stringOffsets.get(node.getUniqueName()));
+			outputStream.writeInt(sourceFile != null ? sourceFileIndexes.get(sourceFile) : -1);
+			outputStream.writeInt(edgeStart);
+			outputStream.writeInt(dependencyToCount);
+			outputStream.writeInt(edgeStart + dependencyToCount);
+			outputStream.writeInt(dependencyFromCount);
+			outputStream.writeDouble(nodeWeightTable.getWeight(node));
+			childStart += nodeChildCount;
+			edgeStart += dependencyToCount + dependencyFromCount;
+		}
+
+		// children
+		for (final JavaNode node : nodes) {
+			for (final JavaNode child : node.getChildren()) outputStream.writeInt(child.getId());
+		}
+
+		// edges
+		for (final JavaNode node : nodes) {
+			writeEdges(outputStream, node.getDependencyTo());
+			writeEdges(outputStream, node.getDependencyFrom());
+		}
+
+		// source files
+		for (final JavaSourceFile sourceFile : sourceFiles) {
+			outputStream.writeInt(moduleIndexes.get(sourceFile.getModule()));
+			outputStream.writeInt(sourceFile.getType().ordinal());
+			outputStream.writeInt(stringOffsets.get(sourceFile.getRelativePath().toString()));
+		}
+
+		// modules
+		for (final JavaModule module : modules) {
+			outputStream.writeInt(stringOffsets.get(module.getName()));
+			outputStream.writeInt(stringOffsets.get(module.getRelativePath().toString()));
+		}
+
+		// strings
+		stringPool.writeTo(outputStream);
+	}
+
+	//endregion Second Pass
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One block of bodies in the body file of a project: the hash and the length of every body, followed by the bodies
+ * deflated together the same way as a block of a {@link BodyTable}. A batch is added to the body table of the project
+ * as it is, so the bodies are neither inflated, decoded nor hashed again until one of them is read.
+ */
+final class BodyBatch {
+
+	@Nonnull private final BodyHash[] hashes;
+	@Nonnull private final int[] lengths;
+	@Nonnull private final byte[] block;
+	private final int blockSize;
+
+
+	private BodyBatch(@Nonnull BodyHash[] hashes, @Nonnull int[] lengths, @Nonnull byte[] block, int blockSize) {
+		this.hashes = hashes;
+		this.lengths = lengths;
+		this.block = block;
+		this.blockSize = blockSize;
+	}
+
+
+	/**
+	 * @param bodies the bodies by their hashes, packed into batches in order
+	 * @return batches of at most {@link BodyTable#BLOCK_SIZE} bytes each, unless a batch only holds one body
+	 */
+	@Nonnull
+	static List<BodyBatch> of(@Nonnull Map<BodyHash, String> bodies) {
+		final List<BodyBatch> batches = new ArrayList<>();
+		final List<BodyHash> hashes = new ArrayList<>();
+		final List<byte[]> contents = new ArrayList<>();
+		int blockSize = 0;
+		for (final Map.Entry<BodyHash, String> entry : bodies.entrySet()) {
+			final byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+			if (blockSize > 0 && blockSize + bytes.length > BodyTable.BLOCK_SIZE) {
+				batches.add(pack(hashes, contents, blockSize));
+				hashes.clear();
+				contents.clear();
+				blockSize = 0;
+			}
+			hashes.add(entry.getKey());
+			contents.add(bytes);
+			blockSize += bytes.length;
+		}
+		if (!hashes.isEmpty()) batches.add(pack(hashes, contents, blockSize));
+		return batches;
+	}
+
+	@Nonnull
+	private static BodyBatch pack(@Nonnull List<BodyHash> hashes, @Nonnull List<byte[]> contents, int blockSize) {
+		final byte[] bytes = new byte[blockSize];
+		final int[] lengths = new int[contents.size()];
+		int offset = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			final byte[] content = contents.get(i);
+			System.arraycopy(content, 0, bytes, offset, content.length);
+			lengths[i] = content.length;
+			offset += content.length;
+		}
+		return new BodyBatch(hashes.toArray(new BodyHash[0]), lengths, BodyTable.deflate(bytes, blockSize),
+				blockSize);
+	}
+
+	/**
+	 * @param batch the bytes written by {@link #write}, without the length in front of them
+	 * @return the batch
+	 * @throws IOException if the batch is invalid
+	 */
+	@Nonnull
+	static BodyBatch read(@Nonnull byte[] batch) throws IOException {
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(batch));
+		final int count = SnapshotRecords.readVarInt(input);
+		// every body takes at least the two halves of its hash and its length
+		if (count <= 0 || count > batch.length / 17) throw new InvalidObjectException("Invalid body batch!");
+		final BodyHash[] hashes = new BodyHash[count];
+		final int[] lengths = new int[count];
+		for (int i = 0; i < count; i++) {
+			hashes[i] = SnapshotRecords.readBodyHash(input);
+			lengths[i] = SnapshotRecords.readVarInt(input);
+		}
+		final int blockSize = SnapshotRecords.readVarInt(input);
+		final byte[] block = input.readAllBytes();
+		return new BodyBatch(hashes, lengths, block, blockSize);
+	}
+
+	/**
+	 * Writes the length of the batch, then the batch.
+	 */
+	void write(@Nonnull DataOutputStream outputStream) throws IOException {
+		final ByteArrayOutputStream batch = new ByteArrayOutputStream(block.length + hashes.length * 20 + 8);
+		final DataOutputStream batchStream = new DataOutputStream(batch);
+		SnapshotRecords.writeVarInt(batchStream, hashes.length);
+		for (int i = 0; i < hashes.length; i++) {
+			SnapshotRecords.writeBodyHash(batchStream, hashes[i]);
+			SnapshotRecords.writeVarInt(batchStream, lengths[i]);
+		}
+		SnapshotRecords.writeVarInt(batchStream, blockSize);
+		batchStream.write(block);
+		batchStream.flush();
+		outputStream.writeInt(batch.size());
+		batch.writeTo(outputStream);
+	}
+
+	/**
+	 * @throws InvalidObjectException if the lengths of the bodies do not add up to the size of the block
+	 */
+	void addTo(@Nonnull BodyTable bodyTable) throws InvalidObjectException {
+		try {
+			bodyTable.addBlock(hashes, lengths, block, blockSize);
+		} catch (IllegalArgumentException exception) {
+			throw new InvalidObjectException("Invalid body batch!");
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.tree.node.JavaNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+/**
+ * Read a comparison written by {@link ComparisonOutputStream}, resolving {@link SnapshotReference}s against the
+ * already loaded snapshots.
+ */
+final class ComparisonInputStream extends ObjectInputStream {
+
+	@Nonnull private final JavaProjectSnapshot[] snapshots;
+	@Nonnull private final List<?>[] allNodes;
+
+
+	ComparisonInputStream(@Nonnull InputStream inputStream, @Nonnull JavaProjectSnapshot previousSnapshot,
+			@Nonnull JavaProjectSnapshot currentSnapshot) throws IOException {
+		super(inputStream);
+		this.snapshots = new JavaProjectSnapshot[]{previousSnapshot, currentSnapshot};
+		this.allNodes = new List<?>[]{
+				previousSnapshot.getRootNode().getAllNodes(), currentSnapshot.getRootNode().getAllNodes()
+		};
+		enableResolveObject(true);
+	}
+
+
+	@Override
+	protected Object resolveObject(Object object) throws IOException {
+		if (!(object instanceof SnapshotReference)) return object;
+		final SnapshotReference reference = (SnapshotReference) object;
+		final int snapshotIndex = reference.getSnapshotIndex();
+		final int nodeId = reference.getNodeId();
+		if (snapshotIndex < 0 || snapshotIndex >= snapshots.length) {
+			throw new InvalidObjectException("Invalid snapshot reference!");
+		}
+		if (nodeId < 0) return snapshots[snapshotIndex];
+		final List<?> nodes = allNodes[snapshotIndex];
+		if (nodeId >= nodes.size()) throw new InvalidObjectException("Invalid node reference!");
+		final Object node = nodes.get(nodeId);
+		assert node instanceof JavaNode;
+		return node;
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Write a comparison without the compared snapshots: the snapshots and their nodes are replaced by
+ * {@link SnapshotReference}s, so a comparison file only contains the comparison result itself.
+ */
+final class ComparisonOutputStream extends ObjectOutputStream {
+
+	@Nonnull private final JavaProjectSnapshot[] snapshots;
+	@Nonnull private final JavaRootNode[] rootNodes;
+
+
+	ComparisonOutputStream(@Nonnull OutputStream outputStream, @Nonnull JavaProjectSnapshot previousSnapshot,
+			@Nonnull JavaProjectSnapshot currentSnapshot) throws IOException {
+		super(outputStream);
+		this.snapshots = new JavaProjectSnapshot[]{previousSnapshot, currentSnapshot};
+		this.rootNodes = new JavaRootNode[]{previousSnapshot.getRootNode(), currentSnapshot.getRootNode()};
+		enableReplaceObject(true);
+	}
+
+
+	@Override
+	protected Object replaceObject(Object object) throws IOException {
+		for (int i = 0; i < snapshots.length; i++) {
+			if (object == snapshots[i]) return new SnapshotReference(i, -1);
+		}
+		if (object instanceof JavaNode) {
+			final JavaNode node = (JavaNode) object;
+			final JavaRootNode rootNode = node.getRoot();
+			for (int i = 0; i < rootNodes.length; i++) {
+				if (rootNode == rootNodes[i]) return new SnapshotReference(i, node.getId());
+			}
+			throw new NotSerializableException("Node does not belong to the compared snapshots!");
+		}
+		return object;
+	}
+
+}
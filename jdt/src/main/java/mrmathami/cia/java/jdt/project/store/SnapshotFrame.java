@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Snapshot records and node weights, stored either in full as a keyframe or as a delta against the frame of a
+ * base snapshot. A delta matches the records of both snapshots by node or type key: a run of unchanged records is
+ * copied from the base, everything else is written as is. Node weights are only written where they differ.
+ */
+final class SnapshotFrame {
+
+	private static final int FRAME_MAGIC = 0x4A435346; // JCSF
+	private static final int FRAME_VERSION = 2;
+
+	private static final byte KEYFRAME = 0;
+	private static final byte DELTA = 1;
+
+	private static final byte END = 0;
+	private static final byte COPY = 1;
+	private static final byte RECORD = 2;
+
+	@Nonnull private final List<byte[]> records;
+	@Nonnull private final double[] nodeWeights;
+
+
+	SnapshotFrame(@Nonnull List<byte[]> records, @Nonnull double[] nodeWeights) {
+		this.records = records;
+		this.nodeWeights = nodeWeights;
+	}
+
+
+	//region Getter
+
+	@Nonnull
+	List<byte[]> getRecords() {
+		return records;
+	}
+
+	@Nonnull
+	double[] getNodeWeights() {
+		return nodeWeights;
+	}
+
+	//endregion Getter
+
+	//region Write
+
+	/**
+	 * @param outputStream output stream, will not be closed
+	 * @param baseFrame the frame to write the delta against, or null to write a keyframe
+	 * @throws IOException if the output stream failed
+	 */
+	void write(@Nonnull OutputStream outputStream, @Nullable SnapshotFrame baseFrame) throws IOException {
+		final DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream);
+		final DataOutputStream output = new DataOutputStream(deflaterStream);
+		output.writeInt(FRAME_MAGIC);
+		output.writeInt(FRAME_VERSION);
+		output.writeByte(baseFrame != null ? DELTA : KEYFRAME);
+		output.writeInt(records.size());
+		output.writeInt(nodeWeights.length);
+		if (baseFrame != null) {
+			writeDelta(output, baseFrame);
+		} else {
+			for (final byte[] record : records) writeRecord(output, record);
+			for (final double weight : nodeWeights) output.writeDouble(weight);
+		}
+		output.flush();
+		deflaterStream.finish();
+	}
+
+	private static void writeRecord(@Nonnull DataOutputStream output, @Nonnull byte[] record) throws IOException {
+		output.writeInt(record.length);
+		output.write(record);
+	}
+
+	private void writeDelta(@Nonnull DataOutputStream output, @Nonnull SnapshotFrame baseFrame)
+			throws IOException {
+		final List<byte[]> baseRecords = baseFrame.records;
+		final int baseSize = baseRecords.size();
+		final Map<String, Integer> baseIndexes = new HashMap<>(baseSize);
+		for (int i = 0; i < baseSize; i++) baseIndexes.put(recordKey(baseRecords.get(i)), i);
+
+		// base record index of every copied node record, so unchanged weights can be left out too
+		final int[] sources = new int[nodeWeights.length];
+		Arrays.fill(sources, -1);
+
+		final int size = records.size();
+		int index = 0;
+		while (index < size) {
+			final byte[] record = records.get(index);
+			final Integer baseIndex = baseIndexes.get(recordKey(record));
+			if (baseIndex == null || !Arrays.equals(baseRecords.get(baseIndex), record)) {
+				output.writeByte(RECORD);
+				writeRecord(output, record);
+				index += 1;
+				continue;
+			}
+			int length = 1;
+			while (index + length < size && baseIndex + length < baseSize
+					&& Arrays.equals(baseRecords.get(baseIndex + length), records.get(index + length))) {
+				length += 1;
+			}
+			output.writeByte(COPY);
+			output.writeInt(baseIndex);
+			output.writeInt(length);
+			for (int i = 0; i < length; i++) {
+				if (index + i < sources.length) sources[index + i] = baseIndex + i;
+			}
+			index += length;
+		}
+		output.writeByte(END);
+
+		final double[] baseWeights = baseFrame.nodeWeights;
+		final List<Integer> changedIndexes = new ArrayList<>();
+		for (int i = 0; i < nodeWeights.length; i++) {
+			final int source = sources[i];
+			if (source < 0 || source >= baseWeights.length
+					|| Double.doubleToLongBits(baseWeights[source]) != Double.doubleToLongBits(nodeWeights[i])) {
+				changedIndexes.add(i);
+			}
+		}
+		output.writeInt(changedIndexes.size());
+		for (final int i : changedIndexes) {
+			output.writeInt(i);
+			output.writeDouble(nodeWeights[i]);
+		}
+	}
+
+	/**
+	 * A node and a type can have the same key, so the record kind is part of the lookup key.
+	 */
+	@Nonnull
+	private static String recordKey(@Nonnull byte[] record) throws IOException {
+		return (char) record[0] + SnapshotRecords.readKey(record);
+	}
+
+	//endregion Write
+
+	//region Read
+
+	/**
+	 * @param inputStream input stream, will not be closed
+	 * @param baseFrame the frame the delta was written against, must be null if and only if it is a keyframe
+	 * @return the frame
+	 * @throws IOException if the input stream failed or the frame is invalid
+	 */
+	@Nonnull
+	static SnapshotFrame read(@Nonnull InputStream inputStream, @Nullable SnapshotFrame baseFrame)
+			throws IOException {
+		final DataInputStream input = new DataInputStream(new InflaterInputStream(inputStream));
+		if (input.readInt() != FRAME_MAGIC || input.readInt() != FRAME_VERSION) {
+			throw new InvalidObjectException("Invalid snapshot frame!");
+		}
+		final byte type = input.readByte();
+		if (type != (baseFrame != null ? DELTA : KEYFRAME)) throw new InvalidObjectException("Unexpected frame type!");
+		final int size = input.readInt();
+		final int weightCount = input.readInt();
+		if (size < 0 || weightCount < 0 || weightCount > size) throw new InvalidObjectException("Invalid frame size!");
+
+		final List<byte[]> records = new ArrayList<>(size);
+		final double[] nodeWeights = new double[weightCount];
+		if (baseFrame == null) {
+			for (int i = 0; i < size; i++) records.add(readRecord(input));
+			for (int i = 0; i < weightCount; i++) nodeWeights[i] = input.readDouble();
+			return new SnapshotFrame(records, nodeWeights);
+		}
+
+		final List<byte[]> baseRecords = baseFrame.records;
+		final double[] baseWeights = baseFrame.nodeWeights;
+		while (true) {
+			final byte operation = input.readByte();
+			if (operation == END) break;
+			if (operation == RECORD) {
+				records.add(readRecord(input));
+			} else if (operation == COPY) {
+				final int baseIndex = input.readInt();
+				final int length = input.readInt();
+				if (baseIndex < 0 || length <= 0 || baseIndex + length > baseRecords.size()
+						|| records.size() + length > size) {
+					throw new InvalidObjectException("Invalid copy operation!");
+				}
+				for (int i = 0; i < length; i++) {
+					final int index = records.size();
+					if (index < weightCount && baseIndex + i < baseWeights.length) {
+						nodeWeights[index] = baseWeights[baseIndex + i];
+					}
+					records.add(baseRecords.get(baseIndex + i));
+				}
+			} else {
+				throw new InvalidObjectException("Invalid delta operation!");
+			}
+		}
+		if (records.size() != size) throw new InvalidObjectException("Invalid frame size!");
+
+		final int changedCount = input.readInt();
+		for (int i = 0; i < changedCount; i++) {
+			final int index = input.readInt();
+			if (index < 0 || index >= weightCount) throw new InvalidObjectException("Invalid node weight!");
+			nodeWeights[index] = input.readDouble();
+		}
+		return new SnapshotFrame(records, nodeWeights);
+	}
+
+	@Nonnull
+	private static byte[] readRecord(@Nonnull DataInputStream input) throws IOException {
+		final int length = input.readInt();
+		if (length <= 0) throw new InvalidObjectException("Invalid record!");
+		final byte[] record = new byte[length];
+		input.readFully(record);
+		return record;
+	}
+
+	//endregion Read
+
+}
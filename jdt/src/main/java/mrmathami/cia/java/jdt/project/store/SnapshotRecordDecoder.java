@@ -0,0 +1,621 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.project.Module;
+import mrmathami.cia.java.jdt.project.SourceFile;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+import mrmathami.cia.java.jdt.tree.annotate.Annotate;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyCountTable;
+import mrmathami.cia.java.jdt.tree.node.AbstractNode;
+import mrmathami.cia.java.jdt.tree.node.AnnotationNode;
+import mrmathami.cia.java.jdt.tree.node.ClassNode;
+import mrmathami.cia.java.jdt.tree.node.EnumNode;
+import mrmathami.cia.java.jdt.tree.node.FieldNode;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode;
+import mrmathami.cia.java.jdt.tree.node.InterfaceNode;
+import mrmathami.cia.java.jdt.tree.node.MethodNode;
+import mrmathami.cia.java.jdt.tree.node.PackageNode;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractModifiedAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractParameterizedModifiedAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.type.AbstractType;
+import mrmathami.cia.java.jdt.tree.type.ReferenceType;
+import mrmathami.cia.java.jdt.tree.type.SimpleType;
+import mrmathami.cia.java.jdt.tree.type.SyntheticType;
+import mrmathami.cia.java.project.JavaSourceFileType;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.utils.RelativePath;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static mrmathami.cia.java.jdt.project.store.SnapshotRecords.*;
+
+/**
+ * Decodes snapshot records back into a frozen node tree. Shared entities are created first from the record
+ * headers, then the tree is built, then every reference is resolved by key, then the dependencies are created in
+ * an order that reproduces both the source and the target side ordering of the original dependency maps.
+ */
+final class SnapshotRecordDecoder {
+
+	@Nonnull private final Map<String, AbstractNode> nodes = new HashMap<>();
+	@Nonnull private final Map<String, AbstractType> types = new HashMap<>();
+	@Nonnull private final Map<String, Annotate[]> nodeAnnotates = new HashMap<>();
+	@Nonnull private final Map<String, Annotate[]> typeAnnotates = new HashMap<>();
+	@Nonnull private final Map<String, Module> modules = new HashMap<>();
+	@Nonnull private final Map<String, SourceFile> sourceFiles = new HashMap<>();
+	@Nonnull private final BodyTable bodyTable;
+
+
+	private SnapshotRecordDecoder(@Nonnull BodyTable bodyTable) {
+		this.bodyTable = bodyTable;
+	}
+
+
+	/**
+	 * @param records node records in pre-order, followed by type records
+	 * @param bodyTable the body table the records refer to, the frozen root node keeps its bodies there
+	 * @return the frozen root node
+	 * @throws IOException if the records are invalid
+	 */
+	@Nonnull
+	static RootNode decode(@Nonnull List<byte[]> records, @Nonnull BodyTable bodyTable) throws IOException {
+		return new SnapshotRecordDecoder(bodyTable).internalDecode(records);
+	}
+
+	@Nonnull
+	private RootNode internalDecode(@Nonnull List<byte[]> records) throws IOException {
+		final List<RecordInput> nodeInputs = new ArrayList<>();
+		final List<RecordInput> typeInputs = new ArrayList<>();
+		for (final byte[] record : records) {
+			final RecordInput input = readHeader(record);
+			if (input.kind < SIMPLE_TYPE) {
+				if (!typeInputs.isEmpty()) throw new InvalidObjectException("Node record after type record!");
+				nodeInputs.add(input);
+			} else {
+				typeInputs.add(input);
+			}
+		}
+		if (nodeInputs.isEmpty() || nodeInputs.get(0).kind != ROOT) throw new InvalidObjectException("No root!");
+
+		final RootNode rootNode = buildTree(nodeInputs);
+
+		final int nodeCount = nodeInputs.size();
+		final List<List<Edge>> edges = new ArrayList<>(nodeCount);
+		final List<List<AbstractNode>> sources = new ArrayList<>(nodeCount);
+		for (final RecordInput input : nodeInputs) {
+			readNodeAttributes(input);
+			edges.add(readDependencyTo(input));
+			sources.add(readDependencyFrom(input));
+		}
+		for (final RecordInput input : typeInputs) readTypeAttributes(input);
+		createDependencies(nodeInputs, edges, sources);
+
+		rootNode.freeze(bodyTable);
+		return rootNode;
+	}
+
+	//region Header
+
+	@Nonnull
+	private RecordInput readHeader(@Nonnull byte[] record) throws IOException {
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+		final byte kind = input.readByte();
+		final String key = readString(input);
+		if (kind >= SIMPLE_TYPE) {
+			final String description = readString(input);
+			final AbstractType type = kind == SIMPLE_TYPE ? new SimpleType(description)
+					: kind == REFERENCE_TYPE ? new ReferenceType(description)
+					: kind == SYNTHETIC_TYPE ? new SyntheticType(description)
+					: null;
+			if (type == null || types.putIfAbsent(key, type) != null) {
+				throw new InvalidObjectException("Invalid type record!");
+			}
+			final Annotate[] annotates = readAnnotateNames(input);
+			typeAnnotates.put(key, annotates);
+			return new RecordInput(kind, key, input, annotates);
+		} else {
+			final Annotate[] annotates = readAnnotateNames(input);
+			if (nodeAnnotates.putIfAbsent(key, annotates) != null) {
+				throw new InvalidObjectException("Duplicated node record!");
+			}
+			return new RecordInput(kind, key, input, annotates);
+		}
+	}
+
+	@Nonnull
+	private static Annotate[] readAnnotateNames(@Nonnull DataInputStream input) throws IOException {
+		final Annotate[] annotates = new Annotate[readVarInt(input)];
+		for (int i = 0; i < annotates.length; i++) annotates[i] = new Annotate(readString(input));
+		return annotates;
+	}
+
+	//endregion Header
+
+	//region Tree
+
+	@Nonnull
+	private RootNode buildTree(@Nonnull List<RecordInput> nodeInputs) throws IOException {
+		final RootNode rootNode = new RootNode();
+		final RecordInput rootInput = nodeInputs.get(0);
+		rootInput.node = rootNode;
+		nodes.put(rootInput.key, rootNode);
+
+		final ArrayDeque<AbstractNode> parents = new ArrayDeque<>();
+		final ArrayDeque<int[]> remainings = new ArrayDeque<>();
+		parents.push(rootNode);
+		remainings.push(new int[]{readVarInt(rootInput.input)});
+		for (int i = 1; i < nodeInputs.size(); i++) {
+			while (!remainings.isEmpty() && remainings.peek()[0] == 0) {
+				parents.pop();
+				remainings.pop();
+			}
+			if (parents.isEmpty()) throw new InvalidObjectException("Invalid tree structure!");
+			final AbstractNode parent = parents.peek();
+			remainings.peek()[0] -= 1;
+
+			final RecordInput nodeInput = nodeInputs.get(i);
+			final AbstractNode node = parent.addChild(createNode(nodeInput, parent));
+			nodeInput.node = node;
+			nodes.put(nodeInput.key, node);
+			parents.push(node);
+			remainings.push(new int[]{readVarInt(nodeInput.input)});
+		}
+		for (final int[] remaining : remainings) {
+			if (remaining[0] != 0) throw new InvalidObjectException("Invalid tree structure!");
+		}
+		return rootNode;
+	}
+
+	@Nonnull
+	private AbstractNode createNode(@Nonnull RecordInput nodeInput, @Nonnull AbstractNode parent)
+			throws IOException {
+		final DataInputStream input = nodeInput.input;
+		final String simpleName = readString(input);
+		final SourceFile sourceFile = readSourceFile(input);
+		switch (nodeInput.kind) {
+			case PACKAGE:
+				return new PackageNode(parent, simpleName);
+			case CLASS:
+				return new ClassNode(sourceFile, parent, simpleName, readNullableString(input));
+			case ENUM:
+				return new EnumNode(sourceFile, parent, simpleName, readNullableString(input));
+			case INTERFACE:
+				return new InterfaceNode(sourceFile, parent, simpleName, readNullableString(input));
+			case ANNOTATION:
+				return new AnnotationNode(sourceFile, parent, simpleName, readNullableString(input));
+			case FIELD:
+				return new FieldNode(sourceFile, parent, simpleName);
+			case METHOD:
+				final boolean isConstructor = input.readBoolean();
+				return new MethodNode(sourceFile, parent, simpleName, isConstructor, readTypes(input));
+			case INITIALIZER:
+				return new InitializerNode(sourceFile, parent, input.readBoolean());
+			default:
+				throw new InvalidObjectException("Invalid node record!");
+		}
+	}
+
+	@Nullable
+	private SourceFile readSourceFile(@Nonnull DataInputStream input) throws IOException {
+		if (!input.readBoolean()) return null;
+		final String moduleName = readString(input);
+		final RelativePath modulePath = readRelativePath(input);
+		final int typeOrdinal = readVarInt(input);
+		if (typeOrdinal >= JavaSourceFileType.VALUE_LIST.size()) {
+			throw new InvalidObjectException("Invalid source file type!");
+		}
+		final JavaSourceFileType type = JavaSourceFileType.VALUE_LIST.get(typeOrdinal);
+		final RelativePath relativePath = readRelativePath(input);
+
+		final String moduleKey = moduleName + '\0' + modulePath;
+		final Module module = modules.computeIfAbsent(moduleKey, any -> new Module(moduleName, modulePath));
+		return sourceFiles.computeIfAbsent(moduleKey + '\0' + type + '\0' + relativePath,
+				any -> new SourceFile(module, type, relativePath));
+	}
+
+	@Nonnull
+	private static RelativePath readRelativePath(@Nonnull DataInputStream input) throws IOException {
+		final String[] components = new String[readVarInt(input)];
+		for (int i = 0; i < components.length; i++) components[i] = readString(input);
+		return new RelativePath(components);
+	}
+
+	//endregion Tree
+
+	//region Attributes
+
+	private void readNodeAttributes(@Nonnull RecordInput nodeInput) throws IOException {
+		final DataInputStream input = nodeInput.input;
+		final AbstractNode node = nodeInput.node;
+		assert node != null;
+		if (node instanceof AbstractModifiedAnnotatedNode) {
+			((AbstractModifiedAnnotatedNode) node).setModifiers(readVarInt(input));
+		}
+		if (node instanceof AbstractAnnotatedNode) {
+			((AbstractAnnotatedNode) node).setAnnotates(readAnnotates(input, nodeInput.annotates));
+		}
+		if (node instanceof AbstractParameterizedModifiedAnnotatedNode) {
+			((AbstractParameterizedModifiedAnnotatedNode) node).setTypeParameters(readTypes(input));
+		}
+		switch (nodeInput.kind) {
+			case CLASS:
+				((ClassNode) node).setExtendsClass(readNullableType(input));
+				((ClassNode) node).setImplementsInterfaces(readTypes(input));
+				break;
+			case ENUM:
+				((EnumNode) node).setImplementsInterfaces(readTypes(input));
+				break;
+			case INTERFACE:
+				((InterfaceNode) node).setExtendsInterfaces(readTypes(input));
+				break;
+			case FIELD:
+				((FieldNode) node).setType(readNullableType(input));
+				break;
+			case METHOD:
+				((MethodNode) node).setReturnType(readNullableType(input));
+				((MethodNode) node).setExceptions(readTypes(input));
+				final BodyHash bodyHash = readNullableBodyHash(input);
+				((MethodNode) node).setBodyHash(bodyTable, bodyHash != null ? checkBody(bodyHash) : null);
+				break;
+			case INITIALIZER:
+				((InitializerNode) node).setInitializers(readInitializers(input));
+				break;
+		}
+		for (final Annotate annotate : nodeInput.annotates) readAnnotateBody(input, annotate, nodeInput.annotates);
+	}
+
+	@Nonnull
+	private List<InitializerNode.InitializerImpl> readInitializers(@Nonnull DataInputStream input)
+			throws IOException {
+		final int size = readVarInt(input);
+		final List<InitializerNode.InitializerImpl> initializers = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final byte tag = input.readByte();
+			if (tag == BLOCK_INITIALIZER) {
+				initializers.add(new InitializerNode.BlockInitializerImpl(bodyTable, checkBody(readBodyHash(input))));
+			} else if (tag == FIELD_INITIALIZER) {
+				final AbstractNode fieldNode = readNode(input);
+				if (!(fieldNode instanceof FieldNode)) throw new InvalidObjectException("Invalid field initializer!");
+				initializers.add(new InitializerNode.FieldInitializerImpl((FieldNode) fieldNode, bodyTable,
+						checkBody(readBodyHash(input))));
+			} else {
+				throw new InvalidObjectException("Invalid initializer!");
+			}
+		}
+		return initializers;
+	}
+
+	/**
+	 * The body is only looked up, it is neither read nor hashed again.
+	 */
+	@Nonnull
+	private BodyHash checkBody(@Nonnull BodyHash bodyHash) throws IOException {
+		if (!bodyTable.contains(bodyHash)) throw new InvalidObjectException("Missing body " + bodyHash + "!");
+		return bodyHash;
+	}
+
+	private void readTypeAttributes(@Nonnull RecordInput typeInput) throws IOException {
+		final DataInputStream input = typeInput.input;
+		final AbstractType type = types.get(typeInput.key);
+		type.setAnnotates(readAnnotates(input, typeInput.annotates));
+		if (type instanceof SimpleType) {
+			((SimpleType) type).setInnerType(readNullableType(input));
+		} else if (type instanceof ReferenceType) {
+			final AbstractNode node = readNullableNode(input);
+			if (node != null) ((ReferenceType) type).setNode(node);
+			((ReferenceType) type).setArguments(readTypes(input));
+		} else {
+			((SyntheticType) type).setBounds(readTypes(input));
+		}
+		for (final Annotate annotate : typeInput.annotates) readAnnotateBody(input, annotate, typeInput.annotates);
+	}
+
+	//endregion Attributes
+
+	//region Annotate
+
+	private void readAnnotateBody(@Nonnull DataInputStream input, @Nonnull Annotate annotate,
+			@Nonnull Annotate[] localAnnotates) throws IOException {
+		annotate.setNode(readNullableNode(input));
+		final int size = readVarInt(input);
+		final List<Annotate.ParameterImpl> parameters = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final Annotate.ParameterImpl parameter = new Annotate.ParameterImpl(readString(input));
+			final AbstractNode node = readNullableNode(input);
+			if (node != null) parameter.setNode(node);
+			final Annotate.ValueImpl value = readValue(input, localAnnotates);
+			if (value != null) parameter.setValue(value);
+			parameters.add(parameter);
+		}
+		annotate.setParameters(parameters);
+	}
+
+	@Nullable
+	private Annotate.ValueImpl readValue(@Nonnull DataInputStream input, @Nonnull Annotate[] localAnnotates)
+			throws IOException {
+		final byte tag = input.readByte();
+		switch (tag) {
+			case NO_VALUE:
+				return null;
+			case SIMPLE_VALUE:
+				return new Annotate.SimpleValueImpl(readSimpleValue(input));
+			case NODE_VALUE:
+				final Annotate.NodeValueImpl nodeValue = new Annotate.NodeValueImpl(readString(input));
+				final AbstractNode node = readNullableNode(input);
+				if (node != null) nodeValue.setNode(node);
+				return nodeValue;
+			case ANNOTATE_VALUE:
+				final Annotate.AnnotateValueImpl annotateValue = new Annotate.AnnotateValueImpl();
+				if (input.readBoolean()) annotateValue.setAnnotate(readAnnotate(input, localAnnotates));
+				return annotateValue;
+			case ARRAY_VALUE:
+				final int size = readVarInt(input);
+				final List<Annotate.NonArrayValueImpl> values = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					final Annotate.ValueImpl value = readValue(input, localAnnotates);
+					if (!(value instanceof Annotate.NonArrayValueImpl)) {
+						throw new InvalidObjectException("Invalid array value!");
+					}
+					values.add((Annotate.NonArrayValueImpl) value);
+				}
+				final Annotate.ArrayValueImpl arrayValue = new Annotate.ArrayValueImpl();
+				arrayValue.setValues(values);
+				return arrayValue;
+			default:
+				throw new InvalidObjectException("Invalid annotate value!");
+		}
+	}
+
+	@Nonnull
+	private static Object readSimpleValue(@Nonnull DataInputStream input) throws IOException {
+		switch (input.readByte()) {
+			case 0:
+				return readString(input);
+			case 1:
+				return input.readBoolean();
+			case 2:
+				return input.readByte();
+			case 3:
+				return input.readShort();
+			case 4:
+				return input.readInt();
+			case 5:
+				return input.readLong();
+			case 6:
+				return input.readChar();
+			case 7:
+				return input.readFloat();
+			case 8:
+				return input.readDouble();
+			default:
+				throw new InvalidObjectException("Invalid simple value!");
+		}
+	}
+
+	//endregion Annotate
+
+	//region Dependency
+
+	@Nonnull
+	private List<Edge> readDependencyTo(@Nonnull RecordInput nodeInput) throws IOException {
+		final DataInputStream input = nodeInput.input;
+		final int size = readVarInt(input);
+		final List<Edge> edges = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final AbstractNode target = readNode(input);
+			final int[] counts = new int[JavaDependency.VALUE_LIST.size()];
+			for (int j = 0; j < counts.length; j++) counts[j] = readVarInt(input);
+			edges.add(new Edge(nodeInput.node, target, new DependencyCountTable(counts), i));
+		}
+		return edges;
+	}
+
+	@Nonnull
+	private List<AbstractNode> readDependencyFrom(@Nonnull RecordInput nodeInput) throws IOException {
+		final DataInputStream input = nodeInput.input;
+		final int size = readVarInt(input);
+		final List<AbstractNode> sources = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) sources.add(readNode(input));
+		return sources;
+	}
+
+	/**
+	 * An edge can only be created once it is the next one on both its source side and its target side. The
+	 * original build order satisfied every one of these constraints, so such an order always exists.
+	 */
+	private static void createDependencies(@Nonnull List<RecordInput> nodeInputs, @Nonnull List<List<Edge>> edges,
+			@Nonnull List<List<AbstractNode>> sources) throws IOException {
+		final int nodeCount = nodeInputs.size();
+		final Map<AbstractNode, Integer> indexes = new IdentityHashMap<>(nodeCount);
+		for (int i = 0; i < nodeCount; i++) indexes.put(nodeInputs.get(i).node, i);
+
+		final List<Map<AbstractNode, Edge>> edgeMaps = new ArrayList<>(nodeCount);
+		int edgeCount = 0;
+		for (final List<Edge> sourceEdges : edges) {
+			final Map<AbstractNode, Edge> edgeMap = new IdentityHashMap<>(sourceEdges.size());
+			for (final Edge edge : sourceEdges) {
+				if (edgeMap.put(edge.target, edge) != null) throw new InvalidObjectException("Duplicated edge!");
+			}
+			edgeMaps.add(edgeMap);
+			edgeCount += sourceEdges.size();
+		}
+
+		// every edge must be listed on the target side exactly once
+		final List<List<Edge>> targetEdges = new ArrayList<>(nodeCount);
+		int listedCount = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			final AbstractNode target = nodeInputs.get(i).node;
+			final List<AbstractNode> targetSources = sources.get(i);
+			final List<Edge> list = new ArrayList<>(targetSources.size());
+			for (final AbstractNode source : targetSources) {
+				final Edge edge = edgeMaps.get(indexes.get(source)).get(target);
+				if (edge == null || edge.fromIndex >= 0) throw new InvalidObjectException("Invalid edge!");
+				edge.fromIndex = list.size();
+				list.add(edge);
+			}
+			targetEdges.add(list);
+			listedCount += list.size();
+		}
+		if (listedCount != edgeCount) throw new InvalidObjectException("Invalid edge!");
+
+		final int[] toPositions = new int[nodeCount];
+		final int[] fromPositions = new int[nodeCount];
+		final ArrayDeque<Edge> readyEdges = new ArrayDeque<>();
+		for (final List<Edge> sourceEdges : edges) {
+			if (!sourceEdges.isEmpty() && sourceEdges.get(0).fromIndex == 0) readyEdges.add(sourceEdges.get(0));
+		}
+		int createdCount = 0;
+		while (!readyEdges.isEmpty()) {
+			final Edge edge = readyEdges.poll();
+			edge.source.createDependencyTo(edge.target, edge.countTable);
+			createdCount += 1;
+
+			final int sourceIndex = indexes.get(edge.source);
+			final int targetIndex = indexes.get(edge.target);
+			final int toPosition = ++toPositions[sourceIndex];
+			final int fromPosition = ++fromPositions[targetIndex];
+
+			final List<Edge> sourceEdges = edges.get(sourceIndex);
+			if (toPosition < sourceEdges.size()) {
+				final Edge nextEdge = sourceEdges.get(toPosition);
+				if (nextEdge.fromIndex == fromPositions[indexes.get(nextEdge.target)]) readyEdges.add(nextEdge);
+			}
+			final List<Edge> sameTargetEdges = targetEdges.get(targetIndex);
+			if (fromPosition < sameTargetEdges.size()) {
+				final Edge nextEdge = sameTargetEdges.get(fromPosition);
+				if (nextEdge.toIndex == toPositions[indexes.get(nextEdge.source)]) readyEdges.add(nextEdge);
+			}
+		}
+		if (createdCount != edgeCount) throw new InvalidObjectException("Inconsistent dependency order!");
+	}
+
+	//endregion Dependency
+
+	//region Reference
+
+	@Nonnull
+	private AbstractNode readNode(@Nonnull DataInputStream input) throws IOException {
+		final AbstractNode node = nodes.get(readString(input));
+		if (node == null) throw new InvalidObjectException("Unknown node!");
+		return node;
+	}
+
+	@Nullable
+	private AbstractNode readNullableNode(@Nonnull DataInputStream input) throws IOException {
+		return input.readBoolean() ? readNode(input) : null;
+	}
+
+	@Nonnull
+	private AbstractType readType(@Nonnull DataInputStream input) throws IOException {
+		final AbstractType type = types.get(readString(input));
+		if (type == null) throw new InvalidObjectException("Unknown type!");
+		return type;
+	}
+
+	@Nullable
+	private AbstractType readNullableType(@Nonnull DataInputStream input) throws IOException {
+		return input.readBoolean() ? readType(input) : null;
+	}
+
+	@Nonnull
+	private List<AbstractType> readTypes(@Nonnull DataInputStream input) throws IOException {
+		final int size = readVarInt(input);
+		final List<AbstractType> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) list.add(readType(input));
+		return list;
+	}
+
+	@Nonnull
+	private Annotate readAnnotate(@Nonnull DataInputStream input, @Nonnull Annotate[] localAnnotates)
+			throws IOException {
+		final byte tag = input.readByte();
+		final Annotate[] annotates = tag == LOCAL_ANNOTATE ? localAnnotates
+				: tag == NODE_ANNOTATE ? nodeAnnotates.get(readString(input))
+				: tag == TYPE_ANNOTATE ? typeAnnotates.get(readString(input))
+				: null;
+		final int index = readVarInt(input);
+		if (annotates == null || index >= annotates.length) throw new InvalidObjectException("Unknown annotate!");
+		return annotates[index];
+	}
+
+	@Nonnull
+	private List<Annotate> readAnnotates(@Nonnull DataInputStream input, @Nonnull Annotate[] localAnnotates)
+			throws IOException {
+		final int size = readVarInt(input);
+		final List<Annotate> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) list.add(readAnnotate(input, localAnnotates));
+		return list;
+	}
+
+	//endregion Reference
+
+	private static final class RecordInput {
+
+		private final byte kind;
+		@Nonnull private final String key;
+		@Nonnull private final DataInputStream input;
+		@Nonnull private final Annotate[] annotates;
+
+		@Nullable private AbstractNode node;
+
+
+		RecordInput(byte kind, @Nonnull String key, @Nonnull DataInputStream input, @Nonnull Annotate[] annotates) {
+			this.kind = kind;
+			this.key = key;
+			this.input = input;
+			this.annotates = annotates;
+		}
+
+	}
+
+	private static final class Edge {
+
+		@Nonnull private final AbstractNode source;
+		@Nonnull private final AbstractNode target;
+		@Nonnull private final DependencyCountTable countTable;
+		private final int toIndex;
+
+		private int fromIndex = -1;
+
+
+		Edge(@Nonnull AbstractNode source, @Nonnull AbstractNode target, @Nonnull DependencyCountTable countTable,
+				int toIndex) {
+			this.source = source;
+			this.target = target;
+			this.countTable = countTable;
+			this.toIndex = toIndex;
+		}
+
+	}
+
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+import mrmathami.cia.java.jdt.tree.annotate.Annotate;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyCountTable;
+import mrmathami.cia.java.jdt.tree.node.AbstractNode;
+import mrmathami.cia.java.jdt.tree.node.AnnotationNode;
+import mrmathami.cia.java.jdt.tree.node.ClassNode;
+import mrmathami.cia.java.jdt.tree.node.EnumNode;
+import mrmathami.cia.java.jdt.tree.node.FieldNode;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode;
+import mrmathami.cia.java.jdt.tree.node.InterfaceNode;
+import mrmathami.cia.java.jdt.tree.node.MethodNode;
+import mrmathami.cia.java.jdt.tree.node.PackageNode;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractModifiedAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractNonRootNode;
+import mrmathami.cia.java.jdt.tree.node.attribute.AbstractParameterizedModifiedAnnotatedNode;
+import mrmathami.cia.java.jdt.tree.type.AbstractType;
+import mrmathami.cia.java.jdt.tree.type.ReferenceType;
+import mrmathami.cia.java.jdt.tree.type.SimpleType;
+import mrmathami.cia.java.jdt.tree.type.SyntheticType;
+import mrmathami.cia.java.project.JavaSourceFile;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+import mrmathami.cia.java.utils.RelativePath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static mrmathami.cia.java.jdt.project.store.SnapshotRecords.*;
+
+/**
+ * Encodes a node tree into snapshot records. Types and annotates can be shared between nodes, so each of them is
+ * defined once by its owner and referenced by key everywhere else. A type is its own owner and is keyed by its
+ * description, an annotate is owned by the first node or type that reaches it.
+ */
+final class SnapshotRecordEncoder {
+
+	@Nonnull private final Map<AbstractNode, String> nodeKeys = new IdentityHashMap<>();
+	@Nonnull private final Map<AbstractType, String> typeKeys = new IdentityHashMap<>();
+	@Nonnull private final Map<Annotate, AnnotateOwner> annotateOwners = new IdentityHashMap<>();
+	@Nonnull private final Map<Object, List<Annotate>> ownedAnnotates = new IdentityHashMap<>();
+	@Nonnull private final Map<String, Integer> typeKeyCounts = new HashMap<>();
+	@Nonnull private final BodyTable bodyTable;
+	@Nonnull private final Map<BodyHash, String> newBodies;
+
+
+	private SnapshotRecordEncoder(@Nonnull BodyTable bodyTable, @Nonnull Map<BodyHash, String> newBodies) {
+		this.bodyTable = bodyTable;
+		this.newBodies = newBodies;
+	}
+
+
+	/**
+	 * @param rootNode frozen root node
+	 * @param bodyTable the body table the records refer to, is not modified
+	 * @param newBodies receives every referenced body that is not in the body table yet
+	 * @return node records in pre-order, followed by type records sorted by key
+	 * @throws IOException should not happen, records are written to memory
+	 */
+	@Nonnull
+	static List<byte[]> encode(@Nonnull JavaRootNode rootNode, @Nonnull BodyTable bodyTable,
+			@Nonnull Map<BodyHash, String> newBodies) throws IOException {
+		if (!(rootNode instanceof RootNode)) throw new IllegalArgumentException("Input root node is not JDT based.");
+		final SnapshotRecordEncoder encoder = new SnapshotRecordEncoder(bodyTable, newBodies);
+		final List<AbstractNode> nodes = ((RootNode) rootNode).getAllNodes();
+		final List<AbstractType> types = encoder.discover(nodes);
+
+		final List<byte[]> records = new ArrayList<>(nodes.size() + types.size());
+		for (final AbstractNode node : nodes) records.add(encoder.encodeNode(node));
+		for (final AbstractType type : types) records.add(encoder.encodeType(type));
+		return records;
+	}
+
+	@Nonnull
+	private static String uniqueKey(@Nonnull Map<String, Integer> keyCounts, @Nonnull String name) {
+		final int count = keyCounts.merge(name, 1, Integer::sum) - 1;
+		return count == 0 ? name : name + '#' + count;
+	}
+
+	//region Discovery
+
+	@Nonnull
+	private List<AbstractType> discover(@Nonnull List<AbstractNode> nodes) {
+		final Map<String, Integer> nodeKeyCounts = new HashMap<>();
+		for (final AbstractNode node : nodes) nodeKeys.put(node, uniqueKey(nodeKeyCounts, node.getUniqueName()));
+
+		final List<AbstractType> types = new ArrayList<>();
+		for (final AbstractNode node : nodes) {
+			if (node instanceof AbstractAnnotatedNode) {
+				for (final Annotate annotate : ((AbstractAnnotatedNode) node).getAnnotates()) {
+					discoverAnnotate(annotate, node);
+				}
+			}
+			for (final AbstractType type : directTypes(node)) discoverType(type, types);
+		}
+		types.sort((typeA, typeB) -> typeKeys.get(typeA).compareTo(typeKeys.get(typeB)));
+		return types;
+	}
+
+	@Nonnull
+	private static List<AbstractType> directTypes(@Nonnull AbstractNode node) {
+		final List<AbstractType> types = new ArrayList<>();
+		if (node instanceof AbstractParameterizedModifiedAnnotatedNode) {
+			types.addAll(((AbstractParameterizedModifiedAnnotatedNode) node).getTypeParameters());
+		}
+		if (node instanceof ClassNode) {
+			final ClassNode classNode = (ClassNode) node;
+			final AbstractType extendsClass = classNode.getExtendsClass();
+			if (extendsClass != null) types.add(extendsClass);
+			types.addAll(classNode.getImplementsInterfaces());
+		} else if (node instanceof EnumNode) {
+			types.addAll(((EnumNode) node).getImplementsInterfaces());
+		} else if (node instanceof InterfaceNode) {
+			types.addAll(((InterfaceNode) node).getExtendsInterfaces());
+		} else if (node instanceof FieldNode) {
+			final AbstractType type = ((FieldNode) node).getType();
+			if (type != null) types.add(type);
+		} else if (node instanceof MethodNode) {
+			final MethodNode methodNode = (MethodNode) node;
+			types.addAll(methodNode.getParameters());
+			final AbstractType returnType = methodNode.getReturnType();
+			if (returnType != null) types.add(returnType);
+			types.addAll(methodNode.getExceptions());
+		}
+		return types;
+	}
+
+	private void discoverType(@Nullable AbstractType type, @Nonnull List<AbstractType> types) {
+		if (type == null || typeKeys.containsKey(type)) return;
+		typeKeys.put(type, uniqueKey(typeKeyCounts, type.getDescription()));
+		types.add(type);
+		for (final Annotate annotate : type.getAnnotates()) discoverAnnotate(annotate, type);
+		if (type instanceof SimpleType) {
+			discoverType(((SimpleType) type).getInnerType(), types);
+		} else if (type instanceof ReferenceType) {
+			for (final AbstractType argument : ((ReferenceType) type).getArguments()) discoverType(argument, types);
+		} else if (type instanceof SyntheticType) {
+			for (final AbstractType bound : ((SyntheticType) type).getBounds()) discoverType(bound, types);
+		}
+	}
+
+	private void discoverAnnotate(@Nullable Annotate annotate, @Nonnull Object owner) {
+		if (annotate == null || annotateOwners.containsKey(annotate)) return;
+		final List<Annotate> annotates = ownedAnnotates.computeIfAbsent(owner, any -> new ArrayList<>());
+		annotateOwners.put(annotate, new AnnotateOwner(owner, annotates.size()));
+		annotates.add(annotate);
+		for (final Annotate.ParameterImpl parameter : annotate.getParameters()) {
+			discoverValue(parameter.getValue(), owner);
+		}
+	}
+
+	private void discoverValue(@Nullable Annotate.ValueImpl value, @Nonnull Object owner) {
+		if (value instanceof Annotate.AnnotateValueImpl) {
+			discoverAnnotate(((Annotate.AnnotateValueImpl) value).getAnnotate(), owner);
+		} else if (value instanceof Annotate.ArrayValueImpl) {
+			for (final Annotate.NonArrayValueImpl element : ((Annotate.ArrayValueImpl) value).getValues()) {
+				discoverValue(element, owner);
+			}
+		}
+	}
+
+	//endregion Discovery
+
+	//region Node Record
+
+	private static byte nodeKind(@Nonnull AbstractNode node) {
+		if (node instanceof RootNode) return ROOT;
+		if (node instanceof PackageNode) return PACKAGE;
+		if (node instanceof ClassNode) return CLASS;
+		if (node instanceof EnumNode) return ENUM;
+		if (node instanceof InterfaceNode) return INTERFACE;
+		if (node instanceof AnnotationNode) return ANNOTATION;
+		if (node instanceof FieldNode) return FIELD;
+		if (node instanceof MethodNode) return METHOD;
+		if (node instanceof InitializerNode) return INITIALIZER;
+		throw new IllegalArgumentException("Unknown node type!");
+	}
+
+	@Nonnull
+	private byte[] encodeNode(@Nonnull AbstractNode node) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(bytes);
+
+		// header: everything needed to create the shared entities before any node exists
+		final byte kind = nodeKind(node);
+		output.writeByte(kind);
+		writeString(output, nodeKeys.get(node));
+		final List<Annotate> annotates = ownedAnnotates.getOrDefault(node, List.of());
+		writeVarInt(output, annotates.size());
+		for (final Annotate annotate : annotates) writeString(output, annotate.getName());
+
+		// tree: everything needed to create the node itself
+		if (node instanceof AbstractNonRootNode) {
+			writeString(output, node.getSimpleName());
+			writeSourceFile(output, ((AbstractNonRootNode) node).getSourceFile());
+		}
+		switch (kind) {
+			case CLASS:
+				writeNullableString(output, ((ClassNode) node).getBinaryName());
+				break;
+			case ENUM:
+				writeNullableString(output, ((EnumNode) node).getBinaryName());
+				break;
+			case INTERFACE:
+				writeNullableString(output, ((InterfaceNode) node).getBinaryName());
+				break;
+			case ANNOTATION:
+				writeNullableString(output, ((AnnotationNode) node).getBinaryName());
+				break;
+			case METHOD:
+				output.writeBoolean(((MethodNode) node).isConstructor());
+				writeTypes(output, ((MethodNode) node).getParameters());
+				break;
+			case INITIALIZER:
+				output.writeBoolean(((InitializerNode) node).isStatic());
+				break;
+		}
+		writeVarInt(output, node.getChildren().size());
+
+		// attributes
+		if (node instanceof AbstractModifiedAnnotatedNode) {
+			writeVarInt(output, ((AbstractModifiedAnnotatedNode) node).getModifiers());
+		}
+		if (node instanceof AbstractAnnotatedNode) {
+			writeAnnotates(output, ((AbstractAnnotatedNode) node).getAnnotates(), node);
+		}
+		if (node instanceof AbstractParameterizedModifiedAnnotatedNode) {
+			writeTypes(output, ((AbstractParameterizedModifiedAnnotatedNode) node).getTypeParameters());
+		}
+		switch (kind) {
+			case CLASS:
+				writeNullableType(output, ((ClassNode) node).getExtendsClass());
+				writeTypes(output, ((ClassNode) node).getImplementsInterfaces());
+				break;
+			case ENUM:
+				writeTypes(output, ((EnumNode) node).getImplementsInterfaces());
+				break;
+			case INTERFACE:
+				writeTypes(output, ((InterfaceNode) node).getExtendsInterfaces());
+				break;
+			case FIELD:
+				writeNullableType(output, ((FieldNode) node).getType());
+				break;
+			case METHOD:
+				writeNullableType(output, ((MethodNode) node).getReturnType());
+				writeTypes(output, ((MethodNode) node).getExceptions());
+				final BodyHash bodyHash = ((MethodNode) node).getBodyHash();
+				if (bodyHash != null) addBody(bodyHash, ((MethodNode) node)::getBodyBlock);
+				writeNullableBodyHash(output, bodyHash);
+				break;
+			case INITIALIZER:
+				writeInitializers(output, ((InitializerNode) node).getInitializers());
+				break;
+		}
+		for (final Annotate annotate : annotates) writeAnnotateBody(output, annotate, node);
+
+		// dependencies, the source order is kept so the dependency maps are rebuilt in the same order
+		final Map<AbstractNode, DependencyCountTable> dependencyTo = node.getDependencyTo();
+		writeVarInt(output, dependencyTo.size());
+		for (final Map.Entry<AbstractNode, DependencyCountTable> entry : dependencyTo.entrySet()) {
+			writeNode(output, entry.getKey());
+			final DependencyCountTable countTable = entry.getValue();
+			for (final JavaDependency type : JavaDependency.VALUE_LIST) {
+				writeVarInt(output, countTable.getCount(type));
+			}
+		}
+		final Map<AbstractNode, DependencyCountTable> dependencyFrom = node.getDependencyFrom();
+		writeVarInt(output, dependencyFrom.size());
+		for (final AbstractNode dependencyNode : dependencyFrom.keySet()) writeNode(output, dependencyNode);
+
+		output.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeSourceFile(@Nonnull DataOutputStream output, @Nullable JavaSourceFile sourceFile)
+			throws IOException {
+		output.writeBoolean(sourceFile != null);
+		if (sourceFile == null) return;
+		writeString(output, sourceFile.getModule().getName());
+		writeRelativePath(output, sourceFile.getModule().getRelativePath());
+		writeVarInt(output, sourceFile.getType().ordinal());
+		writeRelativePath(output, sourceFile.getRelativePath());
+	}
+
+	private static void writeRelativePath(@Nonnull DataOutputStream output, @Nonnull RelativePath relativePath)
+			throws IOException {
+		final List<String> components = relativePath.getComponents();
+		writeVarInt(output, components.size());
+		for (final String component : components) writeString(output, component);
+	}
+
+	private void writeInitializers(@Nonnull DataOutputStream output,
+			@Nonnull List<InitializerNode.InitializerImpl> initializers) throws IOException {
+		writeVarInt(output, initializers.size());
+		for (final InitializerNode.InitializerImpl initializer : initializers) {
+			if (initializer instanceof InitializerNode.BlockInitializerImpl) {
+				final InitializerNode.BlockInitializerImpl blockInitializer
+						= (InitializerNode.BlockInitializerImpl) initializer;
+				final BodyHash bodyHash = blockInitializer.getBodyHash();
+				addBody(bodyHash, blockInitializer::getBodyBlock);
+				output.writeByte(BLOCK_INITIALIZER);
+				writeBodyHash(output, bodyHash);
+			} else {
+				final InitializerNode.FieldInitializerImpl fieldInitializer
+						= (InitializerNode.FieldInitializerImpl) initializer;
+				final BodyHash bodyHash = fieldInitializer.getBodyHash();
+				addBody(bodyHash, fieldInitializer::getInitialExpression);
+				output.writeByte(FIELD_INITIALIZER);
+				writeNode(output, (AbstractNode) fieldInitializer.getFieldNode());
+				writeBodyHash(output, bodyHash);
+			}
+		}
+	}
+
+	// the body text is only read when it is not in the body table yet
+	private void addBody(@Nonnull BodyHash bodyHash, @Nonnull Supplier<String> bodySupplier) {
+		if (newBodies.containsKey(bodyHash) || bodyTable.contains(bodyHash)) return;
+		final String body = bodySupplier.get();
+		if (body != null) newBodies.put(bodyHash, body);
+	}
+
+	//endregion Node Record
+
+	//region Type Record
+
+	@Nonnull
+	private byte[] encodeType(@Nonnull AbstractType type) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(bytes);
+
+		final byte kind = type instanceof SimpleType ? SIMPLE_TYPE
+				: type instanceof ReferenceType ? REFERENCE_TYPE
+				: type instanceof SyntheticType ? SYNTHETIC_TYPE
+				: -1;
+		if (kind < 0) throw new IllegalArgumentException("Unknown type type!");
+		output.writeByte(kind);
+		writeString(output, typeKeys.get(type));
+		writeString(output, type.getDescription());
+		final List<Annotate> annotates = ownedAnnotates.getOrDefault(type, List.of());
+		writeVarInt(output, annotates.size());
+		for (final Annotate annotate : annotates) writeString(output, annotate.getName());
+
+		writeAnnotates(output, type.getAnnotates(), type);
+		if (type instanceof SimpleType) {
+			writeNullableType(output, ((SimpleType) type).getInnerType());
+		} else if (type instanceof ReferenceType) {
+			writeNullableNode(output, ((ReferenceType) type).getNode());
+			writeTypes(output, ((ReferenceType) type).getArguments());
+		} else {
+			writeTypes(output, ((SyntheticType) type).getBounds());
+		}
+		for (final Annotate annotate : annotates) writeAnnotateBody(output, annotate, type);
+
+		output.flush();
+		return bytes.toByteArray();
+	}
+
+	//endregion Type Record
+
+	//region Annotate
+
+	private void writeAnnotateBody(@Nonnull DataOutputStream output, @Nonnull Annotate annotate,
+			@Nonnull Object owner) throws IOException {
+		writeNullableNode(output, annotate.getNode());
+		final List<Annotate.ParameterImpl> parameters = annotate.getParameters();
+		writeVarInt(output, parameters.size());
+		for (final Annotate.ParameterImpl parameter : parameters) {
+			writeString(output, parameter.getName());
+			writeNullableNode(output, parameter.getNode());
+			writeValue(output, parameter.getValue(), owner);
+		}
+	}
+
+	private void writeValue(@Nonnull DataOutputStream output, @Nullable Annotate.ValueImpl value,
+			@Nonnull Object owner) throws IOException {
+		if (value == null) {
+			output.writeByte(NO_VALUE);
+		} else if (value instanceof Annotate.SimpleValueImpl) {
+			output.writeByte(SIMPLE_VALUE);
+			writeSimpleValue(output, ((Annotate.SimpleValueImpl) value).getValue());
+		} else if (value instanceof Annotate.NodeValueImpl) {
+			output.writeByte(NODE_VALUE);
+			writeString(output, ((Annotate.NodeValueImpl) value).getDescribe());
+			writeNullableNode(output, ((Annotate.NodeValueImpl) value).getNode());
+		} else if (value instanceof Annotate.AnnotateValueImpl) {
+			output.writeByte(ANNOTATE_VALUE);
+			final Annotate annotate = ((Annotate.AnnotateValueImpl) value).getAnnotate();
+			output.writeBoolean(annotate != null);
+			if (annotate != null) writeAnnotate(output, annotate, owner);
+		} else {
+			output.writeByte(ARRAY_VALUE);
+			final List<Annotate.NonArrayValueImpl> values = ((Annotate.ArrayValueImpl) value).getValues();
+			writeVarInt(output, values.size());
+			for (final Annotate.NonArrayValueImpl element : values) writeValue(output, element, owner);
+		}
+	}
+
+	private static void writeSimpleValue(@Nonnull DataOutputStream output, @Nonnull Object value)
+			throws IOException {
+		if (value instanceof String) {
+			output.writeByte(0);
+			writeString(output, (String) value);
+		} else if (value instanceof Boolean) {
+			output.writeByte(1);
+			output.writeBoolean((Boolean) value);
+		} else if (value instanceof Byte) {
+			output.writeByte(2);
+			output.writeByte((Byte) value);
+		} else if (value instanceof Short) {
+			output.writeByte(3);
+			output.writeShort((Short) value);
+		} else if (value instanceof Integer) {
+			output.writeByte(4);
+			output.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			output.writeByte(5);
+			output.writeLong((Long) value);
+		} else if (value instanceof Character) {
+			output.writeByte(6);
+			output.writeChar((Character) value);
+		} else if (value instanceof Float) {
+			output.writeByte(7);
+			output.writeFloat((Float) value);
+		} else {
+			output.writeByte(8);
+			output.writeDouble((Double) value);
+		}
+	}
+
+	//endregion Annotate
+
+	//region Reference
+
+	private void writeNode(@Nonnull DataOutputStream output, @Nonnull AbstractNode node) throws IOException {
+		final String key = nodeKeys.get(node);
+		if (key == null) throw new IllegalArgumentException("Node does not belong to the snapshot!");
+		writeString(output, key);
+	}
+
+	private void writeNullableNode(@Nonnull DataOutputStream output, @Nullable AbstractNode node)
+			throws IOException {
+		output.writeBoolean(node != null);
+		if (node != null) writeNode(output, node);
+	}
+
+	private void writeType(@Nonnull DataOutputStream output, @Nonnull AbstractType type) throws IOException {
+		final String key = typeKeys.get(type);
+		if (key == null) throw new IllegalStateException("Undiscovered type!");
+		writeString(output, key);
+	}
+
+	private void writeNullableType(@Nonnull DataOutputStream output, @Nullable AbstractType type)
+			throws IOException {
+		output.writeBoolean(type != null);
+		if (type != null) writeType(output, type);
+	}
+
+	private void writeTypes(@Nonnull DataOutputStream output, @Nonnull List<AbstractType> types)
+			throws IOException {
+		writeVarInt(output, types.size());
+		for (final AbstractType type : types) writeType(output, type);
+	}
+
+	private void writeAnnotate(@Nonnull DataOutputStream output, @Nonnull Annotate annotate,
+			@Nonnull Object owner) throws IOException {
+		final AnnotateOwner annotateOwner = annotateOwners.get(annotate);
+		if (annotateOwner == null) throw new IllegalStateException("Undiscovered annotate!");
+		if (annotateOwner.owner == owner) {
+			output.writeByte(LOCAL_ANNOTATE);
+		} else if (annotateOwner.owner instanceof AbstractNode) {
+			output.writeByte(NODE_ANNOTATE);
+			writeString(output, nodeKeys.get(annotateOwner.owner));
+		} else {
+			output.writeByte(TYPE_ANNOTATE);
+			writeString(output, typeKeys.get(annotateOwner.owner));
+		}
+		writeVarInt(output, annotateOwner.index);
+	}
+
+	private void writeAnnotates(@Nonnull DataOutputStream output, @Nonnull List<Annotate> annotates,
+			@Nonnull Object owner) throws IOException {
+		writeVarInt(output, annotates.size());
+		for (final Annotate annotate : annotates) writeAnnotate(output, annotate, owner);
+	}
+
+	//endregion Reference
+
+	private static final class AnnotateOwner {
+
+		@Nonnull private final Object owner;
+		private final int index;
+
+
+		AnnotateOwner(@Nonnull Object owner, int index) {
+			this.owner = owner;
+			this.index = index;
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shared layout of snapshot records. A snapshot is encoded as a list of self-contained records: one per node in
+ * pre-order, followed by one per type sorted by key. Records refer to each other by key instead of by position,
+ * so the record of an unchanged node stays byte-identical between two snapshots. Method and initializer bodies are
+ * not part of the records, they are referenced by content hash and stored once in the body table of the project.
+ */
+final class SnapshotRecords {
+
+	//region Record Kind
+
+	static final byte ROOT = 0;
+	static final byte PACKAGE = 1;
+	static final byte CLASS = 2;
+	static final byte ENUM = 3;
+	static final byte INTERFACE = 4;
+	static final byte ANNOTATION = 5;
+	static final byte FIELD = 6;
+	static final byte METHOD = 7;
+	static final byte INITIALIZER = 8;
+
+	static final byte SIMPLE_TYPE = 16;
+	static final byte REFERENCE_TYPE = 17;
+	static final byte SYNTHETIC_TYPE = 18;
+
+	//endregion Record Kind
+
+	//region Annotate Reference & Value Tag
+
+	static final byte LOCAL_ANNOTATE = 0;
+	static final byte NODE_ANNOTATE = 1;
+	static final byte TYPE_ANNOTATE = 2;
+
+	static final byte NO_VALUE = 0;
+	static final byte SIMPLE_VALUE = 1;
+	static final byte NODE_VALUE = 2;
+	static final byte ANNOTATE_VALUE = 3;
+	static final byte ARRAY_VALUE = 4;
+
+	static final byte BLOCK_INITIALIZER = 0;
+	static final byte FIELD_INITIALIZER = 1;
+
+	//endregion Annotate Reference & Value Tag
+
+
+	private SnapshotRecords() {
+	}
+
+
+	/**
+	 * @param record the record
+	 * @return the key of the record, which is stored right after the record kind
+	 */
+	@Nonnull
+	static String readKey(@Nonnull byte[] record) throws IOException {
+		final int[] position = {1};
+		final int length = readVarInt(record, position);
+		if (length < 0 || position[0] + length > record.length) throw new InvalidObjectException("Invalid record!");
+		return new String(record, position[0], length, StandardCharsets.UTF_8);
+	}
+
+	//region Primitive
+
+	static void writeVarInt(@Nonnull DataOutput output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	static int readVarInt(@Nonnull DataInput input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = input.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new InvalidObjectException("Invalid variable length integer!");
+	}
+
+	private static int readVarInt(@Nonnull byte[] bytes, @Nonnull int[] position) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32 && position[0] < bytes.length; shift += 7) {
+			final int b = bytes[position[0]++] & 0xFF;
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new InvalidObjectException("Invalid variable length integer!");
+	}
+
+	static void writeString(@Nonnull DataOutput output, @Nonnull String string) throws IOException {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(output, bytes.length);
+		output.write(bytes);
+	}
+
+	@Nonnull
+	static String readString(@Nonnull DataInput input) throws IOException {
+		final byte[] bytes = new byte[readVarInt(input)];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeNullableString(@Nonnull DataOutput output, @Nullable String string) throws IOException {
+		output.writeBoolean(string != null);
+		if (string != null) writeString(output, string);
+	}
+
+	@Nullable
+	static String readNullableString(@Nonnull DataInput input) throws IOException {
+		return input.readBoolean() ? readString(input) : null;
+	}
+
+	static void writeBodyHash(@Nonnull DataOutput output, @Nonnull BodyHash hash) throws IOException {
+		output.writeLong(hash.getHigh());
+		output.writeLong(hash.getLow());
+	}
+
+	@Nonnull
+	static BodyHash readBodyHash(@Nonnull DataInput input) throws IOException {
+		final long high = input.readLong();
+		return new BodyHash(high, input.readLong());
+	}
+
+	static void writeNullableBodyHash(@Nonnull DataOutput output, @Nullable BodyHash hash) throws IOException {
+		output.writeBoolean(hash != null);
+		if (hash != null) writeBodyHash(output, hash);
+	}
+
+	@Nullable
+	static BodyHash readNullableBodyHash(@Nonnull DataInput input) throws IOException {
+		return input.readBoolean() ? readBodyHash(input) : null;
+	}
+
+	//endregion Primitive
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache. Entries evicted from the LRU are kept softly reachable, so they can be revived
+ * without touching the disk as long as the garbage collector did not reclaim them.
+ * Not thread-safe, the owner must synchronize.
+ */
+final class StoreCache {
+
+	private final int capacity;
+	@Nonnull private final Map<Object, Object> strongMap;
+	@Nonnull private final Map<Object, SoftEntry> softMap = new HashMap<>();
+	@Nonnull private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+
+	StoreCache(int capacity) {
+		if (capacity <= 0) throw new IllegalArgumentException("Cache capacity must be positive!");
+		this.capacity = capacity;
+		this.strongMap = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1L;
+
+			@Override
+			protected boolean removeEldestEntry(@Nonnull Map.Entry<Object, Object> eldest) {
+				if (size() <= StoreCache.this.capacity) return false;
+				final Object key = eldest.getKey();
+				softMap.put(key, new SoftEntry(key, eldest.getValue(), queue));
+				return true;
+			}
+		};
+	}
+
+
+	private void purge() {
+		Reference<?> reference;
+		while ((reference = queue.poll()) != null) {
+			final SoftEntry entry = (SoftEntry) reference;
+			softMap.remove(entry.key, entry);
+		}
+	}
+
+	@Nullable
+	Object get(@Nonnull Object key) {
+		purge();
+		final Object value = strongMap.get(key);
+		if (value != null) return value;
+		final SoftEntry entry = softMap.remove(key);
+		if (entry == null) return null;
+		final Object softValue = entry.get();
+		if (softValue != null) strongMap.put(key, softValue);
+		return softValue;
+	}
+
+	void put(@Nonnull Object key, @Nonnull Object value) {
+		purge();
+		softMap.remove(key);
+		strongMap.put(key, value);
+	}
+
+	void remove(@Nonnull Object key) {
+		purge();
+		strongMap.remove(key);
+		softMap.remove(key);
+	}
+
+
+	private static final class SoftEntry extends SoftReference<Object> {
+
+		@Nonnull private final Object key;
+
+
+		SoftEntry(@Nonnull Object key, @Nonnull Object value, @Nonnull ReferenceQueue<Object> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.jdt.project.ProjectSnapshotComparison;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
+import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.helper.Jsonify;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.utils.Pair;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Comparison entry of a {@link StoredProject}. Only the metadata stays in memory, the comparison result is loaded
+ * on demand, independently of other comparisons.
+ */
+final class StoredComparison implements JavaProjectSnapshotComparison, Jsonify {
+
+	@Nonnull private final StoredProject project;
+	@Nonnull private final String name;
+	@Nonnull private final String fileName;
+	@Nonnull private final StoredSnapshot previousSnapshot;
+	@Nonnull private final StoredSnapshot currentSnapshot;
+
+
+	StoredComparison(@Nonnull StoredProject project, @Nonnull String name, @Nonnull String fileName,
+			@Nonnull StoredSnapshot previousSnapshot, @Nonnull StoredSnapshot currentSnapshot) {
+		this.project = project;
+		this.name = name;
+		this.fileName = fileName;
+		this.previousSnapshot = previousSnapshot;
+		this.currentSnapshot = currentSnapshot;
+	}
+
+
+	//region Getter
+
+	@Nonnull
+	StoredProject getProject() {
+		return project;
+	}
+
+	@Nonnull
+	String getFileName() {
+		return fileName;
+	}
+
+	@Nonnull
+	ProjectSnapshotComparison load() {
+		return project.loadComparison(this);
+	}
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Nonnull
+	@Override
+	public StoredSnapshot getPreviousSnapshot() {
+		return previousSnapshot;
+	}
+
+	@Nonnull
+	@Override
+	public StoredSnapshot getCurrentSnapshot() {
+		return currentSnapshot;
+	}
+
+	@Nonnull
+	@Override
+	public Set<JavaNode> getRemovedNodes() {
+		return load().getRemovedNodes();
+	}
+
+	@Nonnull
+	@Override
+	public Set<JavaNode> getAddedNodes() {
+		return load().getAddedNodes();
+	}
+
+	@Nonnull
+	@Override
+	public Set<Pair<JavaNode, JavaNode>> getChangedNodes() {
+		return load().getChangedNodes();
+	}
+
+	@Nonnull
+	@Override
+	public Set<Pair<JavaNode, JavaNode>> getUnchangedNodes() {
+		return load().getUnchangedNodes();
+	}
+
+	@Nonnull
+	@Override
+	public JavaDependencyWeightTable getDependencyImpactTable() {
+		return load().getDependencyImpactTable();
+	}
+
+	@Nonnull
+	@Override
+	public JavaNodeWeightTable getNodeImpactTable() {
+		return load().getNodeImpactTable();
+	}
+
+	//endregion Getter
+
+	//region Jsonify
+
+	@Nonnull
+	@Override
+	public String toJson() {
+		return load().toJson();
+	}
+
+	@Override
+	public void toJson(@Nonnull Writer writer) throws IOException {
+		load().toJson(writer);
+	}
+
+	//endregion Jsonify
+
+	@Nonnull
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,686 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.JavaCiaException;
+import mrmathami.cia.java.jdt.project.ProjectSnapshot;
+import mrmathami.cia.java.jdt.project.ProjectSnapshotComparison;
+import mrmathami.cia.java.jdt.project.builder.parameter.NodeWeightParameter;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+import mrmathami.cia.java.jdt.tree.node.RootNode;
+import mrmathami.cia.java.project.JavaNodeWeightTable;
+import mrmathami.cia.java.project.JavaProject;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Disk backed project. Every snapshot and every comparison is stored in its own file inside the project directory,
+ * only their names and dependency weights stay in memory. Node trees and comparison results are loaded on demand
+ * into a size-bounded LRU cache; evicted entries are only softly reachable until the garbage collector needs the
+ * memory back.
+ * <p>
+ * Optionally, snapshots are stored as frames of node records instead: every few snapshots a keyframe holding every
+ * record is written, the snapshots in between only hold the records that changed since the previous snapshot.
+ * Reconstructing a snapshot then never needs more than one keyframe and the deltas up to it.
+ * <p>
+ * Method and initializer bodies of every loaded snapshot live in one body table shared by the whole project, so a
+ * body that does not change between snapshots is only kept once. Frames refer to bodies by content hash, the body
+ * text is appended once to the body file of the project. Bodies are never removed from it, not even when every
+ * snapshot that refers to them is removed, so the body file grows with every distinct body the project has ever
+ * held. A project that removes many snapshots can be compacted by adding its remaining snapshots to a new project.
+ */
+public final class StoredProject implements JavaProject {
+
+	@Nonnull private static final String METADATA_FILE_NAME = "project.meta";
+	private static final int METADATA_MAGIC = 0x4A434941; // JCIA
+	private static final int METADATA_VERSION = 3;
+
+	@Nonnull private static final String BODY_FILE_NAME = "bodies.bin";
+	private static final int BODY_MAGIC = 0x4A434242; // JCBB
+	private static final int BODY_VERSION = 2;
+
+	@Nonnull private final String name;
+	@Nonnull private final Path directory;
+	@Nonnull private final StoreCache cache;
+	private final int keyframeInterval;
+	@Nonnull private final BodyTable bodyTable = new BodyTable();
+	@Nonnull private final List<StoredSnapshot> snapshots = new ArrayList<>();
+	@Nonnull private final List<StoredComparison> snapshotComparisons = new ArrayList<>();
+	// entry of every snapshot and comparison object that was added or loaded, neither class overrides equals so
+	// these are identity maps, and an object that is no longer used elsewhere does not stay here
+	@Nonnull private final Map<JavaProjectSnapshot, StoredSnapshot> storedSnapshots = new WeakHashMap<>();
+	@Nonnull private final Map<JavaProjectSnapshotComparison, StoredComparison> storedComparisons = new WeakHashMap<>();
+
+	private long nextFileId;
+
+	// the frame of the last snapshot, so that adding consecutive snapshots does not reconstruct it every time
+	@Nullable private StoredSnapshot lastFrameSnapshot;
+	@Nullable private SnapshotFrame lastFrame;
+
+
+	private StoredProject(@Nonnull String name, @Nonnull Path directory, int cacheSize, int keyframeInterval) {
+		this.name = name;
+		this.directory = directory;
+		this.cache = new StoreCache(cacheSize);
+		this.keyframeInterval = keyframeInterval;
+	}
+
+
+	/**
+	 * @param name project name
+	 * @param directory project directory, will be created if not exist
+	 * @param cacheSize maximum number of snapshots and comparisons that are strongly held in memory
+	 * @return the new empty project
+	 * @throws JavaCiaException if the directory already contains a project or cannot be written
+	 */
+	@Nonnull
+	public static StoredProject create(@Nonnull String name, @Nonnull Path directory, int cacheSize)
+			throws JavaCiaException {
+		return internalCreate(new StoredProject(name, directory, cacheSize, 0));
+	}
+
+	/**
+	 * @param name project name
+	 * @param directory project directory, will be created if not exist
+	 * @param cacheSize maximum number of snapshots and comparisons that are strongly held in memory
+	 * @param keyframeInterval every this many snapshots one is stored in full, the others are stored as deltas
+	 * against the snapshot added right before them
+	 * @return the new empty project
+	 * @throws JavaCiaException if the directory already contains a project or cannot be written
+	 */
+	@Nonnull
+	public static StoredProject create(@Nonnull String name, @Nonnull Path directory, int cacheSize,
+			int keyframeInterval) throws JavaCiaException {
+		if (keyframeInterval <= 0) throw new IllegalArgumentException("Keyframe interval must be positive!");
+		return internalCreate(new StoredProject(name, directory, cacheSize, keyframeInterval));
+	}
+
+	@Nonnull
+	private static StoredProject internalCreate(@Nonnull StoredProject project) throws JavaCiaException {
+		final Path directory = project.directory;
+		try {
+			Files.createDirectories(directory);
+			if (Files.exists(directory.resolve(METADATA_FILE_NAME))) {
+				throw new JavaCiaException("Project directory already contains a project!");
+			}
+			project.saveMetadata();
+			writeBodyFile(directory.resolve(BODY_FILE_NAME), List.of(), false);
+		} catch (IOException exception) {
+			throw new JavaCiaException("Cannot create project directory!", exception);
+		}
+		return project;
+	}
+
+	/**
+	 * @param directory project directory
+	 * @param cacheSize maximum number of snapshots and comparisons that are strongly held in memory
+	 * @return the project, with nothing but metadata and bodies loaded
+	 * @throws JavaCiaException if the directory does not contain a valid project
+	 */
+	@Nonnull
+	public static StoredProject open(@Nonnull Path directory, int cacheSize) throws JavaCiaException {
+		try (final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(directory.resolve(METADATA_FILE_NAME))))) {
+			final int version;
+			if (inputStream.readInt() != METADATA_MAGIC
+					|| (version = inputStream.readInt()) < 1 || version > METADATA_VERSION) {
+				throw new JavaCiaException("Invalid project metadata!");
+			}
+			final String projectName = inputStream.readUTF();
+			final long nextFileId = inputStream.readLong();
+			final int keyframeInterval = version >= 2 ? inputStream.readInt() : 0;
+			final StoredProject project = new StoredProject(projectName, directory, cacheSize, keyframeInterval);
+			project.nextFileId = nextFileId;
+
+			final int snapshotCount = inputStream.readInt();
+			for (int i = 0; i < snapshotCount; i++) {
+				final String snapshotName = inputStream.readUTF();
+				final String fileName = inputStream.readUTF();
+				final double[] dependencyWeights = new double[JavaDependency.VALUE_LIST.size()];
+				for (int j = 0; j < dependencyWeights.length; j++) dependencyWeights[j] = inputStream.readDouble();
+				final NodeWeightParameter nodeWeightParameter
+						= version >= 3 ? readNodeWeightParameter(inputStream) : null;
+				final int storageOrdinal = version >= 2 ? inputStream.readByte() : 0;
+				final int baseIndex = version >= 2 ? inputStream.readInt() : -1;
+				if (storageOrdinal < 0 || storageOrdinal >= StoredSnapshot.Storage.VALUE_LIST.size()
+						|| baseIndex >= i) {
+					throw new JavaCiaException("Invalid project metadata!");
+				}
+				final StoredSnapshot.Storage storage = StoredSnapshot.Storage.VALUE_LIST.get(storageOrdinal);
+				final StoredSnapshot baseSnapshot = baseIndex >= 0 ? project.snapshots.get(baseIndex) : null;
+				if ((storage == StoredSnapshot.Storage.DELTA) != (baseSnapshot != null)
+						|| baseSnapshot != null && baseSnapshot.getStorage() == StoredSnapshot.Storage.SERIALIZED) {
+					throw new JavaCiaException("Invalid project metadata!");
+				}
+				project.snapshots.add(new StoredSnapshot(project, snapshotName, fileName, dependencyWeights,
+						nodeWeightParameter, storage, baseSnapshot));
+			}
+
+			final int comparisonCount = inputStream.readInt();
+			for (int i = 0; i < comparisonCount; i++) {
+				final String comparisonName = inputStream.readUTF();
+				final String fileName = inputStream.readUTF();
+				final int previousIndex = inputStream.readInt();
+				final int currentIndex = inputStream.readInt();
+				if (previousIndex < 0 || previousIndex >= snapshotCount
+						|| currentIndex < 0 || currentIndex >= snapshotCount) {
+					throw new JavaCiaException("Invalid project metadata!");
+				}
+				project.snapshotComparisons.add(new StoredComparison(project, comparisonName, fileName,
+						project.snapshots.get(previousIndex), project.snapshots.get(currentIndex)));
+			}
+			project.loadBodies();
+			return project;
+		} catch (IOException exception) {
+			throw new JavaCiaException("Cannot read project metadata!", exception);
+		}
+	}
+
+
+	@Nullable
+	private static NodeWeightParameter readNodeWeightParameter(@Nonnull DataInputStream inputStream)
+			throws IOException, JavaCiaException {
+		final int strategyOrdinal = inputStream.readByte();
+		final NodeWeightParameter.Strategy[] strategies = NodeWeightParameter.Strategy.values();
+		if (strategyOrdinal < 0 || strategyOrdinal >= strategies.length) {
+			throw new JavaCiaException("Invalid project metadata!");
+		}
+		if (strategies[strategyOrdinal] == NodeWeightParameter.Strategy.DEPENDENCY_COUNT) return null;
+		final double dampingFactor = inputStream.readDouble();
+		final double tolerance = inputStream.readDouble();
+		final int maxIterations = inputStream.readInt();
+		try {
+			return new NodeWeightParameter(strategies[strategyOrdinal], dampingFactor, tolerance, maxIterations);
+		} catch (IllegalArgumentException exception) {
+			throw new JavaCiaException("Invalid project metadata!", exception);
+		}
+	}
+
+	private static void writeNodeWeightParameter(@Nonnull DataOutputStream outputStream,
+			@Nullable NodeWeightParameter nodeWeightParameter) throws IOException {
+		if (nodeWeightParameter == null) {
+			outputStream.writeByte(NodeWeightParameter.Strategy.DEPENDENCY_COUNT.ordinal());
+			return;
+		}
+		outputStream.writeByte(nodeWeightParameter.getStrategy().ordinal());
+		outputStream.writeDouble(nodeWeightParameter.getDampingFactor());
+		outputStream.writeDouble(nodeWeightParameter.getTolerance());
+		outputStream.writeInt(nodeWeightParameter.getMaxIterations());
+	}
+
+
+	//region Storage
+
+	private void saveMetadata() throws IOException {
+		final Path temporaryPath = directory.resolve(METADATA_FILE_NAME + ".tmp");
+		try (final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(temporaryPath)))) {
+			outputStream.writeInt(METADATA_MAGIC);
+			outputStream.writeInt(METADATA_VERSION);
+			outputStream.writeUTF(name);
+			outputStream.writeLong(nextFileId);
+			outputStream.writeInt(keyframeInterval);
+
+			outputStream.writeInt(snapshots.size());
+			for (final StoredSnapshot snapshot : snapshots) {
+				outputStream.writeUTF(snapshot.getName());
+				outputStream.writeUTF(snapshot.getFileName());
+				for (final double weight : snapshot.getDependencyWeights()) outputStream.writeDouble(weight);
+				writeNodeWeightParameter(outputStream, snapshot.getNodeWeightParameter());
+				outputStream.writeByte(snapshot.getStorage().ordinal());
+				final StoredSnapshot baseSnapshot = snapshot.getBaseSnapshot();
+				outputStream.writeInt(baseSnapshot != null ? snapshots.indexOf(baseSnapshot) : -1);
+			}
+
+			outputStream.writeInt(snapshotComparisons.size());
+			for (final StoredComparison comparison : snapshotComparisons) {
+				outputStream.writeUTF(comparison.getName());
+				outputStream.writeUTF(comparison.getFileName());
+				outputStream.writeInt(snapshots.indexOf(comparison.getPreviousSnapshot()));
+				outputStream.writeInt(snapshots.indexOf(comparison.getCurrentSnapshot()));
+			}
+		}
+		Files.move(temporaryPath, directory.resolve(METADATA_FILE_NAME),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void internalSaveMetadata() {
+		try {
+			saveMetadata();
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Cannot write project metadata!", exception);
+		}
+	}
+
+	@Nonnull
+	synchronized ProjectSnapshot loadSnapshot(@Nonnull StoredSnapshot snapshot) {
+		final Object cached = cache.get(snapshot);
+		if (cached != null) return (ProjectSnapshot) cached;
+
+		if (snapshot.getStorage() != StoredSnapshot.Storage.SERIALIZED) {
+			try {
+				final SnapshotFrame frame = loadFrame(snapshot);
+				final RootNode rootNode = SnapshotRecordDecoder.decode(frame.getRecords(), bodyTable);
+				if (frame.getNodeWeights().length != rootNode.getAllNodes().size()) {
+					throw new InvalidObjectException("Node weight count mismatch!");
+				}
+				final ProjectSnapshot projectSnapshot = new ProjectSnapshot(snapshot.getName(), rootNode,
+						snapshot.getDependencyWeights(), frame.getNodeWeights(), snapshot.getNodeWeightParameter());
+				cache.put(snapshot, projectSnapshot);
+				storedSnapshots.put(projectSnapshot, snapshot);
+				return projectSnapshot;
+			} catch (IOException exception) {
+				throw new UncheckedIOException("Cannot read project snapshot \"" + snapshot.getName() + "\"!",
+						exception);
+			}
+		}
+
+		try (final ObjectInputStream inputStream = new ObjectInputStream(new BufferedInputStream(
+				Files.newInputStream(directory.resolve(snapshot.getFileName()))))) {
+			final ProjectSnapshot projectSnapshot = (ProjectSnapshot) inputStream.readObject();
+			storeBodies(projectSnapshot);
+			cache.put(snapshot, projectSnapshot);
+			storedSnapshots.put(projectSnapshot, snapshot);
+			return projectSnapshot;
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Cannot read project snapshot \"" + snapshot.getName() + "\"!", exception);
+		} catch (ClassNotFoundException | ClassCastException exception) {
+			throw new IllegalStateException("Invalid project snapshot \"" + snapshot.getName() + "\"!", exception);
+		}
+	}
+
+	@Nonnull
+	private SnapshotFrame loadFrame(@Nonnull StoredSnapshot snapshot) throws IOException {
+		if (snapshot == lastFrameSnapshot && lastFrame != null) return lastFrame;
+		final StoredSnapshot baseSnapshot = snapshot.getBaseSnapshot();
+		final SnapshotFrame baseFrame = baseSnapshot != null ? loadFrame(baseSnapshot) : null;
+		try (final InputStream inputStream = new BufferedInputStream(
+				Files.newInputStream(directory.resolve(snapshot.getFileName())))) {
+			return SnapshotFrame.read(inputStream, baseFrame);
+		}
+	}
+
+	/**
+	 * @param projectSnapshot the snapshot
+	 * @param newBodies receives every body of the snapshot that is not in the body table yet
+	 * @return the frame of the snapshot
+	 * @throws IOException should not happen, the frame is created in memory
+	 */
+	@Nonnull
+	private SnapshotFrame createFrame(@Nonnull JavaProjectSnapshot projectSnapshot,
+			@Nonnull Map<BodyHash, String> newBodies) throws IOException {
+		final JavaRootNode rootNode = projectSnapshot.getRootNode();
+		final JavaNodeWeightTable nodeWeightTable = projectSnapshot.getNodeWeightTable();
+		final List<? extends JavaNode> allNodes = rootNode.getAllNodes();
+		final double[] nodeWeights = new double[allNodes.size()];
+		for (final JavaNode node : allNodes) nodeWeights[node.getId()] = nodeWeightTable.getWeight(node);
+		return new SnapshotFrame(SnapshotRecordEncoder.encode(rootNode, bodyTable, newBodies), nodeWeights);
+	}
+
+	/**
+	 * The body file is a header followed by batches of bodies, each of them a block of the body table with the hash
+	 * and the length of every body in front of it. Only those are read here, the bodies stay deflated until one of
+	 * them is read. A body file of the first version, which only holds the deflated text of the bodies, is written
+	 * again as batches. A project that only has serialized snapshots might not have a body file.
+	 */
+	private void loadBodies() throws IOException {
+		final Path path = directory.resolve(BODY_FILE_NAME);
+		if (!Files.exists(path)) return;
+		final Map<BodyHash, String> oldBodies = new LinkedHashMap<>();
+		try (final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(path)))) {
+			final int version;
+			if (inputStream.readInt() != BODY_MAGIC
+					|| (version = inputStream.readInt()) < 1 || version > BODY_VERSION) {
+				throw new InvalidObjectException("Invalid body file!");
+			}
+			while (true) {
+				final int length;
+				try {
+					length = inputStream.readInt();
+				} catch (EOFException exception) {
+					break;
+				}
+				if (length <= 0) throw new InvalidObjectException("Invalid body batch!");
+				final byte[] batch = new byte[length];
+				inputStream.readFully(batch);
+				if (version >= 2) {
+					BodyBatch.read(batch).addTo(bodyTable);
+				} else {
+					final DataInputStream batchStream = new DataInputStream(
+							new InflaterInputStream(new ByteArrayInputStream(batch)));
+					final int count = SnapshotRecords.readVarInt(batchStream);
+					for (int i = 0; i < count; i++) {
+						final String body = SnapshotRecords.readString(batchStream);
+						oldBodies.put(BodyHash.of(body), body);
+					}
+				}
+			}
+		}
+		if (!oldBodies.isEmpty()) {
+			final List<BodyBatch> batches = BodyBatch.of(oldBodies);
+			final Path temporaryPath = directory.resolve(BODY_FILE_NAME + ".tmp");
+			writeBodyFile(temporaryPath, batches, false);
+			Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			for (final BodyBatch batch : batches) batch.addTo(bodyTable);
+		}
+	}
+
+	private void appendBodies(@Nonnull Map<BodyHash, String> bodies) throws IOException {
+		if (bodies.isEmpty()) return;
+		final List<BodyBatch> batches = BodyBatch.of(bodies);
+		final Path path = directory.resolve(BODY_FILE_NAME);
+		writeBodyFile(path, batches, Files.exists(path));
+		for (final BodyBatch batch : batches) batch.addTo(bodyTable);
+	}
+
+	private static void writeBodyFile(@Nonnull Path path, @Nonnull List<BodyBatch> batches, boolean append)
+			throws IOException {
+		try (final DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(append
+				? Files.newOutputStream(path, StandardOpenOption.APPEND)
+				: Files.newOutputStream(path)))) {
+			if (!append) {
+				outputStream.writeInt(BODY_MAGIC);
+				outputStream.writeInt(BODY_VERSION);
+			}
+			for (final BodyBatch batch : batches) batch.write(outputStream);
+		}
+	}
+
+	private void storeBodies(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		final JavaRootNode rootNode = projectSnapshot.getRootNode();
+		if (rootNode instanceof RootNode) ((RootNode) rootNode).storeBodies(bodyTable);
+	}
+
+	@Nonnull
+	synchronized ProjectSnapshotComparison loadComparison(@Nonnull StoredComparison comparison) {
+		final Object cached = cache.get(comparison);
+		if (cached != null) return (ProjectSnapshotComparison) cached;
+
+		// the loaded comparison holds the loaded snapshots, so they stay the same while it is alive
+		final ProjectSnapshot previousSnapshot = loadSnapshot(comparison.getPreviousSnapshot());
+		final ProjectSnapshot currentSnapshot = loadSnapshot(comparison.getCurrentSnapshot());
+		try (final ComparisonInputStream inputStream = new ComparisonInputStream(new BufferedInputStream(
+				Files.newInputStream(directory.resolve(comparison.getFileName()))),
+				previousSnapshot, currentSnapshot)) {
+			final ProjectSnapshotComparison snapshotComparison
+					= (ProjectSnapshotComparison) inputStream.readObject();
+			cache.put(comparison, snapshotComparison);
+			storedComparisons.put(snapshotComparison, comparison);
+			return snapshotComparison;
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Cannot read snapshot comparison \""
+					+ comparison.getName() + "\"!", exception);
+		} catch (ClassNotFoundException | ClassCastException exception) {
+			throw new IllegalStateException("Invalid snapshot comparison \"" + comparison.getName() + "\"!",
+					exception);
+		}
+	}
+
+	@Nonnull
+	private String nextFileName(@Nonnull String prefix) {
+		return prefix + '-' + nextFileId++ + ".bin";
+	}
+
+	private void deleteFile(@Nonnull String fileName) {
+		try {
+			Files.deleteIfExists(directory.resolve(fileName));
+		} catch (IOException exception) {
+			throw new UncheckedIOException("Cannot delete \"" + fileName + "\"!", exception);
+		}
+	}
+
+	//endregion Storage
+
+	//region Lookup
+
+	@Nullable
+	private StoredSnapshot findSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		if (projectSnapshot instanceof StoredSnapshot) {
+			return ((StoredSnapshot) projectSnapshot).getProject() == this
+					&& snapshots.contains(projectSnapshot) ? (StoredSnapshot) projectSnapshot : null;
+		}
+		if (!(projectSnapshot instanceof ProjectSnapshot)) {
+			throw new IllegalArgumentException("Input project snapshot is not JDT based.");
+		}
+		return storedSnapshots.get(projectSnapshot);
+	}
+
+	@Nullable
+	private StoredComparison findComparison(@Nonnull JavaProjectSnapshotComparison snapshotComparison) {
+		if (snapshotComparison instanceof StoredComparison) {
+			return ((StoredComparison) snapshotComparison).getProject() == this
+					&& snapshotComparisons.contains(snapshotComparison) ? (StoredComparison) snapshotComparison : null;
+		}
+		if (!(snapshotComparison instanceof ProjectSnapshotComparison)) {
+			throw new IllegalArgumentException("Input project snapshot comparison is not JDT based.");
+		}
+		return storedComparisons.get(snapshotComparison);
+	}
+
+	@Nonnull
+	private StoredSnapshot internalAddSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		final StoredSnapshot existingSnapshot = findSnapshot(projectSnapshot);
+		if (existingSnapshot != null) return existingSnapshot;
+		if (projectSnapshot instanceof StoredSnapshot) {
+			throw new IllegalArgumentException("Input project snapshot belongs to another project.");
+		}
+
+		final String fileName = nextFileName("snapshot");
+		final StoredSnapshot.Storage storage;
+		final StoredSnapshot baseSnapshot;
+		SnapshotFrame frame = null;
+		if (keyframeInterval <= 0) {
+			storage = StoredSnapshot.Storage.SERIALIZED;
+			baseSnapshot = null;
+		} else {
+			// the snapshot added right before is the most likely to be almost the same
+			final StoredSnapshot lastSnapshot = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+			baseSnapshot = lastSnapshot != null && lastSnapshot.getStorage() != StoredSnapshot.Storage.SERIALIZED
+					&& lastSnapshot.getDeltaDepth() + 1 < keyframeInterval ? lastSnapshot : null;
+			storage = baseSnapshot != null ? StoredSnapshot.Storage.DELTA : StoredSnapshot.Storage.KEYFRAME;
+		}
+		try (final OutputStream outputStream = new BufferedOutputStream(
+				Files.newOutputStream(directory.resolve(fileName)))) {
+			if (storage == StoredSnapshot.Storage.SERIALIZED) {
+				final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+				objectOutputStream.writeObject(projectSnapshot);
+				objectOutputStream.flush();
+			} else {
+				// the bodies are written before the frame that refers to them
+				final Map<BodyHash, String> newBodies = new LinkedHashMap<>();
+				frame = createFrame(projectSnapshot, newBodies);
+				appendBodies(newBodies);
+				frame.write(outputStream, baseSnapshot != null ? loadFrame(baseSnapshot) : null);
+			}
+		} catch (IOException exception) {
+			deleteFile(fileName);
+			throw new UncheckedIOException("Cannot write project snapshot \""
+					+ projectSnapshot.getName() + "\"!", exception);
+		}
+
+		final JavaDependencyWeightTable weightTable = projectSnapshot.getDependencyWeightTable();
+		final double[] dependencyWeights = new double[JavaDependency.VALUE_LIST.size()];
+		for (final JavaDependency type : JavaDependency.VALUE_LIST) {
+			dependencyWeights[type.ordinal()] = weightTable.getWeight(type);
+		}
+
+		final StoredSnapshot snapshot = new StoredSnapshot(this, projectSnapshot.getName(), fileName,
+				dependencyWeights, ((ProjectSnapshot) projectSnapshot).getNodeWeightParameter(), storage, baseSnapshot);
+		snapshots.add(snapshot);
+		storeBodies(projectSnapshot);
+		cache.put(snapshot, projectSnapshot);
+		storedSnapshots.put(projectSnapshot, snapshot);
+		if (frame != null) {
+			this.lastFrameSnapshot = snapshot;
+			this.lastFrame = frame;
+		}
+		return snapshot;
+	}
+
+	//endregion Lookup
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Nonnull
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Nonnull
+	@Override
+	public synchronized List<? extends JavaProjectSnapshot> getSnapshots() {
+		return Collections.unmodifiableList(new ArrayList<>(snapshots));
+	}
+
+	@Nonnull
+	@Override
+	public synchronized List<? extends JavaProjectSnapshotComparison> getSnapshotComparisons() {
+		return Collections.unmodifiableList(new ArrayList<>(snapshotComparisons));
+	}
+
+	@Override
+	public synchronized boolean containsSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		return findSnapshot(projectSnapshot) != null;
+	}
+
+	@Override
+	public synchronized boolean containsSnapshotComparison(
+			@Nonnull JavaProjectSnapshotComparison snapshotComparison) {
+		return findComparison(snapshotComparison) != null;
+	}
+
+	@Override
+	public synchronized boolean addSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		if (findSnapshot(projectSnapshot) != null) return false;
+		internalAddSnapshot(projectSnapshot);
+		internalSaveMetadata();
+		return true;
+	}
+
+	@Override
+	public synchronized boolean addSnapshotComparison(@Nonnull JavaProjectSnapshotComparison snapshotComparison) {
+		if (findComparison(snapshotComparison) != null) return false;
+		if (snapshotComparison instanceof StoredComparison) {
+			throw new IllegalArgumentException("Input project snapshot comparison belongs to another project.");
+		}
+
+		final JavaProjectSnapshot previousSnapshot = snapshotComparison.getPreviousSnapshot();
+		final JavaProjectSnapshot currentSnapshot = snapshotComparison.getCurrentSnapshot();
+		final StoredSnapshot storedPreviousSnapshot = internalAddSnapshot(previousSnapshot);
+		final StoredSnapshot storedCurrentSnapshot = internalAddSnapshot(currentSnapshot);
+
+		final String fileName = nextFileName("comparison");
+		try (final ComparisonOutputStream outputStream = new ComparisonOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(directory.resolve(fileName))), previousSnapshot, currentSnapshot)) {
+			outputStream.writeObject(snapshotComparison);
+		} catch (IOException exception) {
+			deleteFile(fileName);
+			internalSaveMetadata();
+			throw new UncheckedIOException("Cannot write snapshot comparison \""
+					+ snapshotComparison.getName() + "\"!", exception);
+		}
+
+		final StoredComparison comparison = new StoredComparison(this, snapshotComparison.getName(), fileName,
+				storedPreviousSnapshot, storedCurrentSnapshot);
+		snapshotComparisons.add(comparison);
+		cache.put(comparison, snapshotComparison);
+		storedComparisons.put(snapshotComparison, comparison);
+		internalSaveMetadata();
+		return true;
+	}
+
+	/**
+	 * A snapshot that is still used by a comparison, or that another snapshot is stored as a delta against,
+	 * cannot be removed. The bodies of a removed snapshot stay in the body file.
+	 */
+	@Override
+	public synchronized boolean removeSnapshot(@Nonnull JavaProjectSnapshot projectSnapshot) {
+		final StoredSnapshot snapshot = findSnapshot(projectSnapshot);
+		if (snapshot == null) return false;
+		for (final StoredComparison comparison : snapshotComparisons) {
+			if (comparison.getPreviousSnapshot() == snapshot || comparison.getCurrentSnapshot() == snapshot) {
+				return false;
+			}
+		}
+		for (final StoredSnapshot otherSnapshot : snapshots) {
+			if (otherSnapshot.getBaseSnapshot() == snapshot) return false;
+		}
+		snapshots.remove(snapshot);
+		cache.remove(snapshot);
+		storedSnapshots.values().removeIf(storedSnapshot -> storedSnapshot == snapshot);
+		if (lastFrameSnapshot == snapshot) {
+			this.lastFrameSnapshot = null;
+			this.lastFrame = null;
+		}
+		internalSaveMetadata();
+		deleteFile(snapshot.getFileName());
+		return true;
+	}
+
+	@Override
+	public synchronized boolean removeSnapshotComparison(
+			@Nonnull JavaProjectSnapshotComparison snapshotComparison) {
+		final StoredComparison comparison = findComparison(snapshotComparison);
+		if (comparison == null) return false;
+		snapshotComparisons.remove(comparison);
+		cache.remove(comparison);
+		storedComparisons.values().removeIf(storedComparison -> storedComparison == comparison);
+		internalSaveMetadata();
+		deleteFile(comparison.getFileName());
+		return true;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.project.store;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.project.NodeTable;
+import mrmathami.cia.java.jdt.project.NodeWeightTable;
+import mrmathami.cia.java.jdt.project.ProjectSnapshot;
+import mrmathami.cia.java.jdt.project.builder.parameter.NodeWeightParameter;
+import mrmathami.cia.java.jdt.tree.dependency.DependencyWeightTable;
+import mrmathami.cia.java.project.JavaProjectSnapshot;
+import mrmathami.cia.java.tree.node.JavaRootNode;
+
+import java.util.List;
+
+/**
+ * Snapshot entry of a {@link StoredProject}. Only the metadata stays in memory, the node tree is loaded on demand.
+ */
+final class StoredSnapshot implements JavaProjectSnapshot {
+
+	@Nonnull private final StoredProject project;
+	@Nonnull private final String name;
+	@Nonnull private final String fileName;
+	@Nonnull private final double[] dependencyWeights;
+	@Nullable private final NodeWeightParameter nodeWeightParameter;
+	@Nonnull private final Storage storage;
+	@Nullable private final StoredSnapshot baseSnapshot;
+
+	@Nullable private DependencyWeightTable dependencyWeightTable;
+
+
+	StoredSnapshot(@Nonnull StoredProject project, @Nonnull String name, @Nonnull String fileName,
+			@Nonnull double[] dependencyWeights, @Nullable NodeWeightParameter nodeWeightParameter,
+			@Nonnull Storage storage, @Nullable StoredSnapshot baseSnapshot) {
+		assert (storage == Storage.DELTA) == (baseSnapshot != null) : "Only delta snapshot has a base snapshot!";
+		this.project = project;
+		this.name = name;
+		this.fileName = fileName;
+		this.dependencyWeights = dependencyWeights;
+		this.nodeWeightParameter = nodeWeightParameter;
+		this.storage = storage;
+		this.baseSnapshot = baseSnapshot;
+	}
+
+
+	//region Getter
+
+	@Nonnull
+	StoredProject getProject() {
+		return project;
+	}
+
+	@Nonnull
+	String getFileName() {
+		return fileName;
+	}
+
+	@Nonnull
+	double[] getDependencyWeights() {
+		return dependencyWeights;
+	}
+
+	/**
+	 * @return the node weight strategy of the snapshot, or null if its node weights are the weighted dependency counts
+	 */
+	@Nullable
+	NodeWeightParameter getNodeWeightParameter() {
+		return nodeWeightParameter;
+	}
+
+	@Nonnull
+	Storage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * @return the snapshot this one is stored as a delta against, or null if it is stored in full
+	 */
+	@Nullable
+	StoredSnapshot getBaseSnapshot() {
+		return baseSnapshot;
+	}
+
+	/**
+	 * @return number of deltas that have to be applied on top of a keyframe to reconstruct this snapshot
+	 */
+	int getDeltaDepth() {
+		int depth = 0;
+		for (StoredSnapshot snapshot = baseSnapshot; snapshot != null; snapshot = snapshot.baseSnapshot) depth += 1;
+		return depth;
+	}
+
+	@Nonnull
+	ProjectSnapshot load() {
+		return project.loadSnapshot(this);
+	}
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Nonnull
+	@Override
+	public JavaRootNode getRootNode() {
+		return load().getRootNode();
+	}
+
+	@Nonnull
+	@Override
+	public DependencyWeightTable getDependencyWeightTable() {
+		return dependencyWeightTable != null ? dependencyWeightTable
+				: (this.dependencyWeightTable = new DependencyWeightTable(dependencyWeights));
+	}
+
+	@Nonnull
+	@Override
+	public NodeWeightTable getNodeWeightTable() {
+		return load().getNodeWeightTable();
+	}
+
+	@Nonnull
+	public NodeTable getNodeTable() {
+		return load().getNodeTable();
+	}
+
+	//endregion Getter
+
+	@Nonnull
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	enum Storage {
+		/**
+		 * Serialized project snapshot.
+		 */
+		SERIALIZED,
+		/**
+		 * Snapshot frame holding every record.
+		 */
+		KEYFRAME,
+		/**
+		 * Snapshot frame holding the difference from the frame of the base snapshot.
+		 */
+		DELTA;
+
+		@Nonnull static final List<Storage> VALUE_LIST = List.of(values());
+	}
+
+}
@@ -24,6 +24,9 @@ import mrmathami.cia.java.tree.JavaEntity;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 
@@ -67,66 +70,85 @@ public abstract class AbstractEntity implements JavaEntity, Serializable {
 	@Nonnull
 	@Override
 	public final String toJson() {
-		final StringBuilder builder = new StringBuilder("{ ");
-		internalToJson(builder, "");
-		return builder.append(" }").toString();
+		final StringWriter writer = new StringWriter();
+		try {
+			toJson(writer);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return writer.toString();
 	}
 
-	public abstract void internalToJson(@Nonnull StringBuilder builder, @Nonnull String indentation);
+	@Override
+	public final void toJson(@Nonnull Writer writer) throws IOException {
+		writer.write("{ ");
+		internalToJson(writer, "");
+		writer.write(" }");
+	}
 
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
+	public abstract void internalToJson(@Nonnull Writer writer, @Nonnull String indentation) throws IOException;
+
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
 	}
 
-	protected void internalToJsonEnd(@Nonnull StringBuilder builder, @Nonnull String indentation) {
+	protected void internalToJsonEnd(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
 	}
 
 	//endregion Jsonify
 
 	//region Jsonify Helper
 
-	protected static void internalArrayToReferenceJson(@Nonnull StringBuilder builder,
-			@Nonnull String indentation, @Nonnull List<? extends AbstractIdentifiedEntity> entities) {
+	@Nonnull private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	protected static void internalArrayToReferenceJson(@Nonnull Writer writer, @Nonnull String indentation,
+			@Nonnull List<? extends AbstractIdentifiedEntity> entities) throws IOException {
 		boolean next = false;
 		for (final AbstractIdentifiedEntity entity : entities) {
-			builder.append(next ? ",\n\t" : "\n\t").append(indentation).append("{ ");
-			entity.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(next ? ",\n\t" : "\n\t").append(indentation).append("{ ");
+			entity.internalToReferenceJson(writer);
+			writer.append(" }");
 			next = true;
 		}
 	}
 
-	protected static void internalArrayToJson(@Nonnull StringBuilder builder, @Nonnull String indentation,
-			boolean increaseIndentation, @Nonnull List<? extends AbstractEntity> entities) {
+	protected static void internalArrayToJson(@Nonnull Writer writer, @Nonnull String indentation,
+			boolean increaseIndentation, @Nonnull List<? extends AbstractEntity> entities) throws IOException {
+		final String childIndentation = increaseIndentation ? indentation + '\t' : indentation;
 		boolean next = false;
 		for (final AbstractEntity jsonify : entities) {
-			builder.append(next ? ",\n\t" : "\n\t").append(indentation).append("{ ");
-			jsonify.internalToJson(builder, increaseIndentation ? indentation + '\t' : indentation);
-			builder.append(" }");
+			writer.append(next ? ",\n\t" : "\n\t").append(indentation).append("{ ");
+			jsonify.internalToJson(writer, childIndentation);
+			writer.append(" }");
 			next = true;
 		}
 	}
 
-	protected static void internalEscapeString(@Nonnull StringBuilder builder, @Nonnull String string) {
-		for (final int codePoint : string.codePoints().toArray()) {
-			if (codePoint == '\\' || codePoint == '/' || codePoint == '"') {
-				builder.append('\\').appendCodePoint(codePoint);
-			} else if (codePoint == '\b') {
-				builder.append("\\b");
-			} else if (codePoint == '\f') {
-				builder.append("\\f");
-			} else if (codePoint == '\n') {
-				builder.append("\\n");
-			} else if (codePoint == '\r') {
-				builder.append("\\r");
-			} else if (codePoint == '\t') {
-				builder.append("\\t");
-			} else if (codePoint < 32) {
-				builder.append("\\u00").append(codePoint <= 0xF ? '0' : '1')
-						.append((codePoint <= 0x9 ? '0' : 49) + (codePoint & 0xF));
+	public static void internalEscapeString(@Nonnull Writer writer, @Nonnull String string) throws IOException {
+		// only ASCII characters need escaping, surrogate pairs can be written through as is
+		final int length = string.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = string.charAt(i);
+			if (c >= 32 && c != '\\' && c != '/' && c != '"') continue;
+			if (start < i) writer.write(string, start, i - start);
+			start = i + 1;
+			if (c == '\\' || c == '/' || c == '"') {
+				writer.append('\\').append(c);
+			} else if (c == '\b') {
+				writer.write("\\b");
+			} else if (c == '\f') {
+				writer.write("\\f");
+			} else if (c == '\n') {
+				writer.write("\\n");
+			} else if (c == '\r') {
+				writer.write("\\r");
+			} else if (c == '\t') {
+				writer.write("\\t");
 			} else {
-				builder.appendCodePoint(codePoint);
+				writer.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
 			}
 		}
+		if (start < length) writer.write(string, start, length - start);
 	}
 
 	//endregion Jsonify Helper
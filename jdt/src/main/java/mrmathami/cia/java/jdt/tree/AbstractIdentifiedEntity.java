@@ -22,6 +22,8 @@ import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.tree.JavaIdentifiedEntity;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -66,25 +68,25 @@ public abstract class AbstractIdentifiedEntity extends AbstractEntity implements
 	//region Jsonify
 
 	@Override
-	public final void internalToJson(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		internalToReferenceJson(builder);
-		internalToJsonStart(builder, indentation);
-		internalToJsonEnd(builder, indentation);
+	public final void internalToJson(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		internalToReferenceJson(writer);
+		internalToJsonStart(writer, indentation);
+		internalToJsonEnd(writer, indentation);
 	}
 
-	public final void internalToReferenceJson(@Nonnull StringBuilder builder) {
-		builder.append("\"entityClass\": \"").append(getEntityClass())
+	public final void internalToReferenceJson(@Nonnull Writer writer) throws IOException {
+		writer.append("\"entityClass\": \"").append(getEntityClass())
 				.append("\", \"idClass\": \"").append(getIdClass())
-				.append("\", \"id\": ").append(id);
-		internalToReferenceJsonStart(builder);
-		internalToReferenceJsonEnd(builder);
+				.append("\", \"id\": ").append(String.valueOf(id));
+		internalToReferenceJsonStart(writer);
+		internalToReferenceJsonEnd(writer);
 	}
 
 
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
 	}
 
-	protected void internalToReferenceJsonEnd(@Nonnull StringBuilder builder) {
+	protected void internalToReferenceJsonEnd(@Nonnull Writer writer) throws IOException {
 	}
 
 	//endregion Jsonify
@@ -21,6 +21,9 @@ package mrmathami.cia.java.jdt.tree;
 import mrmathami.annotations.Nonnull;
 import mrmathami.cia.java.tree.JavaNonIdentifiedEntity;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public abstract class AbstractNonIdentifiedEntity extends AbstractEntity implements JavaNonIdentifiedEntity {
 
 	private static final long serialVersionUID = -1L;
@@ -28,10 +31,10 @@ public abstract class AbstractNonIdentifiedEntity extends AbstractEntity impleme
 	//region Jsonify
 
 	@Override
-	public final void internalToJson(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		builder.append("\"entityClass\": \"").append(getEntityClass()).append('"');
-		internalToJsonStart(builder, indentation);
-		internalToJsonEnd(builder, indentation);
+	public final void internalToJson(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		writer.append("\"entityClass\": \"").append(getEntityClass()).append('"');
+		internalToJsonStart(writer, indentation);
+		internalToJsonEnd(writer, indentation);
 	}
 
 	//endregion Jsonify
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.tree;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content address of a body text: the first 128 bits of its SHA-256 digest. Two bodies with the same hash are
+ * treated as the same body.
+ */
+public final class BodyHash implements Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	private final long high;
+	private final long low;
+
+
+	public BodyHash(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+
+	@Nonnull
+	public static BodyHash of(@Nonnull String body) {
+		return of(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Nonnull
+	static BodyHash of(@Nonnull byte[] bytes) {
+		try {
+			final ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(bytes));
+			return new BodyHash(digest.getLong(), digest.getLong());
+		} catch (NoSuchAlgorithmException exception) {
+			throw new IllegalStateException("SHA-256 is not available!", exception);
+		}
+	}
+
+
+	//region Getter
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	//endregion Getter
+
+	@Override
+	public boolean equals(@Nullable Object object) {
+		if (this == object) return true;
+		if (!(object instanceof BodyHash)) return false;
+		final BodyHash hash = (BodyHash) object;
+		return high == hash.high && low == hash.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) high;
+	}
+
+	@Nonnull
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+}
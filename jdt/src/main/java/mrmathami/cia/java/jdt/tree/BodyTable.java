@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.tree;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed compressed storage for method bodies and initializer code. Every body is stored once, no matter
+ * how many nodes refer to it, and is looked up by its {@link BodyHash}. A tree fills its own table when it is
+ * frozen; a table can also be shared by every snapshot of a project, so that a body which does not change between
+ * snapshots is held only once.
+ * <p>
+ * Bodies are packed into blocks that are deflated independently, so reading a body only inflates its own block.
+ * Inflated blocks are kept softly reachable. Bodies are copied between tables, and deflated blocks are added, by
+ * their hashes, without being decoded or hashed again. A serialized tree carries a table of only its own bodies,
+ * next to the tree instead of as one string per node, so a shared table is never written as a whole. Thread-safe.
+ */
+public final class BodyTable implements Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	/**
+	 * Size above which the bodies are packed into another block, unless the block only holds one body.
+	 */
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	// block index, offset in the inflated block, length; one triple per body
+	@Nonnull private int[] entries = new int[48];
+	// high and low half of the hash; one pair per body
+	@Nonnull private long[] hashes = new long[32];
+	private int entryCount = 0;
+
+	// sealed blocks, deflated
+	@Nonnull private byte[][] blocks = new byte[0][];
+	@Nonnull private int[] blockSizes = new int[0];
+	private int blockCount = 0;
+
+	// the block that is still being filled, kept inflated, always empty after serialization
+	@Nonnull private transient byte[] openBlock = new byte[0];
+	private transient int openBlockSize = 0;
+
+	private boolean frozen = false;
+
+	@Nullable private transient Map<BodyHash, Integer> indexes;
+	@Nullable private transient SoftReference<byte[]>[] blockCache;
+
+
+	public BodyTable() {
+	}
+
+
+	//region Builder
+
+	/**
+	 * @param body body text
+	 * @return the hash of the body, which is also its key in this table
+	 */
+	@Nonnull
+	public BodyHash add(@Nonnull String body) {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		final BodyHash hash = BodyHash.of(bytes);
+		internalAdd(hash, bytes);
+		return hash;
+	}
+
+	/**
+	 * Copies a body of another table, without decoding or hashing it again.
+	 *
+	 * @param bodyTable the table that contains the body
+	 * @param hash body hash, returned by {@link #add} of the other table
+	 * @return the hash of the body, which is also its key in this table
+	 * @throws NoSuchElementException if the other table does not contain the body
+	 */
+	@Nonnull
+	public BodyHash addFrom(@Nonnull BodyTable bodyTable, @Nonnull BodyHash hash) {
+		synchronized (this) {
+			if (frozen) throw new UnsupportedOperationException("Frozen BodyTable!");
+			if (getIndexes().containsKey(hash)) return hash;
+		}
+		// the other table is only locked while the bytes are copied, so two tables are never locked together
+		internalAdd(hash, bodyTable.getBytes(hash));
+		return hash;
+	}
+
+	private synchronized void internalAdd(@Nonnull BodyHash hash, @Nonnull byte[] bytes) {
+		if (frozen) throw new UnsupportedOperationException("Frozen BodyTable!");
+		final Map<BodyHash, Integer> indexes = getIndexes();
+		if (indexes.containsKey(hash)) return;
+
+		if (openBlockSize > 0 && openBlockSize + bytes.length > BLOCK_SIZE) sealBlock();
+		if (openBlock.length < openBlockSize + bytes.length) {
+			this.openBlock = Arrays.copyOf(openBlock, Math.max(openBlockSize + bytes.length, BLOCK_SIZE));
+		}
+
+		final int index = entryCount++;
+		if (entries.length < entryCount * 3) this.entries = Arrays.copyOf(entries, entries.length * 2);
+		if (hashes.length < entryCount * 2) this.hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		entries[index * 3] = blockCount;
+		entries[index * 3 + 1] = openBlockSize;
+		entries[index * 3 + 2] = bytes.length;
+		hashes[index * 2] = hash.getHigh();
+		hashes[index * 2 + 1] = hash.getLow();
+		System.arraycopy(bytes, 0, openBlock, openBlockSize, bytes.length);
+		this.openBlockSize += bytes.length;
+		indexes.put(hash, index);
+	}
+
+	/**
+	 * Adds a block of bodies that is already deflated by {@link #deflate}, without inflating the block or hashing the
+	 * bodies again. The block is only inflated when one of its bodies is read, and the bodies that this table already
+	 * contains are still read from where they were before.
+	 *
+	 * @param bodyHashes hash of every body of the block, in order
+	 * @param bodyLengths length in bytes of every body of the block, in order
+	 * @param block the deflated block
+	 * @param blockSize length of the inflated block, which is the sum of the lengths
+	 * @throws IllegalArgumentException if the lengths do not add up to the block size
+	 */
+	public synchronized void addBlock(@Nonnull BodyHash[] bodyHashes, @Nonnull int[] bodyLengths, @Nonnull byte[] block,
+			int blockSize) {
+		if (frozen) throw new UnsupportedOperationException("Frozen BodyTable!");
+		if (bodyHashes.length != bodyLengths.length) throw new IllegalArgumentException("Body count mismatch!");
+		long totalLength = 0;
+		for (final int length : bodyLengths) {
+			if (length < 0) throw new IllegalArgumentException("Invalid body length!");
+			totalLength += length;
+		}
+		if (totalLength != blockSize) throw new IllegalArgumentException("Block size mismatch!");
+
+		// the open block always comes after every sealed block
+		if (openBlockSize > 0) sealBlock();
+		final Map<BodyHash, Integer> indexes = getIndexes();
+		int offset = 0;
+		for (int i = 0; i < bodyHashes.length; i++) {
+			if (!indexes.containsKey(bodyHashes[i])) {
+				final int index = entryCount++;
+				if (entries.length < entryCount * 3) this.entries = Arrays.copyOf(entries, entries.length * 2);
+				if (hashes.length < entryCount * 2) this.hashes = Arrays.copyOf(hashes, hashes.length * 2);
+				entries[index * 3] = blockCount;
+				entries[index * 3 + 1] = offset;
+				entries[index * 3 + 2] = bodyLengths[i];
+				hashes[index * 2] = bodyHashes[i].getHigh();
+				hashes[index * 2 + 1] = bodyHashes[i].getLow();
+				indexes.put(bodyHashes[i], index);
+			}
+			offset += bodyLengths[i];
+		}
+		appendBlock(block, blockSize);
+	}
+
+	/**
+	 * @param bytes the bodies of a block, one after another
+	 * @param length number of bytes of the block
+	 * @return the block deflated as raw data, without a header
+	 */
+	@Nonnull
+	public static byte[] deflate(@Nonnull byte[] bytes, int length) {
+		final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+		try {
+			deflater.setInput(bytes, 0, length);
+			deflater.finish();
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(length / 4 + 16);
+			final byte[] buffer = new byte[8192];
+			while (!deflater.finished()) output.write(buffer, 0, deflater.deflate(buffer));
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void appendBlock(@Nonnull byte[] block, int blockSize) {
+		if (blocks.length <= blockCount) {
+			final int length = Math.max(blockCount * 2, 4);
+			this.blocks = Arrays.copyOf(blocks, length);
+			this.blockSizes = Arrays.copyOf(blockSizes, length);
+		}
+		blocks[blockCount] = block;
+		blockSizes[blockCount] = blockSize;
+		this.blockCount += 1;
+	}
+
+	private void sealBlock() {
+		appendBlock(deflate(openBlock, openBlockSize), openBlockSize);
+		this.openBlockSize = 0;
+	}
+
+	/**
+	 * Seals the last block and stops accepting new bodies.
+	 */
+	public synchronized void freeze() {
+		if (frozen) return;
+		if (openBlockSize > 0) sealBlock();
+		this.entries = Arrays.copyOf(entries, entryCount * 3);
+		this.hashes = Arrays.copyOf(hashes, entryCount * 2);
+		this.blocks = Arrays.copyOf(blocks, blockCount);
+		this.blockSizes = Arrays.copyOf(blockSizes, blockCount);
+		this.openBlock = new byte[0];
+		this.frozen = true;
+	}
+
+	//endregion Builder
+
+	//region Getter
+
+	@Nonnull
+	private Map<BodyHash, Integer> getIndexes() {
+		if (indexes != null) return indexes;
+		final Map<BodyHash, Integer> map = new HashMap<>(entryCount * 2);
+		for (int i = 0; i < entryCount; i++) map.put(new BodyHash(hashes[i * 2], hashes[i * 2 + 1]), i);
+		return this.indexes = map;
+	}
+
+	@Nonnull
+	private byte[] inflateBlock(int blockIndex) {
+		final Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(blocks[blockIndex]);
+			final byte[] output = new byte[blockSizes[blockIndex]];
+			int length = 0;
+			while (length < output.length) {
+				final int inflated = inflater.inflate(output, length, output.length - length);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput())) break;
+				length += inflated;
+			}
+			if (length != output.length) throw new IllegalStateException("Corrupted BodyTable!");
+			return output;
+		} catch (DataFormatException exception) {
+			throw new IllegalStateException("Corrupted BodyTable!", exception);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Nonnull
+	private byte[] getBlock(int blockIndex) {
+		if (blockIndex == blockCount) return openBlock;
+		if (blockCache == null || blockCache.length < blockCount) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			final SoftReference<byte[]>[] newBlockCache = blockCache == null
+					? new SoftReference[blocks.length]
+					: Arrays.copyOf(blockCache, blocks.length);
+			this.blockCache = newBlockCache;
+		}
+		final SoftReference<byte[]> reference = blockCache[blockIndex];
+		final byte[] cachedBlock = reference != null ? reference.get() : null;
+		if (cachedBlock != null) return cachedBlock;
+		final byte[] block = inflateBlock(blockIndex);
+		blockCache[blockIndex] = new SoftReference<>(block);
+		return block;
+	}
+
+	public synchronized boolean contains(@Nonnull BodyHash hash) {
+		return getIndexes().containsKey(hash);
+	}
+
+	/**
+	 * @param hash body hash, returned by {@link #add}
+	 * @return body text
+	 * @throws NoSuchElementException if this table does not contain the body
+	 */
+	@Nonnull
+	public String get(@Nonnull BodyHash hash) {
+		// only the bytes of the body are copied under the lock, they are decoded outside of it
+		return new String(getBytes(hash), StandardCharsets.UTF_8);
+	}
+
+	@Nonnull
+	private synchronized byte[] getBytes(@Nonnull BodyHash hash) {
+		final Integer index = getIndexes().get(hash);
+		if (index == null) throw new NoSuchElementException("Body " + hash + " does not exist in this table!");
+		final int offset = entries[index * 3 + 1];
+		return Arrays.copyOfRange(getBlock(entries[index * 3]), offset, offset + entries[index * 3 + 2]);
+	}
+
+	public synchronized int size() {
+		return entryCount;
+	}
+
+	//endregion Getter
+
+	//region Serialization Helper
+
+	private synchronized void writeObject(@Nonnull ObjectOutputStream outputStream) throws IOException {
+		// a shared table is never frozen, only its last block is sealed so it is written compressed too
+		if (openBlockSize > 0) sealBlock();
+		outputStream.defaultWriteObject();
+	}
+
+	private void readObject(@Nonnull ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+		inputStream.defaultReadObject();
+		this.openBlock = new byte[0];
+	}
+
+	//endregion Serialization Helper
+
+}
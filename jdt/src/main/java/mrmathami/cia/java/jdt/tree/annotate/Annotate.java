@@ -28,6 +28,7 @@ import mrmathami.cia.java.tree.annotate.JavaAnnotate;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -108,23 +109,23 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonEnd(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonEnd(builder);
-		builder.append(", \"name\": \"").append(name).append('"');
+	protected void internalToReferenceJsonEnd(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonEnd(writer);
+		writer.append(", \"name\": \"").append(name).append('"');
 	}
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (node != null) {
-			builder.append(", \"node\": { ");
-			node.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(", \"node\": { ");
+			node.internalToReferenceJson(writer);
+			writer.append(" }");
 		}
 		if (!parameters.isEmpty()) {
-			builder.append(", \"parameters\": [");
-			internalArrayToJson(builder, indentation, true, parameters);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"parameters\": [");
+			internalArrayToJson(writer, indentation, true, parameters);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -197,18 +198,18 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
-			builder.append(", \"name\": \"").append(name).append('"');
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
+			writer.append(", \"name\": \"").append(name).append('"');
 			if (node != null) {
-				builder.append(", \"node\": { ");
-				node.internalToReferenceJson(builder);
-				builder.append(" }");
+				writer.append(", \"node\": { ");
+				node.internalToReferenceJson(writer);
+				writer.append(" }");
 			}
 			if (value != null) {
-				builder.append(", \"value\": { ");
-				value.internalToJson(builder, indentation);
-				builder.append(" }");
+				writer.append(", \"value\": { ");
+				value.internalToJson(writer, indentation);
+				writer.append(" }");
 			}
 		}
 
@@ -273,12 +274,12 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
 			if (!values.isEmpty()) {
-				builder.append(", \"values\": [");
-				internalArrayToJson(builder, indentation, true, values);
-				builder.append('\n').append(indentation).append(']');
+				writer.append(", \"values\": [");
+				internalArrayToJson(writer, indentation, true, values);
+				writer.append('\n').append(indentation).append(']');
 			}
 		}
 
@@ -324,16 +325,16 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
-			builder.append(", \"type\": \"").append(getValueType())
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
+			writer.append(", \"type\": \"").append(getValueType())
 					.append("\", \"value\": ");
 			if (value instanceof String) {
-				builder.append('"');
-				internalEscapeString(builder, (String) value);
-				builder.append('"');
+				writer.append('"');
+				internalEscapeString(writer, (String) value);
+				writer.append('"');
 			} else {
-				builder.append(value);
+				writer.append(String.valueOf(value));
 			}
 		}
 
@@ -379,13 +380,13 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
-			builder.append(", \"describe\": \"").append(describe).append('"');
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
+			writer.append(", \"describe\": \"").append(describe).append('"');
 			if (node != null) {
-				builder.append(", \"node\": { ");
-				node.internalToReferenceJson(builder);
-				builder.append(" }");
+				writer.append(", \"node\": { ");
+				node.internalToReferenceJson(writer);
+				writer.append(" }");
 			}
 		}
 
@@ -430,12 +431,12 @@ public final class Annotate extends AbstractIdentifiedEntity implements JavaAnno
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
 			if (annotate != null) {
-				builder.append(", \"annotate\": { ");
-				annotate.internalToReferenceJson(builder);
-				builder.append(" }");
+				writer.append(", \"annotate\": { ");
+				annotate.internalToReferenceJson(writer);
+				writer.append(" }");
 			}
 		}
 
@@ -23,7 +23,11 @@ import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.tree.dependency.JavaDependency;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 public final class DependencyWeightTable implements JavaDependencyWeightTable, Serializable {
@@ -68,23 +72,27 @@ public final class DependencyWeightTable implements JavaDependencyWeightTable, S
 	@Nonnull
 	@Override
 	public String toString() {
-		final StringBuilder builder = new StringBuilder();
-		toString(builder);
-		return builder.toString();
+		final StringWriter writer = new StringWriter();
+		try {
+			toJson(writer);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+		return writer.toString();
 	}
 
-	public void toString(@Nonnull StringBuilder builder) {
+	public void toJson(@Nonnull Writer writer) throws IOException {
 		final double[] weights = this.weights;
-		builder.append('{');
+		writer.append('{');
 		boolean innerNext = false;
 		for (int i = 0; i < weights.length; i++) {
 			if (weights[i] != 0) {
-				builder.append(innerNext ? ", \"" : " \"")
-						.append(JavaDependency.VALUE_LIST.get(i)).append("\": ").append(weights[i]);
+				writer.append(innerNext ? ", \"" : " \"").append(JavaDependency.VALUE_LIST.get(i).name())
+						.append("\": ").append(String.valueOf(weights[i]));
 				innerNext = true;
 			}
 		}
-		builder.append(innerNext ? " }" : "}");
+		writer.append(innerNext ? " }" : "}");
 	}
 
 }
@@ -27,6 +27,7 @@ import mrmathami.collections.ImmutableOrderedMap;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -42,6 +43,11 @@ public abstract class AbstractNode extends AbstractIdentifiedEntity implements J
 	@Nonnull private transient Map<AbstractNode, DependencyCountTable> dependencyFrom = new LinkedHashMap<>();
 	@Nonnull private transient Map<AbstractNode, DependencyCountTable> dependencyTo = new LinkedHashMap<>();
 
+	private int subtreeEnd;
+	private long identityHash;
+	private long nodeHash;
+	private long subtreeHash;
+
 
 	protected static void checkParent(@Nonnull AbstractNode parentNode, @Nonnull Class<?>... nodeClasses) {
 		for (final Class<?> nodeClass : nodeClasses) {
@@ -121,8 +127,48 @@ public abstract class AbstractNode extends AbstractIdentifiedEntity implements J
 		return node;
 	}
 
+	@Override
+	public final int getSubtreeEnd() {
+		assertFrozen();
+		return subtreeEnd;
+	}
+
 	//endregion Tree Node
 
+	//region Identity Hash
+
+	/**
+	 * @return hash of the entity class and the unique name of this node, which stays the same in every snapshot
+	 */
+	public final long getIdentityHash() {
+		assertFrozen();
+		return identityHash;
+	}
+
+	/**
+	 * @return hash of everything an identical match compares on this node, not including its children
+	 */
+	public final long getNodeHash() {
+		assertFrozen();
+		return nodeHash;
+	}
+
+	/**
+	 * @return hash of this node and every node in its subtree, in pre-order
+	 */
+	public final long getSubtreeHash() {
+		assertFrozen();
+		return subtreeHash;
+	}
+
+	final void internalSetHashes(long identityHash, long nodeHash, long subtreeHash) {
+		this.identityHash = identityHash;
+		this.nodeHash = nodeHash;
+		this.subtreeHash = subtreeHash;
+	}
+
+	//endregion Identity Hash
+
 	//region Serialization Helper
 
 	// must be call when @Override
@@ -133,6 +179,7 @@ public abstract class AbstractNode extends AbstractIdentifiedEntity implements J
 		this.dependencyFrom = ImmutableOrderedMap.copyOf(dependencyFrom);
 		this.dependencyTo = ImmutableOrderedMap.copyOf(dependencyTo);
 		for (final AbstractNode child : children) child.internalFreeze(map);
+		this.subtreeEnd = map.get(getIdClass()).size();
 		return false;
 	}
 
@@ -158,35 +205,35 @@ public abstract class AbstractNode extends AbstractIdentifiedEntity implements J
 
 	//region Jsonify
 
-	private static void internalDependencyMapToJson(@Nonnull StringBuilder builder, @Nonnull String indentation,
-			@Nonnull Map<AbstractNode, DependencyCountTable> dependencyMap) {
+	private static void internalDependencyMapToJson(@Nonnull Writer writer, @Nonnull String indentation,
+			@Nonnull Map<AbstractNode, DependencyCountTable> dependencyMap) throws IOException {
 		boolean next = false;
 		for (final Map.Entry<AbstractNode, DependencyCountTable> entry : dependencyMap.entrySet()) {
-			builder.append(next ? ",\n\t" : "\n\t").append(indentation).append("[ { ");
-			entry.getKey().internalToReferenceJson(builder);
-			builder.append(" }, ");
-			entry.getValue().toString(builder);
-			builder.append(" ]");
+			writer.append(next ? ",\n\t" : "\n\t").append(indentation).append("[ { ");
+			entry.getKey().internalToReferenceJson(writer);
+			writer.append(" }, ");
+			entry.getValue().toJson(writer);
+			writer.append(" ]");
 			next = true;
 		}
 	}
 
 	@Override
-	protected void internalToJsonEnd(@Nonnull StringBuilder builder, @Nonnull String indentation) {
+	protected void internalToJsonEnd(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
 		if (!dependencyTo.isEmpty()) {
-			builder.append(", \"dependencyTo\": [");
-			internalDependencyMapToJson(builder, indentation, dependencyTo);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"dependencyTo\": [");
+			internalDependencyMapToJson(writer, indentation, dependencyTo);
+			writer.append('\n').append(indentation).append(']');
 		}
 		if (!dependencyFrom.isEmpty()) {
-			builder.append(", \"dependencyFrom\": [");
-			internalDependencyMapToJson(builder, indentation, dependencyFrom);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"dependencyFrom\": [");
+			internalDependencyMapToJson(writer, indentation, dependencyFrom);
+			writer.append('\n').append(indentation).append(']');
 		}
 		if (!children.isEmpty()) {
-			builder.append(", \"children\": [");
-			internalArrayToJson(builder, indentation, true, children);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"children\": [");
+			internalArrayToJson(writer, indentation, true, children);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
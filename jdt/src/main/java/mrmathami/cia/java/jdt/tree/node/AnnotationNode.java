@@ -24,6 +24,9 @@ import mrmathami.cia.java.jdt.project.SourceFile;
 import mrmathami.cia.java.jdt.tree.node.attribute.AbstractModifiedAnnotatedNode;
 import mrmathami.cia.java.tree.node.JavaAnnotationNode;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public final class AnnotationNode extends AbstractModifiedAnnotatedNode implements JavaAnnotationNode {
 
 	private static final long serialVersionUID = -1L;
@@ -52,9 +55,9 @@ public final class AnnotationNode extends AbstractModifiedAnnotatedNode implemen
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonStart(builder);
-		builder.append(", \"binaryName\": \"").append(binaryName).append('"');
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonStart(writer);
+		writer.append(", \"binaryName\": \"").append(binaryName).append('"');
 	}
 
 	//endregion Jsonify
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.tree.node;
+
+import mrmathami.annotations.Nonnull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Finds the strongly connected components of a directed graph with Tarjan's algorithm, using explicit stacks so that
+ * a long dependency chain cannot overflow the call stack. Components are numbered in topological order, so every
+ * edge between two components goes from the lower component id to the higher one.
+ */
+public final class ComponentFinder {
+
+	private ComponentFinder() {
+	}
+
+
+	/**
+	 * @param offsets the edges of vertex v are at positions offsets[v] to offsets[v + 1] exclusive
+	 * @param targets target vertex of each edge
+	 * @return component id of each vertex
+	 */
+	@Nonnull
+	public static int[] findComponents(@Nonnull int[] offsets, @Nonnull int[] targets) {
+		final int vertexCount = offsets.length - 1;
+		final int[] indexes = new int[vertexCount];
+		final int[] lowLinks = new int[vertexCount];
+		final int[] componentIds = new int[vertexCount];
+		final BitSet onStack = new BitSet(vertexCount);
+		final int[] stack = new int[vertexCount];
+		final int[] callVertices = new int[vertexCount];
+		final int[] callPositions = new int[vertexCount];
+		Arrays.fill(indexes, -1);
+
+		int nextIndex = 0, stackSize = 0, componentCount = 0;
+		for (int root = 0; root < vertexCount; root++) {
+			if (indexes[root] >= 0) continue;
+
+			int callDepth = 0;
+			callVertices[0] = root;
+			callPositions[0] = offsets[root];
+			indexes[root] = lowLinks[root] = nextIndex++;
+			stack[stackSize++] = root;
+			onStack.set(root);
+			callDepth += 1;
+
+			while (callDepth > 0) {
+				final int vertex = callVertices[callDepth - 1];
+				final int position = callPositions[callDepth - 1];
+				if (position < offsets[vertex + 1]) {
+					callPositions[callDepth - 1] = position + 1;
+					final int target = targets[position];
+					if (indexes[target] < 0) {
+						// visit the target as if it were a recursive call
+						indexes[target] = lowLinks[target] = nextIndex++;
+						stack[stackSize++] = target;
+						onStack.set(target);
+						callVertices[callDepth] = target;
+						callPositions[callDepth] = offsets[target];
+						callDepth += 1;
+					} else if (onStack.get(target)) {
+						lowLinks[vertex] = Math.min(lowLinks[vertex], indexes[target]);
+					}
+					continue;
+				}
+
+				// every edge of the vertex is visited, return from its call
+				callDepth -= 1;
+				if (lowLinks[vertex] == indexes[vertex]) {
+					int member;
+					do {
+						member = stack[--stackSize];
+						onStack.clear(member);
+						componentIds[member] = componentCount;
+					} while (member != vertex);
+					componentCount += 1;
+				}
+				if (callDepth > 0) {
+					final int caller = callVertices[callDepth - 1];
+					lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[vertex]);
+				}
+			}
+		}
+
+		// a component is found after every component it reaches, so reverse the order to make it topological
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			componentIds[vertex] = componentCount - 1 - componentIds[vertex];
+		}
+		return componentIds;
+	}
+
+}
@@ -29,6 +29,7 @@ import mrmathami.cia.java.tree.node.JavaEnumNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -101,18 +102,18 @@ public final class EnumNode extends AbstractParameterizedModifiedAnnotatedNode i
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonStart(builder);
-		builder.append(", \"binaryName\": \"").append(binaryName).append('"');
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonStart(writer);
+		writer.append(", \"binaryName\": \"").append(binaryName).append('"');
 	}
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!implementsInterfaces.isEmpty()) {
-			builder.append(", \"implementsInterfaces\": [");
-			internalArrayToReferenceJson(builder, indentation, implementsInterfaces);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"implementsInterfaces\": [");
+			internalArrayToReferenceJson(writer, indentation, implementsInterfaces);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -26,6 +26,8 @@ import mrmathami.cia.java.jdt.tree.node.attribute.AbstractModifiedAnnotatedNode;
 import mrmathami.cia.java.jdt.tree.type.AbstractType;
 import mrmathami.cia.java.tree.node.JavaFieldNode;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 
@@ -72,12 +74,12 @@ public final class FieldNode extends AbstractModifiedAnnotatedNode implements Ja
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (type != null) {
-			builder.append(", \"type\": { ");
-			type.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(", \"type\": { ");
+			type.internalToReferenceJson(writer);
+			writer.append(" }");
 		}
 	}
 
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.tree.node;
+
+import mrmathami.annotations.Nonnull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ids of the nodes of a tree sorted by their identity hashes. The indexes of two trees can be joined in one pass over
+ * both of them, which finds every node that has the same entity class and unique name in both trees.
+ */
+public final class IdentityIndex implements Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	@Nonnull private final long[] identities;
+	@Nonnull private final int[] nodeIds;
+
+
+	IdentityIndex(@Nonnull List<AbstractNode> nodes) {
+		final int size = nodes.size();
+		final Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) order[i] = i;
+		Arrays.sort(order, Comparator.<Integer>comparingLong(index -> nodes.get(index).getIdentityHash())
+				.thenComparingInt(index -> nodes.get(index).getId()));
+
+		this.identities = new long[size];
+		this.nodeIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			final AbstractNode node = nodes.get(order[i]);
+			identities[i] = node.getIdentityHash();
+			nodeIds[i] = node.getId();
+		}
+	}
+
+
+	//region Getter
+
+	public int size() {
+		return identities.length;
+	}
+
+	/**
+	 * @param position position in this index, from 0 to size exclusive
+	 * @return identity hash at that position, never less than the one before it
+	 */
+	public long getIdentityHash(int position) {
+		return identities[position];
+	}
+
+	/**
+	 * @param position position in this index, from 0 to size exclusive
+	 * @return id of the node at that position
+	 */
+	public int getNodeId(int position) {
+		return nodeIds[position];
+	}
+
+	//endregion Getter
+
+}
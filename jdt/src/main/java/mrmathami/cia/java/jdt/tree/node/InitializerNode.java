@@ -23,6 +23,8 @@ import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.jdt.project.SourceFile;
 import mrmathami.cia.java.jdt.tree.AbstractIdentifiedEntity;
 import mrmathami.cia.java.jdt.tree.AbstractNonIdentifiedEntity;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
 import mrmathami.cia.java.jdt.tree.node.attribute.AbstractNonRootNode;
 import mrmathami.cia.java.tree.node.JavaFieldNode;
 import mrmathami.cia.java.tree.node.JavaInitializerNode;
@@ -30,6 +32,7 @@ import mrmathami.cia.java.tree.node.JavaInitializerNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -77,9 +80,15 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 	public boolean internalFreeze(@Nonnull Map<String, List<AbstractIdentifiedEntity>> map) {
 		if (super.internalFreeze(map)) return true;
 		this.initializers = List.copyOf(initializers);
+		for (final InitializerImpl initializer : initializers) initializer.internalFreeze(map);
 		return false;
 	}
 
+	void internalStoreBodies(@Nonnull BodyTable bodyTable) {
+		assertFrozen();
+		for (final InitializerImpl initializer : initializers) initializer.internalStoreBody(bodyTable);
+	}
+
 	private void writeObject(@Nonnull ObjectOutputStream outputStream)
 			throws IOException, UnsupportedOperationException {
 		assertFrozen();
@@ -99,18 +108,18 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonStart(builder);
-		builder.append(", \"isStatic\": ").append(isStatic);
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonStart(writer);
+		writer.append(", \"isStatic\": ").append(String.valueOf(isStatic));
 	}
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!initializers.isEmpty()) {
-			builder.append(", \"initializers\": [");
-			internalArrayToJson(builder, indentation, true, initializers);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"initializers\": [");
+			internalArrayToJson(writer, indentation, true, initializers);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -120,38 +129,94 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 
 		private static final long serialVersionUID = -1L;
 
+
+		/**
+		 * @return content hash of the body
+		 */
+		@Nonnull
+		public abstract BodyHash getBodyHash();
+
+		abstract void internalStoreBody(@Nonnull BodyTable bodyTable);
+
+		/**
+		 * @param bodyTable the table to copy the body into, without moving this initializer to it
+		 * @return the hash of the body
+		 */
+		@Nonnull
+		abstract BodyHash internalCopyBody(@Nonnull BodyTable bodyTable);
+
+		abstract void internalAttachBody(@Nonnull StoredBody storedBody);
+
 	}
 
 	public static final class BlockInitializerImpl extends InitializerImpl implements BlockInitializer {
 
 		private static final long serialVersionUID = -1L;
 
-		@Nonnull private final String bodyBlock;
+		@Nullable private transient String bodyBlock;
+		@Nullable private transient volatile StoredBody storedBody;
 
 
 		public BlockInitializerImpl(@Nonnull String bodyBlock) {
 			this.bodyBlock = bodyBlock;
 		}
 
+		/**
+		 * @param bodyTable the table that already contains the body, which is not read
+		 * @param bodyHash hash of the body in the table
+		 */
+		public BlockInitializerImpl(@Nonnull BodyTable bodyTable, @Nonnull BodyHash bodyHash) {
+			this.storedBody = new StoredBody(bodyTable, bodyHash);
+		}
+
 
 		//region Getter & Setter
 
 		@Nonnull
 		@Override
 		public String getBodyBlock() {
-			return bodyBlock;
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.getBody() : bodyBlock;
+		}
+
+		@Nonnull
+		@Override
+		public BodyHash getBodyHash() {
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.getBodyHash() : BodyHash.of(getBodyBlock());
 		}
 
 		//endregion Getter & Setter
 
+		@Override
+		void internalStoreBody(@Nonnull BodyTable bodyTable) {
+			assertFrozen();
+			final StoredBody storedBody = this.storedBody;
+			this.storedBody = storedBody != null ? storedBody.copyTo(bodyTable)
+					: new StoredBody(bodyTable, bodyTable.add(getBodyBlock()));
+			this.bodyBlock = null;
+		}
+
+		@Nonnull
+		@Override
+		BodyHash internalCopyBody(@Nonnull BodyTable bodyTable) {
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.copyTo(bodyTable).getBodyHash() : bodyTable.add(getBodyBlock());
+		}
+
+		@Override
+		void internalAttachBody(@Nonnull StoredBody storedBody) {
+			this.storedBody = storedBody;
+		}
+
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonEnd(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonEnd(builder, indentation);
-			builder.append(", \"bodyBlock\": \"");
-			internalEscapeString(builder, bodyBlock);
-			builder.append('"');
+		protected void internalToJsonEnd(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonEnd(writer, indentation);
+			writer.append(", \"bodyBlock\": \"");
+			internalEscapeString(writer, getBodyBlock());
+			writer.append('"');
 		}
 
 		//endregion Jsonify
@@ -162,7 +227,8 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 		private static final long serialVersionUID = -1L;
 
 		@Nonnull private final FieldNode fieldNode;
-		@Nonnull private final String initialExpression;
+		@Nullable private transient String initialExpression;
+		@Nullable private transient volatile StoredBody storedBody;
 
 
 		public FieldInitializerImpl(@Nonnull FieldNode fieldNode, @Nonnull String initialExpression) {
@@ -170,6 +236,16 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 			this.initialExpression = initialExpression;
 		}
 
+		/**
+		 * @param bodyTable the table that already contains the initial expression, which is not read
+		 * @param bodyHash hash of the initial expression in the table
+		 */
+		public FieldInitializerImpl(@Nonnull FieldNode fieldNode, @Nonnull BodyTable bodyTable,
+				@Nonnull BodyHash bodyHash) {
+			this.fieldNode = fieldNode;
+			this.storedBody = new StoredBody(bodyTable, bodyHash);
+		}
+
 
 		//region Getter & Setter
 
@@ -182,21 +258,54 @@ public final class InitializerNode extends AbstractNonRootNode implements JavaIn
 		@Nonnull
 		@Override
 		public String getInitialExpression() {
-			return initialExpression;
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.getBody() : initialExpression;
+		}
+
+		/**
+		 * @return content hash of the initial expression
+		 */
+		@Nonnull
+		@Override
+		public BodyHash getBodyHash() {
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.getBodyHash() : BodyHash.of(getInitialExpression());
 		}
 
 		//endregion Getter & Setter
 
+		@Override
+		void internalStoreBody(@Nonnull BodyTable bodyTable) {
+			assertFrozen();
+			final StoredBody storedBody = this.storedBody;
+			this.storedBody = storedBody != null ? storedBody.copyTo(bodyTable)
+					: new StoredBody(bodyTable, bodyTable.add(getInitialExpression()));
+			this.initialExpression = null;
+		}
+
+		@Nonnull
+		@Override
+		BodyHash internalCopyBody(@Nonnull BodyTable bodyTable) {
+			final StoredBody storedBody = this.storedBody;
+			return storedBody != null ? storedBody.copyTo(bodyTable).getBodyHash()
+					: bodyTable.add(getInitialExpression());
+		}
+
+		@Override
+		void internalAttachBody(@Nonnull StoredBody storedBody) {
+			this.storedBody = storedBody;
+		}
+
 		//region Jsonify
 
 		@Override
-		protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-			super.internalToJsonStart(builder, indentation);
-			builder.append(", \"fieldNode\": { ");
-			fieldNode.internalToReferenceJson(builder);
-			builder.append(" }, \"initialExpression\": \"");
-			internalEscapeString(builder, initialExpression);
-			builder.append('"');
+		protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+			super.internalToJsonStart(writer, indentation);
+			writer.append(", \"fieldNode\": { ");
+			fieldNode.internalToReferenceJson(writer);
+			writer.append(" }, \"initialExpression\": \"");
+			internalEscapeString(writer, getInitialExpression());
+			writer.append('"');
 		}
 
 		//endregion Jsonify
@@ -29,6 +29,7 @@ import mrmathami.cia.java.tree.node.JavaInterfaceNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -102,18 +103,18 @@ public final class InterfaceNode extends AbstractParameterizedModifiedAnnotatedN
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonStart(builder);
-		builder.append(", \"binaryName\": \"").append(binaryName).append('"');
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonStart(writer);
+		writer.append(", \"binaryName\": \"").append(binaryName).append('"');
 	}
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!extendsInterfaces.isEmpty()) {
-			builder.append(", \"extendsInterfaces\": [");
-			internalArrayToReferenceJson(builder, indentation, extendsInterfaces);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"extendsInterfaces\": [");
+			internalArrayToReferenceJson(writer, indentation, extendsInterfaces);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
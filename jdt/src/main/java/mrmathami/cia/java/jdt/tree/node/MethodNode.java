@@ -22,6 +22,8 @@ import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.jdt.project.SourceFile;
 import mrmathami.cia.java.jdt.tree.AbstractIdentifiedEntity;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
 import mrmathami.cia.java.jdt.tree.node.attribute.AbstractParameterizedModifiedAnnotatedNode;
 import mrmathami.cia.java.jdt.tree.type.AbstractType;
 import mrmathami.cia.java.tree.node.JavaMethodNode;
@@ -29,6 +31,7 @@ import mrmathami.cia.java.tree.node.JavaMethodNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -40,7 +43,8 @@ public final class MethodNode extends AbstractParameterizedModifiedAnnotatedNode
 	private final boolean isConstructor;
 	@Nonnull private final List<AbstractType> parameters;
 	@Nullable private AbstractType returnType;
-	@Nullable private String bodyBlock;
+	@Nullable private transient String bodyBlock;
+	@Nullable private transient volatile StoredBody storedBody;
 
 	@Nonnull private transient List<AbstractType> exceptions = List.of();
 
@@ -108,12 +112,36 @@ public final class MethodNode extends AbstractParameterizedModifiedAnnotatedNode
 	)
 	@Override
 	public String getBodyBlock() {
-		return bodyBlock;
+		// after freeze, the body only lives in the body table and is read from it on each call
+		final StoredBody storedBody = this.storedBody;
+		return storedBody != null ? storedBody.getBody() : bodyBlock;
+	}
+
+	/**
+	 * @return content hash of the body, or null if this method has no body
+	 */
+	@Nullable
+	public BodyHash getBodyHash() {
+		final StoredBody storedBody = this.storedBody;
+		return storedBody != null ? storedBody.getBodyHash() : bodyBlock != null ? BodyHash.of(bodyBlock) : null;
 	}
 
 	public void setBodyBlock(@Nullable String bodyBlock) {
 		assertNonFrozen();
 		this.bodyBlock = bodyBlock;
+		this.storedBody = null;
+	}
+
+	/**
+	 * Sets the body to one that is already kept in a body table, without reading it.
+	 *
+	 * @param bodyTable the table that contains the body
+	 * @param bodyHash hash of the body in the table, or null if this method has no body
+	 */
+	public void setBodyHash(@Nonnull BodyTable bodyTable, @Nullable BodyHash bodyHash) {
+		assertNonFrozen();
+		this.bodyBlock = null;
+		this.storedBody = bodyHash != null ? new StoredBody(bodyTable, bodyHash) : null;
 	}
 
 	//endregion Getter & Setter
@@ -130,6 +158,33 @@ public final class MethodNode extends AbstractParameterizedModifiedAnnotatedNode
 		return false;
 	}
 
+	void internalStoreBody(@Nonnull BodyTable bodyTable) {
+		assertFrozen();
+		// a concurrent reader sees either the old or the new holder, both have the body
+		final StoredBody storedBody = this.storedBody;
+		if (storedBody != null) {
+			this.storedBody = storedBody.copyTo(bodyTable);
+		} else if (bodyBlock != null) {
+			this.storedBody = new StoredBody(bodyTable, bodyTable.add(bodyBlock));
+			this.bodyBlock = null;
+		}
+	}
+
+	/**
+	 * @param bodyTable the table to copy the body into, without moving this method to it
+	 * @return the hash of the body, or null if this method has no body
+	 */
+	@Nullable
+	BodyHash internalCopyBody(@Nonnull BodyTable bodyTable) {
+		final StoredBody storedBody = this.storedBody;
+		return storedBody != null ? storedBody.copyTo(bodyTable).getBodyHash()
+				: bodyBlock != null ? bodyTable.add(bodyBlock) : null;
+	}
+
+	void internalAttachBody(@Nonnull StoredBody storedBody) {
+		this.storedBody = storedBody;
+	}
+
 	private void writeObject(@Nonnull ObjectOutputStream outputStream)
 			throws IOException, UnsupportedOperationException {
 		assertFrozen();
@@ -149,32 +204,33 @@ public final class MethodNode extends AbstractParameterizedModifiedAnnotatedNode
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (returnType != null) {
-			builder.append(", \"type\": { ");
-			returnType.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(", \"type\": { ");
+			returnType.internalToReferenceJson(writer);
+			writer.append(" }");
 		}
 		if (!parameters.isEmpty()) {
-			builder.append(", \"parameters\": [");
-			internalArrayToReferenceJson(builder, indentation, parameters);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"parameters\": [");
+			internalArrayToReferenceJson(writer, indentation, parameters);
+			writer.append('\n').append(indentation).append(']');
 		}
 		if (!exceptions.isEmpty()) {
-			builder.append(", \"exceptions\": [");
-			internalArrayToReferenceJson(builder, indentation, exceptions);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"exceptions\": [");
+			internalArrayToReferenceJson(writer, indentation, exceptions);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
 	@Override
-	protected void internalToJsonEnd(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonEnd(builder, indentation);
+	protected void internalToJsonEnd(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonEnd(writer, indentation);
+		final String bodyBlock = getBodyBlock();
 		if (bodyBlock != null) {
-			builder.append(", \"bodyBlock\": \"");
-			internalEscapeString(builder, bodyBlock);
-			builder.append('"');
+			writer.append(", \"bodyBlock\": \"");
+			internalEscapeString(writer, bodyBlock);
+			writer.append('"');
 		}
 	}
 
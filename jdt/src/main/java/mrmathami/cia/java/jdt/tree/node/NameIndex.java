@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.tree.node;
+
+import mrmathami.annotations.Nonnull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Index from a node name to the ids of the nodes with that name. Names are kept in a sorted array, so that names
+ * sharing a prefix are next to each other, and a hash table maps each distinct name to its first position in that
+ * array. The index is built once when the tree is frozen and serialized with it.
+ */
+final class NameIndex implements Serializable {
+
+	private static final long serialVersionUID = -1L;
+
+	@Nonnull private final String[] names;
+	@Nonnull private final int[] nodeIds;
+	@Nonnull private final int[] slots;
+
+
+	NameIndex(@Nonnull List<AbstractNode> nodes, @Nonnull Function<AbstractNode, String> nameFunction) {
+		final int size = nodes.size();
+		final String[] nodeNames = new String[size];
+		final Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			nodeNames[i] = nameFunction.apply(nodes.get(i));
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.<Integer, String>comparing(index -> nodeNames[index])
+				.thenComparingInt(index -> nodes.get(index).getId()));
+
+		this.names = new String[size];
+		this.nodeIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			final int index = order[i];
+			names[i] = nodeNames[index];
+			nodeIds[i] = nodes.get(index).getId();
+		}
+
+		// the table is at most half full, so a probe sequence is always short and always ends at an empty slot
+		final int capacity = Integer.highestOneBit(Math.max(size, 1) * 4 - 1);
+		this.slots = new int[capacity];
+		Arrays.fill(slots, -1);
+		for (int i = 0; i < size; i++) {
+			if (i > 0 && names[i].equals(names[i - 1])) continue;
+			int slot = hash(names[i]) & (capacity - 1);
+			while (slots[slot] >= 0) slot = (slot + 1) & (capacity - 1);
+			slots[slot] = i;
+		}
+	}
+
+
+	private static int hash(@Nonnull String name) {
+		final int hash = name.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @param allNodes all nodes of the tree, indexed by id
+	 * @param name the name
+	 * @return nodes with that name, in id order
+	 */
+	@Nonnull
+	List<AbstractNode> get(@Nonnull List<AbstractNode> allNodes, @Nonnull String name) {
+		final int mask = slots.length - 1;
+		for (int slot = hash(name) & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+			final int position = slots[slot];
+			if (names[position].equals(name)) {
+				int end = position + 1;
+				while (end < names.length && names[end].equals(name)) end += 1;
+				return collect(allNodes, position, end);
+			}
+		}
+		return List.of();
+	}
+
+	/**
+	 * @param allNodes all nodes of the tree, indexed by id
+	 * @param prefix the name prefix
+	 * @return nodes with a name that starts with the prefix, in name order
+	 */
+	@Nonnull
+	List<AbstractNode> getByPrefix(@Nonnull List<AbstractNode> allNodes, @Nonnull String prefix) {
+		// binary search for the first name that is not less than the prefix
+		int low = 0, high = names.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (names[middle].compareTo(prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int end = low;
+		while (end < names.length && names[end].startsWith(prefix)) end += 1;
+		return collect(allNodes, low, end);
+	}
+
+	@Nonnull
+	private List<AbstractNode> collect(@Nonnull List<AbstractNode> allNodes, int start, int end) {
+		final List<AbstractNode> nodes = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) nodes.add(allNodes.get(nodeIds[i]));
+		return List.copyOf(nodes);
+	}
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package mrmathami.cia.java.jdt.tree.node;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.BlockInitializerImpl;
+import mrmathami.cia.java.jdt.tree.node.InitializerNode.FieldInitializerImpl;
+import mrmathami.cia.java.tree.annotate.JavaAnnotate;
+import mrmathami.cia.java.tree.dependency.JavaDependency;
+import mrmathami.cia.java.tree.dependency.JavaDependencyCountTable;
+import mrmathami.cia.java.tree.node.JavaClassNode;
+import mrmathami.cia.java.tree.node.JavaEnumNode;
+import mrmathami.cia.java.tree.node.JavaFieldNode;
+import mrmathami.cia.java.tree.node.JavaInitializerNode;
+import mrmathami.cia.java.tree.node.JavaInterfaceNode;
+import mrmathami.cia.java.tree.node.JavaMethodNode;
+import mrmathami.cia.java.tree.node.JavaNode;
+import mrmathami.cia.java.tree.node.attribute.JavaAnnotatedNode;
+import mrmathami.cia.java.tree.node.attribute.JavaModifiedNode;
+import mrmathami.cia.java.tree.node.attribute.JavaParameterizedNode;
+import mrmathami.cia.java.tree.node.attribute.JavaTypeNode;
+import mrmathami.cia.java.tree.type.JavaReferenceType;
+import mrmathami.cia.java.tree.type.JavaSimpleType;
+import mrmathami.cia.java.tree.type.JavaSyntheticType;
+import mrmathami.cia.java.tree.type.JavaType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes the hashes of the nodes of a frozen tree. The identity hash of a node only covers its entity class and its
+ * unique name, so it is the same for the same node in every snapshot. The node hash of a node covers everything an
+ * identical match compares on that node, and the subtree hash combines the node hash with the subtree hashes of its
+ * children in order. Nodes that are only required to be similar, like dependency targets, are hashed by what a
+ * similar match compares on them.
+ */
+final class NodeHasher {
+
+	private static final long SEED = 0xCBF29CE484222325L;
+	private static final long PRIME = 0x100000001B3L;
+	private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+	private static final byte HASHING = 1;
+	private static final byte HASHED = 2;
+
+	@Nonnull private final List<AbstractNode> allNodes;
+	@Nonnull private final long[] nodeHashes;
+	@Nonnull private final byte[] nodeStates;
+	@Nonnull private final long[] similarHashes;
+	@Nonnull private final byte[] similarStates;
+
+
+	private NodeHasher(@Nonnull List<AbstractNode> allNodes) {
+		this.allNodes = allNodes;
+		this.nodeHashes = new long[allNodes.size()];
+		this.nodeStates = new byte[allNodes.size()];
+		this.similarHashes = new long[allNodes.size()];
+		this.similarStates = new byte[allNodes.size()];
+	}
+
+
+	/**
+	 * @param allNodes every node of a frozen tree, in pre-order
+	 */
+	static void hashNodes(@Nonnull List<AbstractNode> allNodes) {
+		final NodeHasher hasher = new NodeHasher(allNodes);
+		// children come after their parent in pre-order, so they are always hashed first
+		for (int id = allNodes.size() - 1; id >= 0; id--) {
+			final AbstractNode node = allNodes.get(id);
+			final long nodeHash = hasher.nodeHash(node);
+			long subtreeHash = combine(SEED, nodeHash);
+			for (final AbstractNode child : node.getChildren()) {
+				subtreeHash = combine(subtreeHash, child.getSubtreeHash());
+			}
+			node.internalSetHashes(identityHash(node), nodeHash, subtreeHash);
+		}
+	}
+
+
+	//region Hash Helper
+
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB93E53FD5CC5L;
+		return hash ^ (hash >>> 33);
+	}
+
+	private static long combine(long hash, long value) {
+		return mix((hash ^ value) * PRIME + value);
+	}
+
+	private static long stringHash(@Nullable String string) {
+		if (string == null) return NULL_HASH;
+		long hash = SEED;
+		for (int index = 0; index < string.length(); index++) {
+			hash = (hash ^ string.charAt(index)) * PRIME;
+		}
+		return mix(hash);
+	}
+
+	private static long bodyHash(@Nullable BodyHash bodyHash) {
+		return bodyHash != null ? combine(bodyHash.getHigh(), bodyHash.getLow()) : NULL_HASH;
+	}
+
+	private static <E> long orderedHash(@Nonnull List<? extends E> list, @Nonnull ToLongFunction<E> function) {
+		long hash = combine(SEED, list.size());
+		for (final E element : list) hash = combine(hash, function.applyAsLong(element));
+		return hash;
+	}
+
+	private static <E> long unorderedHash(@Nonnull List<? extends E> list, @Nonnull ToLongFunction<E> function) {
+		// a sum does not depend on the order of the elements but still counts repeated ones
+		long hash = 0;
+		for (final E element : list) hash += mix(function.applyAsLong(element));
+		return combine(combine(SEED, list.size()), hash);
+	}
+
+	//endregion Hash Helper
+
+	//region Node
+
+	private static long identityHash(@Nonnull JavaNode node) {
+		return combine(stringHash(node.getEntityClass()), stringHash(node.getUniqueName()));
+	}
+
+	private static long nameHash(@Nullable JavaNode node) {
+		if (node == null) return NULL_HASH;
+		long hash = stringHash(node.getEntityClass());
+		hash = combine(hash, stringHash(node.getSimpleName()));
+		hash = combine(hash, stringHash(node.getQualifiedName()));
+		return combine(hash, stringHash(node.getUniqueName()));
+	}
+
+	private boolean isTreeNode(@Nonnull JavaNode node) {
+		final int id = node.getId();
+		return id >= 0 && id < allNodes.size() && allNodes.get(id) == node;
+	}
+
+	private long similarHash(@Nullable JavaNode node) {
+		if (node == null) return NULL_HASH;
+		if (!isTreeNode(node)) return nameHash(node);
+		final int id = node.getId();
+		if (similarStates[id] == HASHED) return similarHashes[id];
+		// nodes that depend on each other in a cycle see the others by their names only
+		if (similarStates[id] == HASHING) return nameHash(node);
+
+		similarStates[id] = HASHING;
+		final long hash = internalSimilarHash(allNodes.get(id));
+		similarHashes[id] = hash;
+		similarStates[id] = HASHED;
+		return hash;
+	}
+
+	private long internalSimilarHash(@Nonnull AbstractNode node) {
+		long hash = nameHash(node);
+		if (!node.isRoot()) hash = combine(hash, similarHash(node.getParent()));
+		if (node instanceof JavaParameterizedNode) {
+			final List<? extends JavaType> typeParameters = ((JavaParameterizedNode) node).getTypeParameters();
+			hash = combine(hash, orderedHash(typeParameters, this::similarTypeHash));
+		}
+		if (node instanceof JavaMethodNode) {
+			hash = combine(hash, orderedHash(((JavaMethodNode) node).getParameters(), this::similarTypeHash));
+		}
+		return hash;
+	}
+
+	private long nodeHash(@Nullable JavaNode node) {
+		if (node == null) return NULL_HASH;
+		if (!isTreeNode(node)) return nameHash(node);
+		final int id = node.getId();
+		if (nodeStates[id] == HASHED) return nodeHashes[id];
+		// nodes that identically depend on each other in a cycle see the others by their names only
+		if (nodeStates[id] == HASHING) return nameHash(node);
+
+		nodeStates[id] = HASHING;
+		final long hash = internalNodeHash(allNodes.get(id));
+		nodeHashes[id] = hash;
+		nodeStates[id] = HASHED;
+		return hash;
+	}
+
+	private long internalNodeHash(@Nonnull AbstractNode node) {
+		long hash = similarHash(node);
+		if (node instanceof JavaModifiedNode) {
+			hash = combine(hash, ((JavaModifiedNode) node).getModifiers());
+		}
+		if (node instanceof JavaAnnotatedNode) {
+			hash = combine(hash, unorderedHash(((JavaAnnotatedNode) node).getAnnotates(), this::annotateHash));
+		}
+		if (node instanceof JavaParameterizedNode) {
+			hash = combine(hash, orderedHash(((JavaParameterizedNode) node).getTypeParameters(), this::typeHash));
+		}
+		if (node instanceof JavaTypeNode) {
+			hash = combine(hash, stringHash(((JavaTypeNode) node).getBinaryName()));
+		}
+		if (node instanceof JavaClassNode) {
+			final JavaClassNode classNode = (JavaClassNode) node;
+			hash = combine(hash, typeHash(classNode.getExtendsClass()));
+			hash = combine(hash, unorderedHash(classNode.getImplementsInterfaces(), this::typeHash));
+		} else if (node instanceof JavaEnumNode) {
+			hash = combine(hash, unorderedHash(((JavaEnumNode) node).getImplementsInterfaces(), this::typeHash));
+		} else if (node instanceof JavaInterfaceNode) {
+			hash = combine(hash, unorderedHash(((JavaInterfaceNode) node).getExtendsInterfaces(), this::typeHash));
+		} else if (node instanceof JavaFieldNode) {
+			hash = combine(hash, typeHash(((JavaFieldNode) node).getType()));
+		} else if (node instanceof JavaMethodNode) {
+			final JavaMethodNode methodNode = (JavaMethodNode) node;
+			hash = combine(hash, orderedHash(methodNode.getParameters(), this::typeHash));
+			hash = combine(hash, typeHash(methodNode.getReturnType()));
+			hash = combine(hash, unorderedHash(methodNode.getExceptions(), this::typeHash));
+			hash = combine(hash, node instanceof MethodNode
+					? bodyHash(((MethodNode) node).getBodyHash())
+					: stringHash(methodNode.getBodyBlock()));
+		} else if (node instanceof JavaInitializerNode) {
+			final JavaInitializerNode initializerNode = (JavaInitializerNode) node;
+			hash = combine(hash, initializerNode.isStatic() ? 1 : 0);
+			hash = combine(hash, orderedHash(initializerNode.getInitializers(), this::initializerHash));
+		}
+		return combine(hash, dependencyHash(node.getDependencyTo()));
+	}
+
+	private long initializerHash(@Nonnull JavaInitializerNode.Initializer initializer) {
+		if (initializer instanceof JavaInitializerNode.BlockInitializer) {
+			return initializer instanceof BlockInitializerImpl
+					? bodyHash(((BlockInitializerImpl) initializer).getBodyHash())
+					: stringHash(((JavaInitializerNode.BlockInitializer) initializer).getBodyBlock());
+		} else if (initializer instanceof JavaInitializerNode.FieldInitializer) {
+			final JavaInitializerNode.FieldInitializer fieldInitializer
+					= (JavaInitializerNode.FieldInitializer) initializer;
+			return combine(nodeHash(fieldInitializer.getFieldNode()), initializer instanceof FieldInitializerImpl
+					? bodyHash(((FieldInitializerImpl) initializer).getBodyHash())
+					: stringHash(fieldInitializer.getInitialExpression()));
+		}
+		return NULL_HASH;
+	}
+
+	private long dependencyHash(@Nonnull Map<AbstractNode, ? extends JavaDependencyCountTable> dependencyMap) {
+		long hash = 0;
+		for (final Map.Entry<AbstractNode, ? extends JavaDependencyCountTable> entry : dependencyMap.entrySet()) {
+			long entryHash = similarHash(entry.getKey());
+			final JavaDependencyCountTable countTable = entry.getValue();
+			for (final JavaDependency type : JavaDependency.VALUE_LIST) {
+				entryHash = combine(entryHash, countTable.getCount(type));
+			}
+			hash += mix(entryHash);
+		}
+		return combine(combine(SEED, dependencyMap.size()), hash);
+	}
+
+	//endregion Node
+
+	//region Type & Annotate
+
+	private long typeHash(@Nullable JavaType type) {
+		return typeHash(type, true);
+	}
+
+	private long similarTypeHash(@Nullable JavaType type) {
+		return typeHash(type, false);
+	}
+
+	private long typeHash(@Nullable JavaType type, boolean identical) {
+		if (type == null) return NULL_HASH;
+		final ToLongFunction<JavaType> function = identical ? this::typeHash : this::similarTypeHash;
+		long hash = stringHash(type.getEntityClass());
+		hash = combine(hash, stringHash(type.getDescription()));
+		if (identical) hash = combine(hash, unorderedHash(type.getAnnotates(), this::annotateHash));
+		if (type instanceof JavaReferenceType) {
+			final JavaReferenceType referenceType = (JavaReferenceType) type;
+			hash = combine(hash, similarHash(referenceType.getNode()));
+			hash = combine(hash, orderedHash(referenceType.getArguments(), function));
+		} else if (type instanceof JavaSimpleType) {
+			hash = combine(hash, function.applyAsLong(((JavaSimpleType) type).getInnerType()));
+		} else if (type instanceof JavaSyntheticType) {
+			hash = combine(hash, unorderedHash(((JavaSyntheticType) type).getBounds(), function));
+		}
+		return hash;
+	}
+
+	private long annotateHash(@Nonnull JavaAnnotate annotate) {
+		long hash = stringHash(annotate.getName());
+		hash = combine(hash, nodeHash(annotate.getNode()));
+		return combine(hash, unorderedHash(annotate.getParameters(), this::parameterHash));
+	}
+
+	private long parameterHash(@Nonnull JavaAnnotate.Parameter parameter) {
+		long hash = stringHash(parameter.getName());
+		hash = combine(hash, nodeHash(parameter.getNode()));
+		return combine(hash, valueHash(parameter.getValue()));
+	}
+
+	private long valueHash(@Nullable JavaAnnotate.Value value) {
+		if (value == null) return NULL_HASH;
+		final long hash = stringHash(value.getEntityClass());
+		if (value instanceof JavaAnnotate.ArrayValue) {
+			return combine(hash, orderedHash(((JavaAnnotate.ArrayValue) value).getValues(), this::valueHash));
+		} else if (value instanceof JavaAnnotate.SimpleValue) {
+			final JavaAnnotate.SimpleValue simpleValue = (JavaAnnotate.SimpleValue) value;
+			return combine(combine(hash, stringHash(simpleValue.getValueType())),
+					stringHash(String.valueOf(simpleValue.getValue())));
+		} else if (value instanceof JavaAnnotate.NodeValue) {
+			final JavaAnnotate.NodeValue nodeValue = (JavaAnnotate.NodeValue) value;
+			return combine(combine(hash, stringHash(nodeValue.getDescribe())), nodeHash(nodeValue.getNode()));
+		} else if (value instanceof JavaAnnotate.AnnotateValue) {
+			return combine(hash, annotateHash(((JavaAnnotate.AnnotateValue) value).getAnnotate()));
+		}
+		return hash;
+	}
+
+	//endregion Type & Annotate
+
+}
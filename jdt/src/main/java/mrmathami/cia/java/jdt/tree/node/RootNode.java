@@ -19,7 +19,10 @@
 package mrmathami.cia.java.jdt.tree.node;
 
 import mrmathami.annotations.Nonnull;
+import mrmathami.annotations.Nullable;
 import mrmathami.cia.java.jdt.tree.AbstractIdentifiedEntity;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
 import mrmathami.cia.java.jdt.tree.annotate.Annotate;
 import mrmathami.cia.java.jdt.tree.type.AbstractType;
 import mrmathami.cia.java.tree.annotate.JavaAnnotate;
@@ -28,8 +31,10 @@ import mrmathami.cia.java.tree.node.JavaRootNode;
 import mrmathami.cia.java.tree.type.JavaType;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -45,6 +50,13 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 	@Nonnull private transient List<AbstractNode> allNodes = List.of();
 	@Nonnull private transient List<AbstractType> allTypes = List.of();
 	@Nonnull private transient List<Annotate> allAnnotates = List.of();
+	@Nullable private transient NameIndex uniqueNameIndex;
+	@Nullable private transient NameIndex qualifiedNameIndex;
+	@Nullable private transient IdentityIndex identityIndex;
+	@Nullable private transient int[] componentIds;
+	private transient int componentCount;
+	// the table that only holds the bodies of this tree, null once they are moved into a shared table
+	@Nullable private transient BodyTable bodyTable;
 
 
 	public RootNode() {
@@ -63,6 +75,16 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 	}
 
 	public void freeze() {
+		final BodyTable bodyTable = new BodyTable();
+		freeze(bodyTable);
+		bodyTable.freeze();
+		this.bodyTable = bodyTable;
+	}
+
+	/**
+	 * @param bodyTable the table to store the bodies of this tree in, can be shared with other trees
+	 */
+	public void freeze(@Nonnull BodyTable bodyTable) {
 		final Map<String, List<AbstractIdentifiedEntity>> map = new LinkedHashMap<>();
 		internalFreeze(map);
 
@@ -80,6 +102,96 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 		if (allAnnotates != null) {
 			this.allAnnotates = List.copyOf(collectionFilter(new ArrayList<>(), allAnnotates, Annotate.class));
 		}
+
+		this.uniqueNameIndex = new NameIndex(this.allNodes, AbstractNode::getUniqueName);
+		this.qualifiedNameIndex = new NameIndex(this.allNodes, AbstractNode::getQualifiedName);
+
+		// move every body into one compressed table, so they are neither held nor serialized as plain strings
+		storeBodies(bodyTable);
+
+		NodeHasher.hashNodes(this.allNodes);
+		this.identityIndex = new IdentityIndex(this.allNodes);
+		findComponents();
+	}
+
+	/**
+	 * @param bodyTable the table to copy the bodies into, or null to only take their hashes
+	 * @return the hash of every body of this tree, in the order they are attached again on load
+	 */
+	@Nonnull
+	private BodyHash[] collectBodies(@Nullable BodyTable bodyTable) {
+		final List<BodyHash> bodyHashes = new ArrayList<>();
+		for (final AbstractNode node : allNodes) {
+			if (node instanceof MethodNode) {
+				final MethodNode methodNode = (MethodNode) node;
+				bodyHashes.add(bodyTable != null ? methodNode.internalCopyBody(bodyTable) : methodNode.getBodyHash());
+			} else if (node instanceof InitializerNode) {
+				for (final InitializerNode.InitializerImpl initializer : ((InitializerNode) node).getInitializers()) {
+					bodyHashes.add(bodyTable != null
+							? initializer.internalCopyBody(bodyTable)
+							: initializer.getBodyHash());
+				}
+			}
+		}
+		return bodyHashes.toArray(new BodyHash[0]);
+	}
+
+	private void attachBodies(@Nonnull BodyTable bodyTable, @Nonnull BodyHash[] bodyHashes)
+			throws InvalidObjectException {
+		int index = 0;
+		for (final AbstractNode node : allNodes) {
+			if (node instanceof MethodNode) {
+				if (index >= bodyHashes.length) throw new InvalidObjectException("Missing body hashes!");
+				final BodyHash bodyHash = bodyHashes[index++];
+				if (bodyHash != null) ((MethodNode) node).internalAttachBody(new StoredBody(bodyTable, bodyHash));
+			} else if (node instanceof InitializerNode) {
+				for (final InitializerNode.InitializerImpl initializer : ((InitializerNode) node).getInitializers()) {
+					if (index >= bodyHashes.length || bodyHashes[index] == null) {
+						throw new InvalidObjectException("Missing body hashes!");
+					}
+					initializer.internalAttachBody(new StoredBody(bodyTable, bodyHashes[index++]));
+				}
+			}
+		}
+		if (index != bodyHashes.length) throw new InvalidObjectException("Unexpected body hashes!");
+	}
+
+	private void findComponents() {
+		final int nodeCount = allNodes.size();
+		final int[] offsets = new int[nodeCount + 1];
+		for (final AbstractNode node : allNodes) offsets[node.getId() + 1] = node.getDependencyFrom().size();
+		for (int id = 0; id < nodeCount; id++) offsets[id + 1] += offsets[id];
+
+		final int[] targets = new int[offsets[nodeCount]];
+		for (final AbstractNode node : allNodes) {
+			int position = offsets[node.getId()];
+			for (final AbstractNode dependent : node.getDependencyFrom().keySet()) {
+				targets[position++] = dependent.getId();
+			}
+		}
+
+		this.componentIds = ComponentFinder.findComponents(offsets, targets);
+		int componentCount = 0;
+		for (final int componentId : componentIds) componentCount = Math.max(componentCount, componentId + 1);
+		this.componentCount = componentCount;
+	}
+
+	/**
+	 * Moves the bodies of this frozen tree into another table, usually one shared by every snapshot of a project,
+	 * so that bodies which are the same in several trees are only held once.
+	 *
+	 * @param bodyTable the table to move the bodies into
+	 */
+	public void storeBodies(@Nonnull BodyTable bodyTable) {
+		assertFrozen();
+		if (bodyTable != this.bodyTable) this.bodyTable = null;
+		for (final AbstractNode node : allNodes) {
+			if (node instanceof MethodNode) {
+				((MethodNode) node).internalStoreBody(bodyTable);
+			} else if (node instanceof InitializerNode) {
+				((InitializerNode) node).internalStoreBodies(bodyTable);
+			}
+		}
 	}
 
 	//endregion Root Helper
@@ -135,8 +247,79 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 //		this.allAnnotates = allAnnotates;
 //	}
 
+	/**
+	 * Nodes that depend on each other, directly or through other nodes, are in the same strongly connected component.
+	 * Components are numbered in topological order of the dependency graph, so a node only impacts the nodes of its
+	 * own component and of components with a higher id.
+	 *
+	 * @param nodeId id of a node
+	 * @return id of the component of the node
+	 */
+	public int getComponentId(int nodeId) {
+		assertFrozen();
+		assert componentIds != null;
+		return componentIds[nodeId];
+	}
+
+	/**
+	 * @return the number of strongly connected components of the dependency graph
+	 */
+	public int getComponentCount() {
+		assertFrozen();
+		return componentCount;
+	}
+
 	//endregion Getter & Setter
 
+	//region Name Lookup
+
+	/**
+	 * @param uniqueName unique name
+	 * @return nodes with that unique name, usually at most one
+	 */
+	@Nonnull
+	public List<AbstractNode> getNodesByUniqueName(@Nonnull String uniqueName) {
+		assertFrozen();
+		assert uniqueNameIndex != null;
+		return uniqueNameIndex.get(allNodes, uniqueName);
+	}
+
+	/**
+	 * @param qualifiedName qualified name
+	 * @return nodes with that qualified name, such as every overload of a method
+	 */
+	@Nonnull
+	public List<AbstractNode> getNodesByQualifiedName(@Nonnull String qualifiedName) {
+		assertFrozen();
+		assert qualifiedNameIndex != null;
+		return qualifiedNameIndex.get(allNodes, qualifiedName);
+	}
+
+	/**
+	 * A prefix such as <code>"java.util."</code> enumerates everything inside a package.
+	 *
+	 * @param prefix qualified name prefix
+	 * @return nodes with a qualified name that starts with the prefix, sorted by qualified name
+	 */
+	@Nonnull
+	public List<AbstractNode> getNodesByQualifiedNamePrefix(@Nonnull String prefix) {
+		assertFrozen();
+		assert qualifiedNameIndex != null;
+		return qualifiedNameIndex.getByPrefix(allNodes, prefix);
+	}
+
+	/**
+	 * @return ids of every node sorted by their identity hashes
+	 */
+	@Nonnull
+	public IdentityIndex getIdentityIndex() {
+		assertFrozen();
+		assert identityIndex != null;
+		return identityIndex;
+	}
+
+	//endregion Name Lookup
+
 	//region Serialization Helper
 
 //	@Override
@@ -154,6 +337,19 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 		outputStream.writeObject(allNodes);
 		outputStream.writeObject(allTypes);
 		outputStream.writeObject(allAnnotates);
+		outputStream.writeObject(uniqueNameIndex);
+		outputStream.writeObject(qualifiedNameIndex);
+		outputStream.writeObject(identityIndex);
+		outputStream.writeObject(componentIds);
+		outputStream.writeInt(componentCount);
+
+		// only the bodies of this tree are written, never the whole table it may share with other trees
+		final BodyTable ownBodyTable = this.bodyTable;
+		final BodyTable bodyTable = ownBodyTable != null ? ownBodyTable : new BodyTable();
+		final BodyHash[] bodyHashes = collectBodies(ownBodyTable != null ? null : bodyTable);
+		bodyTable.freeze();
+		outputStream.writeObject(bodyTable);
+		outputStream.writeObject(bodyHashes);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -163,6 +359,17 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 		this.allNodes = (List<AbstractNode>) inputStream.readObject();
 		this.allTypes = (List<AbstractType>) inputStream.readObject();
 		this.allAnnotates = (List<Annotate>) inputStream.readObject();
+		this.uniqueNameIndex = (NameIndex) inputStream.readObject();
+		this.qualifiedNameIndex = (NameIndex) inputStream.readObject();
+		this.identityIndex = (IdentityIndex) inputStream.readObject();
+		this.componentIds = (int[]) inputStream.readObject();
+		this.componentCount = inputStream.readInt();
+
+		final BodyTable bodyTable = (BodyTable) inputStream.readObject();
+		final BodyHash[] bodyHashes = (BodyHash[]) inputStream.readObject();
+		this.bodyTable = bodyTable;
+		// the nodes might not be fully read yet, so the bodies are attached once the whole graph is
+		inputStream.registerValidation(() -> attachBodies(bodyTable, bodyHashes), 0);
 	}
 
 	//endregion Serialization Helper
@@ -170,22 +377,22 @@ public final class RootNode extends AbstractNode implements JavaRootNode {
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonEnd(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonEnd(builder, indentation);
+	protected void internalToJsonEnd(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonEnd(writer, indentation);
 		if (!allNodes.isEmpty()) {
-			builder.append(", \"allNodes\": [");
-			internalArrayToReferenceJson(builder, indentation, allNodes);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"allNodes\": [");
+			internalArrayToReferenceJson(writer, indentation, allNodes);
+			writer.append('\n').append(indentation).append(']');
 		}
 		if (!allTypes.isEmpty()) {
-			builder.append(", \"allTypes\": [");
-			internalArrayToJson(builder, indentation, true, allTypes);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"allTypes\": [");
+			internalArrayToJson(writer, indentation, true, allTypes);
+			writer.append('\n').append(indentation).append(']');
 		}
 		if (!allAnnotates.isEmpty()) {
-			builder.append(", \"allAnnotates\": [");
-			internalArrayToJson(builder, indentation, true, allAnnotates);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"allAnnotates\": [");
+			internalArrayToJson(writer, indentation, true, allAnnotates);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
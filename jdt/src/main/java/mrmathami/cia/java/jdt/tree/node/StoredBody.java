@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2020-2021 Mai Thanh Minh (a.k.a. thanhminhmr or mrmathami)
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package mrmathami.cia.java.jdt.tree.node;
+
+import mrmathami.annotations.Nonnull;
+import mrmathami.cia.java.jdt.tree.BodyHash;
+import mrmathami.cia.java.jdt.tree.BodyTable;
+
+/**
+ * A body that is kept in a body table. The table and the hash are published together, so a reader never sees the
+ * table of one body with the hash of another. Moving a body to another table replaces the whole holder.
+ */
+final class StoredBody {
+
+	@Nonnull private final BodyTable bodyTable;
+	@Nonnull private final BodyHash bodyHash;
+
+
+	StoredBody(@Nonnull BodyTable bodyTable, @Nonnull BodyHash bodyHash) {
+		this.bodyTable = bodyTable;
+		this.bodyHash = bodyHash;
+	}
+
+
+	//region Getter
+
+	@Nonnull
+	BodyTable getBodyTable() {
+		return bodyTable;
+	}
+
+	@Nonnull
+	BodyHash getBodyHash() {
+		return bodyHash;
+	}
+
+	@Nonnull
+	String getBody() {
+		return bodyTable.get(bodyHash);
+	}
+
+	/**
+	 * @param bodyTable the table to copy the body into, without decoding it
+	 * @return the holder of the body in that table
+	 */
+	@Nonnull
+	StoredBody copyTo(@Nonnull BodyTable bodyTable) {
+		return bodyTable == this.bodyTable ? this
+				: new StoredBody(bodyTable, bodyTable.addFrom(this.bodyTable, bodyHash));
+	}
+
+	//endregion Getter
+
+}
@@ -29,6 +29,7 @@ import mrmathami.cia.java.tree.node.attribute.JavaAnnotatedNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -94,12 +95,12 @@ public abstract class AbstractAnnotatedNode extends AbstractNonRootNode implemen
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!annotates.isEmpty()) {
-			builder.append(", \"annotates\": [");
-			internalArrayToReferenceJson(builder, indentation, annotates);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"annotates\": [");
+			internalArrayToReferenceJson(writer, indentation, annotates);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -25,6 +25,9 @@ import mrmathami.cia.java.jdt.tree.node.AbstractNode;
 import mrmathami.cia.java.tree.JavaModifier;
 import mrmathami.cia.java.tree.node.attribute.JavaModifiedNode;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public abstract class AbstractModifiedAnnotatedNode extends AbstractAnnotatedNode implements JavaModifiedNode {
 
 	private static final long serialVersionUID = -1L;
@@ -60,18 +63,18 @@ public abstract class AbstractModifiedAnnotatedNode extends AbstractAnnotatedNod
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonEnd(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonEnd(builder);
+	protected void internalToReferenceJsonEnd(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonEnd(writer);
 		if (modifiers != 0) {
-			builder.append(", \"modifiers\": [ ");
+			writer.append(", \"modifiers\": [ ");
 			boolean next = false;
 			for (final JavaModifier modifier : JavaModifier.VALUE_LIST) {
 				if (isContainModifier(modifier)) {
-					builder.append(next ? ", \"" : "\"").append(modifier).append('"');
+					writer.append(next ? ", \"" : "\"").append(modifier.name()).append('"');
 					next = true;
 				}
 			}
-			builder.append(" ]");
+			writer.append(" ]");
 		}
 	}
 
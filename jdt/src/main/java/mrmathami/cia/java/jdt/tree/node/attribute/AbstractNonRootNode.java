@@ -25,6 +25,9 @@ import mrmathami.cia.java.jdt.tree.node.AbstractNode;
 import mrmathami.cia.java.jdt.tree.node.RootNode;
 import mrmathami.cia.java.project.JavaSourceFile;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public abstract class AbstractNonRootNode extends AbstractNode {
 
 	private static final long serialVersionUID = -1L;
@@ -144,11 +147,15 @@ public abstract class AbstractNonRootNode extends AbstractNode {
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonStart(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonStart(builder);
-		builder.append(", \"simpleName\": \"").append(simpleName)
-				.append("\", \"qualifiedName\": \"").append(qualifiedName)
-				.append("\", \"uniqueName\": \"").append(uniqueName).append('"');
+	protected void internalToReferenceJsonStart(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonStart(writer);
+		writer.append(", \"simpleName\": \"");
+		internalEscapeString(writer, simpleName);
+		writer.append("\", \"qualifiedName\": \"");
+		internalEscapeString(writer, qualifiedName);
+		writer.append("\", \"uniqueName\": \"");
+		internalEscapeString(writer, uniqueName);
+		writer.append('"');
 	}
 
 	//endregion Jsonify
@@ -29,6 +29,7 @@ import mrmathami.cia.java.tree.node.attribute.JavaParameterizedNode;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -96,12 +97,12 @@ public abstract class AbstractParameterizedModifiedAnnotatedNode extends Abstrac
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!typeParameters.isEmpty()) {
-			builder.append(", \"typeParameters\": [");
-			internalArrayToReferenceJson(builder, indentation, typeParameters);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"typeParameters\": [");
+			internalArrayToReferenceJson(writer, indentation, typeParameters);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -26,6 +26,7 @@ import mrmathami.cia.java.tree.type.JavaType;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -93,18 +94,18 @@ public abstract class AbstractType extends AbstractIdentifiedEntity implements J
 	//region Jsonify
 
 	@Override
-	protected void internalToReferenceJsonEnd(@Nonnull StringBuilder builder) {
-		super.internalToReferenceJsonEnd(builder);
-		builder.append(", \"describe\": \"").append(description).append('"');
+	protected void internalToReferenceJsonEnd(@Nonnull Writer writer) throws IOException {
+		super.internalToReferenceJsonEnd(writer);
+		writer.append(", \"describe\": \"").append(description).append('"');
 	}
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!annotates.isEmpty()) {
-			builder.append(", \"annotates\": [");
-			internalArrayToJson(builder, indentation, false, annotates);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"annotates\": [");
+			internalArrayToJson(writer, indentation, false, annotates);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
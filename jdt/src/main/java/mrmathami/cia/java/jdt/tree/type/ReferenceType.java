@@ -27,6 +27,7 @@ import mrmathami.cia.java.tree.type.JavaReferenceType;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -100,17 +101,17 @@ public final class ReferenceType extends AbstractType implements JavaReferenceTy
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (node != null) {
-			builder.append(", \"node\": { ");
-			node.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(", \"node\": { ");
+			node.internalToReferenceJson(writer);
+			writer.append(" }");
 		}
 		if (!arguments.isEmpty()) {
-			builder.append(", \"arguments\": [");
-			internalArrayToReferenceJson(builder, indentation, arguments);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"arguments\": [");
+			internalArrayToReferenceJson(writer, indentation, arguments);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
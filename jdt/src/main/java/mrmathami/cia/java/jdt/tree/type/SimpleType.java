@@ -20,8 +20,14 @@ package mrmathami.cia.java.jdt.tree.type;
 
 import mrmathami.annotations.Nonnull;
 import mrmathami.annotations.Nullable;
+import mrmathami.cia.java.jdt.tree.AbstractIdentifiedEntity;
 import mrmathami.cia.java.tree.type.JavaSimpleType;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
 public final class SimpleType extends AbstractType implements JavaSimpleType {
 
 	private static final long serialVersionUID = -1L;
@@ -50,15 +56,26 @@ public final class SimpleType extends AbstractType implements JavaSimpleType {
 
 	//endregion Getter & Setter
 
+	//region Serialization Helper
+
+	@Override
+	public boolean internalFreeze(@Nonnull Map<String, List<AbstractIdentifiedEntity>> map) {
+		if (super.internalFreeze(map)) return true;
+		if (innerType != null) innerType.internalFreeze(map);
+		return false;
+	}
+
+	//endregion Serialization Helper
+
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (innerType != null) {
-			builder.append(", \"innerType\": { ");
-			innerType.internalToReferenceJson(builder);
-			builder.append(" }");
+			writer.append(", \"innerType\": { ");
+			innerType.internalToReferenceJson(writer);
+			writer.append(" }");
 		}
 	}
 
@@ -25,6 +25,7 @@ import mrmathami.cia.java.tree.type.JavaSyntheticType;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -85,12 +86,12 @@ public final class SyntheticType extends AbstractType implements JavaSyntheticTy
 	//region Jsonify
 
 	@Override
-	protected void internalToJsonStart(@Nonnull StringBuilder builder, @Nonnull String indentation) {
-		super.internalToJsonStart(builder, indentation);
+	protected void internalToJsonStart(@Nonnull Writer writer, @Nonnull String indentation) throws IOException {
+		super.internalToJsonStart(writer, indentation);
 		if (!bounds.isEmpty()) {
-			builder.append(", \"bounds\": [");
-			internalArrayToReferenceJson(builder, indentation, bounds);
-			builder.append('\n').append(indentation).append(']');
+			writer.append(", \"bounds\": [");
+			internalArrayToReferenceJson(writer, indentation, bounds);
+			writer.append('\n').append(indentation).append(']');
 		}
 	}
 
@@ -9,9 +9,11 @@ import mrmathami.cia.java.project.JavaProjectSnapshotComparison;
 import mrmathami.cia.java.project.JavaSourceFileType;
 import mrmathami.cia.java.tree.dependency.JavaDependency;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
+import mrmathami.cia.java.tree.helper.Jsonify;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -59,11 +61,12 @@ public class X {
 				DEPENDENCY_WEIGHT_TABLE, inputSourcesB, Set.of(new JavaBuildParameter(List.of(), false)));
 		final long timeParseB = System.nanoTime();
 
-		final String jsonA = projectSnapshotA.getRootNode().toJson();
-		final String jsonB = projectSnapshotB.getRootNode().toJson();
-
-		Files.write(Path.of("test/outputA.json"), jsonA.getBytes(StandardCharsets.UTF_8));
-		Files.write(Path.of("test/outputB.json"), jsonB.getBytes(StandardCharsets.UTF_8));
+		try (final Writer writer = Files.newBufferedWriter(Path.of("test/outputA.json"), StandardCharsets.UTF_8)) {
+			projectSnapshotA.getRootNode().toJson(writer);
+		}
+		try (final Writer writer = Files.newBufferedWriter(Path.of("test/outputB.json"), StandardCharsets.UTF_8)) {
+			projectSnapshotB.getRootNode().toJson(writer);
+		}
 
 		System.out.printf("Parse A time: %s\n", (timeParseA - timeStart) / 1000000.0);
 		System.out.printf("Parse B time: %s\n", (timeParseB - timeParseA) / 1000000.0);
@@ -85,7 +88,9 @@ public class X {
 
 		System.out.printf("Compare time: %s\n", (timeCompareFinish - timeCompareStart) / 1000000.0);
 
-		System.out.println(snapshotComparison);
+		try (final Writer writer = Files.newBufferedWriter(Path.of("test/compare.json"), StandardCharsets.UTF_8)) {
+			((Jsonify) snapshotComparison).toJson(writer);
+		}
 //		}
 	}
 }
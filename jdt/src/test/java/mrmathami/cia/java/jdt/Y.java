@@ -8,6 +8,7 @@ import mrmathami.cia.java.tree.dependency.JavaDependency;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -43,9 +44,9 @@ public class Y {
 				DEPENDENCY_WEIGHT_TABLE, inputSources, Set.of(new JavaBuildParameter(classPaths, true)));
 		long timeParseA = System.nanoTime();
 
-		final String jsonA = projectSnapshot.getRootNode().toJson();
-
-		Files.write(Path.of("output.json"), jsonA.getBytes(StandardCharsets.UTF_8));
+		try (final Writer writer = Files.newBufferedWriter(Path.of("output.json"), StandardCharsets.UTF_8)) {
+			projectSnapshot.getRootNode().toJson(writer);
+		}
 
 		System.out.printf("Parse A time: %s\n", (timeParseA - timeStart) / 1000000.0);
 	}
@@ -8,6 +8,7 @@ import mrmathami.cia.java.tree.dependency.JavaDependency;
 import mrmathami.cia.java.tree.dependency.JavaDependencyWeightTable;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,9 +37,9 @@ public class Z {
 				DEPENDENCY_WEIGHT_TABLE, inputSources, Set.of(new JavaBuildParameter(List.of(), true)));
 		long timeParseA = System.nanoTime();
 
-		final String jsonA = projectSnapshot.getRootNode().toJson();
-
-		Files.write(inputPath.resolve("output.json"), jsonA.getBytes(StandardCharsets.UTF_8));
+		try (final Writer writer = Files.newBufferedWriter(inputPath.resolve("output.json"), StandardCharsets.UTF_8)) {
+			projectSnapshot.getRootNode().toJson(writer);
+		}
 
 		System.out.printf("Parse A time: %s\n", (timeParseA - timeStart) / 1000000.0);
 	}